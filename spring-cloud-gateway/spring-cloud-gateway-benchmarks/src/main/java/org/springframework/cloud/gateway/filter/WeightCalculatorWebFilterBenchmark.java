@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.gateway.support.WeightConfig;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.WEIGHT_ATTR;
+
+/**
+ * Runs the weight calculation for {@code groups} weight groups of {@code routes} routes
+ * each, from several threads to expose contention on the random source.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class WeightCalculatorWebFilterBenchmark {
+
+	@Param({ "1", "10" })
+	int groups;
+
+	@Param({ "2", "20" })
+	int routes;
+
+	private final WebFilterChain chain = exchange -> Mono.empty();
+
+	private WeightCalculatorWebFilter filter;
+
+	@Setup
+	public void setup() {
+		this.filter = new WeightCalculatorWebFilter();
+		for (int group = 0; group < this.groups; group++) {
+			for (int route = 0; route < this.routes; route++) {
+				this.filter.addWeightConfig(new WeightConfig("group" + group,
+						"route" + group + "_" + route, route + 1));
+			}
+		}
+	}
+
+	@Benchmark
+	public String filter() {
+		ServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/"));
+		this.filter.filter(exchange, this.chain).block();
+		Map<String, String> weights = exchange.getAttribute(WEIGHT_ATTR);
+		return weights.get("group0");
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory.rewrite;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Decodes and encodes a gzip body of {@link #size} bytes. The {@code stream*} benchmarks
+ * measure the removed {@code GZIPInputStream} and {@code GZIPOutputStream} based
+ * resolver, the {@code bytes*} benchmarks the byte array methods of
+ * {@link GzipMessageBodyResolver} and the {@code flux*} benchmarks its streaming methods
+ * over the body split into 8 KB buffers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBodyResolverBenchmark {
+
+	private static final int CHUNK_SIZE = 8192;
+
+	@Param({ "1024", "65536", "1048576" })
+	private int size;
+
+	private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(
+			PooledByteBufAllocator.DEFAULT);
+
+	private final GzipMessageBodyResolver resolver = new GzipMessageBodyResolver();
+
+	private byte[] body;
+
+	private byte[] encoded;
+
+	@Setup
+	public void setup() throws IOException {
+		StringBuilder json = new StringBuilder();
+		for (int i = 0; json.length() < this.size; i++) {
+			json.append("{\"id\":").append(i).append(",\"name\":\"item ").append(i)
+					.append("\"}\n");
+		}
+		this.body = json.substring(0, this.size).getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(this.body);
+		}
+		this.encoded = out.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] streamDecode() throws IOException {
+		return FileCopyUtils.copyToByteArray(
+				new GZIPInputStream(new ByteArrayInputStream(this.encoded)));
+	}
+
+	@Benchmark
+	public byte[] streamEncode() throws IOException {
+		DataBuffer original = this.bufferFactory.wrap(this.body);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		FileCopyUtils.copy(original.asInputStream(), new GZIPOutputStream(out));
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] bytesDecode() {
+		return this.resolver.decode(this.encoded);
+	}
+
+	@Benchmark
+	public byte[] bytesEncode() {
+		return this.resolver.encode(this.bufferFactory.wrap(this.body));
+	}
+
+	@Benchmark
+	public long fluxDecode() {
+		return count(this.resolver.decode(chunks(this.encoded), this.bufferFactory));
+	}
+
+	@Benchmark
+	public long fluxEncode() {
+		return count(this.resolver.encode(chunks(this.body), this.bufferFactory));
+	}
+
+	private Flux<DataBuffer> chunks(byte[] bytes) {
+		List<DataBuffer> chunks = new ArrayList<>();
+		for (int offset = 0; offset < bytes.length; offset += CHUNK_SIZE) {
+			int length = Math.min(CHUNK_SIZE, bytes.length - offset);
+			DataBuffer chunk = this.bufferFactory.allocateBuffer(length);
+			chunk.write(bytes, offset, length);
+			chunks.add(chunk);
+		}
+		return Flux.fromIterable(chunks);
+	}
+
+	private static long count(Flux<DataBuffer> buffers) {
+		return buffers.map(buffer -> {
+			int count = buffer.readableByteCount();
+			DataBufferUtils.release(buffer);
+			return (long) count;
+		}).reduce(0L, Long::sum).block();
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.headers;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.addOriginalRequestUrl;
+
+/**
+ * Computes the X-Forwarded-* headers for a request that already went through a proxy and
+ * had its path rewritten.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XForwardedHeadersFilterBenchmark {
+
+	private XForwardedHeadersFilter filter;
+
+	private MockServerWebExchange exchange;
+
+	@Setup
+	public void setup() {
+		this.filter = new XForwardedHeadersFilter();
+		this.exchange = MockServerWebExchange.from(MockServerHttpRequest
+				.get("http://localhost:8080/prefix/get")
+				.remoteAddress(new InetSocketAddress("10.0.0.1", 80))
+				.header(HttpHeaders.HOST, "localhost:8080")
+				.header(XForwardedHeadersFilter.X_FORWARDED_FOR_HEADER, "192.168.0.2")
+				.header(XForwardedHeadersFilter.X_FORWARDED_PROTO_HEADER, "https"));
+		addOriginalRequestUrl(this.exchange,
+				URI.create("http://localhost:8080/prefix/get"));
+		this.exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR,
+				URI.create("http://downstream:8081/get"));
+	}
+
+	@Benchmark
+	public HttpHeaders filter() {
+		return this.filter.filter(this.exchange.getRequest().getHeaders(), this.exchange);
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Runs a route with {@code filters} pass-through filters through the
+ * {@link FilteringWebHandler} and through the previous per request combination of filters
+ * with a {@link Mono#defer} based chain.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilteringWebHandlerBenchmark {
+
+	@Param({ "5", "20" })
+	int filters;
+
+	private final List<GlobalFilter> globalFilters = new ArrayList<>();
+
+	private FilteringWebHandler handler;
+
+	private List<GatewayFilter> globalAdapters;
+
+	private Route route;
+
+	private ServerWebExchange exchange;
+
+	@Setup
+	public void setup() {
+		Route.AsyncBuilder builder = Route.async().id("route").uri("http://localhost")
+				.predicate(exchange -> true);
+		for (int i = 0; i < this.filters; i++) {
+			if (i % 2 == 0) {
+				this.globalFilters.add(new PassThroughGlobalFilter());
+			}
+			else {
+				builder.filter(new OrderedGatewayFilter(
+						(exchange, chain) -> chain.filter(exchange), i));
+			}
+		}
+		this.route = builder.build();
+		this.handler = new FilteringWebHandler(this.globalFilters);
+		this.globalAdapters = this.handler.getCombinedFilters(Route.async().id("global")
+				.uri("http://localhost").predicate(exchange -> true).build());
+		this.exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/"));
+		this.exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, this.route);
+	}
+
+	@Benchmark
+	public Void filteringWebHandler() {
+		return this.handler.handle(this.exchange).block();
+	}
+
+	@Benchmark
+	public Void deferredChain() {
+		List<GatewayFilter> combined = new ArrayList<>(this.globalAdapters);
+		combined.addAll(this.route.getFilters());
+		AnnotationAwareOrderComparator.sort(combined);
+		return new DeferredGatewayFilterChain(combined, 0).filter(this.exchange).block();
+	}
+
+	/**
+	 * The chain used before filters were combined and pre-linked once per route.
+	 */
+	private static class DeferredGatewayFilterChain implements GatewayFilterChain {
+
+		private final List<GatewayFilter> filters;
+
+		private final int index;
+
+		DeferredGatewayFilterChain(List<GatewayFilter> filters, int index) {
+			this.filters = filters;
+			this.index = index;
+		}
+
+		@Override
+		public Mono<Void> filter(ServerWebExchange exchange) {
+			return Mono.defer(() -> {
+				if (this.index < this.filters.size()) {
+					GatewayFilter filter = this.filters.get(this.index);
+					return filter.filter(exchange,
+							new DeferredGatewayFilterChain(this.filters, this.index + 1));
+				}
+				return Mono.empty();
+			});
+		}
+
+	}
+
+	private static class PassThroughGlobalFilter implements GlobalFilter {
+
+		@Override
+		public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+			return chain.filter(exchange);
+		}
+
+	}
+
+}
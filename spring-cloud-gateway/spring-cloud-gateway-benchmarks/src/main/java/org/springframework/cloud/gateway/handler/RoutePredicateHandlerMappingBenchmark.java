@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.handler.predicate.MethodRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+/**
+ * Looks up the last of {@code routes} Path routes, which is the worst case of the linear
+ * scan, with and without the route index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutePredicateHandlerMappingBenchmark {
+
+	@Param({ "10", "1000", "10000" })
+	int routes;
+
+	@Param({ "false", "true" })
+	boolean routeIndex;
+
+	private RoutePredicateHandlerMapping mapping;
+
+	private String path;
+
+	@Setup
+	public void setup() {
+		PathRoutePredicateFactory path = new PathRoutePredicateFactory();
+		MethodRoutePredicateFactory method = new MethodRoutePredicateFactory();
+		List<Route> routeList = new ArrayList<>(this.routes);
+		for (int i = 0; i < this.routes; i++) {
+			String pattern = "/service" + i + "/**";
+			routeList.add(Route.async().id("route" + i).uri("http://localhost").order(i)
+					.asyncPredicate(path.applyAsync(c -> c.setPattern(pattern))
+							.and(method.applyAsync(c -> c.setMethods(HttpMethod.GET))))
+					.build());
+		}
+		Flux<Route> cached = Flux.fromIterable(routeList).cache();
+		MockEnvironment environment = new MockEnvironment().withProperty(
+				RoutePredicateHandlerMapping.ROUTE_INDEX_ENABLED_PROPERTY,
+				String.valueOf(this.routeIndex));
+		this.mapping = new RoutePredicateHandlerMapping(null, () -> cached,
+				new GlobalCorsProperties(), environment);
+		this.path = "/service" + (this.routes - 1) + "/get";
+		// build the index outside of the measurement
+		lookupRoute();
+	}
+
+	@Benchmark
+	public Route lookupRoute() {
+		return this.mapping
+				.lookupRoute(
+						MockServerWebExchange.from(MockServerHttpRequest.get(this.path)))
+				.block();
+	}
+
+}
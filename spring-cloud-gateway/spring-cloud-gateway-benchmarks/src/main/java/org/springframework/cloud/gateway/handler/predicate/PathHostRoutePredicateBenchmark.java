@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler.predicate;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Evaluates Path and Host predicates against a fresh exchange, as each request does.
+ * {@link #exchange()} measures the cost of creating the exchange alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathHostRoutePredicateBenchmark {
+
+	private Predicate<ServerWebExchange> path;
+
+	private Predicate<ServerWebExchange> pathWithVariables;
+
+	private Predicate<ServerWebExchange> host;
+
+	@Setup
+	public void setup() {
+		PathRoutePredicateFactory pathFactory = new PathRoutePredicateFactory();
+		this.path = pathFactory.apply(c -> c
+				.setPatterns(Arrays.asList("/other/**", "/another/**", "/service/**")));
+		this.pathWithVariables = pathFactory
+				.apply(c -> c.setPattern("/service/{segment}/{id}"));
+		this.host = new HostRoutePredicateFactory().apply(
+				c -> c.setPatterns(Arrays.asList("**.example.org", "{sub}.example.com")));
+	}
+
+	@Benchmark
+	public ServerWebExchange exchange() {
+		return exchange("/service/foo/1");
+	}
+
+	@Benchmark
+	public boolean path() {
+		return this.path.test(exchange("/service/foo/1"));
+	}
+
+	@Benchmark
+	public boolean pathWithVariables() {
+		return this.pathWithVariables.test(exchange("/service/foo/1"));
+	}
+
+	@Benchmark
+	public boolean host() {
+		return this.host.test(exchange("/service/foo/1"));
+	}
+
+	private static ServerWebExchange exchange(String path) {
+		return MockServerWebExchange
+				.from(MockServerHttpRequest.get(path).header("Host", "www.example.com"));
+	}
+
+}
@@ -28,6 +28,7 @@ import reactor.core.publisher.Mono;
 import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
 import org.springframework.cloud.gateway.handler.predicate.RoutePredicateFactory;
 import org.springframework.cloud.gateway.route.RouteDefinition;
 import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
@@ -64,19 +65,34 @@ public class AbstractGatewayControllerEndpoint implements ApplicationEventPublis
 
 	protected RouteLocator routeLocator;
 
+	protected FilteringWebHandler filteringWebHandler;
+
 	protected ApplicationEventPublisher publisher;
 
+	@Deprecated
 	public AbstractGatewayControllerEndpoint(
 			RouteDefinitionLocator routeDefinitionLocator,
 			List<GlobalFilter> globalFilters, List<GatewayFilterFactory> gatewayFilters,
 			List<RoutePredicateFactory> routePredicates,
 			RouteDefinitionWriter routeDefinitionWriter, RouteLocator routeLocator) {
+		this(routeDefinitionLocator, globalFilters, gatewayFilters, routePredicates,
+				routeDefinitionWriter, routeLocator,
+				new FilteringWebHandler(globalFilters));
+	}
+
+	public AbstractGatewayControllerEndpoint(
+			RouteDefinitionLocator routeDefinitionLocator,
+			List<GlobalFilter> globalFilters, List<GatewayFilterFactory> gatewayFilters,
+			List<RoutePredicateFactory> routePredicates,
+			RouteDefinitionWriter routeDefinitionWriter, RouteLocator routeLocator,
+			FilteringWebHandler filteringWebHandler) {
 		this.routeDefinitionLocator = routeDefinitionLocator;
 		this.globalFilters = globalFilters;
 		this.GatewayFilters = gatewayFilters;
 		this.routePredicates = routePredicates;
 		this.routeDefinitionWriter = routeDefinitionWriter;
 		this.routeLocator = routeLocator;
+		this.filteringWebHandler = filteringWebHandler;
 	}
 
 	@Override
@@ -169,8 +185,10 @@ public class AbstractGatewayControllerEndpoint implements ApplicationEventPublis
 
 	@GetMapping("/routes/{id}/combinedfilters")
 	public Mono<HashMap<String, Object>> combinedfilters(@PathVariable String id) {
-		// TODO: missing global filters
 		return this.routeLocator.getRoutes().filter(route -> route.getId().equals(id))
+				.next()
+				.flatMapIterable(route -> this.filteringWebHandler
+						.getCombinedFilters(route))
 				.reduce(new HashMap<>(), this::putItem);
 	}
 
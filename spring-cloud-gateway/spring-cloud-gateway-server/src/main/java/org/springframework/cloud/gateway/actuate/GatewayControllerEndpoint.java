@@ -28,6 +28,7 @@ import org.springframework.boot.actuate.endpoint.web.annotation.RestControllerEn
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
 import org.springframework.cloud.gateway.handler.predicate.RoutePredicateFactory;
 import org.springframework.cloud.gateway.route.Route;
 import org.springframework.cloud.gateway.route.RouteDefinition;
@@ -45,13 +46,25 @@ import org.springframework.web.bind.annotation.PathVariable;
 @RestControllerEndpoint(id = "gateway")
 public class GatewayControllerEndpoint extends AbstractGatewayControllerEndpoint {
 
+	@Deprecated
 	public GatewayControllerEndpoint(List<GlobalFilter> globalFilters,
 			List<GatewayFilterFactory> gatewayFilters,
 			List<RoutePredicateFactory> routePredicates,
 			RouteDefinitionWriter routeDefinitionWriter, RouteLocator routeLocator,
 			RouteDefinitionLocator routeDefinitionLocator) {
+		this(globalFilters, gatewayFilters, routePredicates, routeDefinitionWriter,
+				routeLocator, routeDefinitionLocator,
+				new FilteringWebHandler(globalFilters));
+	}
+
+	public GatewayControllerEndpoint(List<GlobalFilter> globalFilters,
+			List<GatewayFilterFactory> gatewayFilters,
+			List<RoutePredicateFactory> routePredicates,
+			RouteDefinitionWriter routeDefinitionWriter, RouteLocator routeLocator,
+			RouteDefinitionLocator routeDefinitionLocator,
+			FilteringWebHandler filteringWebHandler) {
 		super(routeDefinitionLocator, globalFilters, gatewayFilters, routePredicates,
-				routeDefinitionWriter, routeLocator);
+				routeDefinitionWriter, routeLocator, filteringWebHandler);
 	}
 
 	@GetMapping("/routedefinitions")
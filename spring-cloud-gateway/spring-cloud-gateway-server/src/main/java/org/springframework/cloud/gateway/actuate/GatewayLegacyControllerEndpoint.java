@@ -27,6 +27,7 @@ import org.springframework.boot.actuate.endpoint.web.annotation.RestControllerEn
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
 import org.springframework.cloud.gateway.handler.predicate.RoutePredicateFactory;
 import org.springframework.cloud.gateway.route.Route;
 import org.springframework.cloud.gateway.route.RouteDefinition;
@@ -44,12 +45,23 @@ import org.springframework.web.bind.annotation.PathVariable;
 @RestControllerEndpoint(id = "gateway")
 public class GatewayLegacyControllerEndpoint extends AbstractGatewayControllerEndpoint {
 
+	@Deprecated
 	public GatewayLegacyControllerEndpoint(RouteDefinitionLocator routeDefinitionLocator,
 			List<GlobalFilter> globalFilters, List<GatewayFilterFactory> GatewayFilters,
 			List<RoutePredicateFactory> routePredicates,
 			RouteDefinitionWriter routeDefinitionWriter, RouteLocator routeLocator) {
+		this(routeDefinitionLocator, globalFilters, GatewayFilters, routePredicates,
+				routeDefinitionWriter, routeLocator,
+				new FilteringWebHandler(globalFilters));
+	}
+
+	public GatewayLegacyControllerEndpoint(RouteDefinitionLocator routeDefinitionLocator,
+			List<GlobalFilter> globalFilters, List<GatewayFilterFactory> GatewayFilters,
+			List<RoutePredicateFactory> routePredicates,
+			RouteDefinitionWriter routeDefinitionWriter, RouteLocator routeLocator,
+			FilteringWebHandler filteringWebHandler) {
 		super(routeDefinitionLocator, globalFilters, GatewayFilters, routePredicates,
-				routeDefinitionWriter, routeLocator);
+				routeDefinitionWriter, routeLocator, filteringWebHandler);
 	}
 
 	@GetMapping("/routes")
@@ -16,14 +16,10 @@
 
 package org.springframework.cloud.gateway.config;
 
-import java.security.cert.X509Certificate;
 import java.util.List;
 import java.util.Set;
 
 import com.netflix.hystrix.HystrixObservableCommand;
-import io.netty.channel.ChannelOption;
-import io.netty.handler.ssl.SslContextBuilder;
-import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.cloud.gateway.filter.*;
@@ -31,8 +27,6 @@ import org.springframework.cloud.gateway.handler.predicate.*;
 import org.springframework.cloud.gateway.route.*;
 import reactor.core.publisher.Flux;
 import reactor.netty.http.client.HttpClient;
-import reactor.netty.resources.ConnectionProvider;
-import reactor.netty.tcp.ProxyProvider;
 import rx.RxReactiveStreams;
 
 import org.springframework.beans.factory.BeanFactory;
@@ -62,6 +56,7 @@ import org.springframework.cloud.gateway.config.conditional.ConditionalOnEnabled
 import org.springframework.cloud.gateway.filter.factory.AddRequestHeaderGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.AddRequestParameterGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.AddResponseHeaderGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.CompressResponseGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.DedupeResponseHeaderGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.FallbackHeadersGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
@@ -90,6 +85,9 @@ import org.springframework.cloud.gateway.filter.factory.SetRequestHostHeaderGate
 import org.springframework.cloud.gateway.filter.factory.SetResponseHeaderGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.SetStatusGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.StripPrefixGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.cache.LocalResponseCacheGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.cache.RequestCoalescingGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.rewrite.DeflateMessageBodyResolver;
 import org.springframework.cloud.gateway.filter.factory.rewrite.GzipMessageBodyResolver;
 import org.springframework.cloud.gateway.filter.factory.rewrite.MessageBodyDecoder;
 import org.springframework.cloud.gateway.filter.factory.rewrite.MessageBodyEncoder;
@@ -100,12 +98,14 @@ import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
 import org.springframework.cloud.gateway.filter.headers.RemoveHopByHopHeadersFilter;
 import org.springframework.cloud.gateway.filter.headers.XForwardedHeadersFilter;
 import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.LocalRateLimiter;
 import org.springframework.cloud.gateway.filter.ratelimit.PrincipalNameKeyResolver;
 import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
 import org.springframework.cloud.gateway.handler.FilteringWebHandler;
 import org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
 import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.cloud.gateway.support.RequestBodyCache;
 import org.springframework.cloud.gateway.support.StringToZonedDateTimeConverter;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ConfigurableApplicationContext;
@@ -114,12 +114,9 @@ import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.context.annotation.Primary;
-import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.core.env.Environment;
 import org.springframework.http.codec.ServerCodecConfigurer;
-import org.springframework.util.CollectionUtils;
-import org.springframework.util.StringUtils;
 import org.springframework.validation.Validator;
 import org.springframework.web.reactive.DispatcherHandler;
 import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
@@ -129,9 +126,6 @@ import org.springframework.web.reactive.socket.server.WebSocketService;
 import org.springframework.web.reactive.socket.server.support.HandshakeWebSocketService;
 import org.springframework.web.reactive.socket.server.upgrade.ReactorNettyRequestUpgradeStrategy;
 
-import static org.springframework.cloud.gateway.config.HttpClientProperties.Pool.PoolType.DISABLED;
-import static org.springframework.cloud.gateway.config.HttpClientProperties.Pool.PoolType.FIXED;
-
 /**
  * @author Spencer Gibb
  * @author Ziemowit Stolarczyk
@@ -301,8 +295,9 @@ public class GatewayAutoConfiguration {
 
 	@Bean
 	@ConditionalOnEnabledGlobalFilter
-	public AdaptCachedBodyGlobalFilter adaptCachedBodyGlobalFilter() {
-		return new AdaptCachedBodyGlobalFilter();
+	public AdaptCachedBodyGlobalFilter adaptCachedBodyGlobalFilter(
+			RequestBodyCache requestBodyCache) {
+		return new AdaptCachedBodyGlobalFilter(requestBodyCache);
 	}
 
 	@Bean
@@ -311,6 +306,12 @@ public class GatewayAutoConfiguration {
 		return new RemoveCachedBodyFilter();
 	}
 
+	@Bean
+	@ConditionalOnMissingBean
+	public RequestBodyCache requestBodyCache() {
+		return new RequestBodyCache();
+	}
+
 	@Bean
 	@ConditionalOnEnabledGlobalFilter
 	public RouteToRequestUrlFilter routeToRequestUrlFilter() {
@@ -420,8 +421,9 @@ public class GatewayAutoConfiguration {
 	@Bean
 	@ConditionalOnEnabledPredicate
 	public ReadBodyRoutePredicateFactory readBodyRoutePredicateFactory(
-			ServerCodecConfigurer codecConfigurer) {
-		return new ReadBodyRoutePredicateFactory(codecConfigurer.getReaders());
+			ServerCodecConfigurer codecConfigurer, RequestBodyCache requestBodyCache) {
+		return new ReadBodyRoutePredicateFactory(codecConfigurer.getReaders(),
+				requestBodyCache);
 	}
 
 	@Bean
@@ -488,7 +490,7 @@ public class GatewayAutoConfiguration {
 			ServerCodecConfigurer codecConfigurer, Set<MessageBodyDecoder> bodyDecoders,
 			Set<MessageBodyEncoder> bodyEncoders) {
 		return new ModifyResponseBodyGatewayFilterFactory(codecConfigurer.getReaders(),
-				bodyDecoders, bodyEncoders);
+				codecConfigurer.getWriters(), bodyDecoders, bodyEncoders);
 	}
 
 	@Bean
@@ -527,6 +529,19 @@ public class GatewayAutoConfiguration {
 		return new RemoveResponseHeaderGatewayFilterFactory();
 	}
 
+	/**
+	 * Once enabled the local rate limiter is the default rate limiter, even if the Redis
+	 * rate limiter is available too.
+	 */
+	@Bean
+	@Primary
+	@ConditionalOnMissingBean(LocalRateLimiter.class)
+	@ConditionalOnProperty(name = "spring.cloud.gateway.local-rate-limiter.enabled")
+	public LocalRateLimiter localRateLimiter(
+			ConfigurationService configurationService) {
+		return new LocalRateLimiter(configurationService);
+	}
+
 	@Bean(name = PrincipalNameKeyResolver.BEAN_NAME)
 	@ConditionalOnBean(RateLimiter.class)
 	@ConditionalOnMissingBean(KeyResolver.class)
@@ -633,11 +648,35 @@ public class GatewayAutoConfiguration {
 		return new RequestHeaderSizeGatewayFilterFactory();
 	}
 
+	@Bean
+	@ConditionalOnEnabledFilter
+	public LocalResponseCacheGatewayFilterFactory localResponseCacheGatewayFilterFactory() {
+		return new LocalResponseCacheGatewayFilterFactory();
+	}
+
+	@Bean
+	@ConditionalOnEnabledFilter
+	public RequestCoalescingGatewayFilterFactory requestCoalescingGatewayFilterFactory() {
+		return new RequestCoalescingGatewayFilterFactory();
+	}
+
+	@Bean
+	@ConditionalOnEnabledFilter
+	public CompressResponseGatewayFilterFactory compressResponseGatewayFilterFactory(
+			Set<MessageBodyEncoder> bodyEncoders) {
+		return new CompressResponseGatewayFilterFactory(bodyEncoders);
+	}
+
 	@Bean
 	public GzipMessageBodyResolver gzipMessageBodyResolver() {
 		return new GzipMessageBodyResolver();
 	}
 
+	@Bean
+	public DeflateMessageBodyResolver deflateMessageBodyResolver() {
+		return new DeflateMessageBodyResolver();
+	}
+
 	@Configuration(proxyBeanMethods = false)
 	@ConditionalOnClass(HttpClient.class)
 	protected static class NettyConfiguration {
@@ -659,119 +698,16 @@ public class GatewayAutoConfiguration {
 
 		@Bean
 		@ConditionalOnMissingBean
-		public HttpClient gatewayHttpClient(HttpClientProperties properties,
+		public HttpClientFactory gatewayHttpClientFactory(
+				HttpClientProperties properties,
 				List<HttpClientCustomizer> customizers) {
+			return new HttpClientFactory(properties, customizers);
+		}
 
-			// configure pool resources
-			HttpClientProperties.Pool pool = properties.getPool();
-
-			ConnectionProvider connectionProvider;
-			if (pool.getType() == DISABLED) {
-				connectionProvider = ConnectionProvider.newConnection();
-			}
-			else if (pool.getType() == FIXED) {
-				connectionProvider = ConnectionProvider.fixed(pool.getName(),
-						pool.getMaxConnections(), pool.getAcquireTimeout(),
-						pool.getMaxIdleTime(), pool.getMaxLifeTime());
-			}
-			else {
-				connectionProvider = ConnectionProvider.elastic(pool.getName(),
-						pool.getMaxIdleTime(), pool.getMaxLifeTime());
-			}
-
-			HttpClient httpClient = HttpClient.create(connectionProvider)
-					// TODO: move customizations to HttpClientCustomizers
-					.httpResponseDecoder(spec -> {
-						if (properties.getMaxHeaderSize() != null) {
-							// cast to int is ok, since @Max is Integer.MAX_VALUE
-							spec.maxHeaderSize(
-									(int) properties.getMaxHeaderSize().toBytes());
-						}
-						if (properties.getMaxInitialLineLength() != null) {
-							// cast to int is ok, since @Max is Integer.MAX_VALUE
-							spec.maxInitialLineLength(
-									(int) properties.getMaxInitialLineLength().toBytes());
-						}
-						return spec;
-					}).tcpConfiguration(tcpClient -> {
-
-						if (properties.getConnectTimeout() != null) {
-							tcpClient = tcpClient.option(
-									ChannelOption.CONNECT_TIMEOUT_MILLIS,
-									properties.getConnectTimeout());
-						}
-
-						// configure proxy if proxy host is set.
-						HttpClientProperties.Proxy proxy = properties.getProxy();
-
-						if (StringUtils.hasText(proxy.getHost())) {
-
-							tcpClient = tcpClient.proxy(proxySpec -> {
-								ProxyProvider.Builder builder = proxySpec
-										.type(ProxyProvider.Proxy.HTTP)
-										.host(proxy.getHost());
-
-								PropertyMapper map = PropertyMapper.get();
-
-								map.from(proxy::getPort).whenNonNull().to(builder::port);
-								map.from(proxy::getUsername).whenHasText()
-										.to(builder::username);
-								map.from(proxy::getPassword).whenHasText()
-										.to(password -> builder.password(s -> password));
-								map.from(proxy::getNonProxyHostsPattern).whenHasText()
-										.to(builder::nonProxyHosts);
-							});
-						}
-						return tcpClient;
-					});
-
-			HttpClientProperties.Ssl ssl = properties.getSsl();
-			if ((ssl.getKeyStore() != null && ssl.getKeyStore().length() > 0)
-					|| ssl.getTrustedX509CertificatesForTrustManager().length > 0
-					|| ssl.isUseInsecureTrustManager()) {
-				httpClient = httpClient.secure(sslContextSpec -> {
-					// configure ssl
-					SslContextBuilder sslContextBuilder = SslContextBuilder.forClient();
-
-					X509Certificate[] trustedX509Certificates = ssl
-							.getTrustedX509CertificatesForTrustManager();
-					if (trustedX509Certificates.length > 0) {
-						sslContextBuilder = sslContextBuilder
-								.trustManager(trustedX509Certificates);
-					}
-					else if (ssl.isUseInsecureTrustManager()) {
-						sslContextBuilder = sslContextBuilder
-								.trustManager(InsecureTrustManagerFactory.INSTANCE);
-					}
-
-					try {
-						sslContextBuilder = sslContextBuilder
-								.keyManager(ssl.getKeyManagerFactory());
-					}
-					catch (Exception e) {
-						logger.error(e);
-					}
-
-					sslContextSpec.sslContext(sslContextBuilder)
-							.defaultConfiguration(ssl.getDefaultConfigurationType())
-							.handshakeTimeout(ssl.getHandshakeTimeout())
-							.closeNotifyFlushTimeout(ssl.getCloseNotifyFlushTimeout())
-							.closeNotifyReadTimeout(ssl.getCloseNotifyReadTimeout());
-				});
-			}
-
-			if (properties.isWiretap()) {
-				httpClient = httpClient.wiretap(true);
-			}
-
-			if (!CollectionUtils.isEmpty(customizers)) {
-				customizers.sort(AnnotationAwareOrderComparator.INSTANCE);
-				for (HttpClientCustomizer customizer : customizers) {
-					httpClient = customizer.customize(httpClient);
-				}
-			}
-
-			return httpClient;
+		@Bean
+		@ConditionalOnMissingBean
+		public HttpClient gatewayHttpClient(HttpClientFactory httpClientFactory) {
+			return httpClientFactory.create();
 		}
 
 		@Bean
@@ -783,8 +719,9 @@ public class GatewayAutoConfiguration {
 		@ConditionalOnEnabledGlobalFilter
 		public NettyRoutingFilter routingFilter(HttpClient httpClient,
 				ObjectProvider<List<HttpHeadersFilter>> headersFilters,
-				HttpClientProperties properties) {
-			return new NettyRoutingFilter(httpClient, headersFilters, properties);
+				HttpClientProperties properties, HttpClientFactory httpClientFactory) {
+			return new NettyRoutingFilter(httpClient, headersFilters, properties,
+					httpClientFactory);
 		}
 
 		@Bean
@@ -856,10 +793,11 @@ public class GatewayAutoConfiguration {
 				List<GatewayFilterFactory> gatewayFilters,
 				List<RoutePredicateFactory> routePredicates,
 				RouteDefinitionWriter routeDefinitionWriter, RouteLocator routeLocator,
-				RouteDefinitionLocator routeDefinitionLocator) {
+				RouteDefinitionLocator routeDefinitionLocator,
+				FilteringWebHandler filteringWebHandler) {
 			return new GatewayControllerEndpoint(globalFilters, gatewayFilters,
 					routePredicates, routeDefinitionWriter, routeLocator,
-					routeDefinitionLocator);
+					routeDefinitionLocator, filteringWebHandler);
 		}
 
 		@Bean
@@ -870,10 +808,11 @@ public class GatewayAutoConfiguration {
 				List<GlobalFilter> globalFilters,
 				List<GatewayFilterFactory> gatewayFilters,
 				List<RoutePredicateFactory> routePredicates,
-				RouteDefinitionWriter routeDefinitionWriter, RouteLocator routeLocator) {
+				RouteDefinitionWriter routeDefinitionWriter, RouteLocator routeLocator,
+				FilteringWebHandler filteringWebHandler) {
 			return new GatewayLegacyControllerEndpoint(routeDefinitionLocator,
 					globalFilters, gatewayFilters, routePredicates, routeDefinitionWriter,
-					routeLocator);
+					routeLocator, filteringWebHandler);
 		}
 
 	}
@@ -17,9 +17,15 @@
 package org.springframework.cloud.gateway.config;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.function.ToLongFunction;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
 import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
@@ -31,12 +37,18 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.web.reactive.HttpHandlerAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.gateway.filter.GatewayMetricsFilter;
+import org.springframework.cloud.gateway.filter.factory.cache.LocalResponseCacheGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.cache.ResponseCache;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter.CircuitBreakerState;
+import org.springframework.cloud.gateway.support.RequestBodyCache;
 import org.springframework.cloud.gateway.support.tagsprovider.GatewayHttpTagsProvider;
 import org.springframework.cloud.gateway.support.tagsprovider.GatewayRouteTagsProvider;
 import org.springframework.cloud.gateway.support.tagsprovider.GatewayTagsProvider;
 import org.springframework.cloud.gateway.support.tagsprovider.PropertiesTagsProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.web.reactive.DispatcherHandler;
 
 @Configuration(proxyBeanMethods = false)
@@ -89,4 +101,128 @@ public class GatewayMetricsAutoConfiguration {
 				properties.getMetrics().getPrefix());
 	}
 
+	@Bean
+	@ConditionalOnBean({ MeterRegistry.class,
+			LocalResponseCacheGatewayFilterFactory.class })
+	@ConditionalOnProperty(name = GatewayProperties.PREFIX + ".metrics.enabled",
+			matchIfMissing = true)
+	public MeterBinder localResponseCacheMeterBinder(
+			LocalResponseCacheGatewayFilterFactory localResponseCacheFactory,
+			GatewayProperties properties) {
+		String prefix = properties.getMetrics().getPrefix();
+		String name = (prefix.endsWith(".") ? prefix : prefix + ".") + "responsecache";
+		// routes with a response cache are created after the meters are bound
+		return registry -> localResponseCacheFactory.onRouteCache(routeId -> {
+			FunctionCounter
+					.builder(name + ".hits", localResponseCacheFactory,
+							factory -> getCacheValue(factory, routeId,
+									ResponseCache::getHits))
+					.tag("routeId", routeId)
+					.description("Requests answered with a cached response")
+					.register(registry);
+			FunctionCounter
+					.builder(name + ".misses", localResponseCacheFactory,
+							factory -> getCacheValue(factory, routeId,
+									ResponseCache::getMisses))
+					.tag("routeId", routeId)
+					.description("Requests without a cached response")
+					.register(registry);
+			FunctionCounter
+					.builder(name + ".evictions", localResponseCacheFactory,
+							factory -> getCacheValue(factory, routeId,
+									ResponseCache::getEvictions))
+					.tag("routeId", routeId)
+					.description("Responses evicted to keep the cache within its size")
+					.register(registry);
+			Gauge.builder(name + ".size", localResponseCacheFactory,
+					factory -> getCacheValue(factory, routeId, ResponseCache::getSize))
+					.tag("routeId", routeId).baseUnit("bytes")
+					.description("Memory held by the cached response bodies")
+					.register(registry);
+		});
+	}
+
+	@Bean
+	@ConditionalOnBean({ MeterRegistry.class, RequestBodyCache.class })
+	@ConditionalOnProperty(name = GatewayProperties.PREFIX + ".metrics.enabled",
+			matchIfMissing = true)
+	public MeterBinder requestBodyCacheMeterBinder(RequestBodyCache requestBodyCache,
+			GatewayProperties properties) {
+		String prefix = properties.getMetrics().getPrefix();
+		String name = (prefix.endsWith(".") ? prefix : prefix + ".")
+				+ "requestbodycache";
+		return registry -> {
+			FunctionCounter
+					.builder(name + ".bytes", requestBodyCache,
+							RequestBodyCache::getMemoryBytes)
+					.tag("storage", "memory").baseUnit("bytes")
+					.description("Request body bytes cached in memory")
+					.register(registry);
+			FunctionCounter
+					.builder(name + ".bytes", requestBodyCache,
+							RequestBodyCache::getFileBytes)
+					.tag("storage", "file").baseUnit("bytes")
+					.description("Request body bytes cached in temporary files")
+					.register(registry);
+			Gauge.builder(name + ".mapped", requestBodyCache,
+					RequestBodyCache::getMappedBytes).baseUnit("bytes")
+					.description("Size of the memory mapped request bodies")
+					.register(registry);
+			FunctionCounter
+					.builder(name + ".rejected", requestBodyCache,
+							RequestBodyCache::getRejected)
+					.description("Request bodies rejected because of their size")
+					.register(registry);
+		};
+	}
+
+	private static double getCacheValue(LocalResponseCacheGatewayFilterFactory factory,
+			String routeId, ToLongFunction<ResponseCache> value) {
+		ResponseCache cache = factory.getCache(routeId);
+		return (cache != null) ? value.applyAsLong(cache) : 0;
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(RedisTemplate.class)
+	protected static class RedisRateLimiterMetricsConfiguration {
+
+		@Bean
+		@ConditionalOnBean({ MeterRegistry.class, RedisRateLimiter.class })
+		@ConditionalOnProperty(name = GatewayProperties.PREFIX + ".metrics.enabled",
+				matchIfMissing = true)
+		public MeterBinder redisRateLimiterMeterBinder(
+				ObjectProvider<RedisRateLimiter> redisRateLimiters,
+				GatewayProperties properties) {
+			String prefix = properties.getMetrics().getPrefix();
+			String name = (prefix.endsWith(".") ? prefix : prefix + ".")
+					+ "ratelimiter";
+			// the bean may have been replaced by a RateLimiter of another type
+			return registry -> redisRateLimiters.ifUnique(redisRateLimiter -> {
+				FunctionCounter
+						.builder(name + ".deny.cache.hits", redisRateLimiter,
+								RedisRateLimiter::denyCacheHits)
+						.description("Requests denied by the local deny cache")
+						.register(registry);
+				Gauge.builder(name + ".deny.cache.keys", redisRateLimiter,
+						RedisRateLimiter::denyCacheKeys)
+						.description("Keys held by the local deny cache")
+						.register(registry);
+				for (CircuitBreakerState state : CircuitBreakerState.values()) {
+					Gauge.builder(name + ".circuitbreaker.state", redisRateLimiter,
+							limiter -> (limiter.circuitBreakerState() == state) ? 1 : 0)
+							.tag("state", state.name().toLowerCase(Locale.ROOT))
+							.description("Whether the Redis circuit breaker is in the state")
+							.register(registry);
+				}
+				FunctionCounter
+						.builder(name + ".circuitbreaker.not.permitted.calls",
+								redisRateLimiter,
+								RedisRateLimiter::circuitBreakerNotPermittedCalls)
+						.description("Redis calls skipped by the open circuit breaker")
+						.register(registry);
+			});
+		}
+
+	}
+
 }
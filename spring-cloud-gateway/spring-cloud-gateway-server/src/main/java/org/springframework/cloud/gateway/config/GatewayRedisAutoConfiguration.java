@@ -29,6 +29,7 @@ import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
 import org.springframework.cloud.gateway.support.ConfigurationService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
@@ -46,6 +47,7 @@ import org.springframework.web.reactive.DispatcherHandler;
 class GatewayRedisAutoConfiguration {
 
 	@Bean
+	@Primary
 	@SuppressWarnings("unchecked")
 	public RedisScript redisRequestRateLimiterScript() {
 		DefaultRedisScript redisScript = new DefaultRedisScript<>();
@@ -55,12 +57,54 @@ class GatewayRedisAutoConfiguration {
 		return redisScript;
 	}
 
+	@Bean
+	@SuppressWarnings("unchecked")
+	public RedisScript redisRequestRateLimiterLeaseScript() {
+		DefaultRedisScript redisScript = new DefaultRedisScript<>();
+		redisScript.setScriptSource(new ResourceScriptSource(
+				new ClassPathResource("META-INF/scripts/request_rate_limiter_lease.lua")));
+		redisScript.setResultType(List.class);
+		return redisScript;
+	}
+
+	@Bean
+	@SuppressWarnings("unchecked")
+	public RedisScript redisRequestRateLimiterBatchScript() {
+		DefaultRedisScript redisScript = new DefaultRedisScript<>();
+		redisScript.setScriptSource(new ResourceScriptSource(
+				new ClassPathResource("META-INF/scripts/request_rate_limiter_batch.lua")));
+		redisScript.setResultType(List.class);
+		return redisScript;
+	}
+
+	@Bean
+	@SuppressWarnings("unchecked")
+	public RedisScript redisRequestRateLimiterGcraScript() {
+		DefaultRedisScript redisScript = new DefaultRedisScript<>();
+		redisScript.setScriptSource(new ResourceScriptSource(
+				new ClassPathResource("META-INF/scripts/request_rate_limiter_gcra.lua")));
+		redisScript.setResultType(List.class);
+		return redisScript;
+	}
+
+	@Bean
+	@SuppressWarnings("unchecked")
+	public RedisScript redisRequestRateLimiterSlidingWindowScript() {
+		DefaultRedisScript redisScript = new DefaultRedisScript<>();
+		redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource(
+				"META-INF/scripts/request_rate_limiter_sliding_window.lua")));
+		redisScript.setResultType(List.class);
+		return redisScript;
+	}
+
 	@Bean
 	@ConditionalOnMissingBean
 	public RedisRateLimiter redisRateLimiter(ReactiveStringRedisTemplate redisTemplate,
 			@Qualifier(RedisRateLimiter.REDIS_SCRIPT_NAME) RedisScript<List<Long>> redisScript,
+			@Qualifier(RedisRateLimiter.REDIS_LEASE_SCRIPT_NAME) RedisScript<List<Long>> leaseScript,
 			ConfigurationService configurationService) {
-		return new RedisRateLimiter(redisTemplate, redisScript, configurationService);
+		return new RedisRateLimiter(redisTemplate, redisScript, leaseScript,
+				configurationService);
 	}
 
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.config;
+
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.channel.ChannelOption;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.tcp.ProxyProvider;
+
+import org.springframework.boot.context.properties.PropertyMapper;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import static org.springframework.cloud.gateway.config.HttpClientProperties.Pool.PoolType.DISABLED;
+import static org.springframework.cloud.gateway.config.HttpClientProperties.Pool.PoolType.FIXED;
+
+/**
+ * Creates the {@link HttpClient} that proxies requests as configured by the
+ * {@link HttpClientProperties}, either with the configured connection pool or with a
+ * given one, so that routes can have connection pools of their own.
+ */
+public class HttpClientFactory {
+
+	private static final boolean MICROMETER_PRESENT = ClassUtils.isPresent(
+			"io.micrometer.core.instrument.Metrics",
+			HttpClientFactory.class.getClassLoader());
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private final HttpClientProperties properties;
+
+	private final List<HttpClientCustomizer> customizers;
+
+	private volatile HttpClient created;
+
+	public HttpClientFactory(HttpClientProperties properties,
+			List<HttpClientCustomizer> customizers) {
+		this.properties = properties;
+		this.customizers = (customizers != null) ? new ArrayList<>(customizers)
+				: new ArrayList<>();
+		AnnotationAwareOrderComparator.sort(this.customizers);
+	}
+
+	public HttpClientProperties getProperties() {
+		return properties;
+	}
+
+	/**
+	 * @return a new HttpClient with the configured connection pool
+	 */
+	public HttpClient create() {
+		HttpClient httpClient = create(buildConnectionProvider(this.properties.getPool()));
+		this.created = httpClient;
+		return httpClient;
+	}
+
+	/**
+	 * Tells the HttpClient created by {@link #create()} apart from a custom one, which
+	 * has customizations that the HttpClients of the routes with a connection pool of
+	 * their own do not have.
+	 * @param httpClient the HttpClient
+	 * @return whether the HttpClient is the one created last by {@link #create()}
+	 */
+	public boolean isCreated(HttpClient httpClient) {
+		return httpClient != null && httpClient == this.created;
+	}
+
+	/**
+	 * Creates a connection provider for the given pool configuration.
+	 * @param pool the pool configuration
+	 * @return a new connection provider
+	 */
+	public ConnectionProvider buildConnectionProvider(HttpClientProperties.Pool pool) {
+		if (pool.getType() == DISABLED) {
+			return ConnectionProvider.newConnection();
+		}
+		ConnectionProvider.Builder builder = ConnectionProvider.builder(pool.getName());
+		if (pool.getType() == FIXED) {
+			builder.maxConnections(pool.getMaxConnections())
+					.pendingAcquireTimeout(Duration.ofMillis(pool.getAcquireTimeout()));
+			if (pool.getMaxPendingAcquires() != null) {
+				builder.pendingAcquireMaxCount(pool.getMaxPendingAcquires());
+			}
+		}
+		else {
+			// the same as ConnectionProvider.elastic()
+			builder.maxConnections(Integer.MAX_VALUE).pendingAcquireTimeout(Duration.ZERO)
+					.pendingAcquireMaxCount(-1);
+		}
+		// reactor-netty registers the pool gauges with the global Micrometer registry
+		return builder.maxIdleTime(pool.getMaxIdleTime())
+				.maxLifeTime(pool.getMaxLifeTime())
+				.metrics(pool.isMetrics() && MICROMETER_PRESENT).build();
+	}
+
+	/**
+	 * Creates a new HttpClient that uses the given connection provider.
+	 * @param connectionProvider the connection provider
+	 * @return a new HttpClient
+	 */
+	public HttpClient create(ConnectionProvider connectionProvider) {
+		HttpClientProperties properties = this.properties;
+
+		HttpClient httpClient = HttpClient.create(connectionProvider)
+				// TODO: move customizations to HttpClientCustomizers
+				.httpResponseDecoder(spec -> {
+					if (properties.getMaxHeaderSize() != null) {
+						// cast to int is ok, since @Max is Integer.MAX_VALUE
+						spec.maxHeaderSize((int) properties.getMaxHeaderSize().toBytes());
+					}
+					if (properties.getMaxInitialLineLength() != null) {
+						// cast to int is ok, since @Max is Integer.MAX_VALUE
+						spec.maxInitialLineLength(
+								(int) properties.getMaxInitialLineLength().toBytes());
+					}
+					return spec;
+				}).tcpConfiguration(tcpClient -> {
+
+					if (properties.getConnectTimeout() != null) {
+						tcpClient = tcpClient.option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
+								properties.getConnectTimeout());
+					}
+
+					// configure proxy if proxy host is set.
+					HttpClientProperties.Proxy proxy = properties.getProxy();
+
+					if (StringUtils.hasText(proxy.getHost())) {
+
+						tcpClient = tcpClient.proxy(proxySpec -> {
+							ProxyProvider.Builder builder = proxySpec
+									.type(ProxyProvider.Proxy.HTTP).host(proxy.getHost());
+
+							PropertyMapper map = PropertyMapper.get();
+
+							map.from(proxy::getPort).whenNonNull().to(builder::port);
+							map.from(proxy::getUsername).whenHasText()
+									.to(builder::username);
+							map.from(proxy::getPassword).whenHasText()
+									.to(password -> builder.password(s -> password));
+							map.from(proxy::getNonProxyHostsPattern).whenHasText()
+									.to(builder::nonProxyHosts);
+						});
+					}
+					return tcpClient;
+				});
+
+		HttpClientProperties.Ssl ssl = properties.getSsl();
+		if ((ssl.getKeyStore() != null && ssl.getKeyStore().length() > 0)
+				|| ssl.getTrustedX509CertificatesForTrustManager().length > 0
+				|| ssl.isUseInsecureTrustManager()) {
+			httpClient = httpClient.secure(sslContextSpec -> {
+				// configure ssl
+				SslContextBuilder sslContextBuilder = SslContextBuilder.forClient();
+
+				X509Certificate[] trustedX509Certificates = ssl
+						.getTrustedX509CertificatesForTrustManager();
+				if (trustedX509Certificates.length > 0) {
+					sslContextBuilder = sslContextBuilder
+							.trustManager(trustedX509Certificates);
+				}
+				else if (ssl.isUseInsecureTrustManager()) {
+					sslContextBuilder = sslContextBuilder
+							.trustManager(InsecureTrustManagerFactory.INSTANCE);
+				}
+
+				try {
+					sslContextBuilder = sslContextBuilder
+							.keyManager(ssl.getKeyManagerFactory());
+				}
+				catch (Exception e) {
+					logger.error(e);
+				}
+
+				sslContextSpec.sslContext(sslContextBuilder)
+						.defaultConfiguration(ssl.getDefaultConfigurationType())
+						.handshakeTimeout(ssl.getHandshakeTimeout())
+						.closeNotifyFlushTimeout(ssl.getCloseNotifyFlushTimeout())
+						.closeNotifyReadTimeout(ssl.getCloseNotifyReadTimeout());
+			});
+		}
+
+		if (properties.isWiretap()) {
+			httpClient = httpClient.wiretap(true);
+		}
+
+		for (HttpClientCustomizer customizer : this.customizers) {
+			httpClient = customizer.customize(httpClient);
+		}
+
+		return httpClient;
+	}
+
+}
@@ -199,6 +199,18 @@ public class HttpClientProperties {
 		 */
 		private Duration maxLifeTime = null;
 
+		/**
+		 * Only for type FIXED, the maximum number of requests waiting for a connection.
+		 * If NULL, twice the maximum number of connections.
+		 */
+		private Integer maxPendingAcquires = null;
+
+		/**
+		 * Enables the active, idle and pending connection gauges of the pool, tagged with
+		 * the pool name. Requires Micrometer.
+		 */
+		private boolean metrics = false;
+
 		public PoolType getType() {
 			return type;
 		}
@@ -247,12 +259,29 @@ public class HttpClientProperties {
 			this.maxLifeTime = maxLifeTime;
 		}
 
+		public Integer getMaxPendingAcquires() {
+			return maxPendingAcquires;
+		}
+
+		public void setMaxPendingAcquires(Integer maxPendingAcquires) {
+			this.maxPendingAcquires = maxPendingAcquires;
+		}
+
+		public boolean isMetrics() {
+			return metrics;
+		}
+
+		public void setMetrics(boolean metrics) {
+			this.metrics = metrics;
+		}
+
 		@Override
 		public String toString() {
 			return "Pool{" + "type=" + type + ", name='" + name + '\''
 					+ ", maxConnections=" + maxConnections + ", acquireTimeout="
 					+ acquireTimeout + ", maxIdleTime=" + maxIdleTime + ", maxLifeTime="
-					+ maxLifeTime + '}';
+					+ maxLifeTime + ", maxPendingAcquires=" + maxPendingAcquires
+					+ ", metrics=" + metrics + '}';
 		}
 
 		public enum PoolType {
@@ -16,6 +16,9 @@
 
 package org.springframework.cloud.gateway.event;
 
+import java.util.Collections;
+import java.util.Set;
+
 import org.springframework.context.ApplicationEvent;
 
 /**
@@ -25,6 +28,12 @@ public class RefreshRoutesResultEvent extends ApplicationEvent {
 
 	private Throwable throwable;
 
+	private Set<String> addedRouteIds;
+
+	private Set<String> changedRouteIds;
+
+	private Set<String> removedRouteIds;
+
 	public RefreshRoutesResultEvent(Object source, Throwable throwable) {
 		super(source);
 		this.throwable = throwable;
@@ -34,10 +43,51 @@ public class RefreshRoutesResultEvent extends ApplicationEvent {
 		super(source);
 	}
 
+	public RefreshRoutesResultEvent(Object source, Set<String> addedRouteIds,
+			Set<String> changedRouteIds, Set<String> removedRouteIds) {
+		super(source);
+		this.addedRouteIds = Collections.unmodifiableSet(addedRouteIds);
+		this.changedRouteIds = Collections.unmodifiableSet(changedRouteIds);
+		this.removedRouteIds = Collections.unmodifiableSet(removedRouteIds);
+	}
+
 	public Throwable getThrowable() {
 		return throwable;
 	}
 
+	/**
+	 * Whether the refresh reported which routes were added, changed or removed. If not,
+	 * any route may have changed.
+	 * @return true if the route id sets are available
+	 */
+	public boolean hasRouteChanges() {
+		return addedRouteIds != null;
+	}
+
+	/**
+	 * @return ids of the routes that are new in the refreshed routes, or {@code null} if
+	 * not reported
+	 */
+	public Set<String> getAddedRouteIds() {
+		return addedRouteIds;
+	}
+
+	/**
+	 * @return ids of the routes that were replaced by a new {@code Route} instance, or
+	 * {@code null} if not reported
+	 */
+	public Set<String> getChangedRouteIds() {
+		return changedRouteIds;
+	}
+
+	/**
+	 * @return ids of the routes that are no longer present, or {@code null} if not
+	 * reported
+	 */
+	public Set<String> getRemovedRouteIds() {
+		return removedRouteIds;
+	}
+
 	public boolean isSuccess() {
 		return throwable == null;
 	}
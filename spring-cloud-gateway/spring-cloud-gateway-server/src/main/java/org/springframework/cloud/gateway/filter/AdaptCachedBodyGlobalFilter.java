@@ -23,6 +23,7 @@ import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.gateway.event.EnableBodyCachingEvent;
 import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.RequestBodyCache;
 import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.context.ApplicationListener;
 import org.springframework.core.Ordered;
@@ -39,12 +40,28 @@ public class AdaptCachedBodyGlobalFilter
 
 	private ConcurrentMap<String, Boolean> routesToCache = new ConcurrentHashMap<>();
 
+	private final RequestBodyCache requestBodyCache;
+
 	/**
 	 * Cached request body key.
 	 */
 	@Deprecated
 	public static final String CACHED_REQUEST_BODY_KEY = CACHED_REQUEST_BODY_ATTR;
 
+	/**
+	 * @deprecated in favour of
+	 * {@link #AdaptCachedBodyGlobalFilter(RequestBodyCache)}, caches the body with the
+	 * default {@link RequestBodyCache} settings
+	 */
+	@Deprecated
+	public AdaptCachedBodyGlobalFilter() {
+		this(new RequestBodyCache());
+	}
+
+	public AdaptCachedBodyGlobalFilter(RequestBodyCache requestBodyCache) {
+		this.requestBodyCache = requestBodyCache;
+	}
+
 	/**
 	 * 当我们配置了RetryGatewayFilterFactory重试时，会在执行重试逻辑时发布EnableBodyCachingEvent，此处会监听到该事件
 	 * @param event
@@ -80,15 +97,16 @@ public class AdaptCachedBodyGlobalFilter
 			return chain.filter(exchange);
 		}
 		//如果上边的条件都不满足，则会将当前请求Body放到缓存中
-		return ServerWebExchangeUtils.cacheRequestBody(exchange, (serverHttpRequest) -> {
-			// don't mutate and build if same request object
-			//如果是同一个请求，则直接执行Filter逻辑
-			if (serverHttpRequest == exchange.getRequest()) {
-				return chain.filter(exchange);
-			}
-			//否则，通过新的请求构建一个请求上下文
-			return chain.filter(exchange.mutate().request(serverHttpRequest).build());
-		});
+		return ServerWebExchangeUtils.cacheRequestBody(exchange, this.requestBodyCache,
+				(serverHttpRequest) -> {
+					// don't mutate and build if same request object
+					//如果是同一个请求，则直接执行Filter逻辑
+					if (serverHttpRequest == exchange.getRequest()) {
+						return chain.filter(exchange);
+					}
+					//否则，通过新的请求构建一个请求上下文
+					return chain.filter(exchange.mutate().request(serverHttpRequest).build());
+				});
 	}
 
 	@Override
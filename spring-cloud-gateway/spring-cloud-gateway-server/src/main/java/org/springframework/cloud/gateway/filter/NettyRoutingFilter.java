@@ -18,7 +18,15 @@ package org.springframework.cloud.gateway.filter;
 
 import java.net.URI;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
@@ -27,23 +35,31 @@ import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
 import reactor.netty.http.client.HttpClientResponse;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.resources.ConnectionProvider;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientFactory;
 import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
 import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
 import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter.Type;
 import org.springframework.cloud.gateway.route.Route;
 import org.springframework.cloud.gateway.support.TimeoutException;
+import org.springframework.context.ApplicationListener;
 import org.springframework.core.Ordered;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DefaultDataBuffer;
 import org.springframework.core.io.buffer.NettyDataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.AbstractServerHttpRequest;
 import org.springframework.http.server.reactive.AbstractServerHttpResponse;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
@@ -53,7 +69,13 @@ import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
 
 import static org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter.filterRequest;
+import static org.springframework.cloud.gateway.config.HttpClientProperties.Pool.PoolType.FIXED;
 import static org.springframework.cloud.gateway.support.RouteMetadataUtils.CONNECT_TIMEOUT_ATTR;
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.POOL_ACQUIRE_TIMEOUT_ATTR;
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.POOL_MAX_CONNECTIONS_ATTR;
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.POOL_MAX_IDLE_TIME_ATTR;
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.POOL_MAX_LIFE_TIME_ATTR;
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.POOL_MAX_PENDING_ACQUIRES_ATTR;
 import static org.springframework.cloud.gateway.support.RouteMetadataUtils.RESPONSE_TIMEOUT_ATTR;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_ATTR;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR;
@@ -69,25 +91,66 @@ import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.s
  * @author Spencer Gibb
  * @author Biju Kunjummen
  */
-public class NettyRoutingFilter implements GlobalFilter, Ordered {
+public class NettyRoutingFilter implements GlobalFilter, Ordered,
+		ApplicationListener<RefreshRoutesResultEvent>, DisposableBean {
 
 	private static final Log log = LogFactory.getLog(NettyRoutingFilter.class);
 
+	private static final String[] POOL_ATTRS = { POOL_MAX_CONNECTIONS_ATTR,
+			POOL_ACQUIRE_TIMEOUT_ATTR, POOL_MAX_PENDING_ACQUIRES_ATTR,
+			POOL_MAX_IDLE_TIME_ATTR, POOL_MAX_LIFE_TIME_ATTR };
+
 	private final HttpClient httpClient;
 
 	private final ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider;
 
 	private final HttpClientProperties properties;
 
+	private final HttpClientFactory httpClientFactory;
+
+	private final Map<String, RouteHttpClient> routeHttpClients = new ConcurrentHashMap<>();
+
+	/**
+	 * Clients replaced by the client of a refreshed route since the last refresh.
+	 * Requests that were routed with the replaced route keep using its client.
+	 */
+	private final List<RouteHttpClient> replacedRouteHttpClients = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Clients of replaced and removed routes, whose connection pools are disposed on the
+	 * next refresh, so that the requests still using them are not cut off.
+	 */
+	private final List<RouteHttpClient> retiredRouteHttpClients = new CopyOnWriteArrayList<>();
+
+	private final boolean customHttpClient;
+
 	// do not use this headersFilters directly, use getHeadersFilters() instead.
 	private volatile List<HttpHeadersFilter> headersFilters;
 
 	public NettyRoutingFilter(HttpClient httpClient,
 			ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider,
 			HttpClientProperties properties) {
+		this(httpClient, headersFiltersProvider, properties, null);
+	}
+
+	/**
+	 * Creates a filter that uses a connection pool of their own for routes with pool
+	 * metadata, created by the given factory.
+	 * @param httpClient the HttpClient of routes without pool metadata
+	 * @param headersFiltersProvider the headers filters
+	 * @param properties the HttpClient properties
+	 * @param httpClientFactory the factory of the HttpClients with a pool per route, or
+	 * {@code null} to use the given HttpClient for all routes
+	 */
+	public NettyRoutingFilter(HttpClient httpClient,
+			ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider,
+			HttpClientProperties properties, HttpClientFactory httpClientFactory) {
 		this.httpClient = httpClient;
 		this.headersFiltersProvider = headersFiltersProvider;
 		this.properties = properties;
+		this.httpClientFactory = httpClientFactory;
+		this.customHttpClient = httpClientFactory != null
+				&& !httpClientFactory.isCreated(httpClient);
 	}
 
 	public List<HttpHeadersFilter> getHeadersFilters() {
@@ -102,6 +165,72 @@ public class NettyRoutingFilter implements GlobalFilter, Ordered {
 		return Ordered.LOWEST_PRECEDENCE;
 	}
 
+	@Override
+	public void onApplicationEvent(RefreshRoutesResultEvent event) {
+		if (!event.isSuccess()) {
+			return;
+		}
+		// the requests of routes replaced before the previous refresh are done
+		List<RouteHttpClient> retired = new ArrayList<>(this.retiredRouteHttpClients);
+		this.retiredRouteHttpClients.removeAll(retired);
+		dispose(retired);
+		for (RouteHttpClient replaced : this.replacedRouteHttpClients) {
+			this.replacedRouteHttpClients.remove(replaced);
+			this.retiredRouteHttpClients.add(replaced);
+		}
+		if (event.hasRouteChanges()) {
+			// changed routes are resolved again when they are used next
+			event.getRemovedRouteIds().forEach(id -> {
+				RouteHttpClient removed = this.routeHttpClients.remove(id);
+				if (removed != null) {
+					this.retiredRouteHttpClients.add(removed);
+				}
+			});
+		}
+		else {
+			this.routeHttpClients.keySet().forEach(id -> {
+				RouteHttpClient removed = this.routeHttpClients.remove(id);
+				if (removed != null) {
+					this.retiredRouteHttpClients.add(removed);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Disposes the connection pools of the routes when the context is closed.
+	 */
+	@Override
+	public void destroy() {
+		List<RouteHttpClient> routeHttpClients = new ArrayList<>(
+				this.routeHttpClients.values());
+		this.routeHttpClients.clear();
+		routeHttpClients.addAll(this.replacedRouteHttpClients);
+		routeHttpClients.addAll(this.retiredRouteHttpClients);
+		this.replacedRouteHttpClients.clear();
+		this.retiredRouteHttpClients.clear();
+		dispose(routeHttpClients);
+	}
+
+	/**
+	 * Disposes the connection pools of the clients, unless a pool has been kept for a
+	 * refreshed route.
+	 */
+	private void dispose(List<RouteHttpClient> routeHttpClients) {
+		Set<ConnectionProvider> inUse = Collections
+				.newSetFromMap(new IdentityHashMap<>());
+		this.routeHttpClients.values()
+				.forEach(routeHttpClient -> inUse.add(routeHttpClient.connectionProvider));
+		this.replacedRouteHttpClients
+				.forEach(routeHttpClient -> inUse.add(routeHttpClient.connectionProvider));
+		for (RouteHttpClient routeHttpClient : routeHttpClients) {
+			ConnectionProvider connectionProvider = routeHttpClient.connectionProvider;
+			if (connectionProvider != null && inUse.add(connectionProvider)) {
+				connectionProvider.disposeLater().subscribe();
+			}
+		}
+	}
+
 	@Override
 	@SuppressWarnings("Duplicates")
 	public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
@@ -155,7 +284,7 @@ public class NettyRoutingFilter implements GlobalFilter, Ordered {
 										+ connection.channel().id().asShortText()
 										+ ", inbound: " + exchange.getLogPrefix()));
 					}
-					return nettyOutbound.send(request.getBody().map(this::getByteBuf));
+					return nettyOutbound.send(getRequestBody(request));
 				}).responseConnection((res, connection) -> {
 
 					// Defer committing the response until all route filters have run
@@ -209,7 +338,7 @@ public class NettyRoutingFilter implements GlobalFilter, Ordered {
 		if (responseTimeout != null) {
 			//设置获取响应超时时间
 			responseFlux = responseFlux
-					.timeout(responseTimeout, Mono.error(new TimeoutException(
+					.timeout(responseTimeout, Mono.error(() -> new TimeoutException(
 							"Response took longer than timeout: " + responseTimeout)))
 					.onErrorMap(TimeoutException.class,
 							th -> new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT,
@@ -219,6 +348,47 @@ public class NettyRoutingFilter implements GlobalFilter, Ordered {
 		return responseFlux.then(chain.filter(exchange));
 	}
 
+	/**
+	 * Returns the body of the request as ByteBufs. If no filter has decorated the
+	 * request, they are received from the Reactor Netty request without wrapping them
+	 * into DataBuffers.
+	 */
+	private Publisher<ByteBuf> getRequestBody(ServerHttpRequest request) {
+		HttpServerRequest nativeRequest = getNativeRequest(request);
+		if (nativeRequest != null) {
+			return nativeRequest.receive().retain();
+		}
+		return request.getBody().map(this::getByteBuf);
+	}
+
+	/**
+	 * Returns the Reactor Netty request that the body of the request is read from, or
+	 * {@code null} if a filter has decorated the request. Decorators do not extend
+	 * {@link AbstractServerHttpRequest}, while the requests built by
+	 * {@code exchange.mutate()} do and keep the body of the request they are built from,
+	 * which is their native request.
+	 */
+	private static HttpServerRequest getNativeRequest(ServerHttpRequest request) {
+		while (request instanceof AbstractServerHttpRequest) {
+			Object nativeRequest;
+			try {
+				nativeRequest = ((AbstractServerHttpRequest) request).getNativeRequest();
+			}
+			catch (IllegalStateException e) {
+				// mock requests have no native request
+				return null;
+			}
+			if (nativeRequest instanceof HttpServerRequest) {
+				return (HttpServerRequest) nativeRequest;
+			}
+			if (nativeRequest == request || !(nativeRequest instanceof ServerHttpRequest)) {
+				return null;
+			}
+			request = (ServerHttpRequest) nativeRequest;
+		}
+		return null;
+	}
+
 	protected ByteBuf getByteBuf(DataBuffer dataBuffer) {
 		if (dataBuffer instanceof NettyDataBuffer) {
 			NettyDataBuffer buffer = (NettyDataBuffer) dataBuffer;
@@ -257,22 +427,121 @@ public class NettyRoutingFilter implements GlobalFilter, Ordered {
 	}
 
 	/**
-	 * Creates a new HttpClient with per route timeout configuration. Sub-classes that
-	 * override, should call super.getHttpClient() if they want to honor the per route
-	 * timeout configuration.
+	 * Returns the HttpClient with per route pool and timeout configuration. Sub-classes
+	 * that override, should call super.getHttpClient() if they want to honor the per
+	 * route pool and timeout configuration.
 	 * @param route the current route.
 	 * @param exchange the current ServerWebExchange.
-	 * @param chain the current GatewayFilterChain.
-	 * @return
+	 * @return the HttpClient of the route, created once per route and cached by route id
 	 */
 	protected HttpClient getHttpClient(Route route, ServerWebExchange exchange) {
+		return getRouteHttpClient(route).httpClient;
+	}
+
+	/**
+	 * Returns the HttpClient and timeouts resolved from the route metadata. They are
+	 * resolved when the route is used first and cached by route id until the route is
+	 * refreshed.
+	 */
+	private RouteHttpClient getRouteHttpClient(Route route) {
+		RouteHttpClient routeHttpClient = this.routeHttpClients.get(route.getId());
+		if (routeHttpClient != null && routeHttpClient.route == route) {
+			return routeHttpClient;
+		}
+		// requests routed before a refresh may still use the replaced route
+		for (RouteHttpClient replaced : this.replacedRouteHttpClients) {
+			if (replaced.route == route) {
+				return replaced;
+			}
+		}
+		// a refreshed route may reuse the id of a cached one
+		return this.routeHttpClients.compute(route.getId(),
+				(id, current) -> resolveRouteHttpClient(route, current));
+	}
+
+	private RouteHttpClient resolveRouteHttpClient(Route route,
+			RouteHttpClient current) {
+		if (current != null && current.route == route) {
+			return current;
+		}
+		List<Object> poolAttributes = (this.httpClientFactory != null)
+				? getPoolAttributes(route) : null;
+		HttpClient pooledHttpClient;
+		ConnectionProvider connectionProvider;
+		if (current != null && Objects.equals(current.poolAttributes, poolAttributes)) {
+			// keep the connections if the refreshed route has the same pool
+			pooledHttpClient = current.pooledHttpClient;
+			connectionProvider = current.connectionProvider;
+		}
+		else if (poolAttributes == null) {
+			pooledHttpClient = this.httpClient;
+			connectionProvider = null;
+		}
+		else {
+			if (this.customHttpClient && log.isWarnEnabled()) {
+				log.warn("Route " + route.getId() + " has a connection pool of its own, "
+						+ "its HttpClient is created by the HttpClientFactory without "
+						+ "the customizations of the HttpClient bean");
+			}
+			connectionProvider = this.httpClientFactory
+					.buildConnectionProvider(getPool(route));
+			pooledHttpClient = this.httpClientFactory.create(connectionProvider);
+		}
+		if (current != null) {
+			// the pool of the replaced route is disposed once it is no longer used
+			this.replacedRouteHttpClients.add(current);
+		}
+
+		HttpClient httpClient = pooledHttpClient;
 		Object connectTimeoutAttr = route.getMetadata().get(CONNECT_TIMEOUT_ATTR);
 		if (connectTimeoutAttr != null) {
 			Integer connectTimeout = getInteger(connectTimeoutAttr);
-			return this.httpClient.tcpConfiguration((tcpClient) -> tcpClient
+			httpClient = httpClient.tcpConfiguration((tcpClient) -> tcpClient
 					.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout));
 		}
-		return httpClient;
+		Object responseTimeoutAttr = route.getMetadata().get(RESPONSE_TIMEOUT_ATTR);
+		Duration responseTimeout = (responseTimeoutAttr != null)
+				? Duration.ofMillis(getLong(responseTimeoutAttr)) : null;
+		return new RouteHttpClient(route, poolAttributes, pooledHttpClient,
+				connectionProvider, httpClient, responseTimeout);
+	}
+
+	private static List<Object> getPoolAttributes(Route route) {
+		List<Object> poolAttributes = new ArrayList<>(POOL_ATTRS.length);
+		boolean configured = false;
+		for (String attr : POOL_ATTRS) {
+			Object value = route.getMetadata().get(attr);
+			configured |= value != null;
+			poolAttributes.add((value != null) ? value.toString() : null);
+		}
+		return configured ? poolAttributes : null;
+	}
+
+	private HttpClientProperties.Pool getPool(Route route) {
+		HttpClientProperties.Pool defaults = this.httpClientFactory.getProperties()
+				.getPool();
+		Map<String, Object> metadata = route.getMetadata();
+		Object maxConnections = metadata.get(POOL_MAX_CONNECTIONS_ATTR);
+		Object acquireTimeout = metadata.get(POOL_ACQUIRE_TIMEOUT_ATTR);
+		Object maxPendingAcquires = metadata.get(POOL_MAX_PENDING_ACQUIRES_ATTR);
+		Object maxIdleTime = metadata.get(POOL_MAX_IDLE_TIME_ATTR);
+		Object maxLifeTime = metadata.get(POOL_MAX_LIFE_TIME_ATTR);
+
+		HttpClientProperties.Pool pool = new HttpClientProperties.Pool();
+		pool.setType(FIXED);
+		pool.setName(route.getId());
+		pool.setMaxConnections((maxConnections != null) ? getInteger(maxConnections)
+				: defaults.getMaxConnections());
+		pool.setAcquireTimeout((acquireTimeout != null) ? getLong(acquireTimeout)
+				: defaults.getAcquireTimeout());
+		pool.setMaxPendingAcquires((maxPendingAcquires != null)
+				? getInteger(maxPendingAcquires) : defaults.getMaxPendingAcquires());
+		pool.setMaxIdleTime((maxIdleTime != null)
+				? Duration.ofMillis(getLong(maxIdleTime)) : defaults.getMaxIdleTime());
+		pool.setMaxLifeTime((maxLifeTime != null)
+				? Duration.ofMillis(getLong(maxLifeTime)) : defaults.getMaxLifeTime());
+		pool.setMetrics(defaults.isMetrics());
+		return pool;
 	}
 
 	static Integer getInteger(Object connectTimeoutAttr) {
@@ -286,19 +555,48 @@ public class NettyRoutingFilter implements GlobalFilter, Ordered {
 		return connectTimeout;
 	}
 
-	private Duration getResponseTimeout(Route route) {
-		Object responseTimeoutAttr = route.getMetadata().get(RESPONSE_TIMEOUT_ATTR);
-		Long responseTimeout = null;
-		if (responseTimeoutAttr != null) {
-			if (responseTimeoutAttr instanceof Number) {
-				responseTimeout = ((Number) responseTimeoutAttr).longValue();
-			}
-			else {
-				responseTimeout = Long.valueOf(responseTimeoutAttr.toString());
-			}
+	static Long getLong(Object attr) {
+		if (attr instanceof Number) {
+			return ((Number) attr).longValue();
 		}
-		return responseTimeout != null ? Duration.ofMillis(responseTimeout)
+		return Long.valueOf(attr.toString());
+	}
+
+	private Duration getResponseTimeout(Route route) {
+		Duration responseTimeout = getRouteHttpClient(route).responseTimeout;
+		return responseTimeout != null ? responseTimeout
 				: properties.getResponseTimeout();
 	}
 
+	/**
+	 * The HttpClient and timeouts of a route, with the connection provider that is only
+	 * used by the route, if any.
+	 */
+	private static final class RouteHttpClient {
+
+		private final Route route;
+
+		private final List<Object> poolAttributes;
+
+		private final HttpClient pooledHttpClient;
+
+		private final ConnectionProvider connectionProvider;
+
+		private final HttpClient httpClient;
+
+		private final Duration responseTimeout;
+
+		private RouteHttpClient(Route route, List<Object> poolAttributes,
+				HttpClient pooledHttpClient, ConnectionProvider connectionProvider,
+				HttpClient httpClient, Duration responseTimeout) {
+			this.route = route;
+			this.poolAttributes = poolAttributes;
+			this.pooledHttpClient = pooledHttpClient;
+			this.connectionProvider = connectionProvider;
+			this.httpClient = httpClient;
+			this.responseTimeout = responseTimeout;
+		}
+
+	}
+
 }
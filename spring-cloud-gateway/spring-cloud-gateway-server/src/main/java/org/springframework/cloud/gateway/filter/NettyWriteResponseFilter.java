@@ -16,7 +16,12 @@
 
 package org.springframework.cloud.gateway.filter;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 import io.netty.buffer.ByteBuf;
 import org.apache.commons.logging.Log;
@@ -24,24 +29,37 @@ import org.apache.commons.logging.LogFactory;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
 import reactor.netty.Connection;
+import reactor.netty.http.server.HttpServerResponse;
 
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.context.ApplicationListener;
 import org.springframework.core.Ordered;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.AbstractServerHttpResponse;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.lang.Nullable;
 import org.springframework.web.server.ServerWebExchange;
 
+import static org.springframework.cloud.gateway.filter.NettyRoutingFilter.getLong;
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.FLUSH_INTERVAL_ATTR;
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.FLUSH_POLICY_ATTR;
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.FLUSH_SIZE_ATTR;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
 
 /**
  * @author Spencer Gibb
  */
-public class NettyWriteResponseFilter implements GlobalFilter, Ordered {
+public class NettyWriteResponseFilter implements GlobalFilter, Ordered,
+		ApplicationListener<RefreshRoutesResultEvent> {
 
 	/**
 	 * Order for write response filter.
@@ -50,8 +68,18 @@ public class NettyWriteResponseFilter implements GlobalFilter, Ordered {
 
 	private static final Log log = LogFactory.getLog(NettyWriteResponseFilter.class);
 
+	private static final long DEFAULT_FLUSH_SIZE = 8 * 1024;
+
+	private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(100);
+
+	private static final int STREAMING_CONTENT_TYPES_MAX_SIZE = 256;
+
 	private final List<MediaType> streamingMediaTypes;
 
+	private final Map<String, Boolean> streamingContentTypes = new ConcurrentHashMap<>();
+
+	private final Map<String, RouteFlush> routeFlushes = new ConcurrentHashMap<>();
+
 	public NettyWriteResponseFilter(List<MediaType> streamingMediaTypes) {
 		this.streamingMediaTypes = streamingMediaTypes;
 	}
@@ -61,6 +89,20 @@ public class NettyWriteResponseFilter implements GlobalFilter, Ordered {
 		return WRITE_RESPONSE_FILTER_ORDER;
 	}
 
+	@Override
+	public void onApplicationEvent(RefreshRoutesResultEvent event) {
+		if (!event.isSuccess()) {
+			return;
+		}
+		if (event.hasRouteChanges()) {
+			// changed routes are resolved again when they are used next
+			event.getRemovedRouteIds().forEach(this.routeFlushes::remove);
+		}
+		else {
+			this.routeFlushes.clear();
+		}
+	}
+
 	@Override
 	public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
 		// NOTICE: nothing in "pre" filter stage as CLIENT_RESPONSE_CONN_ATTR is not added
@@ -84,6 +126,18 @@ public class NettyWriteResponseFilter implements GlobalFilter, Ordered {
 								+ exchange.getLogPrefix());
 					}
 					ServerHttpResponse response = exchange.getResponse();
+					Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+
+					RouteFlush routeFlush = getRouteFlush(route);
+					FlushPolicy flushPolicy = routeFlush.flushPolicy;
+					if (flushPolicy == FlushPolicy.AUTO) {
+						if (isStreamingMediaType(response)) {
+							flushPolicy = FlushPolicy.ALWAYS;
+						}
+						else if (isPassThrough(response)) {
+							return writePassThrough(connection, response);
+						}
+					}
 
 					// TODO: needed?
 					/**
@@ -96,23 +150,121 @@ public class NettyWriteResponseFilter implements GlobalFilter, Ordered {
 							.retain()
 							.map(byteBuf -> wrap(byteBuf, response));
 
-					MediaType contentType = null;
-					try {
-						contentType = response.getHeaders().getContentType();
-					}
-					catch (Exception e) {
-						if (log.isTraceEnabled()) {
-							log.trace("invalid media type", e);
-						}
-					}
 					//将NettyResponse写回给客户端
-					return (isStreamingMediaType(contentType)
-							? response.writeAndFlushWith(body.map(Flux::just))
-							: response.writeWith(body));
+					return writeBody(response, body, flushPolicy, routeFlush);
 				})).doOnCancel(() -> cleanup(exchange));
 		// @formatter:on
 	}
 
+	private Mono<Void> writeBody(ServerHttpResponse response, Flux<DataBuffer> body,
+			FlushPolicy flushPolicy, RouteFlush routeFlush) {
+		switch (flushPolicy) {
+		case ALWAYS:
+			return response.writeAndFlushWith(body.map(Flux::just));
+		case SIZE:
+			return response.writeAndFlushWith(
+					body.windowUntil(new FlushSizeThreshold(routeFlush.flushSize)));
+		case INTERVAL:
+			return response.writeAndFlushWith(
+					windowByInterval(body, routeFlush.flushInterval));
+		default:
+			return response.writeWith(body);
+		}
+	}
+
+	/**
+	 * Splits the body into windows that end when a tick of the flush interval finds
+	 * chunks that have not been flushed yet, so that the end of a burst is flushed even
+	 * if no further chunk arrives. Ticks are dropped while the windows are not consumed,
+	 * so the timer never emits a window the response has not requested yet.
+	 */
+	private static Flux<Flux<DataBuffer>> windowByInterval(Flux<DataBuffer> body,
+			Duration flushInterval) {
+		return Flux.defer(() -> {
+			MonoProcessor<Void> completed = MonoProcessor.create();
+			Flux<Long> ticks = Flux.interval(flushInterval, flushInterval)
+					.onBackpressureDrop().takeUntilOther(completed);
+			return Flux.<Object>merge(body.doOnComplete(completed::onComplete), ticks)
+					.windowUntil(new FlushIntervalThreshold())
+					.map(window -> window.ofType(DataBuffer.class));
+		});
+	}
+
+	/**
+	 * Returns the flush configuration resolved from the route metadata. It is resolved
+	 * when the route is used first and cached by route id until the route is refreshed.
+	 */
+	private RouteFlush getRouteFlush(@Nullable Route route) {
+		if (route == null) {
+			return RouteFlush.DEFAULT;
+		}
+		RouteFlush routeFlush = this.routeFlushes.get(route.getId());
+		// a refreshed route may reuse the id of a cached one
+		if (routeFlush == null || routeFlush.route != route) {
+			routeFlush = resolveRouteFlush(route);
+			this.routeFlushes.put(route.getId(), routeFlush);
+		}
+		return routeFlush;
+	}
+
+	private static RouteFlush resolveRouteFlush(Route route) {
+		Map<String, Object> metadata = route.getMetadata();
+		FlushPolicy flushPolicy = FlushPolicy.AUTO;
+		Object flushPolicyAttr = metadata.get(FLUSH_POLICY_ATTR);
+		if (flushPolicyAttr != null) {
+			try {
+				flushPolicy = FlushPolicy.valueOf(
+						flushPolicyAttr.toString().trim().toUpperCase(Locale.ROOT));
+			}
+			catch (IllegalArgumentException e) {
+				log.warn("Invalid " + FLUSH_POLICY_ATTR + " '" + flushPolicyAttr
+						+ "' of route " + route.getId() + ", using "
+						+ FlushPolicy.AUTO.name().toLowerCase(Locale.ROOT));
+			}
+		}
+		Object flushSize = metadata.get(FLUSH_SIZE_ATTR);
+		Object flushInterval = metadata.get(FLUSH_INTERVAL_ATTR);
+		return new RouteFlush(route, flushPolicy,
+				(flushSize != null) ? getLong(flushSize) : DEFAULT_FLUSH_SIZE,
+				(flushInterval != null) ? Duration.ofMillis(getLong(flushInterval))
+						: DEFAULT_FLUSH_INTERVAL);
+	}
+
+	/**
+	 * Whether the body can be written to the Reactor Netty response as is, which is the
+	 * case if no filter has decorated the response to read or modify it.
+	 * @param response the response of the exchange
+	 * @return true if the upstream body is passed through
+	 */
+	protected boolean isPassThrough(ServerHttpResponse response) {
+		// decorators do not extend AbstractServerHttpResponse
+		if (!(response instanceof AbstractServerHttpResponse)) {
+			return false;
+		}
+		try {
+			return ((AbstractServerHttpResponse) response)
+					.getNativeResponse() instanceof HttpServerResponse;
+		}
+		catch (IllegalStateException e) {
+			// mock responses have no native response
+			return false;
+		}
+	}
+
+	/**
+	 * Commits the status and headers of the response and sends the buffers received from
+	 * the upstream connection to the server response without wrapping them into
+	 * DataBuffers. Reactor Netty releases each buffer once it has been written and
+	 * requests more buffers as the server channel becomes writable.
+	 */
+	private Mono<Void> writePassThrough(Connection connection,
+			ServerHttpResponse response) {
+		HttpServerResponse nativeResponse = ((AbstractServerHttpResponse) response)
+				.getNativeResponse();
+		return response.setComplete().then(Mono.defer(() -> nativeResponse
+				.send(connection.inbound().receive().retain()).then()));
+	}
+
 	protected DataBuffer wrap(ByteBuf byteBuf, ServerHttpResponse response) {
 		DataBufferFactory bufferFactory = response.bufferFactory();
 		if (bufferFactory instanceof NettyDataBufferFactory) {
@@ -138,6 +290,40 @@ public class NettyWriteResponseFilter implements GlobalFilter, Ordered {
 		}
 	}
 
+	/**
+	 * Looks up whether the content type of the response is a streaming media type by the
+	 * value of the header, so that it is not parsed and compared with every streaming
+	 * media type for each response.
+	 */
+	private boolean isStreamingMediaType(ServerHttpResponse response) {
+		String contentType = response.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE);
+		if (contentType == null) {
+			return false;
+		}
+		Boolean streaming = this.streamingContentTypes.get(contentType);
+		if (streaming == null) {
+			streaming = isStreamingMediaType(parseMediaType(contentType));
+			// content types with parameters like a boundary may not repeat
+			if (this.streamingContentTypes.size() < STREAMING_CONTENT_TYPES_MAX_SIZE) {
+				this.streamingContentTypes.put(contentType, streaming);
+			}
+		}
+		return streaming;
+	}
+
+	@Nullable
+	private static MediaType parseMediaType(String contentType) {
+		try {
+			return MediaType.parseMediaType(contentType);
+		}
+		catch (Exception e) {
+			if (log.isTraceEnabled()) {
+				log.trace("invalid media type", e);
+			}
+			return null;
+		}
+	}
+
 	// TODO: use framework if possible
 	// TODO: port to WebClientWriteResponseFilter
 	private boolean isStreamingMediaType(@Nullable MediaType contentType) {
@@ -145,4 +331,106 @@ public class NettyWriteResponseFilter implements GlobalFilter, Ordered {
 				.anyMatch(contentType::isCompatibleWith));
 	}
 
+	/**
+	 * How the body of a response is flushed to the client, configured per route with the
+	 * {@code flush-policy} metadata.
+	 */
+	public enum FlushPolicy {
+
+		/**
+		 * Flushes every chunk of streaming media types, the body of other responses is
+		 * flushed when Reactor Netty has written all chunks available.
+		 */
+		AUTO,
+
+		/**
+		 * Flushes every chunk.
+		 */
+		ALWAYS,
+
+		/**
+		 * Flushes when {@code flush-size} bytes have been written since the last flush.
+		 */
+		SIZE,
+
+		/**
+		 * Flushes every {@code flush-interval} millis the chunks received since the last
+		 * flush.
+		 */
+		INTERVAL
+
+	}
+
+	/**
+	 * The flush configuration of a route.
+	 */
+	private static final class RouteFlush {
+
+		private static final RouteFlush DEFAULT = new RouteFlush(null, FlushPolicy.AUTO,
+				DEFAULT_FLUSH_SIZE, DEFAULT_FLUSH_INTERVAL);
+
+		private final Route route;
+
+		private final FlushPolicy flushPolicy;
+
+		private final long flushSize;
+
+		private final Duration flushInterval;
+
+		private RouteFlush(Route route, FlushPolicy flushPolicy, long flushSize,
+				Duration flushInterval) {
+			this.route = route;
+			this.flushPolicy = flushPolicy;
+			this.flushSize = flushSize;
+			this.flushInterval = flushInterval;
+		}
+
+	}
+
+	/**
+	 * Ends a flushed window when the window holds at least the given number of bytes.
+	 */
+	private static final class FlushSizeThreshold implements Predicate<DataBuffer> {
+
+		private final long flushSize;
+
+		private long pending;
+
+		private FlushSizeThreshold(long flushSize) {
+			this.flushSize = flushSize;
+		}
+
+		@Override
+		public boolean test(DataBuffer dataBuffer) {
+			this.pending += dataBuffer.readableByteCount();
+			if (this.pending < this.flushSize) {
+				return false;
+			}
+			this.pending = 0;
+			return true;
+		}
+
+	}
+
+	/**
+	 * Ends a flushed window with a tick of the flush interval if the window holds chunks,
+	 * ticks of an empty window are ignored.
+	 */
+	private static final class FlushIntervalThreshold implements Predicate<Object> {
+
+		private boolean pending;
+
+		@Override
+		public boolean test(Object item) {
+			if (item instanceof DataBuffer) {
+				this.pending = true;
+				return false;
+			}
+			boolean flush = this.pending;
+			this.pending = false;
+			return flush;
+		}
+
+	}
+
 }
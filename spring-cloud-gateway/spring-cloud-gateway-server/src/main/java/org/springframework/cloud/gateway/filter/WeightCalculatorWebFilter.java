@@ -16,13 +16,15 @@
 
 package org.springframework.cloud.gateway.filter;
 
-import java.util.ArrayList;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -47,6 +49,11 @@ import org.springframework.web.server.WebFilterChain;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.WEIGHT_ATTR;
 
 /**
+ * Chooses a route for each weight group of a request. The choice for a group is only made
+ * when a Weight predicate of that group asks for it during route lookup, by a binary
+ * search of a random number from the current thread's random source in the cumulative
+ * weights of the group.
+ *
  * @author Spencer Gibb
  * @author Alexey Nakidkin
  */
@@ -64,7 +71,7 @@ public class WeightCalculatorWebFilter
 
 	private final ConfigurationService configurationService;
 
-	private Random random = new Random();
+	private Random random;
 
 	private int order = WEIGHT_CALC_FILTER_ORDER;
 
@@ -117,6 +124,11 @@ public class WeightCalculatorWebFilter
 		this.order = order;
 	}
 
+	/**
+	 * Sets a fixed random source, by default the random source of the current thread is
+	 * used.
+	 * @param random the random source
+	 */
 	public void setRandom(Random random) {
 		this.random = random;
 	}
@@ -200,7 +212,6 @@ public class WeightCalculatorWebFilter
 			weightsSum += weight;
 		}
 
-		final AtomicInteger index = new AtomicInteger(0);
 		// 遍历
 		for (Map.Entry<String, Integer> entry : config.weights.entrySet()) {
 			// 获取到路由ID
@@ -212,24 +223,19 @@ public class WeightCalculatorWebFilter
 			Double nomalizedWeight = weight / (double) weightsSum;
 			// 放入normalizedWeights
 			config.normalizedWeights.put(routeId, nomalizedWeight);
-
-			// recalculate rangeIndexes
-			config.rangeIndexes.put(index.getAndIncrement(), routeId);
 		}
 
-		// TODO: calculate ranges
-		config.ranges.clear();
-		// 放入0号位置数0.0
-		config.ranges.add(0.0);
 		/**
 		 * normalizedWeights：rout1：0.2，route2：0.7，route3：0.1
 		 */
-		List<Double> values = new ArrayList<>(config.normalizedWeights.values());
-		for (int i = 0; i < values.size(); i++) {
-			Double currentWeight = values.get(i);
-			Double previousRange = config.ranges.get(i);
-			Double range = previousRange + currentWeight;
-			config.ranges.add(range);
+		int size = config.normalizedWeights.size();
+		config.ranges = new double[size + 1];
+		config.routeIds = new String[size];
+		int i = 0;
+		for (Map.Entry<String, Double> entry : config.normalizedWeights.entrySet()) {
+			config.routeIds[i] = entry.getKey();
+			config.ranges[i + 1] = config.ranges[i] + entry.getValue();
+			i++;
 		}
 		// ranges ：大约为 0.0, 0.2, 0.9, 1.0
 		// 相邻两个index之间代表的是一个路由的范围，
@@ -249,43 +255,47 @@ public class WeightCalculatorWebFilter
 
 	@Override
 	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-		Map<String, String> weights = getWeights(exchange);
-
-		for (String group : groupWeights.keySet()) {
-			// 获取到当前分组的所有路由及权重信息
-			GroupWeightConfig config = groupWeights.get(group);
-
-			if (config == null) {
-				if (log.isDebugEnabled()) {
-					log.debug("No GroupWeightConfig found for group: " + group);
-				}
-				continue; // nothing we can do, but this is odd
-			}
-			// 生成随机数
-			double r = this.random.nextDouble();
-			// 获取到当前分组的所有路由的权重范围
-			List<Double> ranges = config.ranges;
-
-			if (log.isTraceEnabled()) {
-				log.trace("Weight for group: " + group + ", ranges: " + ranges + ", r: "
-						+ r);
-			}
-
-			for (int i = 0; i < ranges.size() - 1; i++) {
-				// 如果生成的随机数大于等于当前的元素，并且小于下一元素，说明属于当前路由，则获取到路由ID放入weights中返回
-				if (r >= ranges.get(i) && r < ranges.get(i + 1)) {
-					String routeId = config.rangeIndexes.get(i);
-					weights.put(group, routeId);
-					break;
-				}
-			}
+		if (!groupWeights.isEmpty()) {
+			// groups are only resolved when a Weight predicate asks for them
+			exchange.getAttributes().put(WEIGHT_ATTR, new Weights(this));
 		}
+		return chain.filter(exchange);
+	}
 
+	private String chooseRoute(String group) {
+		// 获取到当前分组的所有路由及权重信息
+		GroupWeightConfig config = groupWeights.get(group);
+		if (config == null) {
+			return null;
+		}
+		// 生成随机数
+		double r = random != null ? random.nextDouble()
+				: ThreadLocalRandom.current().nextDouble();
+		String routeId = config.routeIds[indexOf(config.ranges, r)];
 		if (log.isTraceEnabled()) {
-			log.trace("Weights attr: " + weights);
+			log.trace("Weight for group: " + group + ", r: " + r + ", route: " + routeId);
 		}
+		return routeId;
+	}
 
-		return chain.filter(exchange);
+	/**
+	 * Index of the range {@code [ranges[i], ranges[i + 1])} that contains {@code r}.
+	 * Values past the last upper bound, which can be slightly below 1.0, fall into the
+	 * last range.
+	 */
+	static int indexOf(double[] ranges, double r) {
+		int low = 0;
+		int high = ranges.length - 2;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (ranges[mid] <= r) {
+				low = mid;
+			}
+			else {
+				high = mid - 1;
+			}
+		}
+		return low;
 	}
 
 	/* for testing */ static class GroupWeightConfig {
@@ -298,13 +308,13 @@ public class WeightCalculatorWebFilter
 		// 路由的权重占比
 		LinkedHashMap<String, Double> normalizedWeights = new LinkedHashMap<>();
 
-		// 路由下标
-		LinkedHashMap<Integer, String> rangeIndexes = new LinkedHashMap<>();
-
 		// 相邻两个index之间代表的是一个路由的范围，
 		// 如rout1：0.2，route2：0.7，route3：0.1 那ranges的元素为0.0, 0.2, 0.9, 1.0
 		// 0.0到0.2则表示route1的权重范围，0.2到0.9表示的route2的权重范围以此类推
-		List<Double> ranges = new ArrayList<>();
+		double[] ranges = new double[] { 0.0 };
+
+		// route id of each range
+		String[] routeIds = new String[0];
 
 		GroupWeightConfig(String group) {
 			this.group = group;
@@ -314,15 +324,57 @@ public class WeightCalculatorWebFilter
 			this.group = other.group;
 			this.weights = new LinkedHashMap<>(other.weights);
 			this.normalizedWeights = new LinkedHashMap<>(other.normalizedWeights);
-			this.rangeIndexes = new LinkedHashMap<>(other.rangeIndexes);
 		}
 
 		@Override
 		public String toString() {
 			return new ToStringCreator(this).append("group", group)
 					.append("weights", weights)
-					.append("normalizedWeights", normalizedWeights)
-					.append("rangeIndexes", rangeIndexes).toString();
+					.append("normalizedWeights", normalizedWeights).toString();
+		}
+
+	}
+
+	/**
+	 * The {@code WEIGHT_ATTR} map of an exchange. Every known group is contained, the
+	 * route of a group is chosen on first access.
+	 */
+	private static final class Weights extends AbstractMap<String, String> {
+
+		private final WeightCalculatorWebFilter filter;
+
+		private final Map<String, String> chosen = new HashMap<>(4);
+
+		private Weights(WeightCalculatorWebFilter filter) {
+			this.filter = filter;
+		}
+
+		@Override
+		public boolean containsKey(Object group) {
+			return chosen.containsKey(group) || filter.groupWeights.containsKey(group);
+		}
+
+		@Override
+		public String get(Object group) {
+			String routeId = chosen.get(group);
+			if (routeId == null && group instanceof String) {
+				routeId = filter.chooseRoute((String) group);
+				if (routeId != null) {
+					chosen.put((String) group, routeId);
+				}
+			}
+			return routeId;
+		}
+
+		@Override
+		public String put(String group, String routeId) {
+			return chosen.put(group, routeId);
+		}
+
+		@Override
+		public Set<Entry<String, String>> entrySet() {
+			filter.groupWeights.keySet().forEach(this::get);
+			return Collections.unmodifiableMap(chosen).entrySet();
 		}
 
 	}
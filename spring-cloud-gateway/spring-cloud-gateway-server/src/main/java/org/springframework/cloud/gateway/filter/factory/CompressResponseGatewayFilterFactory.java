@@ -0,0 +1,313 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.factory.rewrite.MessageBodyEncoder;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.springframework.cloud.gateway.support.GatewayToStringStyler.filterToStringCreator;
+
+/**
+ * Compresses the response body with the best content encoding the client accepts. The
+ * body is compressed as it is written with the {@link MessageBodyEncoder} of the
+ * encoding.
+ */
+public class CompressResponseGatewayFilterFactory extends
+		AbstractGatewayFilterFactory<CompressResponseGatewayFilterFactory.Config> {
+
+	/**
+	 * Min response size key.
+	 */
+	public static final String MIN_RESPONSE_SIZE_KEY = "minResponseSize";
+
+	private final Map<String, MessageBodyEncoder> messageBodyEncoders;
+
+	public CompressResponseGatewayFilterFactory(
+			Set<MessageBodyEncoder> messageBodyEncoders) {
+		super(Config.class);
+		this.messageBodyEncoders = new LinkedHashMap<>();
+		for (MessageBodyEncoder encoder : messageBodyEncoders) {
+			this.messageBodyEncoders.put(encoder.encodingType(), encoder);
+		}
+	}
+
+	@Override
+	public List<String> shortcutFieldOrder() {
+		return Collections.singletonList(MIN_RESPONSE_SIZE_KEY);
+	}
+
+	@Override
+	public GatewayFilter apply(Config config) {
+		config.validate();
+		return new CompressResponseGatewayFilter(config);
+	}
+
+	/**
+	 * @param acceptEncoding the values of the Accept-Encoding request header
+	 * @param encodings the supported encodings in order of preference
+	 * @return the accepted encoding with the highest quality, or {@code null} if none of
+	 * the encodings is accepted
+	 */
+	static String negotiate(List<String> acceptEncoding, List<String> encodings) {
+		Map<String, Double> qualities = new LinkedHashMap<>();
+		for (String value : acceptEncoding) {
+			for (String coding : StringUtils.tokenizeToStringArray(value, ",")) {
+				String[] parameters = StringUtils.tokenizeToStringArray(coding, ";");
+				if (parameters.length == 0) {
+					continue;
+				}
+				double quality = 1;
+				for (int i = 1; i < parameters.length; i++) {
+					if (parameters[i].startsWith("q=")) {
+						try {
+							quality = Double.parseDouble(parameters[i].substring(2));
+						}
+						catch (NumberFormatException e) {
+							quality = 0;
+						}
+					}
+				}
+				qualities.put(parameters[0].toLowerCase(Locale.ROOT), quality);
+			}
+		}
+
+		String best = null;
+		double bestQuality = 0;
+		for (String encoding : encodings) {
+			Double quality = qualities.getOrDefault(encoding, qualities.get("*"));
+			if (quality != null && quality > bestQuality) {
+				best = encoding;
+				bestQuality = quality;
+			}
+		}
+		return best;
+	}
+
+	public static class Config {
+
+		private DataSize minResponseSize = DataSize.ofKilobytes(2);
+
+		private List<String> encodings = new ArrayList<>(
+				Arrays.asList("gzip", "deflate"));
+
+		private List<MediaType> mediaTypes = new ArrayList<>(Arrays.asList(
+				MediaType.TEXT_HTML, MediaType.TEXT_XML, MediaType.TEXT_PLAIN,
+				MediaType.valueOf("text/css"), MediaType.valueOf("text/javascript"),
+				MediaType.valueOf("application/javascript"), MediaType.APPLICATION_JSON,
+				MediaType.valueOf("application/*+json"), MediaType.APPLICATION_XML,
+				MediaType.valueOf("application/*+xml")));
+
+		public DataSize getMinResponseSize() {
+			return minResponseSize;
+		}
+
+		public Config setMinResponseSize(DataSize minResponseSize) {
+			this.minResponseSize = minResponseSize;
+			return this;
+		}
+
+		public List<String> getEncodings() {
+			return encodings;
+		}
+
+		public Config setEncodings(List<String> encodings) {
+			this.encodings = encodings;
+			return this;
+		}
+
+		public List<MediaType> getMediaTypes() {
+			return mediaTypes;
+		}
+
+		public Config setMediaTypes(List<MediaType> mediaTypes) {
+			this.mediaTypes = mediaTypes;
+			return this;
+		}
+
+		public void validate() {
+			Assert.notNull(this.minResponseSize, "minResponseSize may not be null");
+			Assert.isTrue(this.minResponseSize.toBytes() >= 0,
+					"minResponseSize may not be negative");
+			Assert.notEmpty(this.encodings, "encodings may not be empty");
+			Assert.notNull(this.mediaTypes, "mediaTypes may not be null");
+		}
+
+	}
+
+	/**
+	 * Runs before the {@link NettyWriteResponseFilter}, which writes the upstream
+	 * response to the response decorated by the filter.
+	 */
+	public class CompressResponseGatewayFilter implements GatewayFilter, Ordered {
+
+		private final Config config;
+
+		private final List<String> encodings;
+
+		public CompressResponseGatewayFilter(Config config) {
+			this.config = config;
+			this.encodings = new ArrayList<>();
+			for (String encoding : config.getEncodings()) {
+				Assert.isTrue(messageBodyEncoders.containsKey(encoding),
+						"No MessageBodyEncoder for encoding " + encoding);
+				this.encodings.add(encoding);
+			}
+		}
+
+		@Override
+		public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+			if (exchange.getRequest().getMethod() == HttpMethod.HEAD) {
+				return chain.filter(exchange);
+			}
+			return chain.filter(exchange.mutate()
+					.response(new CompressingResponse(exchange)).build());
+		}
+
+		@Override
+		public int getOrder() {
+			return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+		}
+
+		@Override
+		public String toString() {
+			return filterToStringCreator(CompressResponseGatewayFilterFactory.this)
+					.append(MIN_RESPONSE_SIZE_KEY, this.config.getMinResponseSize())
+					.append("encodings", this.encodings).toString();
+		}
+
+		private class CompressingResponse extends ServerHttpResponseDecorator {
+
+			private final ServerWebExchange exchange;
+
+			CompressingResponse(ServerWebExchange exchange) {
+				super(exchange.getResponse());
+				this.exchange = exchange;
+			}
+
+			@Override
+			public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+				if (!isCompressible()) {
+					return super.writeWith(body);
+				}
+				HttpHeaders headers = getHeaders();
+				addVary(headers);
+				String encoding = negotiate(this.exchange.getRequest().getHeaders()
+						.getOrEmpty(HttpHeaders.ACCEPT_ENCODING), encodings);
+				if (encoding == null) {
+					return super.writeWith(body);
+				}
+
+				headers.set(HttpHeaders.CONTENT_ENCODING, encoding);
+				// the length of the compressed body is not known until it is written, so
+				// the server sends it with chunked transfer encoding
+				headers.remove(HttpHeaders.CONTENT_LENGTH);
+				String eTag = headers.getETag();
+				if (eTag != null && !eTag.startsWith("W/")) {
+					// the compressed body is not byte for byte the same as the original
+					headers.setETag("W/" + eTag);
+				}
+				// Deflaters are not pooled: the Netty encoder creates its own and ends it
+				// as soon as the body is written, which frees the native zlib memory
+				// right away. Reusing Deflaters would only save that allocation, which
+				// is small next to compressing a body of at least minResponseSize, at
+				// the cost of holding that memory for every idle pooled Deflater.
+				return super.writeWith(messageBodyEncoders.get(encoding)
+						.encode(Flux.from(body), bufferFactory()));
+			}
+
+			private boolean isCompressible() {
+				HttpHeaders headers = getHeaders();
+				Integer statusCode = getRawStatusCode();
+				if (statusCode != null && (statusCode == HttpStatus.NO_CONTENT.value()
+						|| statusCode == HttpStatus.NOT_MODIFIED.value()
+						|| statusCode == HttpStatus.PARTIAL_CONTENT.value())) {
+					return false;
+				}
+				if (headers.containsKey(HttpHeaders.CONTENT_ENCODING)
+						|| headers.containsKey(HttpHeaders.CONTENT_RANGE)) {
+					return false;
+				}
+				long contentLength = headers.getContentLength();
+				if (contentLength >= 0
+						&& contentLength < config.getMinResponseSize().toBytes()) {
+					return false;
+				}
+				List<String> cacheControl = headers.getOrEmpty(HttpHeaders.CACHE_CONTROL);
+				if (cacheControl.stream().anyMatch(value -> value.toLowerCase(Locale.ROOT)
+						.contains("no-transform"))) {
+					return false;
+				}
+				return isCompressibleType(headers);
+			}
+
+			/**
+			 * Bodies that are already compressed, such as images or archives, do not have
+			 * one of the media types.
+			 */
+			private boolean isCompressibleType(HttpHeaders headers) {
+				MediaType contentType;
+				try {
+					contentType = headers.getContentType();
+				}
+				catch (InvalidMediaTypeException e) {
+					return false;
+				}
+				return contentType != null && config.getMediaTypes().stream()
+						.anyMatch(mediaType -> mediaType.includes(contentType));
+			}
+
+			private void addVary(HttpHeaders headers) {
+				List<String> vary = headers.getVary();
+				if (vary.stream()
+						.noneMatch(HttpHeaders.ACCEPT_ENCODING::equalsIgnoreCase)) {
+					headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+				}
+			}
+
+		}
+
+	}
+
+}
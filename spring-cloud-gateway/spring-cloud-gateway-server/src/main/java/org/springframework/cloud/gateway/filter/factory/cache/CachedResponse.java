@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import io.netty.buffer.ByteBuf;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * A response held by a {@link ResponseCache}. The body is a heap or direct
+ * {@link ByteBuf} owned by the cache, which releases it when the response is removed.
+ */
+class CachedResponse {
+
+	private final int statusCode;
+
+	private final HttpHeaders headers;
+
+	private final ByteBuf body;
+
+	private final Map<String, List<String>> varyValues;
+
+	private final long created;
+
+	private final long expires;
+
+	CachedResponse(int statusCode, HttpHeaders headers, ByteBuf body,
+			Map<String, List<String>> varyValues, long created, long expires) {
+		this.statusCode = statusCode;
+		this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+		this.body = body;
+		this.varyValues = varyValues;
+		this.created = created;
+		this.expires = expires;
+	}
+
+	int getStatusCode() {
+		return statusCode;
+	}
+
+	HttpHeaders getHeaders() {
+		return headers;
+	}
+
+	ByteBuf getBody() {
+		return body;
+	}
+
+	long getCreated() {
+		return created;
+	}
+
+	/**
+	 * The memory held by the body, which is at least the length of the body.
+	 */
+	int size() {
+		return body.capacity();
+	}
+
+	boolean isExpired(long now) {
+		return now >= expires;
+	}
+
+	/**
+	 * Whether the request headers named by the {@code Vary} header of the response have
+	 * the values of the request the response was cached for.
+	 */
+	boolean matches(HttpHeaders requestHeaders) {
+		for (Map.Entry<String, List<String>> entry : varyValues.entrySet()) {
+			if (!Objects.equals(entry.getValue(), requestHeaders.get(entry.getKey()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
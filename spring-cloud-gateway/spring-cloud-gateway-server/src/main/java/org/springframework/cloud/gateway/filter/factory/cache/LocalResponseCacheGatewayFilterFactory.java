@@ -0,0 +1,516 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory.cache;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import io.netty.buffer.ByteBuf;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.springframework.cloud.gateway.support.GatewayToStringStyler.filterToStringCreator;
+
+/**
+ * Caches the responses to GET and HEAD requests of a route in memory, so that requests
+ * for a cached response are answered without calling the upstream service. Responses are
+ * cached as allowed by their {@code Cache-Control} and {@code Expires} headers, for the
+ * configured time to live if they have none, and only for requests with the same values
+ * of the headers named by their {@code Vary} header.
+ */
+public class LocalResponseCacheGatewayFilterFactory extends
+		AbstractGatewayFilterFactory<LocalResponseCacheGatewayFilterFactory.Config>
+		implements ApplicationListener<RefreshRoutesResultEvent> {
+
+	/**
+	 * Time to live key.
+	 */
+	public static final String TIME_TO_LIVE_KEY = "timeToLive";
+
+	/**
+	 * Size key.
+	 */
+	public static final String SIZE_KEY = "size";
+
+	/**
+	 * Status codes of responses that are cacheable by default, see RFC 7231 section 6.1.
+	 */
+	private static final Set<Integer> CACHEABLE_STATUS_CODES = new HashSet<>(
+			Arrays.asList(200, 203, 204, 300, 301, 404, 405, 410, 414, 501));
+
+	private static final int DEFAULT_BODY_CAPACITY = 1024;
+
+	private final Map<String, ResponseCache> caches = new ConcurrentHashMap<>();
+
+	private final List<Consumer<String>> cacheListeners = new CopyOnWriteArrayList<>();
+
+	public LocalResponseCacheGatewayFilterFactory() {
+		super(Config.class);
+	}
+
+	@Override
+	public List<String> shortcutFieldOrder() {
+		return Arrays.asList(TIME_TO_LIVE_KEY, SIZE_KEY);
+	}
+
+	@Override
+	public GatewayFilter apply(Config config) {
+		config.validate();
+		return new LocalResponseCacheGatewayFilter(config, getCache(config));
+	}
+
+	/**
+	 * Routes that are not changed keep their filters when the routes are refreshed, so
+	 * the filter is only created again for a changed route. Its cache is replaced, so
+	 * that the responses of the previous configuration of the route, which may have
+	 * another uri, are not returned.
+	 */
+	private ResponseCache getCache(Config config) {
+		long maxSize = config.getSize().toBytes();
+		if (config.getRouteId() == null) {
+			return new ResponseCache(maxSize, config.isOffHeap());
+		}
+		boolean added = !this.caches.containsKey(config.getRouteId());
+		ResponseCache cache = this.caches.compute(config.getRouteId(),
+				(routeId, existing) -> {
+					if (existing != null) {
+						existing.dispose();
+					}
+					return new ResponseCache(maxSize, config.isOffHeap(), existing);
+				});
+		if (added) {
+			this.cacheListeners.forEach(listener -> listener.accept(config.getRouteId()));
+		}
+		return cache;
+	}
+
+	/**
+	 * Calls the listener with the id of every route that has a response cache, now and
+	 * when routes with a response cache are added.
+	 * @param listener the listener to call with the route ids
+	 */
+	public void onRouteCache(Consumer<String> listener) {
+		this.cacheListeners.add(listener);
+		this.caches.keySet().forEach(listener);
+	}
+
+	/**
+	 * @param routeId the id of a route
+	 * @return the response cache of the route, or {@code null} if the route does not
+	 * cache responses
+	 */
+	@Nullable
+	public ResponseCache getCache(String routeId) {
+		return this.caches.get(routeId);
+	}
+
+	@Override
+	public void onApplicationEvent(RefreshRoutesResultEvent event) {
+		// the caches of changed routes have been replaced when the routes were created
+		// again, those of unchanged routes are kept
+		if (event.isSuccess() && event.hasRouteChanges()) {
+			event.getRemovedRouteIds().forEach(routeId -> {
+				ResponseCache removed = this.caches.remove(routeId);
+				if (removed != null) {
+					removed.dispose();
+				}
+			});
+		}
+	}
+
+	private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain,
+			ResponseCache cache, Duration timeToLive) {
+		ServerHttpRequest request = exchange.getRequest();
+		HttpMethod method = request.getMethod();
+		if (method != HttpMethod.GET && method != HttpMethod.HEAD) {
+			return chain.filter(exchange);
+		}
+		HttpHeaders requestHeaders = request.getHeaders();
+		Map<String, String> cacheControl = getCacheControl(requestHeaders);
+		if (cacheControl.containsKey("no-store")) {
+			return chain.filter(exchange);
+		}
+
+		String key = method.name() + " " + request.getURI();
+		// the client asks for a response validated by the upstream service
+		boolean noCache = cacheControl.containsKey("no-cache")
+				|| "0".equals(cacheControl.get("max-age"))
+				|| requestHeaders.getOrEmpty(HttpHeaders.PRAGMA).contains("no-cache");
+		if (!noCache) {
+			long now = System.currentTimeMillis();
+			CachedResponse cached = cache.get(key, requestHeaders, now);
+			if (cached != null) {
+				return writeCachedResponse(exchange.getResponse(), cached, now);
+			}
+		}
+
+		ServerHttpResponse response = new CachingResponse(exchange, cache, key,
+				timeToLive);
+		return chain.filter(exchange.mutate().response(response).build());
+	}
+
+	private Mono<Void> writeCachedResponse(ServerHttpResponse response,
+			CachedResponse cached, long now) {
+		response.setRawStatusCode(cached.getStatusCode());
+		response.getHeaders().putAll(cached.getHeaders());
+		response.getHeaders().set(HttpHeaders.AGE,
+				String.valueOf((now - cached.getCreated()) / 1000));
+		return response.writeWith(Mono.just(wrap(cached.getBody(), response)));
+	}
+
+	/**
+	 * Wraps the retained body of a cached response, the duplicate keeps the indexes of
+	 * the cached body as they are when the buffer is written.
+	 */
+	private DataBuffer wrap(ByteBuf body, ServerHttpResponse response) {
+		DataBufferFactory bufferFactory = response.bufferFactory();
+		if (bufferFactory instanceof NettyDataBufferFactory) {
+			return ((NettyDataBufferFactory) bufferFactory).wrap(body.duplicate());
+		}
+		try {
+			DataBuffer buffer = bufferFactory.allocateBuffer(body.readableBytes());
+			buffer.write(body.nioBuffer());
+			return buffer;
+		}
+		finally {
+			body.release();
+		}
+	}
+
+	/**
+	 * Parses the directives of the {@code Cache-Control} headers, directives without an
+	 * argument are mapped to {@code null}.
+	 */
+	static Map<String, String> getCacheControl(HttpHeaders headers) {
+		Map<String, String> directives = new HashMap<>();
+		for (String value : headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)) {
+			for (String directive : StringUtils.tokenizeToStringArray(value, ",")) {
+				int index = directive.indexOf('=');
+				if (index == -1) {
+					directives.put(directive.toLowerCase(Locale.ROOT), null);
+				}
+				else {
+					directives.put(
+							directive.substring(0, index).trim().toLowerCase(Locale.ROOT),
+							StringUtils.trimTrailingCharacter(
+									StringUtils.trimLeadingCharacter(
+											directive.substring(index + 1).trim(), '"'),
+									'"'));
+				}
+			}
+		}
+		return directives;
+	}
+
+	@Nullable
+	private static Long getSeconds(@Nullable String value) {
+		if (value == null) {
+			return null;
+		}
+		try {
+			return Long.parseLong(value);
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	public static class Config implements HasRouteId {
+
+		private String routeId;
+
+		private Duration timeToLive = Duration.ofMinutes(5);
+
+		private DataSize size = DataSize.ofMegabytes(10);
+
+		private boolean offHeap;
+
+		@Override
+		public void setRouteId(String routeId) {
+			this.routeId = routeId;
+		}
+
+		@Override
+		public String getRouteId() {
+			return routeId;
+		}
+
+		public Duration getTimeToLive() {
+			return timeToLive;
+		}
+
+		public Config setTimeToLive(Duration timeToLive) {
+			this.timeToLive = timeToLive;
+			return this;
+		}
+
+		public DataSize getSize() {
+			return size;
+		}
+
+		public Config setSize(DataSize size) {
+			this.size = size;
+			return this;
+		}
+
+		public boolean isOffHeap() {
+			return offHeap;
+		}
+
+		public Config setOffHeap(boolean offHeap) {
+			this.offHeap = offHeap;
+			return this;
+		}
+
+		public void validate() {
+			Assert.notNull(this.timeToLive, "timeToLive may not be null");
+			Assert.notNull(this.size, "size may not be null");
+			Assert.isTrue(this.size.toBytes() > 0, "size must be greater than 0");
+		}
+
+	}
+
+	/**
+	 * Runs before the {@link NettyWriteResponseFilter}, which writes the upstream
+	 * response to the response decorated by the filter.
+	 */
+	public class LocalResponseCacheGatewayFilter implements GatewayFilter, Ordered {
+
+		private final Config config;
+
+		private final ResponseCache cache;
+
+		public LocalResponseCacheGatewayFilter(Config config, ResponseCache cache) {
+			this.config = config;
+			this.cache = cache;
+		}
+
+		@Override
+		public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+			return LocalResponseCacheGatewayFilterFactory.this.filter(exchange, chain,
+					this.cache, this.config.getTimeToLive());
+		}
+
+		@Override
+		public int getOrder() {
+			return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+		}
+
+		@Override
+		public String toString() {
+			return filterToStringCreator(LocalResponseCacheGatewayFilterFactory.this)
+					.append(TIME_TO_LIVE_KEY, this.config.getTimeToLive())
+					.append(SIZE_KEY, this.config.getSize())
+					.append("offHeap", this.config.isOffHeap()).toString();
+		}
+
+	}
+
+	/**
+	 * Copies the body of a cacheable response to a buffer of the cache while the body is
+	 * written, and caches the response once the body is complete.
+	 */
+	private class CachingResponse extends ServerHttpResponseDecorator {
+
+		private final HttpMethod method;
+
+		private final HttpHeaders requestHeaders;
+
+		private final boolean authorized;
+
+		private final ResponseCache cache;
+
+		private final String key;
+
+		private final Duration timeToLive;
+
+		private ByteBuf body;
+
+		private long expires;
+
+		CachingResponse(ServerWebExchange exchange, ResponseCache cache, String key,
+				Duration timeToLive) {
+			super(exchange.getResponse());
+			this.method = exchange.getRequest().getMethod();
+			this.requestHeaders = exchange.getRequest().getHeaders();
+			this.authorized = this.requestHeaders.containsKey(HttpHeaders.AUTHORIZATION);
+			this.cache = cache;
+			this.key = key;
+			this.timeToLive = timeToLive;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+			long now = System.currentTimeMillis();
+			this.expires = getExpires(now);
+			if (this.expires <= now) {
+				return super.writeWith(body);
+			}
+			long contentLength = getHeaders().getContentLength();
+			if (this.method == HttpMethod.HEAD) {
+				this.body = this.cache.allocate(0);
+			}
+			else {
+				this.body = this.cache.allocate((contentLength >= 0) ? (int) contentLength
+						: DEFAULT_BODY_CAPACITY);
+			}
+			if (body instanceof Mono) {
+				return super.writeWith(((Mono<DataBuffer>) body).doOnNext(this::append)
+						.doOnSuccess(buffer -> store(now))
+						.doFinally(signal -> release()));
+			}
+			return super.writeWith(Flux.from(body).doOnNext(this::append)
+					.doOnComplete(() -> store(now)).doFinally(signal -> release()));
+		}
+
+		/**
+		 * Returns when the response expires, or a time not after now if it is not
+		 * cacheable.
+		 */
+		private long getExpires(long now) {
+			HttpHeaders headers = getHeaders();
+			Integer statusCode = getRawStatusCode();
+			if (!CACHEABLE_STATUS_CODES.contains((statusCode != null) ? statusCode : 200)
+					|| headers.containsKey(HttpHeaders.SET_COOKIE)
+					|| headers.getVary().contains("*")
+					|| headers.getContentLength() > this.cache.getMaxSize()) {
+				return now;
+			}
+			Map<String, String> cacheControl = getCacheControl(headers);
+			if (cacheControl.containsKey("no-store")
+					|| cacheControl.containsKey("no-cache")
+					|| cacheControl.containsKey("private")) {
+				return now;
+			}
+			// responses to authorized requests are only shared if allowed explicitly
+			if (this.authorized && !cacheControl.containsKey("public")
+					&& !cacheControl.containsKey("s-maxage")) {
+				return now;
+			}
+
+			Long maxAge = getSeconds(cacheControl.get("s-maxage"));
+			if (maxAge == null) {
+				maxAge = getSeconds(cacheControl.get("max-age"));
+			}
+			long timeToLive;
+			if (maxAge != null) {
+				timeToLive = maxAge * 1000;
+			}
+			else if (headers.containsKey(HttpHeaders.EXPIRES)) {
+				// an invalid date like 0 means that the response has expired
+				long expires = headers.getExpires();
+				timeToLive = (expires != -1) ? expires - getDate(headers, now) : 0;
+			}
+			else {
+				timeToLive = this.timeToLive.toMillis();
+			}
+			Long age = getSeconds(headers.getFirst(HttpHeaders.AGE));
+			if (age != null) {
+				timeToLive -= age * 1000;
+			}
+			return now + timeToLive;
+		}
+
+		private long getDate(HttpHeaders headers, long now) {
+			try {
+				long date = headers.getDate();
+				return (date != -1) ? date : now;
+			}
+			catch (IllegalArgumentException e) {
+				return now;
+			}
+		}
+
+		private void append(DataBuffer buffer) {
+			if (this.body == null) {
+				return;
+			}
+			if (this.body.readableBytes() + buffer.readableByteCount() > this.cache
+					.getMaxSize()) {
+				// the body does not fit into the cache
+				release();
+				return;
+			}
+			this.body.writeBytes(buffer.asByteBuffer());
+		}
+
+		private void store(long now) {
+			if (this.body == null) {
+				return;
+			}
+			HttpHeaders headers = new HttpHeaders();
+			headers.putAll(getHeaders());
+			headers.remove(HttpHeaders.TRANSFER_ENCODING);
+			headers.remove(HttpHeaders.CONNECTION);
+			// a response to a HEAD request keeps the length of the body it omits
+			if (this.method == HttpMethod.GET) {
+				headers.setContentLength(this.body.readableBytes());
+			}
+			Map<String, List<String>> varyValues = new LinkedHashMap<>();
+			headers.getVary()
+					.forEach(name -> varyValues.put(name, this.requestHeaders.get(name)));
+			Integer statusCode = getRawStatusCode();
+			this.cache.put(this.key,
+					new CachedResponse((statusCode != null) ? statusCode : 200, headers,
+							this.body, varyValues, now, this.expires));
+			this.body = null;
+		}
+
+		private void release() {
+			if (this.body != null) {
+				this.body.release();
+				this.body = null;
+			}
+		}
+
+	}
+
+}
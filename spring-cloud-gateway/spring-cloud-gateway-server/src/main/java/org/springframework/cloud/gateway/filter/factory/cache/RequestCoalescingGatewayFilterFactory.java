@@ -0,0 +1,404 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.publisher.SignalType;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.util.Assert;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.springframework.cloud.gateway.support.GatewayToStringStyler.filterToStringCreator;
+
+/**
+ * Coalesces identical GET and HEAD requests that arrive while a request is in flight, so
+ * that only one of them is sent to the upstream service and its response is returned to
+ * all of them. Requests are identical if they have the same method, URI and values of the
+ * configured headers.
+ */
+public class RequestCoalescingGatewayFilterFactory extends
+		AbstractGatewayFilterFactory<RequestCoalescingGatewayFilterFactory.Config> {
+
+	/**
+	 * Max waiters key.
+	 */
+	public static final String MAX_WAITERS_KEY = "maxWaiters";
+
+	/**
+	 * Max size key.
+	 */
+	public static final String MAX_SIZE_KEY = "maxSize";
+
+	private static final String RECOALESCED_ATTR = RequestCoalescingGatewayFilter.class
+			.getName() + ".recoalesced";
+
+	private static final Log log = LogFactory
+			.getLog(RequestCoalescingGatewayFilterFactory.class);
+
+	public RequestCoalescingGatewayFilterFactory() {
+		super(Config.class);
+	}
+
+	@Override
+	public List<String> shortcutFieldOrder() {
+		return Arrays.asList(MAX_WAITERS_KEY, MAX_SIZE_KEY);
+	}
+
+	@Override
+	public GatewayFilter apply(Config config) {
+		config.validate();
+		return new RequestCoalescingGatewayFilter(config);
+	}
+
+	public static class Config {
+
+		private List<String> headers = new ArrayList<>(Arrays.asList(HttpHeaders.ACCEPT,
+				HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ACCEPT_LANGUAGE));
+
+		private int maxWaiters = 1000;
+
+		private DataSize maxSize = DataSize.ofMegabytes(1);
+
+		public List<String> getHeaders() {
+			return headers;
+		}
+
+		public Config setHeaders(List<String> headers) {
+			this.headers = headers;
+			return this;
+		}
+
+		public int getMaxWaiters() {
+			return maxWaiters;
+		}
+
+		public Config setMaxWaiters(int maxWaiters) {
+			this.maxWaiters = maxWaiters;
+			return this;
+		}
+
+		public DataSize getMaxSize() {
+			return maxSize;
+		}
+
+		public Config setMaxSize(DataSize maxSize) {
+			this.maxSize = maxSize;
+			return this;
+		}
+
+		public void validate() {
+			Assert.notNull(this.headers, "headers may not be null");
+			Assert.isTrue(this.maxWaiters > 0, "maxWaiters must be greater than 0");
+			Assert.notNull(this.maxSize, "maxSize may not be null");
+			Assert.isTrue(this.maxSize.toBytes() > 0, "maxSize must be greater than 0");
+		}
+
+	}
+
+	/**
+	 * Runs before the {@link NettyWriteResponseFilter}, which writes the upstream
+	 * response to the response decorated by the filter.
+	 */
+	public class RequestCoalescingGatewayFilter implements GatewayFilter, Ordered {
+
+		private final Config config;
+
+		private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+
+		public RequestCoalescingGatewayFilter(Config config) {
+			this.config = config;
+		}
+
+		@Override
+		public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+			ServerHttpRequest request = exchange.getRequest();
+			HttpMethod method = request.getMethod();
+			if ((method != HttpMethod.GET && method != HttpMethod.HEAD)
+					|| !isShared(request.getHeaders())) {
+				return chain.filter(exchange);
+			}
+
+			String key = getKey(request);
+			Flight flight = new Flight(key, method);
+			Flight inFlight = this.flights.putIfAbsent(key, flight);
+			if (inFlight == null) {
+				return flight.send(exchange, chain);
+			}
+			if (!inFlight.join()) {
+				if (log.isDebugEnabled()) {
+					log.debug("Too many requests waiting for " + key
+							+ ", sending request independently");
+				}
+				return chain.filter(exchange);
+			}
+			return inFlight.done.then(Mono.defer(() -> {
+				if (inFlight.response != null) {
+					return inFlight.response.write(exchange.getResponse());
+				}
+				// the request that was sent failed or was cancelled, so the waiters
+				// coalesce again and one of them is sent, but only once so that a
+				// waiter does not wait for every other waiter to time out
+				if (inFlight.independent || exchange.getAttributes()
+						.putIfAbsent(RECOALESCED_ATTR, Boolean.TRUE) != null) {
+					return chain.filter(exchange);
+				}
+				return filter(exchange, chain);
+			}));
+		}
+
+		/**
+		 * Requests with credentials are only coalesced if the credentials are part of the
+		 * key, so that the response is not returned to other users.
+		 */
+		private boolean isShared(HttpHeaders headers) {
+			return (!headers.containsKey(HttpHeaders.AUTHORIZATION)
+					|| isKeyHeader(HttpHeaders.AUTHORIZATION))
+					&& (!headers.containsKey(HttpHeaders.COOKIE)
+							|| isKeyHeader(HttpHeaders.COOKIE));
+		}
+
+		private boolean isKeyHeader(String name) {
+			return this.config.getHeaders().stream().anyMatch(name::equalsIgnoreCase);
+		}
+
+		private String getKey(ServerHttpRequest request) {
+			StringBuilder key = new StringBuilder(request.getMethodValue()).append(' ')
+					.append(request.getURI());
+			for (String header : this.config.getHeaders()) {
+				key.append('\n').append(header).append(": ")
+						.append(request.getHeaders().getOrEmpty(header));
+			}
+			return key.toString();
+		}
+
+		@Override
+		public int getOrder() {
+			return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+		}
+
+		@Override
+		public String toString() {
+			return filterToStringCreator(RequestCoalescingGatewayFilterFactory.this)
+					.append("headers", this.config.getHeaders())
+					.append(MAX_WAITERS_KEY, this.config.getMaxWaiters())
+					.append(MAX_SIZE_KEY, this.config.getMaxSize()).toString();
+		}
+
+		/**
+		 * A request sent to the upstream service and the requests waiting for its
+		 * response. The waiters send their requests independently if the response cannot
+		 * be shared, and form a new flight if the request fails or is cancelled. A waiter
+		 * forms a new flight at most once and sends its request independently if that
+		 * flight fails too.
+		 */
+		private class Flight {
+
+			private final String key;
+
+			private final HttpMethod method;
+
+			private final AtomicInteger waiters = new AtomicInteger();
+
+			private final MonoProcessor<Void> done = MonoProcessor.create();
+
+			private volatile SharedResponse response;
+
+			private volatile boolean independent;
+
+			Flight(String key, HttpMethod method) {
+				this.key = key;
+				this.method = method;
+			}
+
+			boolean join() {
+				if (this.waiters.incrementAndGet() > config.getMaxWaiters()) {
+					this.waiters.decrementAndGet();
+					return false;
+				}
+				return true;
+			}
+
+			Mono<Void> send(ServerWebExchange exchange, GatewayFilterChain chain) {
+				CoalescingResponse response = new CoalescingResponse(
+						exchange.getResponse(), this);
+				return chain.filter(exchange.mutate().response(response).build())
+						.doFinally(signal -> {
+							if (signal == SignalType.ON_COMPLETE) {
+								// completed without a body that could be shared
+								sendIndependently();
+							}
+							else {
+								complete(null, false);
+							}
+						});
+			}
+
+			void share(SharedResponse response) {
+				complete(response, false);
+			}
+
+			void sendIndependently() {
+				complete(null, true);
+			}
+
+			/**
+			 * Completes the flight with the response, or without a response if the
+			 * waiters have to send their requests or coalesce again. Requests arriving
+			 * afterwards start a new flight.
+			 */
+			private synchronized void complete(SharedResponse response,
+					boolean independent) {
+				if (this.done.isTerminated()) {
+					return;
+				}
+				flights.remove(this.key, this);
+				this.response = response;
+				this.independent = independent;
+				this.done.onComplete();
+			}
+
+		}
+
+		/**
+		 * Copies the body of the upstream response while it is written, so that it can be
+		 * returned to the waiters once it is complete.
+		 */
+		private class CoalescingResponse extends ServerHttpResponseDecorator {
+
+			private final Flight flight;
+
+			private final List<byte[]> chunks = new ArrayList<>();
+
+			private long size;
+
+			CoalescingResponse(ServerHttpResponse delegate, Flight flight) {
+				super(delegate);
+				this.flight = flight;
+			}
+
+			@Override
+			public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+				if (getHeaders().containsKey(HttpHeaders.SET_COOKIE) || getHeaders()
+						.getContentLength() > config.getMaxSize().toBytes()) {
+					this.flight.sendIndependently();
+					return super.writeWith(body);
+				}
+				return super.writeWith(
+						Flux.from(body).doOnNext(this::append).doOnComplete(this::share));
+			}
+
+			@Override
+			public Mono<Void> writeAndFlushWith(
+					Publisher<? extends Publisher<? extends DataBuffer>> body) {
+				// streamed responses are not buffered
+				this.flight.sendIndependently();
+				return super.writeAndFlushWith(body);
+			}
+
+			private void append(DataBuffer buffer) {
+				if (this.flight.done.isTerminated()) {
+					return;
+				}
+				this.size += buffer.readableByteCount();
+				if (this.size > config.getMaxSize().toBytes()) {
+					if (log.isDebugEnabled()) {
+						log.debug("Response to " + this.flight.key + " is larger than "
+								+ config.getMaxSize() + ", sending waiting requests");
+					}
+					this.chunks.clear();
+					this.flight.sendIndependently();
+					return;
+				}
+				byte[] chunk = new byte[buffer.readableByteCount()];
+				buffer.asByteBuffer().get(chunk);
+				this.chunks.add(chunk);
+			}
+
+			private void share() {
+				if (this.flight.done.isTerminated()) {
+					return;
+				}
+				HttpHeaders headers = new HttpHeaders();
+				headers.putAll(getHeaders());
+				headers.remove(HttpHeaders.TRANSFER_ENCODING);
+				// a response to a HEAD request keeps the length of the body it omits
+				if (this.flight.method == HttpMethod.GET) {
+					headers.setContentLength(this.size);
+				}
+				Integer statusCode = getRawStatusCode();
+				this.flight.share(new SharedResponse(
+						(statusCode != null) ? statusCode : 200, headers, this.chunks));
+			}
+
+		}
+
+	}
+
+	/**
+	 * A buffered response that is returned to every waiting request.
+	 */
+	private static class SharedResponse {
+
+		private final int statusCode;
+
+		private final HttpHeaders headers;
+
+		private final List<byte[]> chunks;
+
+		SharedResponse(int statusCode, HttpHeaders headers, List<byte[]> chunks) {
+			this.statusCode = statusCode;
+			this.headers = headers;
+			this.chunks = chunks;
+		}
+
+		Mono<Void> write(ServerHttpResponse response) {
+			response.setRawStatusCode(this.statusCode);
+			response.getHeaders().putAll(this.headers);
+			DataBufferFactory bufferFactory = response.bufferFactory();
+			// the chunks are not modified when written, so they are not copied
+			return response
+					.writeWith(Flux.fromIterable(this.chunks).map(bufferFactory::wrap));
+		}
+
+	}
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.Nullable;
+
+/**
+ * The responses cached for a route, evicted in least recently used order once the bodies
+ * exceed the maximum size. Bodies are held in heap buffers, or in direct buffers outside
+ * of the Java heap if the cache is off-heap.
+ */
+public class ResponseCache {
+
+	private final long maxSize;
+
+	private final boolean offHeap;
+
+	private final LinkedHashMap<String, CachedResponse> responses = new LinkedHashMap<>(
+			16, 0.75f, true);
+
+	private final LongAdder hits;
+
+	private final LongAdder misses;
+
+	private final LongAdder evictions;
+
+	private long size;
+
+	private boolean disposed;
+
+	public ResponseCache(long maxSize, boolean offHeap) {
+		this(maxSize, offHeap, null);
+	}
+
+	/**
+	 * Creates a cache that continues the hit, miss and eviction counts of the given
+	 * cache, which it replaces.
+	 */
+	ResponseCache(long maxSize, boolean offHeap, @Nullable ResponseCache replaced) {
+		this.maxSize = maxSize;
+		this.offHeap = offHeap;
+		this.hits = (replaced != null) ? replaced.hits : new LongAdder();
+		this.misses = (replaced != null) ? replaced.misses : new LongAdder();
+		this.evictions = (replaced != null) ? replaced.evictions : new LongAdder();
+	}
+
+	/**
+	 * Returns the cached response for the key if it has not expired and matches the
+	 * request headers it varies by. The body of the returned response is retained and has
+	 * to be released by the caller.
+	 */
+	@Nullable
+	synchronized CachedResponse get(String key, HttpHeaders requestHeaders, long now) {
+		CachedResponse response = this.responses.get(key);
+		if (response != null && response.isExpired(now)) {
+			remove(key);
+			response = null;
+		}
+		if (response == null || !response.matches(requestHeaders)) {
+			this.misses.increment();
+			return null;
+		}
+		this.hits.increment();
+		response.getBody().retain();
+		return response;
+	}
+
+	/**
+	 * Caches the response, which replaces any response cached for the key. The cache
+	 * takes ownership of the body of the response.
+	 */
+	synchronized void put(String key, CachedResponse response) {
+		if (this.disposed || response.size() > this.maxSize) {
+			response.getBody().release();
+			return;
+		}
+		remove(key);
+		this.responses.put(key, response);
+		this.size += response.size();
+		Iterator<CachedResponse> leastRecentlyUsed = this.responses.values().iterator();
+		while (this.size > this.maxSize) {
+			CachedResponse evicted = leastRecentlyUsed.next();
+			leastRecentlyUsed.remove();
+			this.size -= evicted.size();
+			evicted.getBody().release();
+			this.evictions.increment();
+		}
+	}
+
+	/**
+	 * Allocates a buffer for a body to be cached.
+	 */
+	ByteBuf allocate(int initialCapacity) {
+		return this.offHeap ? Unpooled.directBuffer(initialCapacity)
+				: Unpooled.buffer(initialCapacity);
+	}
+
+	private void remove(String key) {
+		CachedResponse removed = this.responses.remove(key);
+		if (removed != null) {
+			this.size -= removed.size();
+			removed.getBody().release();
+		}
+	}
+
+	/**
+	 * Removes all cached responses.
+	 */
+	public synchronized void clear() {
+		this.responses.values().forEach(response -> response.getBody().release());
+		this.responses.clear();
+		this.size = 0;
+	}
+
+	/**
+	 * Removes all cached responses and releases the bodies of responses that are put
+	 * afterwards, once the route of the cache has been removed or reconfigured.
+	 */
+	synchronized void dispose() {
+		this.disposed = true;
+		clear();
+	}
+
+	public long getMaxSize() {
+		return this.maxSize;
+	}
+
+	public boolean isOffHeap() {
+		return this.offHeap;
+	}
+
+	/**
+	 * @return the memory held by the cached bodies in bytes
+	 */
+	public synchronized long getSize() {
+		return this.size;
+	}
+
+	public synchronized int getCount() {
+		return this.responses.size();
+	}
+
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	public long getEvictions() {
+		return this.evictions.sum();
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory.rewrite;
+
+import io.netty.handler.codec.compression.JdkZlibDecoder;
+import io.netty.handler.codec.compression.JdkZlibEncoder;
+import io.netty.handler.codec.compression.ZlibDecoder;
+import io.netty.handler.codec.compression.ZlibEncoder;
+import io.netty.handler.codec.compression.ZlibWrapper;
+
+/**
+ * Resolver of the {@code deflate} content encoding, which is the zlib format. Bodies in
+ * the raw deflate format, which some servers send instead, are decoded as well.
+ */
+public class DeflateMessageBodyResolver extends ZlibMessageBodyResolver {
+
+	public DeflateMessageBodyResolver() {
+	}
+
+	public DeflateMessageBodyResolver(int compressionLevel) {
+		super(compressionLevel);
+	}
+
+	@Override
+	public String encodingType() {
+		return "deflate";
+	}
+
+	@Override
+	protected ZlibDecoder newDecoder() {
+		return new JdkZlibDecoder(ZlibWrapper.ZLIB_OR_NONE);
+	}
+
+	@Override
+	protected ZlibEncoder newEncoder(int compressionLevel) {
+		return new JdkZlibEncoder(ZlibWrapper.ZLIB, compressionLevel);
+	}
+
+}
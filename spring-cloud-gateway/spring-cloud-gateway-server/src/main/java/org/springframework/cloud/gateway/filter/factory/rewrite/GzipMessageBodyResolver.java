@@ -16,16 +16,20 @@
 
 package org.springframework.cloud.gateway.filter.factory.rewrite;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import io.netty.handler.codec.compression.JdkZlibDecoder;
+import io.netty.handler.codec.compression.JdkZlibEncoder;
+import io.netty.handler.codec.compression.ZlibDecoder;
+import io.netty.handler.codec.compression.ZlibEncoder;
+import io.netty.handler.codec.compression.ZlibWrapper;
 
-import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.util.FileCopyUtils;
+public class GzipMessageBodyResolver extends ZlibMessageBodyResolver {
 
-public class GzipMessageBodyResolver implements MessageBodyDecoder, MessageBodyEncoder {
+	public GzipMessageBodyResolver() {
+	}
+
+	public GzipMessageBodyResolver(int compressionLevel) {
+		super(compressionLevel);
+	}
 
 	@Override
 	public String encodingType() {
@@ -33,28 +37,13 @@ public class GzipMessageBodyResolver implements MessageBodyDecoder, MessageBodyE
 	}
 
 	@Override
-	public byte[] decode(byte[] encoded) {
-		try {
-			ByteArrayInputStream bis = new ByteArrayInputStream(encoded);
-			GZIPInputStream gis = new GZIPInputStream(bis);
-			return FileCopyUtils.copyToByteArray(gis);
-		}
-		catch (IOException e) {
-			throw new IllegalStateException("couldn't decode body from gzip", e);
-		}
+	protected ZlibDecoder newDecoder() {
+		return new JdkZlibDecoder(ZlibWrapper.GZIP);
 	}
 
 	@Override
-	public byte[] encode(DataBuffer original) {
-		try {
-			ByteArrayOutputStream bis = new ByteArrayOutputStream();
-			GZIPOutputStream gos = new GZIPOutputStream(bis);
-			FileCopyUtils.copy(original.asInputStream(), gos);
-			return bis.toByteArray();
-		}
-		catch (IOException e) {
-			throw new IllegalStateException("couldn't encode body to gzip", e);
-		}
+	protected ZlibEncoder newEncoder(int compressionLevel) {
+		return new JdkZlibEncoder(ZlibWrapper.GZIP, compressionLevel);
 	}
 
 }
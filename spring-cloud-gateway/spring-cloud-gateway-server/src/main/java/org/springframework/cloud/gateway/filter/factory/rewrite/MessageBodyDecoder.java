@@ -16,6 +16,13 @@
 
 package org.springframework.cloud.gateway.filter.factory.rewrite;
 
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
 /**
  * Decoder that is used to decode message body in case it's encoding from Content-Encoding
  * header matches encoding returned by {@code encodingType()} call.
@@ -24,6 +31,23 @@ public interface MessageBodyDecoder {
 
 	byte[] decode(byte[] encoded);
 
+	/**
+	 * Decodes the body as it is received. The default implementation joins the body and
+	 * decodes it with {@link #decode(byte[])}.
+	 * @param encoded the encoded body
+	 * @param bufferFactory the factory of the decoded buffers
+	 * @return the decoded body
+	 */
+	default Flux<DataBuffer> decode(Publisher<? extends DataBuffer> encoded,
+			DataBufferFactory bufferFactory) {
+		return DataBufferUtils.join(encoded).map(buffer -> {
+			byte[] bytes = new byte[buffer.readableByteCount()];
+			buffer.read(bytes);
+			DataBufferUtils.release(buffer);
+			return bufferFactory.wrap(decode(bytes));
+		}).flux();
+	}
+
 	String encodingType();
 
 }
@@ -16,7 +16,12 @@
 
 package org.springframework.cloud.gateway.filter.factory.rewrite;
 
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 
 /**
  * Encoder that is used to encode message body in case it's encoding from Content-Encoding
@@ -26,6 +31,22 @@ public interface MessageBodyEncoder {
 
 	byte[] encode(DataBuffer original);
 
+	/**
+	 * Encodes the body as it is written. The default implementation joins the body and
+	 * encodes it with {@link #encode(DataBuffer)}.
+	 * @param original the body to encode
+	 * @param bufferFactory the factory of the encoded buffers
+	 * @return the encoded body
+	 */
+	default Flux<DataBuffer> encode(Publisher<? extends DataBuffer> original,
+			DataBufferFactory bufferFactory) {
+		return DataBufferUtils.join(original).map(buffer -> {
+			byte[] encoded = encode(buffer);
+			DataBufferUtils.release(buffer);
+			return bufferFactory.wrap(encoded);
+		}).flux();
+	}
+
 	String encodingType();
 
 }
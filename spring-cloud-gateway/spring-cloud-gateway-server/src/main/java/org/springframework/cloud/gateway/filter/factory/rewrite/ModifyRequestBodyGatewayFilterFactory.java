@@ -27,6 +27,7 @@ import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.cloud.gateway.support.BodyInserterContext;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
@@ -37,7 +38,6 @@ import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
 import org.springframework.web.reactive.function.BodyInserter;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.HandlerStrategies;
-import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.server.ServerWebExchange;
 
 import static org.springframework.cloud.gateway.support.GatewayToStringStyler.filterToStringCreator;
@@ -74,11 +74,12 @@ public class ModifyRequestBodyGatewayFilterFactory extends
 			public Mono<Void> filter(ServerWebExchange exchange,
 					GatewayFilterChain chain) {
 				Class inClass = config.getInClass();
-				ServerRequest serverRequest = ServerRequest.create(exchange,
-						messageReaders);
 
 				// TODO: flux or mono
-				Mono<?> modifiedBody = serverRequest.bodyToMono(inClass)
+				// the body may already have been decoded by a ReadBody predicate
+				Mono<?> modifiedBody = ServerWebExchangeUtils
+						.decodeRequestBody(exchange, exchange.getRequest(), inClass,
+								messageReaders)
 						.flatMap(originalBody -> config.getRewriteFunction()
 								.apply(exchange, originalBody))
 						.switchIfEmpty(Mono.defer(() -> (Mono) config.getRewriteFunction()
@@ -103,6 +104,8 @@ public class ModifyRequestBodyGatewayFilterFactory extends
 				return bodyInserter.insert(outputMessage, new BodyInserterContext())
 						// .log("modify_request", Level.INFO)
 						.then(Mono.defer(() -> {
+							// objects decoded from the original body are stale
+							ServerWebExchangeUtils.clearCachedRequestBodyObjects(exchange);
 							ServerHttpRequest decorator = decorate(exchange, headers,
 									outputMessage);
 							return chain
@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.gateway.filter.factory.rewrite;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -34,15 +35,20 @@ import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFac
 import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
 import org.springframework.cloud.gateway.support.BodyInserterContext;
 import org.springframework.core.Ordered;
+import org.springframework.core.ResolvableType;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.client.reactive.ClientHttpResponse;
+import org.springframework.http.codec.EncoderHttpMessageWriter;
 import org.springframework.http.codec.HttpMessageReader;
+import org.springframework.http.codec.HttpMessageWriter;
 import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
 import org.springframework.lang.Nullable;
@@ -67,12 +73,24 @@ public class ModifyResponseBodyGatewayFilterFactory extends
 
 	private final Map<String, MessageBodyEncoder> messageBodyEncoders;
 
+	private static final byte[] NEWLINE = { '\n' };
+
+	private static final byte[] ARRAY_START = { '[' };
+
+	private static final byte[] ARRAY_SEPARATOR = { ',' };
+
+	private static final byte[] ARRAY_END = { ']' };
+
 	private final List<HttpMessageReader<?>> messageReaders;
 
+	@Nullable
+	private final Jackson2JsonEncoder jsonEncoder;
+
 	@Deprecated
 	public ModifyResponseBodyGatewayFilterFactory() {
 		super(Config.class);
 		messageReaders = HandlerStrategies.withDefaults().messageReaders();
+		jsonEncoder = getJsonEncoder(HandlerStrategies.withDefaults().messageWriters());
 		messageBodyDecoders = Collections.emptyMap();
 		messageBodyEncoders = Collections.emptyMap();
 	}
@@ -81,22 +99,52 @@ public class ModifyResponseBodyGatewayFilterFactory extends
 	public ModifyResponseBodyGatewayFilterFactory(ServerCodecConfigurer codecConfigurer) {
 		super(Config.class);
 		this.messageReaders = codecConfigurer.getReaders();
+		this.jsonEncoder = getJsonEncoder(codecConfigurer.getWriters());
 		messageBodyDecoders = Collections.emptyMap();
 		messageBodyEncoders = Collections.emptyMap();
 	}
 
+	@Deprecated
 	public ModifyResponseBodyGatewayFilterFactory(
 			List<HttpMessageReader<?>> messageReaders,
 			Set<MessageBodyDecoder> messageBodyDecoders,
 			Set<MessageBodyEncoder> messageBodyEncoders) {
+		this(messageReaders, HandlerStrategies.withDefaults().messageWriters(),
+				messageBodyDecoders, messageBodyEncoders);
+	}
+
+	public ModifyResponseBodyGatewayFilterFactory(
+			List<HttpMessageReader<?>> messageReaders,
+			List<HttpMessageWriter<?>> messageWriters,
+			Set<MessageBodyDecoder> messageBodyDecoders,
+			Set<MessageBodyEncoder> messageBodyEncoders) {
 		super(Config.class);
 		this.messageReaders = messageReaders;
+		this.jsonEncoder = getJsonEncoder(messageWriters);
 		this.messageBodyDecoders = messageBodyDecoders.stream()
 				.collect(Collectors.toMap(MessageBodyDecoder::encodingType, identity()));
 		this.messageBodyEncoders = messageBodyEncoders.stream()
 				.collect(Collectors.toMap(MessageBodyEncoder::encodingType, identity()));
 	}
 
+	/**
+	 * Returns the JSON encoder of the configured writers, so that streamed elements are
+	 * written with the same {@code ObjectMapper} as other JSON responses.
+	 */
+	@Nullable
+	private static Jackson2JsonEncoder getJsonEncoder(
+			List<HttpMessageWriter<?>> messageWriters) {
+		for (HttpMessageWriter<?> messageWriter : messageWriters) {
+			if (messageWriter instanceof EncoderHttpMessageWriter
+					&& ((EncoderHttpMessageWriter<?>) messageWriter)
+							.getEncoder() instanceof Jackson2JsonEncoder) {
+				return (Jackson2JsonEncoder) ((EncoderHttpMessageWriter<?>) messageWriter)
+						.getEncoder();
+			}
+		}
+		return null;
+	}
+
 	@Override
 	public GatewayFilter apply(Config config) {
 		ModifyResponseGatewayFilter gatewayFilter = new ModifyResponseGatewayFilter(
@@ -119,6 +167,8 @@ public class ModifyResponseBodyGatewayFilterFactory extends
 
 		private RewriteFunction rewriteFunction;
 
+		private BodyStreaming streaming;
+
 		public Class getInClass() {
 			return inClass;
 		}
@@ -181,6 +231,62 @@ public class ModifyResponseBodyGatewayFilterFactory extends
 			return this;
 		}
 
+		public BodyStreaming getStreaming() {
+			return streaming;
+		}
+
+		public Config setStreaming(BodyStreaming streaming) {
+			this.streaming = streaming;
+			return this;
+		}
+
+		/**
+		 * Rewrites the response body element by element as it is received, instead of
+		 * decoding the whole body before it is rewritten.
+		 * @param streaming how the body is split into elements
+		 * @param inClass the class of the elements of the response body
+		 * @param outClass the class of the elements returned to the client
+		 * @param rewriteFunction the function that transforms the elements
+		 * @param <T> the original element class
+		 * @param <R> the new element class
+		 * @return this config
+		 */
+		public <T, R> Config setStreamingRewriteFunction(BodyStreaming streaming,
+				Class<T> inClass, Class<R> outClass,
+				RewriteFunction<Flux<T>, R> rewriteFunction) {
+			setStreaming(streaming);
+			setInClass(inClass);
+			setOutClass(outClass);
+			setRewriteFunction(rewriteFunction);
+			return this;
+		}
+
+	}
+
+	/**
+	 * How a streamed response body is split into the elements passed to the
+	 * {@link RewriteFunction}.
+	 */
+	public enum BodyStreaming {
+
+		/**
+		 * The data buffers of the body as they are received. The rewrite function has to
+		 * release the buffers it does not return.
+		 */
+		DATA_BUFFER,
+
+		/**
+		 * The values of a newline delimited JSON body. The values returned by the
+		 * rewrite function are written on separate lines, strings as they are.
+		 */
+		NDJSON,
+
+		/**
+		 * The elements of a JSON array body, decoded with a non-blocking parser. The
+		 * values returned by the rewrite function are written as a JSON array.
+		 */
+		JSON_ARRAY
+
 	}
 
 	public class ModifyResponseGatewayFilter implements GatewayFilter, Ordered {
@@ -223,7 +329,8 @@ public class ModifyResponseBodyGatewayFilterFactory extends
 			return filterToStringCreator(obj)
 					.append("New content type", config.getNewContentType())
 					.append("In class", config.getInClass())
-					.append("Out class", config.getOutClass()).toString();
+					.append("Out class", config.getOutClass())
+					.append("Streaming", config.getStreaming()).toString();
 		}
 
 		public void setFactory(GatewayFilterFactory<Config> gatewayFilterFactory) {
@@ -247,6 +354,9 @@ public class ModifyResponseBodyGatewayFilterFactory extends
 		@SuppressWarnings("unchecked")
 		@Override
 		public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+			if (config.getStreaming() != null) {
+				return writeStreaming(Flux.from(body));
+			}
 
 			Class inClass = config.getInClass();
 			Class outClass = config.getOutClass();
@@ -294,6 +404,112 @@ public class ModifyResponseBodyGatewayFilterFactory extends
 			return writeWith(Flux.from(body).flatMapSequential(p -> p));
 		}
 
+		/**
+		 * Passes the elements of the body to the rewrite function as they are decoded
+		 * and writes the elements it returns as they are encoded, so that neither the
+		 * original nor the new body is held in memory.
+		 */
+		@SuppressWarnings("unchecked")
+		private Mono<Void> writeStreaming(Flux<DataBuffer> body) {
+			HttpHeaders headers = getDelegate().getHeaders();
+			MessageBodyEncoder encoder = null;
+			List<String> encodingHeaders = headers
+					.getOrEmpty(HttpHeaders.CONTENT_ENCODING);
+			for (String encoding : encodingHeaders) {
+				MessageBodyDecoder decoder = messageBodyDecoders.get(encoding);
+				if (decoder != null) {
+					body = decoder.decode(body, bufferFactory());
+					encoder = messageBodyEncoders.get(encoding);
+					if (encoder == null) {
+						// the new body is written without content encoding
+						headers.remove(HttpHeaders.CONTENT_ENCODING);
+					}
+					break;
+				}
+			}
+
+			Flux<Object> elements;
+			BodyStreaming streaming = config.getStreaming();
+			if (streaming == BodyStreaming.DATA_BUFFER) {
+				elements = (Flux) body;
+			}
+			else {
+				MediaType mediaType = (streaming == BodyStreaming.NDJSON)
+						? MediaType.APPLICATION_STREAM_JSON
+						: MediaType.APPLICATION_JSON;
+				// the status is only used to create the response the body is read from
+				HttpStatus status = (getStatusCode() != null) ? getStatusCode()
+						: HttpStatus.OK;
+				ClientResponse clientResponse = ClientResponse
+						.create(status, messageReaders)
+						.header(HttpHeaders.CONTENT_TYPE, mediaType.toString())
+						.body(body).build();
+				elements = clientResponse.bodyToFlux(config.getInClass());
+			}
+
+			Flux<Object> newElements = Flux.from(
+					(Publisher<Object>) config.getRewriteFunction().apply(exchange, elements));
+
+			headers.remove(HttpHeaders.CONTENT_LENGTH);
+			if (config.getNewContentType() != null) {
+				headers.set(HttpHeaders.CONTENT_TYPE, config.getNewContentType());
+			}
+			Flux<DataBuffer> newBody = encodeElements(newElements, streaming,
+					bufferFactory());
+			if (encoder != null) {
+				newBody = encoder.encode(newBody, bufferFactory());
+			}
+			return getDelegate().writeWith(newBody);
+		}
+
+		private Flux<DataBuffer> encodeElements(Flux<Object> elements,
+				BodyStreaming streaming, DataBufferFactory bufferFactory) {
+			switch (streaming) {
+			case NDJSON:
+				return elements.concatMap(element -> Flux.just(
+						(element instanceof CharSequence)
+								? toDataBuffer(element, bufferFactory)
+								: encodeJson(element, bufferFactory),
+						bufferFactory.wrap(NEWLINE)));
+			case JSON_ARRAY:
+				return Flux.concat(Mono.fromSupplier(() -> bufferFactory.wrap(ARRAY_START)),
+						elements.index().concatMap(element -> (element.getT1() == 0)
+								? Flux.just(encodeJson(element.getT2(), bufferFactory))
+								: Flux.just(bufferFactory.wrap(ARRAY_SEPARATOR),
+										encodeJson(element.getT2(), bufferFactory))),
+						Mono.fromSupplier(() -> bufferFactory.wrap(ARRAY_END)));
+			default:
+				return elements.map(element -> toDataBuffer(element, bufferFactory));
+			}
+		}
+
+		private DataBuffer encodeJson(Object element, DataBufferFactory bufferFactory) {
+			Map<String, Object> hints = (config.getOutHints() != null)
+					? config.getOutHints() : Collections.emptyMap();
+			if (jsonEncoder == null) {
+				throw new IllegalStateException(
+						"No Jackson2JsonEncoder found in the configured message writers");
+			}
+			return jsonEncoder.encodeValue(element, bufferFactory,
+					ResolvableType.forInstance(element), MediaType.APPLICATION_JSON,
+					hints);
+		}
+
+		private DataBuffer toDataBuffer(Object element, DataBufferFactory bufferFactory) {
+			if (element instanceof DataBuffer) {
+				return (DataBuffer) element;
+			}
+			if (element instanceof byte[]) {
+				return bufferFactory.wrap((byte[]) element);
+			}
+			if (element instanceof CharSequence) {
+				return bufferFactory.wrap(
+						element.toString().getBytes(StandardCharsets.UTF_8));
+			}
+			throw new IllegalStateException("Cannot write streamed element of "
+					+ element.getClass() + ", expected DataBuffer, byte[] or String");
+		}
+
 		private ClientResponse prepareClientResponse(Publisher<? extends DataBuffer> body,
 				HttpHeaders httpHeaders) {
 			ClientResponse.Builder builder;
@@ -316,13 +532,12 @@ public class ModifyResponseBodyGatewayFilterFactory extends
 			for (String encoding : encodingHeaders) {
 				MessageBodyDecoder decoder = messageBodyDecoders.get(encoding);
 				if (decoder != null) {
-					return clientResponse.bodyToMono(byte[].class)
-							.publishOn(Schedulers.parallel()).map(decoder::decode)
-							.map(bytes -> exchange.getResponse().bufferFactory()
-									.wrap(bytes))
-							.map(buffer -> prepareClientResponse(Mono.just(buffer),
-									exchange.getResponse().getHeaders()))
-							.flatMap(response -> response.bodyToMono(inClass));
+					Flux<DataBuffer> decoded = decoder.decode(
+							clientResponse.bodyToFlux(DataBuffer.class)
+									.publishOn(Schedulers.parallel()),
+							exchange.getResponse().bufferFactory());
+					return prepareClientResponse(decoded,
+							exchange.getResponse().getHeaders()).bodyToMono(inClass);
 				}
 			}
 
@@ -342,11 +557,8 @@ public class ModifyResponseBodyGatewayFilterFactory extends
 				MessageBodyEncoder encoder = messageBodyEncoders.get(encoding);
 				if (encoder != null) {
 					DataBufferFactory dataBufferFactory = httpResponse.bufferFactory();
-					response = response.publishOn(Schedulers.parallel()).map(buffer -> {
-						byte[] encodedResponse = encoder.encode(buffer);
-						DataBufferUtils.release(buffer);
-						return encodedResponse;
-					}).map(dataBufferFactory::wrap);
+					response = DataBufferUtils.join(encoder.encode(
+							response.publishOn(Schedulers.parallel()), dataBufferFactory));
 					break;
 				}
 			}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory.rewrite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.function.Supplier;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.CodecException;
+import io.netty.handler.codec.compression.DecompressionException;
+import io.netty.handler.codec.compression.ZlibDecoder;
+import io.netty.handler.codec.compression.ZlibEncoder;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import org.springframework.util.Assert;
+
+/**
+ * Base class for the zlib based content encodings. The body is passed through a Netty
+ * decoder or encoder one buffer at a time, so a streamed body is never held in memory as
+ * a whole, and the buffers are allocated from the pooled Netty allocator.
+ */
+public abstract class ZlibMessageBodyResolver
+		implements MessageBodyDecoder, MessageBodyEncoder {
+
+	private final int compressionLevel;
+
+	protected ZlibMessageBodyResolver() {
+		this(6);
+	}
+
+	protected ZlibMessageBodyResolver(int compressionLevel) {
+		Assert.isTrue(compressionLevel >= 0 && compressionLevel <= 9,
+				"compressionLevel must be between 0 and 9");
+		this.compressionLevel = compressionLevel;
+	}
+
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	/**
+	 * @return a new decoder of the inbound buffers
+	 */
+	protected abstract ZlibDecoder newDecoder();
+
+	/**
+	 * @param compressionLevel the compression level, from 0 to 9
+	 * @return a new encoder of the outbound buffers
+	 */
+	protected abstract ZlibEncoder newEncoder(int compressionLevel);
+
+	@Override
+	public byte[] decode(byte[] encoded) {
+		ZlibDecoder decoder = newDecoder();
+		EmbeddedChannel channel = new EmbeddedChannel(decoder);
+		try {
+			channel.writeInbound(Unpooled.wrappedBuffer(encoded));
+			channel.finish();
+			checkComplete(decoder, encoded.length > 0);
+			return readBytes(channel.inboundMessages());
+		}
+		catch (CodecException e) {
+			throw new IllegalStateException("couldn't decode body from " + encodingType(),
+					e);
+		}
+		finally {
+			channel.finishAndReleaseAll();
+		}
+	}
+
+	@Override
+	public byte[] encode(DataBuffer original) {
+		EmbeddedChannel channel = new EmbeddedChannel(newEncoder(this.compressionLevel));
+		try {
+			// the caller keeps ownership of the original buffer
+			channel.writeOutbound(Unpooled.wrappedBuffer(original.asByteBuffer()));
+			channel.finish();
+			return readBytes(channel.outboundMessages());
+		}
+		catch (CodecException e) {
+			throw new IllegalStateException("couldn't encode body to " + encodingType(),
+					e);
+		}
+		finally {
+			channel.finishAndReleaseAll();
+		}
+	}
+
+	@Override
+	public Flux<DataBuffer> decode(Publisher<? extends DataBuffer> encoded,
+			DataBufferFactory bufferFactory) {
+		return transform(encoded, bufferFactory, this::newDecoder, true);
+	}
+
+	/**
+	 * The Netty decoders wait for more input if the body ends early, so a truncated body
+	 * is only detected once the input is complete.
+	 */
+	private static void checkComplete(ChannelHandler handler, boolean received) {
+		if (received && handler instanceof ZlibDecoder
+				&& !((ZlibDecoder) handler).isClosed()) {
+			throw new DecompressionException("body ended before the end of the stream");
+		}
+	}
+
+	@Override
+	public Flux<DataBuffer> encode(Publisher<? extends DataBuffer> original,
+			DataBufferFactory bufferFactory) {
+		return transform(original, bufferFactory, () -> newEncoder(this.compressionLevel),
+				false);
+	}
+
+	private Flux<DataBuffer> transform(Publisher<? extends DataBuffer> body,
+			DataBufferFactory bufferFactory, Supplier<ChannelHandler> handler,
+			boolean inbound) {
+		return Flux.using(() -> new Transformation(handler.get()),
+				transformation -> Flux.from(body).concatMapIterable(buffer -> {
+					EmbeddedChannel channel = transformation.channel;
+					transformation.received |= buffer.readableByteCount() > 0;
+					// the channel takes ownership of the buffer and releases it
+					ByteBuf byteBuf = NettyDataBufferFactory.toByteBuf(buffer);
+					if (inbound) {
+						channel.writeInbound(byteBuf);
+					}
+					else {
+						channel.writeOutbound(byteBuf);
+					}
+					return read(channel, bufferFactory, inbound);
+				}).concatWith(Flux.defer(() -> {
+					transformation.channel.finish();
+					if (inbound) {
+						checkComplete(transformation.handler, transformation.received);
+					}
+					return Flux.fromIterable(
+							read(transformation.channel, bufferFactory, inbound));
+				})), transformation -> transformation.channel.finishAndReleaseAll())
+				.onErrorMap(CodecException.class,
+						e -> new IllegalStateException("couldn't "
+								+ (inbound ? "decode body from " : "encode body to ")
+								+ encodingType(), e))
+				.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
+	}
+
+	private static List<DataBuffer> read(EmbeddedChannel channel,
+			DataBufferFactory bufferFactory, boolean inbound) {
+		Queue<Object> messages = inbound ? channel.inboundMessages()
+				: channel.outboundMessages();
+		List<DataBuffer> buffers = new ArrayList<>(messages.size());
+		ByteBuf byteBuf;
+		while ((byteBuf = (ByteBuf) messages.poll()) != null) {
+			if (!byteBuf.isReadable()) {
+				byteBuf.release();
+			}
+			else if (bufferFactory instanceof NettyDataBufferFactory) {
+				buffers.add(((NettyDataBufferFactory) bufferFactory).wrap(byteBuf));
+			}
+			else {
+				DataBuffer buffer = bufferFactory.allocateBuffer(byteBuf.readableBytes());
+				buffer.write(byteBuf.nioBuffer());
+				byteBuf.release();
+				buffers.add(buffer);
+			}
+		}
+		return buffers;
+	}
+
+	private static class Transformation {
+
+		private final ChannelHandler handler;
+
+		private final EmbeddedChannel channel;
+
+		private boolean received;
+
+		Transformation(ChannelHandler handler) {
+			this.handler = handler;
+			this.channel = new EmbeddedChannel(handler);
+		}
+
+	}
+
+	private static byte[] readBytes(Queue<Object> messages) {
+		int size = 0;
+		for (Object message : messages) {
+			size += ((ByteBuf) message).readableBytes();
+		}
+		byte[] bytes = new byte[size];
+		int offset = 0;
+		ByteBuf byteBuf;
+		while ((byteBuf = (ByteBuf) messages.poll()) != null) {
+			int length = byteBuf.readableBytes();
+			byteBuf.readBytes(bytes, offset, length);
+			offset += length;
+			byteBuf.release();
+		}
+		return bytes;
+	}
+
+}
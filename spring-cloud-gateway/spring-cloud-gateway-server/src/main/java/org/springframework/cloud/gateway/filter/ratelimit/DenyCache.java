@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers until when the requests of a key will be denied, so that they can be denied
+ * without asking the rate limiter again. Holds at most {@code maxSize} keys, further
+ * denials are not remembered until some of the keys have expired.
+ */
+final class DenyCache {
+
+	private static final long SWEEP_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+	private final Map<String, Long> deniedUntil = new ConcurrentHashMap<>();
+
+	private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+	private final LongAdder hits = new LongAdder();
+
+	private final int maxSize;
+
+	DenyCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Whether the requests of the key are known to be denied.
+	 * @param key the key
+	 * @param now the current time in nanos
+	 * @return true if the request has to be denied
+	 */
+	boolean isDenied(String key, long now) {
+		Long until = this.deniedUntil.get(key);
+		if (until == null) {
+			return false;
+		}
+		if (now - until < 0) {
+			this.hits.increment();
+			return true;
+		}
+		this.deniedUntil.remove(key, until);
+		return false;
+	}
+
+	/**
+	 * Denies the requests of the key until the given time.
+	 * @param key the key
+	 * @param until the time in nanos up to which the requests are denied
+	 * @param now the current time in nanos
+	 */
+	void deny(String key, long until, long now) {
+		if (this.deniedUntil.size() >= this.maxSize) {
+			long last = this.lastSweep.get();
+			if (now - last >= SWEEP_INTERVAL && this.lastSweep.compareAndSet(last, now)) {
+				this.deniedUntil.values().removeIf(time -> now - time >= 0);
+			}
+			if (this.deniedUntil.size() >= this.maxSize) {
+				return;
+			}
+		}
+		this.deniedUntil.put(key, until);
+	}
+
+	/**
+	 * @return how many requests have been denied by the cache
+	 */
+	long getHits() {
+		return this.hits.sum();
+	}
+
+	/**
+	 * @return the number of keys in the cache, including expired ones
+	 */
+	int size() {
+		return this.deniedUntil.size();
+	}
+
+}
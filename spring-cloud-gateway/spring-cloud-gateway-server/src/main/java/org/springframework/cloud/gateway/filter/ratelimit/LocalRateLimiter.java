@@ -0,0 +1,440 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.validation.constraints.Min;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Mono;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.gateway.route.RouteDefinitionRouteLocator;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.core.style.ToStringCreator;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * In-memory token bucket {@link RateLimiter} for single gateway instances. Uses the same
+ * configuration and response headers as {@link RedisRateLimiter}, but the buckets only
+ * live in the memory of the current instance.
+ *
+ * <p>
+ * Each bucket is a single {@code long}, the time from which on the bucket would have been
+ * filled with all of its tokens, updated by compare-and-set. Buckets are kept per route
+ * and key in a fixed number of stripes that are bounded in size. Buckets that have been
+ * refilled completely are removed, as they are no different from new ones.
+ */
+@ConfigurationProperties("spring.cloud.gateway.local-rate-limiter")
+public class LocalRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> {
+
+	/**
+	 * Local Rate Limiter property name.
+	 */
+	public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+
+	private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * How many buckets of a stripe are looked at for the fullest one when the stripe is
+	 * full.
+	 */
+	private static final int EVICTION_SAMPLES = 8;
+
+	private Log log = LogFactory.getLog(getClass());
+
+	private Config defaultConfig;
+
+	private volatile Stripe[] stripes;
+
+	// configuration properties
+	/**
+	 * Whether or not to include headers containing rate limiter information, defaults to
+	 * true.
+	 */
+	private boolean includeHeaders = true;
+
+	/**
+	 * The name of the header that returns number of remaining requests during the current
+	 * second.
+	 */
+	private String remainingHeader = RedisRateLimiter.REMAINING_HEADER;
+
+	/** The name of the header that returns the replenish rate configuration. */
+	private String replenishRateHeader = RedisRateLimiter.REPLENISH_RATE_HEADER;
+
+	/** The name of the header that returns the burst capacity configuration. */
+	private String burstCapacityHeader = RedisRateLimiter.BURST_CAPACITY_HEADER;
+
+	/** The name of the header that returns the requested tokens configuration. */
+	private String requestedTokensHeader = RedisRateLimiter.REQUESTED_TOKENS_HEADER;
+
+	/**
+	 * Maximum number of buckets kept in memory, defaults to 100000. When there would be
+	 * more, buckets that are almost refilled are evicted first.
+	 */
+	private int maxKeys = 100000;
+
+	/** Number of independently bounded stripes the buckets are spread over. */
+	private int stripeCount = 16;
+
+	/** Minimum time in milliseconds between two sweeps of a stripe for idle buckets. */
+	private long sweepInterval = 10000;
+
+	public LocalRateLimiter(ConfigurationService configurationService) {
+		super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+	}
+
+	/**
+	 * This creates an instance with default static configuration, useful in Java DSL.
+	 * @param defaultReplenishRate how many tokens per second in token-bucket algorithm.
+	 * @param defaultBurstCapacity how many tokens the bucket can hold in token-bucket
+	 * algorithm.
+	 */
+	public LocalRateLimiter(int defaultReplenishRate, int defaultBurstCapacity) {
+		super(Config.class, CONFIGURATION_PROPERTY_NAME, (ConfigurationService) null);
+		this.defaultConfig = new Config().setReplenishRate(defaultReplenishRate)
+				.setBurstCapacity(defaultBurstCapacity);
+	}
+
+	/**
+	 * This creates an instance with default static configuration, useful in Java DSL.
+	 * @param defaultReplenishRate how many tokens per second in token-bucket algorithm.
+	 * @param defaultBurstCapacity how many tokens the bucket can hold in token-bucket
+	 * algorithm.
+	 * @param defaultRequestedTokens how many tokens are requested per request.
+	 */
+	public LocalRateLimiter(int defaultReplenishRate, int defaultBurstCapacity,
+			int defaultRequestedTokens) {
+		this(defaultReplenishRate, defaultBurstCapacity);
+		this.defaultConfig.setRequestedTokens(defaultRequestedTokens);
+	}
+
+	public boolean isIncludeHeaders() {
+		return includeHeaders;
+	}
+
+	public void setIncludeHeaders(boolean includeHeaders) {
+		this.includeHeaders = includeHeaders;
+	}
+
+	public String getRemainingHeader() {
+		return remainingHeader;
+	}
+
+	public void setRemainingHeader(String remainingHeader) {
+		this.remainingHeader = remainingHeader;
+	}
+
+	public String getReplenishRateHeader() {
+		return replenishRateHeader;
+	}
+
+	public void setReplenishRateHeader(String replenishRateHeader) {
+		this.replenishRateHeader = replenishRateHeader;
+	}
+
+	public String getBurstCapacityHeader() {
+		return burstCapacityHeader;
+	}
+
+	public void setBurstCapacityHeader(String burstCapacityHeader) {
+		this.burstCapacityHeader = burstCapacityHeader;
+	}
+
+	public String getRequestedTokensHeader() {
+		return requestedTokensHeader;
+	}
+
+	public void setRequestedTokensHeader(String requestedTokensHeader) {
+		this.requestedTokensHeader = requestedTokensHeader;
+	}
+
+	public int getMaxKeys() {
+		return maxKeys;
+	}
+
+	public void setMaxKeys(int maxKeys) {
+		this.maxKeys = maxKeys;
+		this.stripes = null;
+	}
+
+	public int getStripeCount() {
+		return stripeCount;
+	}
+
+	public void setStripeCount(int stripeCount) {
+		this.stripeCount = stripeCount;
+		this.stripes = null;
+	}
+
+	public long getSweepInterval() {
+		return sweepInterval;
+	}
+
+	public void setSweepInterval(long sweepInterval) {
+		this.sweepInterval = sweepInterval;
+	}
+
+	/* for testing */ Config getDefaultConfig() {
+		return defaultConfig;
+	}
+
+	/* for testing */ int size() {
+		int size = 0;
+		for (Stripe stripe : getStripes()) {
+			size += stripe.buckets.size();
+		}
+		return size;
+	}
+
+	@Override
+	public Mono<Response> isAllowed(String routeId, String id) {
+		Config routeConfig = loadConfiguration(routeId);
+		Response response = tryAcquire(routeId, id, routeConfig, System.nanoTime());
+		if (log.isDebugEnabled()) {
+			log.debug("response: " + response);
+		}
+		return Mono.just(response);
+	}
+
+	/* for testing */ Response tryAcquire(String routeId, String id, Config config,
+			long now) {
+		// How many requests per second do you want a user to be allowed to do?
+		long replenishRate = config.getReplenishRate();
+
+		// How much bursting do you want to allow?
+		long burstCapacity = config.getBurstCapacity();
+
+		// How many tokens are requested per request?
+		long requestedTokens = config.getRequestedTokens();
+
+		// time to refill a single token and the whole bucket
+		long nanosPerToken = Math.max(1, NANOS_PER_SECOND / replenishRate);
+		long refillNanos = burstCapacity * nanosPerToken;
+
+		Bucket bucket = getBucket(routeId + "." + id, now, refillNanos);
+		bucket.refillNanos = refillNanos;
+
+		while (true) {
+			long current = bucket.get();
+			// a bucket never holds more than its capacity
+			long filledAt = (now - current >= refillNanos) ? now - refillNanos : current;
+			long tokens = (now - filledAt) / nanosPerToken;
+			if (tokens < requestedTokens) {
+				return new Response(false, getHeaders(config, tokens));
+			}
+			if (bucket.compareAndSet(current,
+					filledAt + requestedTokens * nanosPerToken)) {
+				return new Response(true, getHeaders(config, tokens - requestedTokens));
+			}
+		}
+	}
+
+	private Bucket getBucket(String key, long now, long refillNanos) {
+		Stripe stripe = stripeFor(key);
+		Bucket bucket = stripe.buckets.get(key);
+		if (bucket != null) {
+			return bucket;
+		}
+		stripe.makeRoom(now, TimeUnit.MILLISECONDS.toNanos(this.sweepInterval));
+		// a new bucket is full
+		Bucket created = new Bucket(now - refillNanos, refillNanos);
+		bucket = stripe.buckets.putIfAbsent(key, created);
+		return bucket != null ? bucket : created;
+	}
+
+	private Stripe stripeFor(String key) {
+		Stripe[] stripes = getStripes();
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return stripes[(hash & Integer.MAX_VALUE) % stripes.length];
+	}
+
+	private Stripe[] getStripes() {
+		Stripe[] stripes = this.stripes;
+		if (stripes == null) {
+			synchronized (this) {
+				stripes = this.stripes;
+				if (stripes == null) {
+					int count = Math.max(1, this.stripeCount);
+					int capacity = Math.max(1, (this.maxKeys + count - 1) / count);
+					stripes = new Stripe[count];
+					for (int i = 0; i < count; i++) {
+						stripes[i] = new Stripe(capacity);
+					}
+					this.stripes = stripes;
+				}
+			}
+		}
+		return stripes;
+	}
+
+	/* for testing */ Config loadConfiguration(String routeId) {
+		Config routeConfig = getConfig().getOrDefault(routeId, defaultConfig);
+
+		if (routeConfig == null) {
+			routeConfig = getConfig().get(RouteDefinitionRouteLocator.DEFAULT_FILTERS);
+		}
+
+		if (routeConfig == null) {
+			throw new IllegalArgumentException(
+					"No Configuration found for route " + routeId + " or defaultFilters");
+		}
+		return routeConfig;
+	}
+
+	public Map<String, String> getHeaders(Config config, Long tokensLeft) {
+		Map<String, String> headers = new HashMap<>();
+		if (isIncludeHeaders()) {
+			headers.put(this.remainingHeader, tokensLeft.toString());
+			headers.put(this.replenishRateHeader,
+					String.valueOf(config.getReplenishRate()));
+			headers.put(this.burstCapacityHeader,
+					String.valueOf(config.getBurstCapacity()));
+			headers.put(this.requestedTokensHeader,
+					String.valueOf(config.getRequestedTokens()));
+		}
+		return headers;
+	}
+
+	/**
+	 * The time in nanos from which on the bucket holds all of its tokens. Taking a token
+	 * moves it forward by the time it takes to refill one token.
+	 */
+	@SuppressWarnings("serial")
+	private static final class Bucket extends AtomicLong {
+
+		/**
+		 * Time to refill the whole bucket, as configured on its last use.
+		 */
+		private volatile long refillNanos;
+
+		private Bucket(long filledAt, long refillNanos) {
+			super(filledAt);
+			this.refillNanos = refillNanos;
+		}
+
+		private boolean isFull(long now) {
+			return now - get() >= this.refillNanos;
+		}
+
+	}
+
+	private static final class Stripe {
+
+		private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+		private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+		private final int capacity;
+
+		private Stripe(int capacity) {
+			this.capacity = capacity;
+		}
+
+		/**
+		 * Removes full buckets once in a while, or when the stripe is full. If it is
+		 * still full afterwards the fullest of a few sampled buckets is removed.
+		 */
+		private void makeRoom(long now, long sweepNanos) {
+			long last = this.lastSweep.get();
+			boolean full = this.buckets.size() >= this.capacity;
+			if ((full || now - last >= sweepNanos)
+					&& this.lastSweep.compareAndSet(last, now)) {
+				this.buckets.values().removeIf(bucket -> bucket.isFull(now));
+			}
+			while (this.buckets.size() >= this.capacity) {
+				evictOne();
+			}
+		}
+
+		private void evictOne() {
+			Map.Entry<String, Bucket> eldest = null;
+			Iterator<Map.Entry<String, Bucket>> iterator = this.buckets.entrySet()
+					.iterator();
+			for (int i = 0; i < EVICTION_SAMPLES && iterator.hasNext(); i++) {
+				Map.Entry<String, Bucket> entry = iterator.next();
+				if (eldest == null
+						|| entry.getValue().get() - eldest.getValue().get() < 0) {
+					eldest = entry;
+				}
+			}
+			if (eldest != null) {
+				this.buckets.remove(eldest.getKey(), eldest.getValue());
+			}
+		}
+
+	}
+
+	@Validated
+	public static class Config {
+
+		@Min(1)
+		private int replenishRate;
+
+		@Min(0)
+		private int burstCapacity = 1;
+
+		@Min(1)
+		private int requestedTokens = 1;
+
+		public int getReplenishRate() {
+			return replenishRate;
+		}
+
+		public Config setReplenishRate(int replenishRate) {
+			this.replenishRate = replenishRate;
+			return this;
+		}
+
+		public int getBurstCapacity() {
+			return burstCapacity;
+		}
+
+		public Config setBurstCapacity(int burstCapacity) {
+			this.burstCapacity = burstCapacity;
+			return this;
+		}
+
+		public int getRequestedTokens() {
+			return requestedTokens;
+		}
+
+		public Config setRequestedTokens(int requestedTokens) {
+			this.requestedTokens = requestedTokens;
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringCreator(this).append("replenishRate", replenishRate)
+					.append("burstCapacity", burstCapacity)
+					.append("requestedTokens", requestedTokens).toString();
+
+		}
+
+	}
+
+}
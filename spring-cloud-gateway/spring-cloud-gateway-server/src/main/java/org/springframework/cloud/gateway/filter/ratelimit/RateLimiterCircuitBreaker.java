@@ -0,0 +1,113 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter.CircuitBreakerState;
+
+/**
+ * Stops calling the rate limiter backend after {@code failureThreshold} consecutive
+ * failed calls. While open, a single trial call is permitted every {@code openNanos}; its
+ * success closes the breaker again, its failure keeps it open. Calls that were permitted
+ * before the breaker opened do not change its state when they complete.
+ */
+final class RateLimiterCircuitBreaker {
+
+	private final int failureThreshold;
+
+	private final long openNanos;
+
+	private final AtomicInteger failures = new AtomicInteger();
+
+	private final AtomicLong openedAt = new AtomicLong();
+
+	private final LongAdder notPermittedCalls = new LongAdder();
+
+	private volatile boolean open;
+
+	private volatile boolean trialCall;
+
+	RateLimiterCircuitBreaker(int failureThreshold, long openNanos) {
+		this.failureThreshold = failureThreshold;
+		this.openNanos = openNanos;
+	}
+
+	/**
+	 * Whether the backend may be called.
+	 * @param now the current time in nanos
+	 * @return true if the call is permitted
+	 */
+	boolean tryAcquirePermission(long now) {
+		if (!this.open) {
+			return true;
+		}
+		long opened = this.openedAt.get();
+		if (now - opened >= this.openNanos && this.openedAt.compareAndSet(opened, now)) {
+			this.trialCall = true;
+			return true;
+		}
+		this.notPermittedCalls.increment();
+		return false;
+	}
+
+	void onSuccess() {
+		if (this.open) {
+			if (!this.trialCall) {
+				return;
+			}
+			this.trialCall = false;
+		}
+		this.failures.set(0);
+		this.open = false;
+	}
+
+	/**
+	 * Records a failed call.
+	 * @param now the current time in nanos
+	 */
+	void onError(long now) {
+		if (this.open) {
+			if (this.trialCall) {
+				// the trial call failed, wait another openNanos for the next one
+				this.openedAt.set(now);
+				this.trialCall = false;
+			}
+		}
+		else if (this.failures.incrementAndGet() >= this.failureThreshold) {
+			this.openedAt.set(now);
+			this.open = true;
+		}
+	}
+
+	CircuitBreakerState getState() {
+		if (!this.open) {
+			return CircuitBreakerState.CLOSED;
+		}
+		return this.trialCall ? CircuitBreakerState.HALF_OPEN : CircuitBreakerState.OPEN;
+	}
+
+	/**
+	 * @return how many calls have not been permitted while the breaker was open
+	 */
+	long getNotPermittedCalls() {
+		return this.notPermittedCalls.sum();
+	}
+
+}
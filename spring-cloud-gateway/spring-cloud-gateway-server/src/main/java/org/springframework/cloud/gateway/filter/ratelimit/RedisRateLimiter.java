@@ -16,13 +16,19 @@
 
 package org.springframework.cloud.gateway.filter.ratelimit;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.validation.constraints.Min;
 
@@ -31,6 +37,7 @@ import org.apache.commons.logging.LogFactory;
 import org.jetbrains.annotations.NotNull;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
 
 import org.springframework.beans.BeansException;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -78,6 +85,26 @@ public class RedisRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Confi
 	 */
 	public static final String REDIS_SCRIPT_NAME = "redisRequestRateLimiterScript";
 
+	/**
+	 * Redis Script name of the script that leases tokens.
+	 */
+	public static final String REDIS_LEASE_SCRIPT_NAME = "redisRequestRateLimiterLeaseScript";
+
+	/**
+	 * Redis Script name of the script that evaluates several requests at once.
+	 */
+	public static final String REDIS_BATCH_SCRIPT_NAME = "redisRequestRateLimiterBatchScript";
+
+	/**
+	 * Redis Script name of the GCRA script.
+	 */
+	public static final String REDIS_GCRA_SCRIPT_NAME = "redisRequestRateLimiterGcraScript";
+
+	/**
+	 * Redis Script name of the sliding window script.
+	 */
+	public static final String REDIS_SLIDING_WINDOW_SCRIPT_NAME = "redisRequestRateLimiterSlidingWindowScript";
+
 	/**
 	 * Remaining Rate Limit header name.
 	 */
@@ -98,12 +125,34 @@ public class RedisRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Confi
 	 */
 	public static final String REQUESTED_TOKENS_HEADER = "X-RateLimit-Requested-Tokens";
 
+	private static final long LEASE_SWEEP_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
 	private Log log = LogFactory.getLog(getClass());
 
 	private ReactiveStringRedisTemplate redisTemplate;
 
 	private RedisScript<List<Long>> script;
 
+	private RedisScript<List<Long>> leaseScript;
+
+	private RedisScript<List<Long>> batchScript;
+
+	private RedisScript<List<Long>> gcraScript;
+
+	private RedisScript<List<Long>> slidingWindowScript;
+
+	private volatile RedisScriptBatcher batcher;
+
+	private volatile DenyCache denyCache;
+
+	private volatile RateLimiterCircuitBreaker circuitBreaker;
+
+	private volatile LocalRateLimiter fallbackRateLimiter;
+
+	private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+	private final AtomicLong lastLeaseSweep = new AtomicLong(System.nanoTime());
+
 	private AtomicBoolean initialized = new AtomicBoolean(false);
 
 	private Config defaultConfig;
@@ -130,6 +179,52 @@ public class RedisRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Confi
 	/** The name of the header that returns the requested tokens configuration. */
 	private String requestedTokensHeader = REQUESTED_TOKENS_HEADER;
 
+	/**
+	 * Maximum number of concurrent requests that are evaluated by a single script call,
+	 * defaults to 0 which evaluates every request on its own. The keys of a batch
+	 * usually belong to different hash slots, so batching can not be used with Redis
+	 * Cluster.
+	 */
+	private int batchSize = 0;
+
+	/**
+	 * Maximum time a request waits for other requests to be evaluated with, defaults to
+	 * 1 millisecond.
+	 */
+	private Duration batchWindow = Duration.ofMillis(1);
+
+	/**
+	 * Maximum number of denied keys that are remembered locally, defaults to 0 which
+	 * disables the deny cache. Requests of a remembered key are denied without calling
+	 * Redis until the next token is expected.
+	 */
+	private int denyCacheMaxKeys = 0;
+
+	/**
+	 * Maximum time to wait for a Redis call, after which the request is handled
+	 * according to the failure policy. Defaults to none, which waits for the timeout of
+	 * the Redis client.
+	 */
+	private Duration timeout;
+
+	/**
+	 * How requests are handled when Redis fails, times out or is not called because the
+	 * circuit breaker is open, defaults to allowing them.
+	 */
+	private FailurePolicy failurePolicy = FailurePolicy.FAIL_OPEN;
+
+	/**
+	 * Number of consecutive failed Redis calls after which Redis is no longer called,
+	 * defaults to 0 which disables the circuit breaker.
+	 */
+	private int circuitBreakerFailureThreshold = 0;
+
+	/**
+	 * Time after which an open circuit breaker lets a single call through to check if
+	 * Redis has recovered, defaults to 10 seconds.
+	 */
+	private Duration circuitBreakerOpenDuration = Duration.ofSeconds(10);
+
 	public RedisRateLimiter(ReactiveStringRedisTemplate redisTemplate,
 			RedisScript<List<Long>> script, ConfigurationService configurationService) {
 		super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
@@ -138,6 +233,13 @@ public class RedisRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Confi
 		this.initialized.compareAndSet(false, true);
 	}
 
+	public RedisRateLimiter(ReactiveStringRedisTemplate redisTemplate,
+			RedisScript<List<Long>> script, RedisScript<List<Long>> leaseScript,
+			ConfigurationService configurationService) {
+		this(redisTemplate, script, configurationService);
+		this.leaseScript = leaseScript;
+	}
+
 	@Deprecated
 	public RedisRateLimiter(ReactiveStringRedisTemplate redisTemplate,
 			RedisScript<List<Long>> script, Validator validator) {
@@ -185,6 +287,20 @@ public class RedisRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Confi
 		return Arrays.asList(tokenKey, timestampKey);
 	}
 
+	static List<String> getKeys(String id, Algorithm algorithm) {
+		String prefix = "request_rate_limiter.{" + id;
+		switch (algorithm) {
+		case GCRA:
+			// the theoretical arrival time
+			return Collections.singletonList(prefix + "}.tat");
+		case SLIDING_WINDOW:
+			// the counts of the current and the previous window
+			return Collections.singletonList(prefix + "}.window");
+		default:
+			return getKeys(id);
+		}
+	}
+
 	public boolean isIncludeHeaders() {
 		return includeHeaders;
 	}
@@ -225,6 +341,100 @@ public class RedisRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Confi
 		this.requestedTokensHeader = requestedTokensHeader;
 	}
 
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+		resetBatcher();
+	}
+
+	public Duration getBatchWindow() {
+		return batchWindow;
+	}
+
+	public void setBatchWindow(Duration batchWindow) {
+		this.batchWindow = batchWindow;
+		resetBatcher();
+	}
+
+	public int getDenyCacheMaxKeys() {
+		return denyCacheMaxKeys;
+	}
+
+	public void setDenyCacheMaxKeys(int denyCacheMaxKeys) {
+		this.denyCacheMaxKeys = denyCacheMaxKeys;
+		this.denyCache = null;
+	}
+
+	public Duration getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+
+	public FailurePolicy getFailurePolicy() {
+		return failurePolicy;
+	}
+
+	public void setFailurePolicy(FailurePolicy failurePolicy) {
+		this.failurePolicy = failurePolicy;
+	}
+
+	public int getCircuitBreakerFailureThreshold() {
+		return circuitBreakerFailureThreshold;
+	}
+
+	public void setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+		this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+		this.circuitBreaker = null;
+	}
+
+	public Duration getCircuitBreakerOpenDuration() {
+		return circuitBreakerOpenDuration;
+	}
+
+	public void setCircuitBreakerOpenDuration(Duration circuitBreakerOpenDuration) {
+		this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+		this.circuitBreaker = null;
+	}
+
+	/**
+	 * @return the state of the circuit breaker around the Redis calls
+	 */
+	public CircuitBreakerState circuitBreakerState() {
+		RateLimiterCircuitBreaker circuitBreaker = this.circuitBreaker;
+		return (circuitBreaker != null) ? circuitBreaker.getState()
+				: CircuitBreakerState.CLOSED;
+	}
+
+	/**
+	 * @return how many Redis calls have been skipped because the circuit breaker was open
+	 */
+	public long circuitBreakerNotPermittedCalls() {
+		RateLimiterCircuitBreaker circuitBreaker = this.circuitBreaker;
+		return (circuitBreaker != null) ? circuitBreaker.getNotPermittedCalls() : 0;
+	}
+
+	/**
+	 * @return how many requests have been denied by the deny cache without calling Redis
+	 */
+	public long denyCacheHits() {
+		DenyCache denyCache = this.denyCache;
+		return (denyCache != null) ? denyCache.getHits() : 0;
+	}
+
+	/**
+	 * @return the number of keys in the deny cache
+	 */
+	public int denyCacheKeys() {
+		DenyCache denyCache = this.denyCache;
+		return (denyCache != null) ? denyCache.size() : 0;
+	}
+
 	/**
 	 * Used when setting default configuration in constructor.
 	 * @param context the ApplicationContext object to be used by this object
@@ -242,6 +452,28 @@ public class RedisRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Confi
 				setConfigurationService(context.getBean(ConfigurationService.class));
 			}
 		}
+		if (this.leaseScript == null && context.containsBean(REDIS_LEASE_SCRIPT_NAME)) {
+			this.leaseScript = context.getBean(REDIS_LEASE_SCRIPT_NAME, RedisScript.class);
+		}
+		if (this.batchScript == null && context.containsBean(REDIS_BATCH_SCRIPT_NAME)) {
+			this.batchScript = context.getBean(REDIS_BATCH_SCRIPT_NAME, RedisScript.class);
+			// read the script now, batches are executed on a timer thread that must not
+			// block
+			this.batchScript.getSha1();
+		}
+		if (this.gcraScript == null && context.containsBean(REDIS_GCRA_SCRIPT_NAME)) {
+			this.gcraScript = context.getBean(REDIS_GCRA_SCRIPT_NAME, RedisScript.class);
+		}
+		if (this.slidingWindowScript == null
+				&& context.containsBean(REDIS_SLIDING_WINDOW_SCRIPT_NAME)) {
+			this.slidingWindowScript = context.getBean(REDIS_SLIDING_WINDOW_SCRIPT_NAME,
+					RedisScript.class);
+		}
+	}
+
+	/* for testing */ void setBatchScript(RedisScript<List<Long>> batchScript) {
+		this.batchScript = batchScript;
+		resetBatcher();
 	}
 
 	/* for testing */ Config getDefaultConfig() {
@@ -276,28 +508,46 @@ public class RedisRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Confi
 		// How many tokens are requested per request?
 		int requestedTokens = routeConfig.getRequestedTokens();
 
+		Algorithm algorithm = routeConfig.getAlgorithm();
+
+		DenyCache denyCache = getDenyCache();
+		if (denyCache != null
+				&& denyCache.isDenied(routeId + "." + id, System.nanoTime())) {
+			return Mono.just(new Response(false, getHeaders(routeConfig, 0L)));
+		}
+
+		if (algorithm == Algorithm.TOKEN_BUCKET && routeConfig.getLeaseSize() > 0
+				&& this.leaseScript != null) {
+			return isAllowedFromLease(routeId, id, routeConfig);
+		}
+
+		if (!isCallPermitted()) {
+			return onFailure(routeId, id, routeConfig);
+		}
+
 		try {
-			List<String> keys = getKeys(id);
+			List<String> keys = getKeys(id, algorithm);
 
-			// The arguments to the LUA script. time() returns unixtime in seconds.
+			// The arguments to the LUA script. time() returns unixtime in seconds, the
+			// other algorithms than the token bucket use milliseconds.
+			Instant now = Instant.now();
+			long time = (algorithm == Algorithm.TOKEN_BUCKET) ? now.getEpochSecond()
+					: now.toEpochMilli();
 			List<String> scriptArgs = Arrays.asList(replenishRate + "",
-					burstCapacity + "", Instant.now().getEpochSecond() + "",
-					requestedTokens + "");
+					burstCapacity + "", time + "", requestedTokens + "");
 			// allowed, tokens_left = redis.eval(SCRIPT, keys, args)
-			Flux<List<Long>> flux = this.redisTemplate.execute(this.script, keys,
-					scriptArgs);
+			Flux<List<Long>> flux = execute(algorithm, keys, scriptArgs);
 			// .log("redisratelimiter", Level.FINER);
-			return flux.onErrorResume(throwable -> {
-				if (log.isDebugEnabled()) {
-					log.debug("Error calling rate limiter lua", throwable);
-				}
-				return Flux.just(Arrays.asList(1L, -1L));
-			}).reduce(new ArrayList<Long>(), (longs, l) -> {
+			return withTimeout(flux.reduce(new ArrayList<Long>(), (longs, l) -> {
 				longs.addAll(l);
 				return longs;
-			}).map(results -> {
+			})).map(results -> {
+				recordSuccess();
 				boolean allowed = results.get(0) == 1L;
 				Long tokensLeft = results.get(1);
+				if (!allowed) {
+					rememberDenial(routeId, id, routeConfig, tokensLeft);
+				}
 
 				Response response = new Response(allowed,
 						getHeaders(routeConfig, tokensLeft));
@@ -306,6 +556,15 @@ public class RedisRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Confi
 					log.debug("response: " + response);
 				}
 				return response;
+			}).onErrorResume(throwable -> {
+				if (log.isDebugEnabled()) {
+					log.debug("Error calling rate limiter lua", throwable);
+				}
+				// a full batch queue is not a failure of Redis
+				if (!(throwable instanceof RedisScriptBatcher.QueueFullException)) {
+					recordFailure();
+				}
+				return onFailure(routeId, id, routeConfig);
 			});
 		}
 		catch (Exception e) {
@@ -316,7 +575,260 @@ public class RedisRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Confi
 			 */
 			log.error("Error determining if user allowed from redis", e);
 		}
-		return Mono.just(new Response(true, getHeaders(routeConfig, -1L)));
+		return onFailure(routeId, id, routeConfig);
+	}
+
+	/**
+	 * Handles a request that could not be evaluated by Redis according to the failure
+	 * policy.
+	 */
+	private Mono<Response> onFailure(String routeId, String id, Config routeConfig) {
+		switch (this.failurePolicy) {
+		case FAIL_CLOSED:
+			return Mono.just(new Response(false, getHeaders(routeConfig, -1L)));
+		case LOCAL:
+			LocalRateLimiter.Config localConfig = new LocalRateLimiter.Config()
+					.setReplenishRate(routeConfig.getReplenishRate())
+					.setBurstCapacity(routeConfig.getBurstCapacity())
+					.setRequestedTokens(routeConfig.getRequestedTokens());
+			return Mono.just(getFallbackRateLimiter().tryAcquire(routeId, id,
+					localConfig, System.nanoTime()));
+		default:
+			return Mono.just(new Response(true, getHeaders(routeConfig, -1L)));
+		}
+	}
+
+	private LocalRateLimiter getFallbackRateLimiter() {
+		LocalRateLimiter fallbackRateLimiter = this.fallbackRateLimiter;
+		if (fallbackRateLimiter == null) {
+			synchronized (this) {
+				fallbackRateLimiter = this.fallbackRateLimiter;
+				if (fallbackRateLimiter == null) {
+					fallbackRateLimiter = new LocalRateLimiter(1, 1);
+					fallbackRateLimiter.setIncludeHeaders(this.includeHeaders);
+					fallbackRateLimiter.setRemainingHeader(this.remainingHeader);
+					fallbackRateLimiter.setReplenishRateHeader(this.replenishRateHeader);
+					fallbackRateLimiter.setBurstCapacityHeader(this.burstCapacityHeader);
+					fallbackRateLimiter
+							.setRequestedTokensHeader(this.requestedTokensHeader);
+					this.fallbackRateLimiter = fallbackRateLimiter;
+				}
+			}
+		}
+		return fallbackRateLimiter;
+	}
+
+	private <T> Mono<T> withTimeout(Mono<T> call) {
+		Duration timeout = this.timeout;
+		return (timeout != null) ? call.timeout(timeout) : call;
+	}
+
+	private RateLimiterCircuitBreaker getCircuitBreaker() {
+		if (this.circuitBreakerFailureThreshold <= 0) {
+			return null;
+		}
+		RateLimiterCircuitBreaker circuitBreaker = this.circuitBreaker;
+		if (circuitBreaker == null) {
+			synchronized (this) {
+				circuitBreaker = this.circuitBreaker;
+				if (circuitBreaker == null) {
+					circuitBreaker = new RateLimiterCircuitBreaker(
+							this.circuitBreakerFailureThreshold,
+							this.circuitBreakerOpenDuration.toNanos());
+					this.circuitBreaker = circuitBreaker;
+				}
+			}
+		}
+		return circuitBreaker;
+	}
+
+	private boolean isCallPermitted() {
+		RateLimiterCircuitBreaker circuitBreaker = getCircuitBreaker();
+		return circuitBreaker == null
+				|| circuitBreaker.tryAcquirePermission(System.nanoTime());
+	}
+
+	private void recordSuccess() {
+		RateLimiterCircuitBreaker circuitBreaker = getCircuitBreaker();
+		if (circuitBreaker != null) {
+			circuitBreaker.onSuccess();
+		}
+	}
+
+	private void recordFailure() {
+		RateLimiterCircuitBreaker circuitBreaker = getCircuitBreaker();
+		if (circuitBreaker != null) {
+			circuitBreaker.onError(System.nanoTime());
+		}
+	}
+
+	private Flux<List<Long>> execute(Algorithm algorithm, List<String> keys,
+			List<String> scriptArgs) {
+		if (algorithm == Algorithm.GCRA) {
+			return this.redisTemplate.execute(getScript(this.gcraScript, algorithm), keys,
+					scriptArgs);
+		}
+		if (algorithm == Algorithm.SLIDING_WINDOW) {
+			return this.redisTemplate.execute(
+					getScript(this.slidingWindowScript, algorithm), keys, scriptArgs);
+		}
+		RedisScriptBatcher batcher = getBatcher();
+		if (batcher != null) {
+			return batcher.execute(keys, scriptArgs).flux();
+		}
+		return this.redisTemplate.execute(this.script, keys, scriptArgs);
+	}
+
+	private static RedisScript<List<Long>> getScript(RedisScript<List<Long>> script,
+			Algorithm algorithm) {
+		if (script == null) {
+			throw new IllegalStateException("No script found for " + algorithm);
+		}
+		return script;
+	}
+
+	private RedisScriptBatcher getBatcher() {
+		if (this.batchSize <= 1 || this.batchScript == null) {
+			return null;
+		}
+		RedisScriptBatcher batcher = this.batcher;
+		if (batcher == null) {
+			synchronized (this) {
+				batcher = this.batcher;
+				if (batcher == null) {
+					// allowed_num and new_tokens of every request
+					batcher = new RedisScriptBatcher(this.redisTemplate,
+							this.batchScript, 2, this.batchSize, this.batchWindow);
+					this.batcher = batcher;
+				}
+			}
+		}
+		return batcher;
+	}
+
+	private DenyCache getDenyCache() {
+		if (this.denyCacheMaxKeys <= 0) {
+			return null;
+		}
+		DenyCache denyCache = this.denyCache;
+		if (denyCache == null) {
+			synchronized (this) {
+				denyCache = this.denyCache;
+				if (denyCache == null) {
+					denyCache = new DenyCache(this.denyCacheMaxKeys);
+					this.denyCache = denyCache;
+				}
+			}
+		}
+		return denyCache;
+	}
+
+	/**
+	 * Remembers a denied key until the requested tokens can be replenished at the
+	 * earliest, which is the case after {@code (requested - tokensLeft) / replenishRate}
+	 * seconds.
+	 */
+	private void rememberDenial(String routeId, String id, Config routeConfig,
+			long tokensLeft) {
+		DenyCache denyCache = getDenyCache();
+		long missing = routeConfig.getRequestedTokens() - tokensLeft;
+		if (denyCache == null || tokensLeft < 0 || missing <= 0
+				|| routeConfig.getReplenishRate() <= 0) {
+			return;
+		}
+		long now = System.nanoTime();
+		long nanos = missing * TimeUnit.SECONDS.toNanos(1)
+				/ routeConfig.getReplenishRate();
+		denyCache.deny(routeId + "." + id, now + nanos, now);
+	}
+
+	private synchronized void resetBatcher() {
+		if (this.batcher != null) {
+			this.batcher.dispose();
+			this.batcher = null;
+		}
+	}
+
+	/**
+	 * Takes the requested tokens from the tokens this instance has leased for the key.
+	 * Only when there are not enough tokens left, or they have become stale, the request
+	 * has to wait for new tokens to be leased from Redis. When the lease runs low it is
+	 * renewed in the background. Requests that miss while tokens are being leased wait
+	 * for that lease instead of leasing on their own.
+	 */
+	private Mono<Response> isAllowedFromLease(String routeId, String id,
+			Config routeConfig) {
+		long now = System.nanoTime();
+		Lease lease = getLease(routeId + "." + id, now);
+		int requestedTokens = routeConfig.getRequestedTokens();
+
+		long tokensLeft = lease.take(requestedTokens, now);
+		if (tokensLeft >= 0) {
+			if (tokensLeft * 2 < routeConfig.getLeaseSize() && isCallPermitted()) {
+				renewLease(lease, id, routeConfig);
+			}
+			return Mono.just(new Response(true, getHeaders(routeConfig, tokensLeft)));
+		}
+
+		if (!isCallPermitted()) {
+			return onFailure(routeId, id, routeConfig);
+		}
+
+		return renewLease(lease, id, routeConfig).flatMap(results -> {
+			long left = lease.takeLeased(requestedTokens);
+			if (left >= 0) {
+				return Mono.just(new Response(true, getHeaders(routeConfig, left)));
+			}
+			if (results.get(0) < requestedTokens) {
+				rememberDenial(routeId, id, routeConfig, results.get(1));
+				return Mono.just(new Response(false, getHeaders(routeConfig, 0L)));
+			}
+			// requests waiting for the same lease took the tokens first
+			return isAllowedFromLease(routeId, id, routeConfig);
+		}).onErrorResume(throwable -> onFailure(routeId, id, routeConfig))
+				.doOnNext(response -> {
+					if (log.isDebugEnabled()) {
+						log.debug("response: " + response);
+					}
+				});
+	}
+
+	private Lease getLease(String key, long now) {
+		Lease lease = this.leases.get(key);
+		if (lease == null) {
+			long last = this.lastLeaseSweep.get();
+			if (now - last >= LEASE_SWEEP_INTERVAL
+					&& this.lastLeaseSweep.compareAndSet(last, now)) {
+				this.leases.values().removeIf(l -> l.isStale(now));
+			}
+			lease = this.leases.computeIfAbsent(key, k -> new Lease(now));
+		}
+		return lease;
+	}
+
+	private Mono<List<Long>> renewLease(Lease lease, String id, Config routeConfig) {
+		return lease.renew(() -> leaseTokens(id, routeConfig)
+				.doOnNext(results -> recordSuccess()).doOnError(throwable -> {
+					if (log.isDebugEnabled()) {
+						log.debug("Error calling rate limiter lease lua", throwable);
+					}
+					recordFailure();
+				}), routeConfig.getLeaseStaleness());
+	}
+
+	private Mono<List<Long>> leaseTokens(String id, Config routeConfig) {
+		return Mono.defer(() -> {
+			List<String> keys = getKeys(id);
+			// the same bucket as without leasing, so both can be used for a key
+			List<String> scriptArgs = Arrays.asList(routeConfig.getReplenishRate() + "",
+					routeConfig.getBurstCapacity() + "",
+					Instant.now().getEpochSecond() + "",
+					routeConfig.getRequestedTokens() + "",
+					routeConfig.getLeaseSize() + "");
+			// leased, tokens_left = redis.eval(SCRIPT, keys, args)
+			return withTimeout(
+					this.redisTemplate.execute(this.leaseScript, keys, scriptArgs).next());
+		});
 	}
 
 	/* for testing */ Config loadConfiguration(String routeId) {
@@ -348,6 +860,175 @@ public class RedisRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Confi
 		return headers;
 	}
 
+	/**
+	 * Tokens of a key leased from Redis by this instance.
+	 */
+	private static final class Lease {
+
+		private final AtomicLong tokens = new AtomicLong();
+
+		private MonoProcessor<List<Long>> renewal;
+
+		private volatile long expiresAt;
+
+		private Lease(long now) {
+			this.expiresAt = now;
+		}
+
+		private boolean isStale(long now) {
+			return now - this.expiresAt >= 0;
+		}
+
+		/**
+		 * Takes tokens from the lease and returns how many are left, or -1 if there are
+		 * not enough or they are stale.
+		 */
+		private long take(long requested, long now) {
+			while (!isStale(now)) {
+				long current = this.tokens.get();
+				if (current < requested) {
+					return -1;
+				}
+				if (this.tokens.compareAndSet(current, current - requested)) {
+					return current - requested;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Takes tokens that have just been leased, regardless of the staleness.
+		 */
+		private long takeLeased(long requested) {
+			while (true) {
+				long current = this.tokens.get();
+				if (current < requested) {
+					return -1;
+				}
+				if (this.tokens.compareAndSet(current, current - requested)) {
+					return current - requested;
+				}
+			}
+		}
+
+		/**
+		 * Leases new tokens and adds them, unless tokens are already being leased. Either
+		 * way the returned {@link Mono} completes with the outcome of the lease in
+		 * flight, so there is only ever one per key.
+		 */
+		private Mono<List<Long>> renew(Supplier<Mono<List<Long>>> leaseTokens,
+				Duration staleness) {
+			MonoProcessor<List<Long>> renewal;
+			synchronized (this) {
+				if (this.renewal != null) {
+					return this.renewal;
+				}
+				renewal = MonoProcessor.create();
+				this.renewal = renewal;
+			}
+			leaseTokens.get().subscribe(results -> {
+				add(results.get(0), System.nanoTime(), staleness);
+				renewed(renewal);
+				renewal.onNext(results);
+			}, throwable -> {
+				renewed(renewal);
+				renewal.onError(throwable);
+			}, () -> {
+				renewed(renewal);
+				renewal.onComplete();
+			});
+			return renewal;
+		}
+
+		private synchronized void renewed(MonoProcessor<List<Long>> renewal) {
+			if (this.renewal == renewal) {
+				this.renewal = null;
+			}
+		}
+
+		/**
+		 * Adds leased tokens, dropping the tokens left if they are stale.
+		 */
+		private synchronized long add(long leased, long now, Duration staleness) {
+			if (isStale(now)) {
+				this.tokens.set(0);
+			}
+			this.expiresAt = now + staleness.toNanos();
+			return this.tokens.addAndGet(leased);
+		}
+
+	}
+
+	/**
+	 * Algorithms that limit the requests of a key.
+	 */
+	public enum Algorithm {
+
+		/**
+		 * Token bucket that is refilled every second, stored in two keys.
+		 */
+		TOKEN_BUCKET,
+
+		/**
+		 * Generic cell rate algorithm, a token bucket that is refilled continuously and
+		 * stored as a single theoretical arrival time.
+		 */
+		GCRA,
+
+		/**
+		 * Counts the requests of the current and the previous window of
+		 * {@code burstCapacity / replenishRate} seconds. The count of the previous window
+		 * is weighted by how much it overlaps with the window that ends now.
+		 */
+		SLIDING_WINDOW
+
+	}
+
+	/**
+	 * How requests are handled that can not be evaluated by Redis.
+	 */
+	public enum FailurePolicy {
+
+		/**
+		 * Allow the requests.
+		 */
+		FAIL_OPEN,
+
+		/**
+		 * Deny the requests.
+		 */
+		FAIL_CLOSED,
+
+		/**
+		 * Limit the requests with a token bucket in the memory of the gateway instance,
+		 * so every instance allows the configured rate on its own.
+		 */
+		LOCAL
+
+	}
+
+	/**
+	 * States of the circuit breaker around the Redis calls.
+	 */
+	public enum CircuitBreakerState {
+
+		/**
+		 * Redis is called.
+		 */
+		CLOSED,
+
+		/**
+		 * Redis is not called after too many failed calls.
+		 */
+		OPEN,
+
+		/**
+		 * A single call checks if Redis has recovered.
+		 */
+		HALF_OPEN
+
+	}
+
 	@Validated
 	public static class Config {
 
@@ -360,6 +1041,13 @@ public class RedisRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Confi
 		@Min(1)
 		private int requestedTokens = 1;
 
+		@Min(0)
+		private int leaseSize = 0;
+
+		private Duration leaseStaleness = Duration.ofSeconds(1);
+
+		private Algorithm algorithm = Algorithm.TOKEN_BUCKET;
+
 		public int getReplenishRate() {
 			return replenishRate;
 		}
@@ -387,11 +1075,58 @@ public class RedisRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Confi
 			return this;
 		}
 
+		public int getLeaseSize() {
+			return leaseSize;
+		}
+
+		/**
+		 * Sets how many tokens are leased from Redis at once. The requests are then
+		 * served from the leased tokens, 0 disables leasing.
+		 * @param leaseSize the number of tokens leased at once
+		 * @return this config
+		 */
+		public Config setLeaseSize(int leaseSize) {
+			this.leaseSize = leaseSize;
+			return this;
+		}
+
+		public Algorithm getAlgorithm() {
+			return algorithm;
+		}
+
+		/**
+		 * Sets the algorithm that limits the requests, leasing and batching are only
+		 * supported by the token bucket.
+		 * @param algorithm the algorithm
+		 * @return this config
+		 */
+		public Config setAlgorithm(Algorithm algorithm) {
+			this.algorithm = algorithm;
+			return this;
+		}
+
+		public Duration getLeaseStaleness() {
+			return leaseStaleness;
+		}
+
+		/**
+		 * Sets how long leased tokens can be used before they are dropped.
+		 * @param leaseStaleness the time leased tokens can be used
+		 * @return this config
+		 */
+		public Config setLeaseStaleness(Duration leaseStaleness) {
+			this.leaseStaleness = leaseStaleness;
+			return this;
+		}
+
 		@Override
 		public String toString() {
 			return new ToStringCreator(this).append("replenishRate", replenishRate)
 					.append("burstCapacity", burstCapacity)
-					.append("requestedTokens", requestedTokens).toString();
+					.append("requestedTokens", requestedTokens)
+					.append("leaseSize", leaseSize)
+					.append("leaseStaleness", leaseStaleness)
+					.append("algorithm", algorithm).toString();
 
 		}
 
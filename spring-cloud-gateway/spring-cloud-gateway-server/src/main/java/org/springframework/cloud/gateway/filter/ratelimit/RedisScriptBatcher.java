@@ -0,0 +1,257 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * Collects the rate limiter script calls of concurrent requests and executes them
+ * together with a batch script, as soon as there are {@code maxSize} calls or the first
+ * call has waited for {@code window}. The batch script gets the keys and arguments of all
+ * calls one after the other, and returns {@code resultSize} values for every call.
+ * <p>
+ * At most {@code maxInFlight} batches are executed at the same time. Further calls wait
+ * in a queue of at most {@code maxSize * maxInFlight} calls, calls that do not fit fail
+ * right away with a {@link QueueFullException}, so that a stalled Redis does not make
+ * requests wait forever. Calls that are cancelled while they wait, for example by a
+ * timeout, are removed from the queue and not executed.
+ */
+final class RedisScriptBatcher implements Disposable {
+
+	/**
+	 * Default max number of batches executed at the same time.
+	 */
+	static final int DEFAULT_MAX_IN_FLIGHT = 32;
+
+	private static final Log log = LogFactory.getLog(RedisScriptBatcher.class);
+
+	private final ReactiveStringRedisTemplate redisTemplate;
+
+	private final RedisScript<List<Long>> script;
+
+	private final int resultSize;
+
+	private final int maxSize;
+
+	private final Duration window;
+
+	private final int maxInFlight;
+
+	private final int maxQueued;
+
+	private final Queue<Call> queue = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger queued = new AtomicInteger();
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicInteger wip = new AtomicInteger();
+
+	private final AtomicBoolean timerScheduled = new AtomicBoolean();
+
+	private volatile boolean disposed;
+
+	RedisScriptBatcher(ReactiveStringRedisTemplate redisTemplate,
+			RedisScript<List<Long>> script, int resultSize, int maxSize,
+			Duration window) {
+		this(redisTemplate, script, resultSize, maxSize, window, DEFAULT_MAX_IN_FLIGHT);
+	}
+
+	RedisScriptBatcher(ReactiveStringRedisTemplate redisTemplate,
+			RedisScript<List<Long>> script, int resultSize, int maxSize, Duration window,
+			int maxInFlight) {
+		this.redisTemplate = redisTemplate;
+		this.script = script;
+		this.resultSize = resultSize;
+		this.maxSize = maxSize;
+		this.window = window;
+		this.maxInFlight = maxInFlight;
+		this.maxQueued = maxSize * maxInFlight;
+	}
+
+	/**
+	 * Adds a call to the next batch.
+	 * @param keys the keys of the call
+	 * @param args the arguments of the call
+	 * @return the results of the call
+	 */
+	Mono<List<Long>> execute(List<String> keys, List<String> args) {
+		return Mono.create(sink -> {
+			Call call = new Call(keys, args, sink);
+			sink.onCancel(() -> remove(call));
+			add(call);
+		});
+	}
+
+	private void add(Call call) {
+		if (this.disposed) {
+			// the limiter has created a new batcher, this call is not batched
+			executeBatch(Collections.singletonList(call)).subscribe();
+			return;
+		}
+		if (this.queued.incrementAndGet() > this.maxQueued) {
+			this.queued.decrementAndGet();
+			call.sink.error(new QueueFullException("More than " + this.maxQueued
+					+ " rate limiter calls are waiting for Redis"));
+			return;
+		}
+		this.queue.offer(call);
+		if (this.queued.get() >= this.maxSize) {
+			drain();
+		}
+		else if (this.timerScheduled.compareAndSet(false, true)) {
+			Schedulers.parallel().schedule(() -> {
+				this.timerScheduled.set(false);
+				drain();
+			}, this.window.toNanos(), TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private void remove(Call call) {
+		if (this.queue.remove(call)) {
+			this.queued.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Executes the queued calls in batches of up to {@code maxSize}, as long as less
+	 * than {@code maxInFlight} batches are executing. Called when a batch is full, when
+	 * the window has passed and when a batch has been executed.
+	 */
+	private void drain() {
+		if (this.wip.getAndIncrement() != 0) {
+			return;
+		}
+		do {
+			while (this.inFlight.get() < this.maxInFlight) {
+				List<Call> batch = poll();
+				if (batch.isEmpty()) {
+					break;
+				}
+				this.inFlight.incrementAndGet();
+				executeBatch(batch).doFinally(signal -> {
+					this.inFlight.decrementAndGet();
+					drain();
+				}).subscribe();
+			}
+		}
+		while (this.wip.decrementAndGet() != 0);
+	}
+
+	private List<Call> poll() {
+		List<Call> batch = new ArrayList<>();
+		Call call;
+		while (batch.size() < this.maxSize && (call = this.queue.poll()) != null) {
+			this.queued.decrementAndGet();
+			batch.add(call);
+		}
+		return batch;
+	}
+
+	private Mono<Void> executeBatch(List<Call> batch) {
+		List<String> keys = new ArrayList<>();
+		List<String> args = new ArrayList<>();
+		for (Call call : batch) {
+			keys.addAll(call.keys);
+			args.addAll(call.args);
+		}
+		if (log.isTraceEnabled()) {
+			log.trace("Executing batch of " + batch.size() + " calls");
+		}
+		return Mono.defer(() -> this.redisTemplate.execute(this.script, keys, args)
+				.reduce(new ArrayList<Long>(), (longs, l) -> {
+					longs.addAll(l);
+					return longs;
+				})).doOnNext(results -> {
+					for (int i = 0; i < batch.size(); i++) {
+						int from = i * this.resultSize;
+						MonoSink<List<Long>> sink = batch.get(i).sink;
+						if (results.size() < from + this.resultSize) {
+							sink.error(new IllegalStateException(
+									"Missing results of batched call " + i));
+						}
+						else {
+							sink.success(new ArrayList<>(
+									results.subList(from, from + this.resultSize)));
+						}
+					}
+				})
+				.doOnError(throwable -> batch.forEach(call -> call.sink.error(throwable)))
+				.onErrorResume(throwable -> Mono.empty()).then();
+	}
+
+	/**
+	 * Executes the calls added so far and stops batching.
+	 */
+	@Override
+	public void dispose() {
+		this.disposed = true;
+		drain();
+	}
+
+	@Override
+	public boolean isDisposed() {
+		return this.disposed;
+	}
+
+	/**
+	 * Signals that a call has not been executed because too many calls are waiting,
+	 * which is an overload of the gateway rather than a failure of Redis.
+	 */
+	static final class QueueFullException extends IllegalStateException {
+
+		QueueFullException(String message) {
+			super(message);
+		}
+
+	}
+
+	private static final class Call {
+
+		private final List<String> keys;
+
+		private final List<String> args;
+
+		private final MonoSink<List<Long>> sink;
+
+		private Call(List<String> keys, List<String> args, MonoSink<List<Long>> sink) {
+			this.keys = keys;
+			this.args = args;
+			this.sink = sink;
+		}
+
+	}
+
+}
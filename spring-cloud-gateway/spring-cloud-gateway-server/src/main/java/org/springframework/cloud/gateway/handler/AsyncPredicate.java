@@ -60,6 +60,10 @@ public interface AsyncPredicate<T> extends Function<T, Publisher<Boolean>> {
 			this.delegate = delegate;
 		}
 
+		public Predicate<T> getDelegate() {
+			return this.delegate;
+		}
+
 		@Override
 		public Publisher<Boolean> apply(T t) {
 			return Mono.just(delegate.test(t));
@@ -81,6 +85,10 @@ public interface AsyncPredicate<T> extends Function<T, Publisher<Boolean>> {
 			this.predicate = predicate;
 		}
 
+		public AsyncPredicate<? super T> getPredicate() {
+			return this.predicate;
+		}
+
 		@Override
 		public Publisher<Boolean> apply(T t) {
 			return Mono.from(predicate.apply(t)).map(b -> !b);
@@ -107,6 +115,14 @@ public interface AsyncPredicate<T> extends Function<T, Publisher<Boolean>> {
 			this.right = right;
 		}
 
+		public AsyncPredicate<? super T> getLeft() {
+			return this.left;
+		}
+
+		public AsyncPredicate<? super T> getRight() {
+			return this.right;
+		}
+
 		@Override
 		public Publisher<Boolean> apply(T t) {
 			return Mono.from(left.apply(t)).flatMap(
@@ -134,6 +150,14 @@ public interface AsyncPredicate<T> extends Function<T, Publisher<Boolean>> {
 			this.right = right;
 		}
 
+		public AsyncPredicate<? super T> getLeft() {
+			return this.left;
+		}
+
+		public AsyncPredicate<? super T> getRight() {
+			return this.right;
+		}
+
 		@Override
 		public Publisher<Boolean> apply(T t) {
 			return Mono.from(left.apply(t)).flatMap(
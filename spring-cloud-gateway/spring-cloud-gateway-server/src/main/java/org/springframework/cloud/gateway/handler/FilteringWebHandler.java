@@ -17,19 +17,24 @@
 package org.springframework.cloud.gateway.handler;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import reactor.core.publisher.Mono;
 
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
 import org.springframework.cloud.gateway.route.Route;
+import org.springframework.context.ApplicationListener;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 import org.springframework.web.server.ServerWebExchange;
@@ -45,12 +50,15 @@ import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.G
  * @author Spencer Gibb
  * @since 0.1
  */
-public class FilteringWebHandler implements WebHandler {
+public class FilteringWebHandler
+		implements WebHandler, ApplicationListener<RefreshRoutesResultEvent> {
 
 	protected static final Log logger = LogFactory.getLog(FilteringWebHandler.class);
 
 	private final List<GatewayFilter> globalFilters;
 
+	private final Map<String, CombinedFilters> combinedFiltersForRoute = new ConcurrentHashMap<>();
+
 	public FilteringWebHandler(List<GlobalFilter> globalFilters) {
 		this.globalFilters = loadFilters(globalFilters);
 	}
@@ -75,69 +83,117 @@ public class FilteringWebHandler implements WebHandler {
 		}).collect(Collectors.toList());
 	}
 
-	/*
-	 * TODO: relocate @EventListener(RefreshRoutesEvent.class) void handleRefresh() {
-	 * this.combinedFiltersForRoute.clear();
+	@Override
+	public void onApplicationEvent(RefreshRoutesResultEvent event) {
+		if (event.isSuccess() && event.hasRouteChanges()) {
+			event.getChangedRouteIds().forEach(this.combinedFiltersForRoute::remove);
+			event.getRemovedRouteIds().forEach(this.combinedFiltersForRoute::remove);
+		}
+		else {
+			this.combinedFiltersForRoute.clear();
+		}
+	}
+
+	/**
+	 * Returns the global filters and the filters of the given route, sorted. The result
+	 * is computed once per route and cached by route id until the routes are refreshed.
+	 * @param route the route to combine the filters for
+	 * @return the sorted, unmodifiable list of combined filters
 	 */
+	public List<GatewayFilter> getCombinedFilters(Route route) {
+		return getCombined(route).filters;
+	}
 
-	@Override
-	public Mono<Void> handle(ServerWebExchange exchange) {
-		// 获取到路由
-		Route route = exchange.getRequiredAttribute(GATEWAY_ROUTE_ATTR);
+	private CombinedFilters getCombined(Route route) {
+		CombinedFilters combined = this.combinedFiltersForRoute.get(route.getId());
+		// a refreshed route may reuse the id of a cached one before the cache is cleared
+		if (combined == null || combined.route != route) {
+			combined = new CombinedFilters(route, combineFilters(route));
+			this.combinedFiltersForRoute.put(route.getId(), combined);
+		}
+		return combined;
+	}
+
+	private List<GatewayFilter> combineFilters(Route route) {
 		// 获取到路由的Filter
 		List<GatewayFilter> gatewayFilters = route.getFilters();
 
 		List<GatewayFilter> combined = new ArrayList<>(this.globalFilters);
 		// 将GlobalFilter和路由的GatewayFilter合并
 		combined.addAll(gatewayFilters);
-		// TODO: needed or cached?
 		// 对Filter排序
 		AnnotationAwareOrderComparator.sort(combined);
 
 		if (logger.isDebugEnabled()) {
 			logger.debug("Sorted gatewayFilterFactories: " + combined);
 		}
-		// 创建FilterChain
-		return new DefaultGatewayFilterChain(combined).filter(exchange);
+		return Collections.unmodifiableList(combined);
 	}
 
-	private static class DefaultGatewayFilterChain implements GatewayFilterChain {
+	@Override
+	public Mono<Void> handle(ServerWebExchange exchange) {
+		// 获取到路由
+		Route route = exchange.getRequiredAttribute(GATEWAY_ROUTE_ATTR);
 
-		private final int index;
+		// FilterChain在每个路由中只创建一次
+		return getCombined(route).chain.filter(exchange);
+	}
+
+	private static final class CombinedFilters {
+
+		private final Route route;
 
 		private final List<GatewayFilter> filters;
 
-		DefaultGatewayFilterChain(List<GatewayFilter> filters) {
+		private final GatewayFilterChain chain;
+
+		private CombinedFilters(Route route, List<GatewayFilter> filters) {
+			this.route = route;
 			this.filters = filters;
-			//在FilteringWebHandler的handle方法中初始化时设置当前应调用的过滤器下标为0，也就是第一个
-			this.index = 0;
+			this.chain = ArrayGatewayFilterChain.link(filters);
 		}
-		//在filter方法中调用，传入过滤器链和需要执行的过滤器index
-		private DefaultGatewayFilterChain(DefaultGatewayFilterChain parent, int index) {
-			this.filters = parent.getFilters();
+
+	}
+
+	/**
+	 * {@link GatewayFilterChain} over a pre-built array of filters. The chain nodes are
+	 * linked once per route, so proceeding to the next filter only allocates the
+	 * {@link Mono#defer deferred} invocation of the filter.
+	 */
+	private static final class ArrayGatewayFilterChain implements GatewayFilterChain {
+
+		private final GatewayFilter[] filters;
+
+		private final int index;
+
+		private final ArrayGatewayFilterChain next;
+
+		private ArrayGatewayFilterChain(GatewayFilter[] filters, int index,
+				ArrayGatewayFilterChain next) {
+			this.filters = filters;
 			this.index = index;
+			this.next = next;
 		}
 
-		public List<GatewayFilter> getFilters() {
-			return filters;
+		static ArrayGatewayFilterChain link(List<GatewayFilter> filters) {
+			GatewayFilter[] array = filters.toArray(new GatewayFilter[0]);
+			// the last node completes the chain
+			ArrayGatewayFilterChain chain = new ArrayGatewayFilterChain(array,
+					array.length, null);
+			for (int i = array.length - 1; i >= 0; i--) {
+				chain = new ArrayGatewayFilterChain(array, i, chain);
+			}
+			return chain;
 		}
 
 		@Override
 		public Mono<Void> filter(ServerWebExchange exchange) {
-			return Mono.defer(() -> {
-				//判断是否已经执行过所有的过滤器
-				if (this.index < filters.size()) {
-					//取出当前需执行的过滤器
-					GatewayFilter filter = filters.get(this.index);
-					//每个Filter都创建一个DefaultGatewayFilterChain去执行
-					DefaultGatewayFilterChain chain = new DefaultGatewayFilterChain(this,
-							this.index + 1);
-					return filter.filter(exchange, chain);
-				}
-				else {
-					return Mono.empty(); // complete
-				}
-			});
+			if (this.index < this.filters.length) {
+				GatewayFilter filter = this.filters[this.index];
+				ArrayGatewayFilterChain next = this.next;
+				return Mono.defer(() -> filter.filter(exchange, next));
+			}
+			return Mono.empty(); // complete
 		}
 
 	}
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.cloud.gateway.handler.predicate.GatewayPredicate;
+import org.springframework.cloud.gateway.handler.predicate.HostRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.MethodRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Immutable index over a snapshot of {@link Route routes} that narrows the routes a
+ * request has to be tested against. Routes are bucketed by the static discriminators
+ * found in the top level conjunction of their predicate: the leading literal segments of
+ * their Path patterns, kept in a segment trie, their literal Host patterns and their
+ * Methods. Routes without a discriminator for a dimension are candidates for any value
+ * of that dimension.
+ *
+ * <p>
+ * Candidates are a superset of the matching routes and are returned in the order of the
+ * snapshot, so evaluating their full {@link AsyncPredicate} keeps the
+ * first-match-by-order semantics of a linear scan.
+ */
+public class RouteIndex {
+
+	private final Route[] routes;
+
+	private final PathTrie paths;
+
+	private final Dimension<String> hosts;
+
+	private final Dimension<HttpMethod> methods;
+
+	public RouteIndex(List<Route> routes) {
+		this.routes = routes.toArray(new Route[0]);
+		Map<Integer, Set<List<String>>> pathKeys = new HashMap<>();
+		Map<Integer, Set<String>> hostKeys = new HashMap<>();
+		Map<Integer, Set<HttpMethod>> methodKeys = new HashMap<>();
+		for (int i = 0; i < this.routes.length; i++) {
+			Discriminators discriminators = new Discriminators();
+			collect(this.routes[i].getPredicate(), discriminators);
+			if (discriminators.paths != null) {
+				pathKeys.put(i, discriminators.paths);
+			}
+			if (discriminators.hosts != null) {
+				hostKeys.put(i, discriminators.hosts);
+			}
+			if (discriminators.methods != null) {
+				methodKeys.put(i, discriminators.methods);
+			}
+		}
+		this.paths = new PathTrie(this.routes.length, pathKeys);
+		this.hosts = new Dimension<>(this.routes.length, hostKeys, new HashMap<>());
+		this.methods = new Dimension<>(this.routes.length, methodKeys,
+				new EnumMap<>(HttpMethod.class));
+	}
+
+	/**
+	 * Returns the routes that may match the given exchange, in route order.
+	 * @param exchange the current exchange
+	 * @return the candidate routes
+	 */
+	public List<Route> getCandidates(ServerWebExchange exchange) {
+		ServerHttpRequest request = exchange.getRequest();
+		// the request path is parsed once by the request itself
+		BitSet candidates = this.paths.get(request.getPath());
+		candidates.and(this.hosts.get(lowerCase(request.getHeaders().getFirst("Host"))));
+		candidates.and(this.methods.get(request.getMethod()));
+
+		List<Route> result = new ArrayList<>(candidates.cardinality());
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+			result.add(this.routes[i]);
+		}
+		return result;
+	}
+
+	public List<Route> getRoutes() {
+		List<Route> routes = new ArrayList<>(this.routes.length);
+		Collections.addAll(routes, this.routes);
+		return routes;
+	}
+
+	/**
+	 * Walks the conjunctions of a predicate and records the discriminators of the
+	 * indexable predicates found there. Anything below an or or a negation can not narrow
+	 * the route and is ignored.
+	 */
+	private static void collect(Object predicate, Discriminators discriminators) {
+		if (predicate instanceof AsyncPredicate.AndAsyncPredicate) {
+			AsyncPredicate.AndAsyncPredicate<?> and = (AsyncPredicate.AndAsyncPredicate<?>) predicate;
+			collect(and.getLeft(), discriminators);
+			collect(and.getRight(), discriminators);
+		}
+		else if (predicate instanceof AsyncPredicate.DefaultAsyncPredicate) {
+			collect(((AsyncPredicate.DefaultAsyncPredicate<?>) predicate).getDelegate(),
+					discriminators);
+		}
+		else if (predicate instanceof GatewayPredicate.AndGatewayPredicate) {
+			GatewayPredicate.AndGatewayPredicate and = (GatewayPredicate.AndGatewayPredicate) predicate;
+			collect(and.getLeft(), discriminators);
+			collect(and.getRight(), discriminators);
+		}
+		else if (predicate instanceof GatewayPredicate) {
+			discriminators.add(((GatewayPredicate) predicate).getConfig());
+		}
+	}
+
+	/**
+	 * The leading literal segments of a path pattern, lower cased. Empty if the pattern
+	 * can match more than one first segment.
+	 */
+	static List<String> literalPrefix(String pattern) {
+		if (pattern == null || !pattern.startsWith("/")) {
+			return Collections.emptyList();
+		}
+		List<String> prefix = new ArrayList<>();
+		for (String segment : pattern.substring(1).split("/", -1)) {
+			if (segment.isEmpty() || !isLiteral(segment) || segment.indexOf('%') >= 0) {
+				break;
+			}
+			prefix.add(lowerCase(segment));
+		}
+		return prefix;
+	}
+
+	private static boolean isLiteral(String pattern) {
+		return pattern.indexOf('*') < 0 && pattern.indexOf('?') < 0
+				&& pattern.indexOf('{') < 0;
+	}
+
+	private static String lowerCase(String value) {
+		return value == null ? "" : value.toLowerCase(Locale.ROOT);
+	}
+
+	private static class Discriminators {
+
+		private Set<List<String>> paths;
+
+		private Set<String> hosts;
+
+		private Set<HttpMethod> methods;
+
+		void add(Object config) {
+			if (config instanceof PathRoutePredicateFactory.Config && paths == null) {
+				paths = prefixes(
+						((PathRoutePredicateFactory.Config) config).getPatterns());
+			}
+			else if (config instanceof HostRoutePredicateFactory.Config
+					&& hosts == null) {
+				hosts = hosts(((HostRoutePredicateFactory.Config) config).getPatterns());
+			}
+			else if (config instanceof MethodRoutePredicateFactory.Config
+					&& methods == null) {
+				HttpMethod[] configured = ((MethodRoutePredicateFactory.Config) config)
+						.getMethods();
+				if (configured != null) {
+					methods = new HashSet<>();
+					Collections.addAll(methods, configured);
+				}
+			}
+		}
+
+		private static Set<List<String>> prefixes(List<String> patterns) {
+			if (patterns == null || patterns.isEmpty()) {
+				return null;
+			}
+			Set<List<String>> prefixes = new HashSet<>();
+			for (String pattern : patterns) {
+				List<String> prefix = literalPrefix(pattern);
+				if (prefix.isEmpty()) {
+					// one open pattern makes the whole predicate unselective
+					return null;
+				}
+				prefixes.add(prefix);
+			}
+			return prefixes;
+		}
+
+		private static Set<String> hosts(List<String> patterns) {
+			if (patterns == null || patterns.isEmpty()) {
+				return null;
+			}
+			Set<String> hosts = new HashSet<>();
+			for (String pattern : patterns) {
+				if (pattern == null || !isLiteral(pattern)) {
+					return null;
+				}
+				hosts.add(lowerCase(pattern));
+			}
+			return hosts;
+		}
+
+	}
+
+	/**
+	 * Trie over the literal path prefixes of the routes. A route is a candidate for a
+	 * path if its prefix is found on the walk of the path segments from the root.
+	 */
+	private static final class PathTrie {
+
+		private final BitSet unconstrained;
+
+		private final Node root = new Node();
+
+		PathTrie(int size, Map<Integer, Set<List<String>>> prefixes) {
+			this.unconstrained = new BitSet(size);
+			this.unconstrained.set(0, size);
+			prefixes.forEach((index, routePrefixes) -> {
+				this.unconstrained.clear(index);
+				for (List<String> prefix : routePrefixes) {
+					Node node = this.root;
+					for (String segment : prefix) {
+						node = node.children.computeIfAbsent(segment, s -> new Node());
+					}
+					node.add(index);
+				}
+			});
+		}
+
+		BitSet get(PathContainer path) {
+			BitSet candidates = (BitSet) this.unconstrained.clone();
+			Node node = this.root;
+			for (PathContainer.Element element : path.elements()) {
+				if (!(element instanceof PathContainer.PathSegment)) {
+					continue;
+				}
+				node = node.children
+						.get(lowerCase(((PathContainer.PathSegment) element).valueToMatch()));
+				if (node == null) {
+					break;
+				}
+				for (int i = 0; i < node.size; i++) {
+					candidates.set(node.routes[i]);
+				}
+			}
+			return candidates;
+		}
+
+		private static final class Node {
+
+			private final Map<String, Node> children = new HashMap<>();
+
+			private int[] routes = new int[0];
+
+			private int size;
+
+			void add(int index) {
+				if (this.size == this.routes.length) {
+					this.routes = Arrays.copyOf(this.routes, Math.max(4, this.size * 2));
+				}
+				this.routes[this.size++] = index;
+			}
+
+		}
+
+	}
+
+	/**
+	 * Candidate sets for one discriminator. Each key maps to the routes registered under
+	 * it plus the routes that are unconstrained in this dimension.
+	 */
+	private static final class Dimension<K> {
+
+		private final BitSet unconstrained;
+
+		private final Map<K, BitSet> buckets;
+
+		Dimension(int size, Map<Integer, Set<K>> keys, Map<K, BitSet> buckets) {
+			this.unconstrained = new BitSet(size);
+			this.unconstrained.set(0, size);
+			this.buckets = buckets;
+			keys.forEach((index, routeKeys) -> {
+				this.unconstrained.clear(index);
+				for (K key : routeKeys) {
+					this.buckets.computeIfAbsent(key, k -> new BitSet(size)).set(index);
+				}
+			});
+			this.buckets.values().forEach(bucket -> bucket.or(this.unconstrained));
+		}
+
+		BitSet get(K key) {
+			BitSet bucket = key == null ? null : this.buckets.get(key);
+			return bucket != null ? bucket : this.unconstrained;
+		}
+
+	}
+
+}
@@ -18,14 +18,19 @@ package org.springframework.cloud.gateway.handler;
 
 import java.util.function.Function;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
 import org.springframework.cloud.gateway.route.Route;
 import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.context.ApplicationListener;
 import org.springframework.core.env.Environment;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.reactive.handler.AbstractHandlerMapping;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
 
 import static org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping.ManagementPortType.DIFFERENT;
@@ -38,7 +43,13 @@ import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.G
 /**
  * @author Spencer Gibb
  */
-public class RoutePredicateHandlerMapping extends AbstractHandlerMapping {
+public class RoutePredicateHandlerMapping extends AbstractHandlerMapping
+		implements ApplicationListener<RefreshRoutesResultEvent> {
+
+	/**
+	 * Property that switches route lookup from a linear scan to a {@link RouteIndex}.
+	 */
+	public static final String ROUTE_INDEX_ENABLED_PROPERTY = "spring.cloud.gateway.route-index.enabled";
 
 	private final FilteringWebHandler webHandler;
 
@@ -48,6 +59,10 @@ public class RoutePredicateHandlerMapping extends AbstractHandlerMapping {
 
 	private final ManagementPortType managementPortType;
 
+	private final boolean routeIndexEnabled;
+
+	private volatile Mono<RouteIndex> routeIndex;
+
 	public RoutePredicateHandlerMapping(FilteringWebHandler webHandler,
 			RouteLocator routeLocator, GlobalCorsProperties globalCorsProperties,
 			Environment environment) {
@@ -56,6 +71,11 @@ public class RoutePredicateHandlerMapping extends AbstractHandlerMapping {
 
 		this.managementPort = getPortProperty(environment, "management.server.");
 		this.managementPortType = getManagementPortType(environment);
+		this.routeIndexEnabled = environment.getProperty(ROUTE_INDEX_ENABLED_PROPERTY,
+				Boolean.class, false);
+		if (this.routeIndexEnabled) {
+			this.routeIndex = createRouteIndex();
+		}
 		setOrder(1);
 		setCorsConfigurations(globalCorsProperties.getCorsConfigurations());
 	}
@@ -109,6 +129,40 @@ public class RoutePredicateHandlerMapping extends AbstractHandlerMapping {
 				})));
 	}
 
+	private static void restoreUriTemplateVariables(ServerWebExchange exchange,
+			Object uriVariables) {
+		// not the inherited HandlerMapping attribute of the same name
+		String name = ServerWebExchangeUtils.URI_TEMPLATE_VARIABLES_ATTRIBUTE;
+		if (uriVariables == null) {
+			exchange.getAttributes().remove(name);
+		}
+		else {
+			exchange.getAttributes().put(name, uriVariables);
+		}
+	}
+
+	/**
+	 * Rebuilds the route index lazily once the route cache has been refreshed, unless
+	 * the refresh reported that no route was added, changed or removed.
+	 * @param event the refresh result
+	 */
+	@Override
+	public void onApplicationEvent(RefreshRoutesResultEvent event) {
+		if (this.routeIndexEnabled && event.isSuccess() && !isUnchanged(event)) {
+			this.routeIndex = createRouteIndex();
+		}
+	}
+
+	private static boolean isUnchanged(RefreshRoutesResultEvent event) {
+		return event.hasRouteChanges() && event.getAddedRouteIds().isEmpty()
+				&& event.getChangedRouteIds().isEmpty()
+				&& event.getRemovedRouteIds().isEmpty();
+	}
+
+	private Mono<RouteIndex> createRouteIndex() {
+		return this.routeLocator.getRoutes().collectList().map(RouteIndex::new).cache();
+	}
+
 	@Override
 	protected CorsConfiguration getCorsConfiguration(Object handler,
 			ServerWebExchange exchange) {
@@ -129,23 +183,52 @@ public class RoutePredicateHandlerMapping extends AbstractHandlerMapping {
 		return out.toString();
 	}
 
+	/**
+	 * Returns the routes that have to be tested for the exchange, in order. When the
+	 * route index is enabled only the candidates of the index are returned, otherwise
+	 * every route of the {@link RouteLocator}.
+	 * @param exchange current exchange
+	 * @return the routes to test
+	 */
+	protected Flux<Route> getCandidateRoutes(ServerWebExchange exchange) {
+		if (!this.routeIndexEnabled) {
+			return this.routeLocator.getRoutes();
+		}
+		return this.routeIndex.flatMapIterable(index -> index.getCandidates(exchange));
+	}
+
 	protected Mono<Route> lookupRoute(ServerWebExchange exchange) {
 		// 调用的CachingRouteLocator#getRoutes
-		return this.routeLocator.getRoutes()
+		return getCandidateRoutes(exchange)
 				// individually filter routes so that filterWhen error delaying is not a
 				// problem
-				.concatMap(route -> Mono.just(route).filterWhen(r -> {
-					// add the current route we are testing
-					exchange.getAttributes().put(GATEWAY_PREDICATE_ROUTE_ATTR, r.getId());
-					// 根据断言判断当前请求是否满足条件
-					return r.getPredicate().apply(exchange);
+				.concatMap(route -> {
+					// uri template variables put by the predicates of a route that does
+					// not match are dropped, only those of the matching route are kept
+					Object uriVariables = exchange.getAttribute(
+							ServerWebExchangeUtils.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+					return Mono.just(route).filterWhen(r -> {
+						// add the current route we are testing
+						exchange.getAttributes().put(GATEWAY_PREDICATE_ROUTE_ATTR,
+								r.getId());
+						// 根据断言判断当前请求是否满足条件
+						return r.getPredicate().apply(exchange);
+					})
+							// instead of immediately stopping main flux due to error, log
+							// and swallow it, unless the predicate rejected the request
+							// with a status, like a ReadBody predicate for a body larger
+							// than the max size of the request body cache
+							.doOnError(e -> !(e instanceof ResponseStatusException),
+									e -> logger.error(
+											"Error applying predicate for route: "
+													+ route.getId(),
+											e))
+							.onErrorResume(e -> !(e instanceof ResponseStatusException),
+									e -> Mono.empty())
+							.switchIfEmpty(Mono.fromRunnable(
+									() -> restoreUriTemplateVariables(exchange,
+											uriVariables)));
 				})
-						// instead of immediately stopping main flux due to error, log and
-						// swallow it
-						.doOnError(e -> logger.error(
-								"Error applying predicate for route: " + route.getId(),
-								e))
-						.onErrorResume(e -> Mono.empty()))
 				// .defaultIfEmpty() put a static Route not found
 				// or .switchIfEmpty()
 				// .switchIfEmpty(Mono.<Route>empty().log("noroute"))
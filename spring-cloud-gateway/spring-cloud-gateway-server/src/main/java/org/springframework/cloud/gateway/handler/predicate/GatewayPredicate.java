@@ -38,6 +38,15 @@ public interface GatewayPredicate extends Predicate<ServerWebExchange> {
 		return new OrGatewayPredicate(this, wrapIfNeeded(other));
 	}
 
+	/**
+	 * Returns the configuration this predicate was created from, if it is exposed. Used
+	 * to derive static discriminators, such as path prefixes, from a route.
+	 * @return the predicate configuration or {@code null}
+	 */
+	default Object getConfig() {
+		return null;
+	}
+
 	static GatewayPredicate wrapIfNeeded(Predicate<? super ServerWebExchange> other) {
 		GatewayPredicate right;
 
@@ -59,6 +68,10 @@ public interface GatewayPredicate extends Predicate<ServerWebExchange> {
 			this.delegate = delegate;
 		}
 
+		public Predicate<? super ServerWebExchange> getDelegate() {
+			return this.delegate;
+		}
+
 		@Override
 		public boolean test(ServerWebExchange exchange) {
 			return this.delegate.test(exchange);
@@ -80,6 +93,10 @@ public interface GatewayPredicate extends Predicate<ServerWebExchange> {
 			this.predicate = predicate;
 		}
 
+		public GatewayPredicate getPredicate() {
+			return this.predicate;
+		}
+
 		@Override
 		public boolean test(ServerWebExchange t) {
 			return !this.predicate.test(t);
@@ -105,6 +122,14 @@ public interface GatewayPredicate extends Predicate<ServerWebExchange> {
 			this.right = right;
 		}
 
+		public GatewayPredicate getLeft() {
+			return this.left;
+		}
+
+		public GatewayPredicate getRight() {
+			return this.right;
+		}
+
 		@Override
 		public boolean test(ServerWebExchange t) {
 			return (this.left.test(t) && this.right.test(t));
@@ -130,6 +155,14 @@ public interface GatewayPredicate extends Predicate<ServerWebExchange> {
 			this.right = right;
 		}
 
+		public GatewayPredicate getLeft() {
+			return this.left;
+		}
+
+		public GatewayPredicate getRight() {
+			return this.right;
+		}
+
 		@Override
 		public boolean test(ServerWebExchange t) {
 			return (this.left.test(t) || this.right.test(t));
@@ -76,6 +76,11 @@ public class HostRoutePredicateFactory
 				return false;
 			}
 
+			@Override
+			public Object getConfig() {
+				return config;
+			}
+
 			@Override
 			public String toString() {
 				return String.format("Hosts: %s", config.getPatterns());
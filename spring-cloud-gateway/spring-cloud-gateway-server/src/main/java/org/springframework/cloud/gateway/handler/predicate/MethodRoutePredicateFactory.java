@@ -68,6 +68,11 @@ public class MethodRoutePredicateFactory
 						.anyMatch(httpMethod -> httpMethod == requestMethod);
 			}
 
+			@Override
+			public Object getConfig() {
+				return config;
+			}
+
 			@Override
 			public String toString() {
 				return String.format("Methods: %s", Arrays.toString(config.getMethods()));
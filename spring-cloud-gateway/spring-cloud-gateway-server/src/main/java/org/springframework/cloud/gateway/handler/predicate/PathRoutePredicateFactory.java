@@ -19,7 +19,6 @@ package org.springframework.cloud.gateway.handler.predicate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 import java.util.function.Predicate;
 
 import org.apache.commons.logging.Log;
@@ -35,7 +34,6 @@ import org.springframework.web.util.pattern.PathPattern.PathMatchInfo;
 import org.springframework.web.util.pattern.PathPatternParser;
 
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.putUriTemplateVariables;
-import static org.springframework.http.server.PathContainer.parsePath;
 
 /**
  * @author Spencer Gibb
@@ -78,35 +76,34 @@ public class PathRoutePredicateFactory
 
 	@Override
 	public Predicate<ServerWebExchange> apply(Config config) {
-		final ArrayList<PathPattern> pathPatterns = new ArrayList<>();
+		final PathPattern[] pathPatterns;
 		synchronized (this.pathPatternParser) {
 			pathPatternParser.setMatchOptionalTrailingSeparator(
 					config.isMatchOptionalTrailingSeparator());
-			config.getPatterns().forEach(pattern -> {
-				PathPattern pathPattern = this.pathPatternParser.parse(pattern);
-				pathPatterns.add(pathPattern);
-			});
+			pathPatterns = config.getPatterns().stream()
+					.map(this.pathPatternParser::parse).toArray(PathPattern[]::new);
 		}
 		return new GatewayPredicate() {
 			@Override
 			public boolean test(ServerWebExchange exchange) {
-				PathContainer path = parsePath(
-						exchange.getRequest().getURI().getRawPath());
+				// the full request path, parsed once by the request
+				PathContainer path = exchange.getRequest().getPath();
 
-				Optional<PathPattern> optionalPathPattern = pathPatterns.stream()
-						.filter(pattern -> pattern.matches(path)).findFirst();
-
-				if (optionalPathPattern.isPresent()) {
-					PathPattern pathPattern = optionalPathPattern.get();
-					traceMatch("Pattern", pathPattern.getPatternString(), path, true);
+				for (PathPattern pathPattern : pathPatterns) {
 					PathMatchInfo pathMatchInfo = pathPattern.matchAndExtract(path);
-					putUriTemplateVariables(exchange, pathMatchInfo.getUriVariables());
-					return true;
-				}
-				else {
-					traceMatch("Pattern", config.getPatterns(), path, false);
-					return false;
+					if (pathMatchInfo != null) {
+						traceMatch("Pattern", pathPattern.getPatternString(), path, true);
+						putUriTemplateVariables(exchange, pathMatchInfo.getUriVariables());
+						return true;
+					}
 				}
+				traceMatch("Pattern", config.getPatterns(), path, false);
+				return false;
+			}
+
+			@Override
+			public Object getConfig() {
+				return config;
 			}
 
 			@Override
@@ -26,16 +26,19 @@ import org.reactivestreams.Publisher;
 import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.gateway.handler.AsyncPredicate;
+import org.springframework.cloud.gateway.support.RequestBodyCache;
 import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.http.codec.HttpMessageReader;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.reactive.function.server.HandlerStrategies;
-import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.server.ServerWebExchange;
 
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CACHED_SERVER_HTTP_REQUEST_DECORATOR_ATTR;
+
 /**
  * Predicate that reads the body and applies a user provided predicate to run on the body.
- * The body is cached in memory so that possible subsequent calls to the predicate do not
- * need to deserialize again.
+ * The body is cached so that possible subsequent calls to the predicate, and the
+ * ModifyRequestBody filter, do not need to deserialize again.
  */
 public class ReadBodyRoutePredicateFactory
 		extends AbstractRoutePredicateFactory<ReadBodyRoutePredicateFactory.Config> {
@@ -49,14 +52,27 @@ public class ReadBodyRoutePredicateFactory
 
 	private final List<HttpMessageReader<?>> messageReaders;
 
+	private final RequestBodyCache requestBodyCache;
+
 	public ReadBodyRoutePredicateFactory() {
-		super(Config.class);
-		this.messageReaders = HandlerStrategies.withDefaults().messageReaders();
+		this(HandlerStrategies.withDefaults().messageReaders(), new RequestBodyCache());
 	}
 
+	/**
+	 * @deprecated in favour of
+	 * {@link #ReadBodyRoutePredicateFactory(List, RequestBodyCache)}, caches the body with
+	 * the default {@link RequestBodyCache} settings
+	 */
+	@Deprecated
 	public ReadBodyRoutePredicateFactory(List<HttpMessageReader<?>> messageReaders) {
+		this(messageReaders, new RequestBodyCache());
+	}
+
+	public ReadBodyRoutePredicateFactory(List<HttpMessageReader<?>> messageReaders,
+			RequestBodyCache requestBodyCache) {
 		super(Config.class);
 		this.messageReaders = messageReaders;
+		this.requestBodyCache = requestBodyCache;
 	}
 
 	@Override
@@ -65,41 +81,45 @@ public class ReadBodyRoutePredicateFactory
 		return new AsyncPredicate<ServerWebExchange>() {
 			@Override
 			public Publisher<Boolean> apply(ServerWebExchange exchange) {
-				Class inClass = config.getInClass();
-
-				Object cachedBody = exchange.getAttribute(CACHE_REQUEST_BODY_OBJECT_KEY);
-				Mono<?> modifiedBody;
 				// We can only read the body from the request once, once that happens if
-				// we try to read the body again an exception will be thrown. The below
-				// if/else caches the body object as a request attribute in the
-				// ServerWebExchange so if this filter is run more than once (due to more
-				// than one route using it) we do not try to read the request body
-				// multiple times
-				if (cachedBody != null) {
-					try {
-						boolean test = config.predicate.test(cachedBody);
-						exchange.getAttributes().put(TEST_ATTRIBUTE, test);
-						return Mono.just(test);
-					}
-					catch (ClassCastException e) {
-						if (log.isDebugEnabled()) {
-							log.debug("Predicate test failed because class in predicate "
-									+ "does not match the cached body object", e);
-						}
-					}
-					return Mono.just(false);
-				}
-				else {
-					return ServerWebExchangeUtils.cacheRequestBodyAndRequest(exchange,
-							(serverHttpRequest) -> ServerRequest
-									.create(exchange.mutate().request(serverHttpRequest)
-											.build(), messageReaders)
-									.bodyToMono(inClass)
-									.doOnNext(objectValue -> exchange.getAttributes().put(
-											CACHE_REQUEST_BODY_OBJECT_KEY, objectValue))
-									.map(objectValue -> config.getPredicate()
-											.test(objectValue)));
+				// we try to read the body again an exception will be thrown. The body is
+				// cached as a request attribute in the ServerWebExchange so if this
+				// predicate is run more than once (due to more than one route using it)
+				// we do not try to read the request body multiple times, and the
+				// objects decoded from it are cached so that the body is decoded at most
+				// once for each inClass
+				ServerHttpRequest cachedRequest = exchange
+						.getAttribute(CACHED_SERVER_HTTP_REQUEST_DECORATOR_ATTR);
+				if (cachedRequest != null) {
+					return test(exchange, cachedRequest);
 				}
+				return ServerWebExchangeUtils.cacheRequestBodyAndRequest(exchange,
+						requestBodyCache,
+						(serverHttpRequest) -> test(exchange, serverHttpRequest));
+			}
+
+			private Mono<Boolean> test(ServerWebExchange exchange,
+					ServerHttpRequest request) {
+				return ServerWebExchangeUtils
+						.decodeRequestBody(exchange, request, config.getInClass(),
+								messageReaders)
+						.map(objectValue -> {
+							exchange.getAttributes().putIfAbsent(
+									CACHE_REQUEST_BODY_OBJECT_KEY, objectValue);
+							try {
+								boolean test = config.getPredicate().test(objectValue);
+								exchange.getAttributes().put(TEST_ATTRIBUTE, test);
+								return test;
+							}
+							catch (ClassCastException e) {
+								if (log.isDebugEnabled()) {
+									log.debug("Predicate test failed because class in "
+											+ "predicate does not match the body object",
+											e);
+								}
+								return false;
+							}
+						});
 			}
 
 			@Override
@@ -16,8 +16,12 @@
 
 package org.springframework.cloud.gateway.route;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
@@ -35,6 +39,11 @@ import org.springframework.core.Ordered;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 
 /**
+ * Caches the routes of its delegate until the next {@link RefreshRoutesEvent}. A
+ * refresh swaps in the new routes at once and publishes a
+ * {@link RefreshRoutesResultEvent} with the ids of the added, changed and removed
+ * routes, a route being changed when its {@link Route} instance was replaced.
+ *
  * @author Spencer Gibb
  */
 public class CachingRouteLocator implements Ordered, RouteLocator,
@@ -52,6 +61,8 @@ public class CachingRouteLocator implements Ordered, RouteLocator,
 
 	private ApplicationEventPublisher applicationEventPublisher;
 
+	private volatile Map<String, Route> routesById = Collections.emptyMap();
+
 	public CachingRouteLocator(RouteLocator delegate) {
 		this.delegate = delegate;
 		routes = CacheFlux.lookup(cache, CACHE_KEY, Route.class)
@@ -59,7 +70,15 @@ public class CachingRouteLocator implements Ordered, RouteLocator,
 	}
 
 	private Flux<Route> fetch() {
-		return this.delegate.getRoutes().sort(AnnotationAwareOrderComparator.INSTANCE);
+		return this.delegate.getRoutes().sort(AnnotationAwareOrderComparator.INSTANCE)
+				.collectList().doOnNext(routes -> this.routesById = index(routes))
+				.flatMapIterable(routes -> routes);
+	}
+
+	private static Map<String, Route> index(List<Route> routes) {
+		Map<String, Route> routesById = new LinkedHashMap<>();
+		routes.forEach(route -> routesById.put(route.getId(), route));
+		return routesById;
 	}
 
 	@Override
@@ -79,11 +98,12 @@ public class CachingRouteLocator implements Ordered, RouteLocator,
 	@Override
 	public void onApplicationEvent(RefreshRoutesEvent event) {
 		try {
+			Map<String, Route> previous = this.routesById;
 			fetch().collect(Collectors.toList()).subscribe(list -> Flux.fromIterable(list)
 					.materialize().collect(Collectors.toList()).subscribe(signals -> {
-						applicationEventPublisher
-								.publishEvent(new RefreshRoutesResultEvent(this));
 						cache.put(CACHE_KEY, signals);
+						applicationEventPublisher
+								.publishEvent(createResultEvent(previous, list));
 					}, throwable -> handleRefreshError(throwable)));
 		}
 		catch (Throwable e) {
@@ -91,6 +111,28 @@ public class CachingRouteLocator implements Ordered, RouteLocator,
 		}
 	}
 
+	private RefreshRoutesResultEvent createResultEvent(Map<String, Route> previous,
+			List<Route> routes) {
+		Set<String> added = new HashSet<>();
+		Set<String> changed = new HashSet<>();
+		for (Route route : routes) {
+			Route previousRoute = previous.get(route.getId());
+			if (previousRoute == null) {
+				added.add(route.getId());
+			}
+			else if (previousRoute != route) {
+				changed.add(route.getId());
+			}
+		}
+		Set<String> removed = new HashSet<>(previous.keySet());
+		routes.forEach(route -> removed.remove(route.getId()));
+		if (log.isDebugEnabled()) {
+			log.debug("Refreshed routes, added: " + added + ", changed: " + changed
+					+ ", removed: " + removed);
+		}
+		return new RefreshRoutesResultEvent(this, added, changed, removed);
+	}
+
 	private void handleRefreshError(Throwable throwable) {
 		if (log.isErrorEnabled()) {
 			log.error("Refresh routes error !!!", throwable);
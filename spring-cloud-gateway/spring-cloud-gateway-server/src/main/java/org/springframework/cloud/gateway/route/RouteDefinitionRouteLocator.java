@@ -18,9 +18,12 @@ package org.springframework.cloud.gateway.route;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -75,6 +78,8 @@ public class RouteDefinitionRouteLocator
 
 	private final GatewayProperties gatewayProperties;
 
+	private final Map<String, ConvertedRoute> convertedRoutes = new ConcurrentHashMap<>();
+
 	@Deprecated
 	public RouteDefinitionRouteLocator(RouteDefinitionLocator routeDefinitionLocator,
 			List<RoutePredicateFactory> predicates,
@@ -148,8 +153,15 @@ public class RouteDefinitionRouteLocator
 	@Override
 	public Flux<Route> getRoutes() {
 		// 通过RouteDefinitions获取Route，调用CompositeRouteDefinitionLocator
-		Flux<Route> routes = this.routeDefinitionLocator.getRouteDefinitions()
-				.map(this::convertToRoute);
+		Flux<Route> routes = Flux.defer(() -> {
+			List<FilterDefinition> defaultFilters = this.gatewayProperties
+					.getDefaultFilters();
+			Set<String> routeIds = new HashSet<>();
+			return this.routeDefinitionLocator.getRouteDefinitions()
+					.map(routeDefinition -> getRoute(routeDefinition, defaultFilters))
+					.doOnNext(route -> routeIds.add(route.getId()))
+					.doOnComplete(() -> this.convertedRoutes.keySet().retainAll(routeIds));
+		});
 
 		if (!gatewayProperties.isFailOnRouteDefinitionError()) {
 			// instead of letting error bubble up, continue
@@ -170,6 +182,57 @@ public class RouteDefinitionRouteLocator
 		});
 	}
 
+	/**
+	 * Returns the route previously converted from an equal definition with equal default
+	 * filters, or converts the definition. Copies of the definition and of the default
+	 * filters are kept at conversion time, so definitions mutated in place are converted
+	 * again.
+	 */
+	private Route getRoute(RouteDefinition routeDefinition,
+			List<FilterDefinition> defaultFilters) {
+		String id = routeDefinition.getId();
+		ConvertedRoute converted = id != null ? this.convertedRoutes.get(id) : null;
+		if (converted != null && converted.routeDefinition.equals(routeDefinition)
+				&& converted.defaultFilters.equals(defaultFilters)) {
+			return converted.route;
+		}
+		Route route = convertToRoute(routeDefinition);
+		if (id != null) {
+			this.convertedRoutes.put(id, new ConvertedRoute(copy(routeDefinition),
+					copy(defaultFilters), route));
+		}
+		return route;
+	}
+
+	private static RouteDefinition copy(RouteDefinition routeDefinition) {
+		RouteDefinition copy = new RouteDefinition();
+		copy.setId(routeDefinition.getId());
+		copy.setUri(routeDefinition.getUri());
+		copy.setOrder(routeDefinition.getOrder());
+		copy.setMetadata(new HashMap<>(routeDefinition.getMetadata()));
+		copy.setFilters(copy(routeDefinition.getFilters()));
+		List<PredicateDefinition> predicates = new ArrayList<>();
+		for (PredicateDefinition predicate : routeDefinition.getPredicates()) {
+			PredicateDefinition predicateCopy = new PredicateDefinition();
+			predicateCopy.setName(predicate.getName());
+			predicateCopy.setArgs(new LinkedHashMap<>(predicate.getArgs()));
+			predicates.add(predicateCopy);
+		}
+		copy.setPredicates(predicates);
+		return copy;
+	}
+
+	private static List<FilterDefinition> copy(List<FilterDefinition> filters) {
+		List<FilterDefinition> copies = new ArrayList<>();
+		for (FilterDefinition filter : filters) {
+			FilterDefinition copy = new FilterDefinition();
+			copy.setName(filter.getName());
+			copy.setArgs(new LinkedHashMap<>(filter.getArgs()));
+			copies.add(copy);
+		}
+		return copies;
+	}
+
 	/**
 	 * 将RouteDefinition转换为Route
 	 * @param routeDefinition
@@ -313,4 +376,21 @@ public class RouteDefinitionRouteLocator
 		return factory.applyAsync(config);
 	}
 
+	private static final class ConvertedRoute {
+
+		private final RouteDefinition routeDefinition;
+
+		private final List<FilterDefinition> defaultFilters;
+
+		private final Route route;
+
+		private ConvertedRoute(RouteDefinition routeDefinition,
+				List<FilterDefinition> defaultFilters, Route route) {
+			this.routeDefinition = routeDefinition;
+			this.defaultFilters = defaultFilters;
+			this.route = route;
+		}
+
+	}
+
 }
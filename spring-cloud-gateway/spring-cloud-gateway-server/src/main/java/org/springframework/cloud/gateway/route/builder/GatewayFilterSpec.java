@@ -19,6 +19,7 @@ package org.springframework.cloud.gateway.route.builder;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -29,6 +30,7 @@ import java.util.stream.Stream;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Flux;
 import reactor.retry.Repeat;
 import reactor.retry.Retry;
 
@@ -39,6 +41,7 @@ import org.springframework.cloud.gateway.filter.factory.AbstractChangeRequestUri
 import org.springframework.cloud.gateway.filter.factory.AddRequestHeaderGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.AddRequestParameterGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.AddResponseHeaderGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.CompressResponseGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.DedupeResponseHeaderGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.DedupeResponseHeaderGatewayFilterFactory.Strategy;
 import org.springframework.cloud.gateway.filter.factory.FallbackHeadersGatewayFilterFactory;
@@ -68,6 +71,8 @@ import org.springframework.cloud.gateway.filter.factory.SetResponseHeaderGateway
 import org.springframework.cloud.gateway.filter.factory.SetStatusGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.SpringCloudCircuitBreakerFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.StripPrefixGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.cache.LocalResponseCacheGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.cache.RequestCoalescingGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.rewrite.ModifyRequestBodyGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.rewrite.ModifyResponseBodyGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.rewrite.RewriteFunction;
@@ -340,6 +345,28 @@ public class GatewayFilterSpec extends UriSpec {
 						.setNewContentType(newContentType)));
 	}
 
+	/**
+	 * A filter that can be used to modify the response body element by element as it
+	 * is received.
+	 * @param streaming how the response body is split into elements
+	 * @param inClass the class to convert the elements of the response body to
+	 * @param outClass the class of the elements the Gateway will add to the response
+	 * before it is returned to the client
+	 * @param rewriteFunction the {@link RewriteFunction} that transforms the elements of
+	 * the response body
+	 * @param <T> the original element class
+	 * @param <R> the new element class
+	 * @return a {@link GatewayFilterSpec} that can be used to apply additional filters
+	 */
+	public <T, R> GatewayFilterSpec modifyResponseBody(
+			ModifyResponseBodyGatewayFilterFactory.BodyStreaming streaming,
+			Class<T> inClass, Class<R> outClass,
+			RewriteFunction<Flux<T>, R> rewriteFunction) {
+		return filter(getBean(ModifyResponseBodyGatewayFilterFactory.class)
+				.apply(c -> c.setStreamingRewriteFunction(streaming, inClass, outClass,
+						rewriteFunction)));
+	}
+
 	/**
 	 * A filter that can be used to modify the response body using custom spec.
 	 * @param configConsumer response spec for response modification
@@ -766,6 +793,76 @@ public class GatewayFilterSpec extends UriSpec {
 				.apply(c -> c.setMaxSize(size)));
 	}
 
+	/**
+	 * A filter that caches the responses to GET and HEAD requests in memory, so that
+	 * requests for a cached response do not reach the upstream service.
+	 * @param timeToLive how long a response without expiration headers is cached
+	 * @param size the maximum size of the cached bodies
+	 * @return a {@link GatewayFilterSpec} that can be used to apply additional filters
+	 */
+	public GatewayFilterSpec localResponseCache(Duration timeToLive, DataSize size) {
+		return localResponseCache(c -> c.setTimeToLive(timeToLive).setSize(size));
+	}
+
+	/**
+	 * A filter that caches the responses to GET and HEAD requests in memory, so that
+	 * requests for a cached response do not reach the upstream service.
+	 * @param configConsumer a {@link Consumer} that will return configuration for the
+	 * response cache
+	 * @return a {@link GatewayFilterSpec} that can be used to apply additional filters
+	 */
+	public GatewayFilterSpec localResponseCache(
+			Consumer<LocalResponseCacheGatewayFilterFactory.Config> configConsumer) {
+		return filter(getBean(LocalResponseCacheGatewayFilterFactory.class)
+				.apply(this.routeBuilder.getId(), configConsumer));
+	}
+
+	/**
+	 * A filter that sends only one of identical concurrent GET and HEAD requests to the
+	 * upstream service and returns its response to all of them.
+	 * @return a {@link GatewayFilterSpec} that can be used to apply additional filters
+	 */
+	public GatewayFilterSpec requestCoalescing() {
+		return requestCoalescing(c -> {
+		});
+	}
+
+	/**
+	 * A filter that sends only one of identical concurrent GET and HEAD requests to the
+	 * upstream service and returns its response to all of them.
+	 * @param configConsumer a {@link Consumer} that will return configuration for the
+	 * coalescing of requests
+	 * @return a {@link GatewayFilterSpec} that can be used to apply additional filters
+	 */
+	public GatewayFilterSpec requestCoalescing(
+			Consumer<RequestCoalescingGatewayFilterFactory.Config> configConsumer) {
+		return filter(getBean(RequestCoalescingGatewayFilterFactory.class)
+				.apply(configConsumer));
+	}
+
+	/**
+	 * A filter that compresses the response body with the best content encoding the
+	 * client accepts.
+	 * @return a {@link GatewayFilterSpec} that can be used to apply additional filters
+	 */
+	public GatewayFilterSpec compressResponse() {
+		return compressResponse(c -> {
+		});
+	}
+
+	/**
+	 * A filter that compresses the response body with the best content encoding the
+	 * client accepts.
+	 * @param configConsumer a {@link Consumer} that will return configuration for the
+	 * compression of responses
+	 * @return a {@link GatewayFilterSpec} that can be used to apply additional filters
+	 */
+	public GatewayFilterSpec compressResponse(
+			Consumer<CompressResponseGatewayFilterFactory.Config> configConsumer) {
+		return filter(getBean(CompressResponseGatewayFilterFactory.class)
+				.apply(configConsumer));
+	}
+
 	/**
 	 * Adds hystrix execution exception headers to fallback request. Depends on @{code
 	 * org.springframework.cloud::spring-cloud-starter-netflix-hystrix} being on the
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.UnpooledDirectByteBuf;
+import io.netty.util.internal.PlatformDependent;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import org.springframework.core.style.ToStringCreator;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Reads request bodies that are cached by
+ * {@link ServerWebExchangeUtils#cacheRequestBody(org.springframework.web.server.ServerWebExchange, RequestBodyCache, java.util.function.Function)}.
+ * Bodies up to {@code maxInMemorySize} are kept in memory. Larger bodies are written to a
+ * temporary file while they are read and the file is memory mapped once the body is
+ * complete, so that the body can be replayed without holding it on the heap. Bodies
+ * larger than {@code maxSize} are rejected with 413 Payload Too Large.
+ */
+@ConfigurationProperties("spring.cloud.gateway.request-body-cache")
+public class RequestBodyCache {
+
+	private static final Log log = LogFactory.getLog(RequestBodyCache.class);
+
+	/**
+	 * Cached bodies are read into a single buffer, so they can not be larger than this.
+	 */
+	private static final long MAX_BUFFER_SIZE = Integer.MAX_VALUE;
+
+	/**
+	 * Size of a request body above which it is written to a temporary file.
+	 */
+	private DataSize maxInMemorySize = DataSize.ofMegabytes(1);
+
+	/**
+	 * Max size of a cached request body. Larger bodies are rejected with 413 Payload Too
+	 * Large. No limit other than 2GB by default.
+	 */
+	private DataSize maxSize;
+
+	/**
+	 * Directory of the temporary files. Defaults to the java.io.tmpdir directory.
+	 */
+	private String directory;
+
+	private final LongAdder memoryBytes = new LongAdder();
+
+	private final LongAdder fileBytes = new LongAdder();
+
+	private final AtomicLong mappedBytes = new AtomicLong();
+
+	private final LongAdder rejected = new LongAdder();
+
+	public DataSize getMaxInMemorySize() {
+		return maxInMemorySize;
+	}
+
+	public void setMaxInMemorySize(DataSize maxInMemorySize) {
+		this.maxInMemorySize = maxInMemorySize;
+	}
+
+	public DataSize getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(DataSize maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public String getDirectory() {
+		return directory;
+	}
+
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @return the number of body bytes cached in memory.
+	 */
+	public long getMemoryBytes() {
+		return this.memoryBytes.sum();
+	}
+
+	/**
+	 * @return the number of body bytes cached in temporary files.
+	 */
+	public long getFileBytes() {
+		return this.fileBytes.sum();
+	}
+
+	/**
+	 * @return the size of the cached bodies that are currently memory mapped.
+	 */
+	public long getMappedBytes() {
+		return this.mappedBytes.get();
+	}
+
+	/**
+	 * @return the number of request bodies rejected because of their size.
+	 */
+	public long getRejected() {
+		return this.rejected.sum();
+	}
+
+	/**
+	 * Reads the body of the request into a single buffer. The buffer is backed by a
+	 * memory mapped temporary file if the body is larger than {@code maxInMemorySize},
+	 * the file is unmapped when the buffer is released.
+	 * @param request the request to read the body of.
+	 * @param factory the factory of the buffer.
+	 * @return Mono of the body, empty if the request has no body, or an error with a
+	 * {@link ResponseStatusException} if the body is larger than {@code maxSize}.
+	 */
+	public Mono<DataBuffer> cache(ServerHttpRequest request,
+			NettyDataBufferFactory factory) {
+		if (request.getHeaders().getContentLength() > getMaxBytes()) {
+			return Mono.error(tooLarge());
+		}
+		return Mono.defer(() -> {
+			Spool spool = new Spool(factory);
+			return request.getBody().concatMap(spool::append)
+					.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release)
+					.then(Mono.defer(spool::complete)).doOnError(e -> spool.discard())
+					.doOnCancel(spool::discard);
+		});
+	}
+
+	private long getMaxBytes() {
+		return (this.maxSize != null) ? Math.min(this.maxSize.toBytes(), MAX_BUFFER_SIZE)
+				: MAX_BUFFER_SIZE;
+	}
+
+	private ResponseStatusException tooLarge() {
+		this.rejected.increment();
+		return new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+				"Request body is larger than "
+						+ ((this.maxSize != null) ? this.maxSize : "2GB"));
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringCreator(this).append("maxInMemorySize", maxInMemorySize)
+				.append("maxSize", maxSize).append("directory", directory).toString();
+	}
+
+	/**
+	 * The body of one request. The buffers are kept in memory until the body is larger
+	 * than {@code maxInMemorySize}, then they and the following buffers are written to a
+	 * temporary file. Buffers are released once they have been written.
+	 */
+	private final class Spool {
+
+		private final NettyDataBufferFactory factory;
+
+		private final List<DataBuffer> buffers = new ArrayList<>();
+
+		private long size;
+
+		private long position;
+
+		private Path file;
+
+		private AsynchronousFileChannel channel;
+
+		Spool(NettyDataBufferFactory factory) {
+			this.factory = factory;
+		}
+
+		Mono<Void> append(DataBuffer buffer) {
+			synchronized (this) {
+				this.buffers.add(buffer);
+			}
+			this.size += buffer.readableByteCount();
+			if (this.size > getMaxBytes()) {
+				return Mono.error(tooLarge());
+			}
+			if (this.channel != null) {
+				return write(buffer);
+			}
+			if (this.size <= maxInMemorySize.toBytes()) {
+				return Mono.empty();
+			}
+			return Mono.fromRunnable(this::open).subscribeOn(Schedulers.boundedElastic())
+					.thenMany(Flux.fromIterable(take(false))).concatMap(this::write)
+					.then();
+		}
+
+		private void open() {
+			try {
+				Path directory = Paths.get((RequestBodyCache.this.directory != null)
+						? RequestBodyCache.this.directory
+						: System.getProperty("java.io.tmpdir"));
+				this.file = Files.createTempFile(directory, "gateway-body-", ".tmp");
+				this.channel = AsynchronousFileChannel.open(this.file,
+						StandardOpenOption.READ, StandardOpenOption.WRITE);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			if (log.isDebugEnabled()) {
+				log.debug("Writing request body larger than " + maxInMemorySize + " to "
+						+ this.file);
+			}
+		}
+
+		private Mono<Void> write(DataBuffer buffer) {
+			long position = this.position;
+			this.position += buffer.readableByteCount();
+			return DataBufferUtils.write(Mono.just(buffer), this.channel, position)
+					.doOnNext(this::release).then();
+		}
+
+		private synchronized void release(DataBuffer buffer) {
+			for (int i = 0; i < this.buffers.size(); i++) {
+				if (this.buffers.get(i) == buffer) {
+					this.buffers.remove(i);
+					DataBufferUtils.release(buffer);
+					return;
+				}
+			}
+		}
+
+		private synchronized List<DataBuffer> take(boolean clear) {
+			List<DataBuffer> buffers = new ArrayList<>(this.buffers);
+			if (clear) {
+				this.buffers.clear();
+			}
+			return buffers;
+		}
+
+		Mono<DataBuffer> complete() {
+			if (this.channel == null) {
+				List<DataBuffer> buffers = take(true);
+				if (buffers.isEmpty()) {
+					return Mono.empty();
+				}
+				memoryBytes.add(this.size);
+				return Mono.just(this.factory.join(buffers));
+			}
+			return Mono.fromCallable(this::map).subscribeOn(Schedulers.boundedElastic());
+		}
+
+		private DataBuffer map() throws IOException {
+			this.channel.close();
+			MappedByteBuffer mapped;
+			try (FileChannel fileChannel = FileChannel.open(this.file,
+					StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				// a private mapping is writable, which Netty requires, but is never
+				// written to the file
+				mapped = fileChannel.map(FileChannel.MapMode.PRIVATE, 0, this.size);
+			}
+			finally {
+				delete();
+			}
+			fileBytes.add(this.size);
+			return this.factory
+					.wrap(new MappedByteBuf(this.factory.getByteBufAllocator(), mapped));
+		}
+
+		void discard() {
+			take(true).forEach(DataBufferUtils::release);
+			if (this.channel != null) {
+				Mono.fromRunnable(() -> {
+					try {
+						this.channel.close();
+					}
+					catch (IOException e) {
+						log.debug("Couldn't close " + this.file, e);
+					}
+					delete();
+				}).subscribeOn(Schedulers.boundedElastic()).subscribe();
+			}
+		}
+
+		/**
+		 * The file can be deleted while it is mapped on most platforms, its space is
+		 * freed when it is unmapped.
+		 */
+		private void delete() {
+			try {
+				Files.deleteIfExists(this.file);
+			}
+			catch (IOException e) {
+				log.debug("Couldn't delete " + this.file + ", deleting it on exit", e);
+				this.file.toFile().deleteOnExit();
+			}
+		}
+
+	}
+
+	/**
+	 * A buffer backed by a memory mapped file, which is unmapped when the buffer is
+	 * released.
+	 */
+	private class MappedByteBuf extends UnpooledDirectByteBuf {
+
+		private final MappedByteBuffer mapped;
+
+		MappedByteBuf(ByteBufAllocator alloc, MappedByteBuffer mapped) {
+			super(alloc, mapped, mapped.capacity());
+			this.mapped = mapped;
+			mappedBytes.addAndGet(mapped.capacity());
+		}
+
+		@Override
+		protected void deallocate() {
+			super.deallocate();
+			mappedBytes.addAndGet(-this.mapped.capacity());
+			PlatformDependent.freeDirectBuffer(this.mapped);
+		}
+
+	}
+
+}
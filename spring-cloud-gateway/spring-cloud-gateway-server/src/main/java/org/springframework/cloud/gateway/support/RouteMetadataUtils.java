@@ -28,6 +28,53 @@ public final class RouteMetadataUtils {
 	 */
 	public static final String CONNECT_TIMEOUT_ATTR = "connect-timeout";
 
+	/**
+	 * Attribute name of the maximum number of connections of a route's own pool.
+	 */
+	public static final String POOL_MAX_CONNECTIONS_ATTR = "pool-max-connections";
+
+	/**
+	 * Attribute name of the maximum time in millis to wait for a connection of a route's
+	 * own pool.
+	 */
+	public static final String POOL_ACQUIRE_TIMEOUT_ATTR = "pool-acquire-timeout";
+
+	/**
+	 * Attribute name of the maximum number of requests waiting for a connection of a
+	 * route's own pool.
+	 */
+	public static final String POOL_MAX_PENDING_ACQUIRES_ATTR = "pool-max-pending-acquires";
+
+	/**
+	 * Attribute name of the time in millis after which an idle connection of a route's
+	 * own pool is closed.
+	 */
+	public static final String POOL_MAX_IDLE_TIME_ATTR = "pool-max-idle-time";
+
+	/**
+	 * Attribute name of the time in millis after which a connection of a route's own pool
+	 * is closed.
+	 */
+	public static final String POOL_MAX_LIFE_TIME_ATTR = "pool-max-life-time";
+
+	/**
+	 * Attribute name of the policy used to flush the response body of a route, one of
+	 * {@code auto}, {@code always}, {@code size} or {@code interval}.
+	 */
+	public static final String FLUSH_POLICY_ATTR = "flush-policy";
+
+	/**
+	 * Attribute name of the number of bytes after which the response body is flushed with
+	 * the {@code size} flush policy.
+	 */
+	public static final String FLUSH_SIZE_ATTR = "flush-size";
+
+	/**
+	 * Attribute name of the interval in millis in which the response body is flushed
+	 * with the {@code interval} flush policy.
+	 */
+	public static final String FLUSH_INTERVAL_ATTR = "flush-interval";
+
 	private RouteMetadataUtils() {
 		throw new AssertionError("Must not instantiate utility class.");
 	}
@@ -17,9 +17,11 @@
 package org.springframework.cloud.gateway.support;
 
 import java.net.URI;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
@@ -34,16 +36,19 @@ import reactor.core.publisher.Mono;
 import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
 import org.springframework.cloud.gateway.handler.AsyncPredicate;
 import org.springframework.cloud.gateway.handler.predicate.RoutePredicateFactory;
+import org.springframework.core.ResolvableType;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.io.buffer.NettyDataBuffer;
 import org.springframework.core.io.buffer.NettyDataBufferFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageReader;
 import org.springframework.http.server.reactive.AbstractServerHttpResponse;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
-import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.util.Assert;
+import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -54,6 +59,8 @@ public final class ServerWebExchangeUtils {
 
 	private static final Log log = LogFactory.getLog(ServerWebExchangeUtils.class);
 
+	private static final Object EMPTY_BODY = new Object();
+
 	/**
 	 * Preserve-Host header attribute name.
 	 */
@@ -165,6 +172,13 @@ public final class ServerWebExchangeUtils {
 	 */
 	public static final String CACHED_REQUEST_BODY_ATTR = "cachedRequestBody";
 
+	/**
+	 * Cached request body objects attribute name. Holds the objects decoded by
+	 * {@link #decodeRequestBody(ServerWebExchange, ServerHttpRequest, Class, List)}.
+	 */
+	public static final String CACHED_REQUEST_BODY_OBJECTS_ATTR = qualify(
+			"cachedRequestBodyObjects");
+
 	private ServerWebExchangeUtils() {
 		throw new AssertionError("Must not instantiate utility class.");
 	}
@@ -323,7 +337,24 @@ public final class ServerWebExchangeUtils {
 	 */
 	public static <T> Mono<T> cacheRequestBodyAndRequest(ServerWebExchange exchange,
 			Function<ServerHttpRequest, Mono<T>> function) {
-		return cacheRequestBody(exchange, true, function);
+		return cacheRequestBody(exchange, joinBody(exchange), true, function);
+	}
+
+	/**
+	 * Caches the request body and the created {@link ServerHttpRequestDecorator} like
+	 * {@link #cacheRequestBodyAndRequest(ServerWebExchange, Function)}, reading the body
+	 * with the given {@link RequestBodyCache}.
+	 * @param exchange the available ServerWebExchange.
+	 * @param requestBodyCache the cache that reads the body.
+	 * @param function a function that accepts the created ServerHttpRequestDecorator.
+	 * @param <T> generic type for the return {@link Mono}.
+	 * @return Mono of type T created by the function parameter.
+	 */
+	public static <T> Mono<T> cacheRequestBodyAndRequest(ServerWebExchange exchange,
+			RequestBodyCache requestBodyCache,
+			Function<ServerHttpRequest, Mono<T>> function) {
+		return cacheRequestBody(exchange, cacheBody(exchange, requestBodyCache), true,
+				function);
 	}
 
 	/**
@@ -337,7 +368,24 @@ public final class ServerWebExchangeUtils {
 	 */
 	public static <T> Mono<T> cacheRequestBody(ServerWebExchange exchange,
 			Function<ServerHttpRequest, Mono<T>> function) {
-		return cacheRequestBody(exchange, false, function);
+		return cacheRequestBody(exchange, joinBody(exchange), false, function);
+	}
+
+	/**
+	 * Caches the request body like
+	 * {@link #cacheRequestBody(ServerWebExchange, Function)}, reading the body with the
+	 * given {@link RequestBodyCache}.
+	 * @param exchange the available ServerWebExchange.
+	 * @param requestBodyCache the cache that reads the body.
+	 * @param function a function that accepts the created ServerHttpRequestDecorator.
+	 * @param <T> generic type for the return {@link Mono}.
+	 * @return Mono of type T created by the function parameter.
+	 */
+	public static <T> Mono<T> cacheRequestBody(ServerWebExchange exchange,
+			RequestBodyCache requestBodyCache,
+			Function<ServerHttpRequest, Mono<T>> function) {
+		return cacheRequestBody(exchange, cacheBody(exchange, requestBodyCache), false,
+				function);
 	}
 
 	/**
@@ -347,6 +395,7 @@ public final class ServerWebExchangeUtils {
 	 * cacheDecoratedRequest to true will put a {@link ServerHttpRequestDecorator} in an
 	 * attribute {@link #CACHED_SERVER_HTTP_REQUEST_DECORATOR_ATTR} for adaptation later.
 	 * @param exchange the available ServerWebExchange.
+	 * @param body the body of the request joined into a single DataBuffer.
 	 * @param cacheDecoratedRequest if true, the ServerHttpRequestDecorator will be
 	 * cached.
 	 * @param function a function that accepts a ServerHttpRequest. It can be the created
@@ -355,19 +404,100 @@ public final class ServerWebExchangeUtils {
 	 * @return Mono of type T created by the function parameter.
 	 */
 	private static <T> Mono<T> cacheRequestBody(ServerWebExchange exchange,
-			boolean cacheDecoratedRequest,
+			Mono<DataBuffer> body, boolean cacheDecoratedRequest,
 			Function<ServerHttpRequest, Mono<T>> function) {
-		ServerHttpResponse response = exchange.getResponse();
-		NettyDataBufferFactory factory = (NettyDataBufferFactory) response
-				.bufferFactory();
-		// Join all the DataBuffers so we have a single DataBuffer for the body
-		return DataBufferUtils.join(exchange.getRequest().getBody())
-				.defaultIfEmpty(
+		NettyDataBufferFactory factory = getBufferFactory(exchange);
+		return body.defaultIfEmpty(
 						factory.wrap(new EmptyByteBuf(factory.getByteBufAllocator())))
 				.map(dataBuffer -> decorate(exchange, dataBuffer, cacheDecoratedRequest))
 				.switchIfEmpty(Mono.just(exchange.getRequest())).flatMap(function);
 	}
 
+	/**
+	 * Decodes the body of the request to the given type, at most once per exchange for
+	 * each type, content type and message reader. The decoded object is cached in the
+	 * {@link #CACHED_REQUEST_BODY_OBJECTS_ATTR} attribute and returned by later calls
+	 * without reading the body again, so that the ReadBody predicates of several routes
+	 * and the ModifyRequestBody filter share it. Filters that replace the body of the
+	 * request must call {@link #clearCachedRequestBodyObjects(ServerWebExchange)}.
+	 * @param exchange the available ServerWebExchange.
+	 * @param request the request to read the body of, which can be the decorator created
+	 * by {@link #cacheRequestBodyAndRequest(ServerWebExchange, Function)}.
+	 * @param type the type to decode the body to.
+	 * @param messageReaders the message readers to decode the body with.
+	 * @param <T> the type to decode the body to.
+	 * @return Mono of the decoded body, empty if the request has no body.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Mono<T> decodeRequestBody(ServerWebExchange exchange,
+			ServerHttpRequest request, Class<T> type,
+			List<HttpMessageReader<?>> messageReaders) {
+		Map<List<Object>, Object> objects = (Map<List<Object>, Object>) exchange
+				.getAttributes()
+				.computeIfAbsent(CACHED_REQUEST_BODY_OBJECTS_ATTR, key -> new HashMap<>());
+		List<Object> key = getBodyObjectKey(request, type, messageReaders);
+		Object cached = objects.get(key);
+		if (cached != null) {
+			if (log.isTraceEnabled()) {
+				log.trace("using request body decoded to " + type.getName());
+			}
+			return (cached != EMPTY_BODY) ? Mono.just(type.cast(cached)) : Mono.empty();
+		}
+		ServerWebExchange decodeExchange = (request == exchange.getRequest()) ? exchange
+				: exchange.mutate().request(request).build();
+		return ServerRequest.create(decodeExchange, messageReaders).bodyToMono(type)
+				.doOnNext(body -> objects.put(key, body))
+				.switchIfEmpty(Mono.fromRunnable(() -> objects.put(key, EMPTY_BODY)));
+	}
+
+	/**
+	 * Removes the objects decoded by
+	 * {@link #decodeRequestBody(ServerWebExchange, ServerHttpRequest, Class, List)}, as
+	 * they do not match the body of the request once it has been replaced.
+	 * @param exchange the available ServerWebExchange.
+	 */
+	public static void clearCachedRequestBodyObjects(ServerWebExchange exchange) {
+		exchange.getAttributes().remove(CACHED_REQUEST_BODY_OBJECTS_ATTR);
+	}
+
+	/**
+	 * The body is decoded by the first reader that can read the content type, the same
+	 * body decoded by a different codec is cached separately.
+	 */
+	private static List<Object> getBodyObjectKey(ServerHttpRequest request,
+			Class<?> type, List<HttpMessageReader<?>> messageReaders) {
+		MediaType contentType = request.getHeaders().getContentType();
+		MediaType readType = (contentType != null) ? contentType
+				: MediaType.APPLICATION_OCTET_STREAM;
+		ResolvableType resolvableType = ResolvableType.forClass(type);
+		Class<?> codec = null;
+		for (HttpMessageReader<?> reader : messageReaders) {
+			if (reader.canRead(resolvableType, readType)) {
+				codec = reader.getClass();
+				break;
+			}
+		}
+		return Arrays.asList(type, readType, codec);
+	}
+
+	private static Mono<DataBuffer> joinBody(ServerWebExchange exchange) {
+		// Join all the DataBuffers so we have a single DataBuffer for the body
+		return DataBufferUtils.join(exchange.getRequest().getBody());
+	}
+
+	/**
+	 * The {@link RequestBodyCache} limits the size of the body and keeps large bodies in
+	 * a temporary file rather than in memory.
+	 */
+	private static Mono<DataBuffer> cacheBody(ServerWebExchange exchange,
+			RequestBodyCache requestBodyCache) {
+		return requestBodyCache.cache(exchange.getRequest(), getBufferFactory(exchange));
+	}
+
+	private static NettyDataBufferFactory getBufferFactory(ServerWebExchange exchange) {
+		return (NettyDataBufferFactory) exchange.getResponse().bufferFactory();
+	}
+
 	private static ServerHttpRequest decorate(ServerWebExchange exchange,
 			DataBuffer dataBuffer, boolean cacheDecoratedRequest) {
 		if (dataBuffer.readableByteCount() > 0) {
@@ -0,0 +1,47 @@
+-- evaluates request_rate_limiter.lua for several requests at once, the requests are
+-- given by two KEYS (tokens and timestamp) and four ARGV (rate, capacity, now and
+-- requested) each, the result holds allowed_num and new_tokens of every request
+local results = {}
+
+for i = 1, #KEYS / 2 do
+  local tokens_key = KEYS[2 * i - 1]
+  local timestamp_key = KEYS[2 * i]
+
+  local rate = tonumber(ARGV[4 * i - 3])
+  local capacity = tonumber(ARGV[4 * i - 2])
+  local now = tonumber(ARGV[4 * i - 1])
+  local requested = tonumber(ARGV[4 * i])
+
+  local fill_time = capacity/rate
+  local ttl = math.floor(fill_time*2)
+
+  local last_tokens = tonumber(redis.call("get", tokens_key))
+  if last_tokens == nil then
+    last_tokens = capacity
+  end
+
+  local last_refreshed = tonumber(redis.call("get", timestamp_key))
+  if last_refreshed == nil then
+    last_refreshed = 0
+  end
+
+  local delta = math.max(0, now-last_refreshed)
+  local filled_tokens = math.min(capacity, last_tokens+(delta*rate))
+  local allowed = filled_tokens >= requested
+  local new_tokens = filled_tokens
+  local allowed_num = 0
+  if allowed then
+    new_tokens = filled_tokens - requested
+    allowed_num = 1
+  end
+
+  if ttl > 0 then
+    redis.call("setex", tokens_key, ttl, new_tokens)
+    redis.call("setex", timestamp_key, ttl, now)
+  end
+
+  results[2 * i - 1] = allowed_num
+  results[2 * i] = new_tokens
+end
+
+return results
@@ -0,0 +1,31 @@
+local tat_key = KEYS[1] --request_rate_limiter.{'id'}.tat
+
+local rate = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local now = tonumber(ARGV[3]) -- milliseconds
+local requested = tonumber(ARGV[4])
+
+-- time between two tokens, and how far the theoretical arrival time may be ahead of now
+local emission_interval = 1000 / rate
+local delay_tolerance = capacity * emission_interval
+
+local tat = tonumber(redis.call("get", tat_key))
+if tat == nil or tat < now then
+  tat = now
+end
+
+local new_tat = tat + requested * emission_interval
+local allowed = new_tat - delay_tolerance <= now
+
+local allowed_num = 0
+local remaining
+if allowed then
+  allowed_num = 1
+  remaining = (delay_tolerance - (new_tat - now)) / emission_interval
+  -- expires once all tokens are back
+  redis.call("set", tat_key, new_tat, "px", math.max(1, math.ceil(new_tat - now)))
+else
+  remaining = (delay_tolerance - (tat - now)) / emission_interval
+end
+
+return { allowed_num, math.max(0, math.floor(remaining)) }
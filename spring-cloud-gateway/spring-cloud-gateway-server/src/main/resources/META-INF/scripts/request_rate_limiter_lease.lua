@@ -0,0 +1,40 @@
+local tokens_key = KEYS[1] --request_rate_limiter.{'id'}.tokens
+local timestamp_key = KEYS[2] --request_rate_limiter.{'id'}.timestamp
+--redis.log(redis.LOG_WARNING, "tokens_key " .. tokens_key)
+
+local rate = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local now = tonumber(ARGV[3])
+local requested = tonumber(ARGV[4])
+local lease_size = tonumber(ARGV[5])
+
+local fill_time = capacity/rate
+local ttl = math.floor(fill_time*2)
+
+local last_tokens = tonumber(redis.call("get", tokens_key))
+if last_tokens == nil then
+  last_tokens = capacity
+end
+
+local last_refreshed = tonumber(redis.call("get", timestamp_key))
+if last_refreshed == nil then
+  last_refreshed = 0
+end
+
+local delta = math.max(0, now-last_refreshed)
+local filled_tokens = math.min(capacity, last_tokens+(delta*rate))
+
+-- the tokens of a request are leased together with up to lease_size tokens for the
+-- following requests, but never more than the bucket holds
+local leased = 0
+if filled_tokens >= requested then
+  leased = math.floor(math.min(filled_tokens, math.max(lease_size, requested)))
+end
+local new_tokens = filled_tokens - leased
+
+if ttl > 0 then
+  redis.call("setex", tokens_key, ttl, new_tokens)
+  redis.call("setex", timestamp_key, ttl, now)
+end
+
+return { leased, new_tokens }
@@ -0,0 +1,39 @@
+local window_key = KEYS[1] --request_rate_limiter.{'id'}.window
+
+local rate = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local now = tonumber(ARGV[3]) -- milliseconds
+local requested = tonumber(ARGV[4])
+
+-- capacity requests are allowed within a window, so rate requests per second on average
+local window = math.max(1, math.floor(capacity / rate * 1000))
+local window_start = now - (now % window)
+
+local counts = redis.call("hmget", window_key, "start", "current", "previous")
+local start = tonumber(counts[1])
+local current = tonumber(counts[2]) or 0
+local previous = tonumber(counts[3]) or 0
+
+if start ~= window_start then
+  if start == window_start - window then
+    previous = current
+  else
+    previous = 0
+  end
+  current = 0
+end
+
+-- the requests of the previous window are counted by how much it still overlaps
+local weight = (window - (now - window_start)) / window
+local estimated = previous * weight + current
+
+local allowed_num = 0
+if estimated + requested <= capacity then
+  allowed_num = 1
+  current = current + requested
+  estimated = estimated + requested
+  redis.call("hmset", window_key, "start", window_start, "current", current, "previous", previous)
+  redis.call("pexpire", window_key, 2 * window)
+end
+
+return { allowed_num, math.max(0, math.floor(capacity - estimated)) }
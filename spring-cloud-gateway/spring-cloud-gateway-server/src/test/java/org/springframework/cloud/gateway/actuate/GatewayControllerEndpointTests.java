@@ -118,6 +118,20 @@ public class GatewayControllerEndpointTests {
 				});
 	}
 
+	@Test
+	public void testCombinedFilters() {
+		testClient.get()
+				.uri("http://localhost:" + port
+						+ "/actuator/gateway/routes/add_request_header_test/combinedfilters")
+				.exchange().expectStatus().isOk().expectBody(Map.class)
+				.consumeWith(result -> {
+					Map<String, Object> responseBody = result.getResponseBody();
+					assertThat(responseBody.keySet())
+							.anyMatch(filter -> filter.contains("AddRequestHeader"))
+							.anyMatch(filter -> filter.contains("NettyRoutingFilter"));
+				});
+	}
+
 	@Test
 	public void testRoutePredicates() {
 		testClient.get()
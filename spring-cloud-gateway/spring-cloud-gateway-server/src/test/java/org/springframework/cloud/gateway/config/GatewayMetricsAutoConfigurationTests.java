@@ -18,6 +18,7 @@ package org.springframework.cloud.gateway.config;
 
 import java.util.List;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tags;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
@@ -60,6 +61,34 @@ public class GatewayMetricsAutoConfigurationTests {
 
 	}
 
+	@RunWith(SpringRunner.class)
+	@SpringBootTest(classes = Config.class)
+	public static class RedisRateLimiterMetrics {
+
+		@Autowired
+		private MeterRegistry meterRegistry;
+
+		@Test
+		public void denyCacheMetersExist() {
+			assertThat(meterRegistry.find("gateway.ratelimiter.deny.cache.hits")
+					.functionCounter()).isNotNull();
+			assertThat(meterRegistry.find("gateway.ratelimiter.deny.cache.keys").gauge())
+					.isNotNull();
+		}
+
+		@Test
+		public void circuitBreakerMetersExist() {
+			assertThat(meterRegistry.find("gateway.ratelimiter.circuitbreaker.state")
+					.tag("state", "closed").gauge().value()).isEqualTo(1);
+			assertThat(meterRegistry.find("gateway.ratelimiter.circuitbreaker.state")
+					.tag("state", "open").gauge().value()).isEqualTo(0);
+			assertThat(meterRegistry
+					.find("gateway.ratelimiter.circuitbreaker.not.permitted.calls")
+					.functionCounter()).isNotNull();
+		}
+
+	}
+
 	@RunWith(SpringRunner.class)
 	@SpringBootTest(classes = Config.class,
 			properties = "spring.cloud.gateway.metrics.enabled=false")
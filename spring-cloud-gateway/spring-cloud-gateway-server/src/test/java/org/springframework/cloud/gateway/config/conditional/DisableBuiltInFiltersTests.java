@@ -111,7 +111,10 @@ public class DisableBuiltInFiltersTests {
 			"spring.cloud.gateway.filter.request-header-size.enabled=false",
 			"spring.cloud.gateway.filter.circuit-breaker.enabled=false",
 			"spring.cloud.gateway.filter.hystrix.enabled=false",
-			"spring.cloud.gateway.filter.fallback-headers.enabled=false" })
+			"spring.cloud.gateway.filter.fallback-headers.enabled=false",
+			"spring.cloud.gateway.filter.local-response-cache.enabled=false",
+			"spring.cloud.gateway.filter.request-coalescing.enabled=false",
+			"spring.cloud.gateway.filter.compress-response.enabled=false" })
 	@ActiveProfiles("disable-components")
 	public static class DisableAllFiltersByProperty {
 
@@ -123,6 +123,15 @@ public class NettyRoutingFilterIntegrationTests extends BaseWebClientTests {
 				.isEqualTo("Response took longer than timeout: PT1S");
 	}
 
+	@Test
+	public void shouldUseConnectionPoolPerRoute() {
+		// more requests than the route's pool has connections
+		for (int i = 0; i < 5; i++) {
+			testClient.get().uri("/pool/get").exchange().expectStatus()
+					.isEqualTo(HttpStatus.OK);
+		}
+	}
+
 	@Test
 	public void shouldNotApplyPerRouteTimeoutWhenItIsNotConfigured() {
 		testClient.get().uri("/delay/2").exchange().expectStatus()
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter;
+
+import java.util.Arrays;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ResourceLeakDetector;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.cloud.gateway.test.PermitAllSecurityConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Request and response bodies of routes without body filters, including routes that
+ * only mutate the request, are passed through as ByteBufs, these tests check that no
+ * buffer is leaked on the way.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@DirtiesContext
+public class NettyRoutingFilterPassThroughTests {
+
+	private static final int BODY_SIZE = 256 * 1024;
+
+	private static final String LEAK_CANARY = "pass-through-leak-canary";
+
+	private static DisposableServer backend;
+
+	private static ResourceLeakDetector.Level leakDetectionLevel;
+
+	private final ListAppender<ILoggingEvent> leaks = new ListAppender<>();
+
+	@Autowired
+	private WebTestClient webClient;
+
+	@BeforeClass
+	public static void setUp() {
+		leakDetectionLevel = ResourceLeakDetector.getLevel();
+		ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+
+		byte[] body = new byte[BODY_SIZE];
+		Arrays.fill(body, (byte) 'a');
+		backend = HttpServer
+				.create().host("localhost").port(0).route(
+						routes -> routes
+								.post("/passthrough/echo",
+										(req, res) -> res.send(req.receive().retain()))
+								.get("/passthrough/bytes",
+										(req, res) -> res.send(Mono.fromSupplier(
+												() -> Unpooled.wrappedBuffer(body)))))
+				.bindNow();
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		backend.disposeNow();
+		ResourceLeakDetector.setLevel(leakDetectionLevel);
+	}
+
+	@Test
+	public void bodiesArePassedThroughWithoutLeaks() throws InterruptedException {
+		// the logging system is initialized with the context, so the appender is added
+		// afterwards
+		leaks.start();
+		leakDetectorLogger().addAppender(leaks);
+		byte[] body = new byte[BODY_SIZE];
+		Arrays.fill(body, (byte) 'b');
+
+		for (int i = 0; i < 20; i++) {
+			webClient.post().uri("/passthrough/echo").bodyValue(body).exchange()
+					.expectStatus().isOk().expectBody(byte[].class)
+					.value(echoed -> assertThat(echoed).isEqualTo(body));
+			webClient.get().uri("/passthrough/bytes").exchange().expectStatus().isOk()
+					.expectBody(byte[].class)
+					.value(bytes -> assertThat(bytes).hasSize(BODY_SIZE));
+			webClient.post().uri("/mutated/passthrough/echo").bodyValue(body)
+					.exchange().expectStatus().isOk().expectBody(byte[].class)
+					.value(echoed -> assertThat(echoed).isEqualTo(body));
+		}
+
+		// the canary shows that the leak detector reports leaks by now
+		PooledByteBufAllocator.DEFAULT.directBuffer().touch(LEAK_CANARY);
+		for (int i = 0; i < 20 && !hasLeaked(LEAK_CANARY); i++) {
+			System.gc();
+			Thread.sleep(100);
+			// leaks are reported when buffers are allocated
+			for (int j = 0; j < 100; j++) {
+				PooledByteBufAllocator.DEFAULT.directBuffer().release();
+			}
+		}
+
+		assertThat(hasLeaked(LEAK_CANARY)).isTrue();
+		assertThat(leaks.list)
+				.allMatch(event -> event.getFormattedMessage().contains(LEAK_CANARY));
+	}
+
+	@After
+	public void removeAppender() {
+		leakDetectorLogger().detachAppender(leaks);
+	}
+
+	private boolean hasLeaked(String hint) {
+		return leaks.list.stream()
+				.anyMatch(event -> event.getFormattedMessage().contains(hint));
+	}
+
+	private static Logger leakDetectorLogger() {
+		return (Logger) LoggerFactory.getLogger(ResourceLeakDetector.class);
+	}
+
+	@SpringBootConfiguration
+	@EnableAutoConfiguration
+	@Import(PermitAllSecurityConfiguration.class)
+	protected static class TestConfig {
+
+		@Bean
+		public RouteLocator passThroughRoutes(RouteLocatorBuilder builder) {
+			// no body filters, so that the bodies are passed through
+			return builder.routes()
+					.route("pass_through",
+							r -> r.order(-1).path("/passthrough/**")
+									.uri("http://localhost:" + backend.port()))
+					.route("mutated_pass_through", r -> r.order(-1)
+							.path("/mutated/passthrough/**")
+							.filters(f -> f.stripPrefix(1).addRequestHeader("X-Test",
+									"mutated"))
+							.uri("http://localhost:" + backend.port()))
+					.build();
+		}
+
+	}
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import org.springframework.cloud.gateway.config.HttpClientFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.CONNECT_TIMEOUT_ATTR;
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.POOL_ACQUIRE_TIMEOUT_ATTR;
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.POOL_MAX_CONNECTIONS_ATTR;
+
+public class NettyRoutingFilterRoutePoolTests {
+
+	private final ServerWebExchange exchange = MockServerWebExchange
+			.from(MockServerHttpRequest.get("http://localhost"));
+
+	private HttpClientFactory httpClientFactory;
+
+	private HttpClient httpClient;
+
+	private NettyRoutingFilter filter;
+
+	@Before
+	public void setUp() {
+		HttpClientProperties properties = new HttpClientProperties();
+		httpClientFactory = spy(
+				new HttpClientFactory(properties, Collections.emptyList()));
+		httpClient = HttpClient.create();
+		filter = new NettyRoutingFilter(httpClient, null, properties, httpClientFactory);
+	}
+
+	@Test
+	public void routesWithoutPoolMetadataUseSharedClient() {
+		Route route = route("plain").build();
+
+		assertThat(filter.getHttpClient(route, exchange)).isSameAs(httpClient);
+		verify(httpClientFactory, never()).create(any(ConnectionProvider.class));
+	}
+
+	@Test
+	public void routesWithPoolMetadataUseOwnCachedClient() {
+		Route route = route("pooled").metadata(POOL_MAX_CONNECTIONS_ATTR, 5).build();
+		Route other = route("other").metadata(POOL_MAX_CONNECTIONS_ATTR, 5).build();
+
+		HttpClient routeClient = filter.getHttpClient(route, exchange);
+		assertThat(routeClient).isNotSameAs(httpClient);
+		assertThat(filter.getHttpClient(route, exchange)).isSameAs(routeClient);
+		assertThat(filter.getHttpClient(other, exchange)).isNotSameAs(routeClient);
+		verify(httpClientFactory, times(2)).create(any(ConnectionProvider.class));
+	}
+
+	@Test
+	public void poolIsKeptForRefreshedRouteWithSamePool() {
+		Route route = route("pooled").metadata(POOL_MAX_CONNECTIONS_ATTR, 5).build();
+		HttpClient routeClient = filter.getHttpClient(route, exchange);
+
+		Route refreshed = route("pooled").metadata(POOL_MAX_CONNECTIONS_ATTR, "5")
+				.build();
+		assertThat(filter.getHttpClient(refreshed, exchange)).isSameAs(routeClient);
+
+		Route changed = route("pooled").metadata(POOL_MAX_CONNECTIONS_ATTR, 5)
+				.metadata(POOL_ACQUIRE_TIMEOUT_ATTR, 100).build();
+		assertThat(filter.getHttpClient(changed, exchange)).isNotSameAs(routeClient);
+	}
+
+	@Test
+	public void poolOfRemovedRouteIsDisposedOnNextRefresh() {
+		List<ConnectionProvider> connectionProviders = mockConnectionProviders();
+		Route route = route("pooled").metadata(POOL_MAX_CONNECTIONS_ATTR, 5).build();
+		HttpClient routeClient = filter.getHttpClient(route, exchange);
+
+		filter.onApplicationEvent(
+				new RefreshRoutesResultEvent(this, Collections.emptySet(),
+						Collections.emptySet(), Collections.singleton("pooled")));
+		verify(connectionProviders.get(0), never()).disposeLater();
+
+		filter.onApplicationEvent(new RefreshRoutesResultEvent(this,
+				Collections.emptySet(), Collections.emptySet(), Collections.emptySet()));
+		verify(connectionProviders.get(0)).disposeLater();
+		assertThat(filter.getHttpClient(route, exchange)).isNotSameAs(routeClient);
+	}
+
+	@Test
+	public void requestsOfReplacedRouteKeepItsPoolUntilNextRefresh() {
+		List<ConnectionProvider> connectionProviders = mockConnectionProviders();
+		Route route = route("pooled").metadata(POOL_MAX_CONNECTIONS_ATTR, 5).build();
+		Route changed = route("pooled").metadata(POOL_MAX_CONNECTIONS_ATTR, 10).build();
+		HttpClient routeClient = filter.getHttpClient(route, exchange);
+		HttpClient changedClient = filter.getHttpClient(changed, exchange);
+
+		assertThat(filter.getHttpClient(route, exchange)).isSameAs(routeClient);
+		assertThat(filter.getHttpClient(changed, exchange)).isSameAs(changedClient);
+		assertThat(connectionProviders).hasSize(2);
+
+		RefreshRoutesResultEvent refresh = new RefreshRoutesResultEvent(this,
+				Collections.emptySet(), Collections.singleton("pooled"),
+				Collections.emptySet());
+		filter.onApplicationEvent(refresh);
+		verify(connectionProviders.get(0), never()).disposeLater();
+		filter.onApplicationEvent(refresh);
+		verify(connectionProviders.get(0)).disposeLater();
+		verify(connectionProviders.get(1), never()).disposeLater();
+	}
+
+	@Test
+	public void routePoolsAreDisposedWithTheFilter() {
+		ConnectionProvider connectionProvider = mock(ConnectionProvider.class);
+		doReturn(Mono.empty()).when(connectionProvider).disposeLater();
+		doReturn(connectionProvider).when(httpClientFactory)
+				.buildConnectionProvider(any());
+		filter.getHttpClient(
+				route("pooled").metadata(POOL_MAX_CONNECTIONS_ATTR, 5).build(), exchange);
+
+		filter.destroy();
+
+		verify(connectionProvider).disposeLater();
+	}
+
+	@Test
+	public void routePoolDefaultsToGlobalPool() {
+		Route route = route("pooled").metadata(POOL_ACQUIRE_TIMEOUT_ATTR, "100").build();
+		filter.getHttpClient(route, exchange);
+
+		verify(httpClientFactory).buildConnectionProvider(argThat(
+				pool -> pool.getName().equals("pooled") && pool.getAcquireTimeout() == 100
+						&& pool.getMaxConnections().equals(
+								ConnectionProvider.DEFAULT_POOL_MAX_CONNECTIONS)));
+	}
+
+	@Test
+	public void connectTimeoutClientIsCachedPerRoute() {
+		NettyRoutingFilter filter = new NettyRoutingFilter(httpClient, null,
+				new HttpClientProperties());
+		Route route = route("timeout").metadata(CONNECT_TIMEOUT_ATTR, 200).build();
+
+		HttpClient routeClient = filter.getHttpClient(route, exchange);
+		assertThat(routeClient).isNotSameAs(httpClient);
+		assertThat(filter.getHttpClient(route, exchange)).isSameAs(routeClient);
+
+		Route refreshed = route("timeout").metadata(CONNECT_TIMEOUT_ATTR, 300).build();
+		assertThat(filter.getHttpClient(refreshed, exchange)).isNotSameAs(routeClient);
+	}
+
+	@Test
+	public void refreshClearsCachedClients() {
+		Route route = route("timeout").metadata(CONNECT_TIMEOUT_ATTR, 200).build();
+		HttpClient routeClient = filter.getHttpClient(route, exchange);
+
+		filter.onApplicationEvent(new RefreshRoutesResultEvent(this));
+
+		assertThat(filter.getHttpClient(route, exchange)).isNotSameAs(routeClient);
+	}
+
+	private List<ConnectionProvider> mockConnectionProviders() {
+		List<ConnectionProvider> connectionProviders = new ArrayList<>();
+		doAnswer(invocation -> {
+			ConnectionProvider connectionProvider = mock(ConnectionProvider.class);
+			doReturn(Mono.empty()).when(connectionProvider).disposeLater();
+			connectionProviders.add(connectionProvider);
+			return connectionProvider;
+		}).when(httpClientFactory).buildConnectionProvider(any());
+		return connectionProviders;
+	}
+
+	private Route.AsyncBuilder route(String id) {
+		return Route.async().id(id).uri("http://localhost").predicate(exchange -> true);
+	}
+
+}
@@ -17,24 +17,59 @@
 package org.springframework.cloud.gateway.filter;
 
 import java.nio.charset.Charset;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Test;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.Connection;
+import reactor.netty.NettyInbound;
 
+import org.springframework.cloud.gateway.route.Route;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.io.buffer.NettyDataBufferFactory;
 import org.springframework.core.io.buffer.PooledDataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
 
 import static io.netty.buffer.PooledByteBufAllocator.DEFAULT;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.FLUSH_INTERVAL_ATTR;
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.FLUSH_POLICY_ATTR;
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.FLUSH_SIZE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
 
 /**
  * @author Violeta Georgieva
  */
 public class NettyWriteResponseFilterTests {
 
+	private final List<Integer> flushes = new ArrayList<>();
+
+	private int writtenBytes;
+
+	private Duration chunkDelay = Duration.ZERO;
+
+	private Duration flushDelay = Duration.ZERO;
+
 	@Test
 	public void testWrap_NettyDataBufferFactory() {
 		doTestWrap(new MockServerHttpResponse(new NettyDataBufferFactory(DEFAULT)));
@@ -45,6 +80,151 @@ public class NettyWriteResponseFilterTests {
 		doTestWrap(new MockServerHttpResponse());
 	}
 
+	@Test
+	public void decoratedResponseIsNotPassedThrough() {
+		NettyWriteResponseFilter filter = new NettyWriteResponseFilter(new ArrayList<>());
+
+		assertThat(filter.isPassThrough(new MockServerHttpResponse())).isFalse();
+		assertThat(filter.isPassThrough(
+				new ServerHttpResponseDecorator(new MockServerHttpResponse()))).isFalse();
+	}
+
+	@Test
+	public void streamingMediaTypeIsFlushedEveryChunk() {
+		filter(route(), MediaType.TEXT_EVENT_STREAM, 3);
+
+		assertThat(flushes).containsExactly(1, 1, 1);
+	}
+
+	@Test
+	public void otherMediaTypesAreNotFlushedEveryChunk() {
+		filter(route(), MediaType.APPLICATION_JSON, 3);
+
+		assertThat(flushes).isEmpty();
+		assertThat(writtenBytes).isEqualTo(30);
+	}
+
+	@Test
+	public void alwaysFlushPolicyFlushesEveryChunk() {
+		filter(route().metadata(FLUSH_POLICY_ATTR, "always"), MediaType.APPLICATION_JSON,
+				3);
+
+		assertThat(flushes).containsExactly(1, 1, 1);
+	}
+
+	@Test
+	public void sizeFlushPolicyFlushesWhenSizeIsReached() {
+		filter(route().metadata(FLUSH_POLICY_ATTR, "size").metadata(FLUSH_SIZE_ATTR, 25),
+				MediaType.TEXT_EVENT_STREAM, 7);
+
+		assertThat(flushes).containsExactly(3, 3, 1);
+	}
+
+	@Test
+	public void flushPolicyIsParsedRegardlessOfDefaultLocale() {
+		Locale defaultLocale = Locale.getDefault();
+		Locale.setDefault(new Locale("tr", "TR"));
+		try {
+			filter(route().metadata(FLUSH_POLICY_ATTR, "size").metadata(FLUSH_SIZE_ATTR,
+					25), MediaType.TEXT_EVENT_STREAM, 7);
+		}
+		finally {
+			Locale.setDefault(defaultLocale);
+		}
+
+		assertThat(flushes).containsExactly(3, 3, 1);
+	}
+
+	@Test
+	public void invalidFlushPolicyFallsBackToAuto() {
+		filter(route().metadata(FLUSH_POLICY_ATTR, "sometimes"),
+				MediaType.TEXT_EVENT_STREAM, 3);
+
+		assertThat(flushes).containsExactly(1, 1, 1);
+	}
+
+	@Test
+	public void intervalFlushPolicyWritesAllChunks() {
+		filter(route().metadata(FLUSH_POLICY_ATTR, "interval")
+				.metadata(FLUSH_INTERVAL_ATTR, 50), MediaType.APPLICATION_JSON, 5);
+
+		assertThat(flushes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(5);
+	}
+
+	@Test
+	public void intervalFlushPolicyWaitsForSlowResponse() {
+		chunkDelay = Duration.ofMillis(10);
+		flushDelay = Duration.ofMillis(50);
+		filter(route().metadata(FLUSH_POLICY_ATTR, "interval")
+				.metadata(FLUSH_INTERVAL_ATTR, 20), MediaType.APPLICATION_JSON, 20);
+
+		assertThat(flushes).doesNotContain(0).hasSizeGreaterThan(1);
+		assertThat(flushes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(20);
+	}
+
+	@Test
+	public void intervalFlushPolicyFlushesBurstBeforePause() {
+		filter(route().metadata(FLUSH_POLICY_ATTR, "interval")
+				.metadata(FLUSH_INTERVAL_ATTR, 20), MediaType.APPLICATION_JSON,
+				Flux.concat(Flux.range(0, 3),
+						Mono.delay(Duration.ofMillis(200)).thenMany(Flux.range(3, 2))));
+
+		assertThat(flushes).startsWith(3);
+		assertThat(flushes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(5);
+	}
+
+	private void filter(Route.AsyncBuilder route, MediaType contentType, int chunks) {
+		filter(route, contentType,
+				Flux.range(0, chunks).delayUntil(i -> Mono.delay(chunkDelay)));
+	}
+
+	private void filter(Route.AsyncBuilder route, MediaType contentType,
+			Flux<Integer> chunks) {
+		NettyWriteResponseFilter filter = new NettyWriteResponseFilter(
+				Collections.singletonList(MediaType.TEXT_EVENT_STREAM));
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("http://localhost"));
+		ServerHttpResponse response = new ServerHttpResponseDecorator(
+				exchange.getResponse()) {
+			@Override
+			public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+				return Flux.from(body).doOnNext(buffer -> {
+					writtenBytes += buffer.readableByteCount();
+					DataBufferUtils.release(buffer);
+				}).then();
+			}
+
+			@Override
+			public Mono<Void> writeAndFlushWith(
+					Publisher<? extends Publisher<? extends DataBuffer>> body) {
+				return Flux.from(body)
+						.concatMap(chunks -> Flux.from(chunks)
+								.doOnNext(DataBufferUtils::release).count()
+								.delayElement(flushDelay), 1)
+						.doOnNext(count -> flushes.add(count.intValue())).then();
+			}
+		};
+		response.getHeaders().setContentType(contentType);
+
+		Connection connection = mock(Connection.class);
+		NettyInbound inbound = mock(NettyInbound.class);
+		when(connection.inbound()).thenReturn(inbound);
+		when(connection.channel()).thenReturn(new EmbeddedChannel());
+		when(inbound.receive()).thenReturn(ByteBufFlux
+				.fromInbound(chunks.map(i -> Unpooled.wrappedBuffer(new byte[10]))));
+
+		ServerWebExchange mutated = exchange.mutate().response(response).build();
+		mutated.getAttributes().put(GATEWAY_ROUTE_ATTR, route.build());
+		mutated.getAttributes().put(CLIENT_RESPONSE_CONN_ATTR, connection);
+
+		filter.filter(mutated, e -> Mono.empty()).block(Duration.ofSeconds(5));
+	}
+
+	private Route.AsyncBuilder route() {
+		return Route.async().id("test").uri("http://localhost")
+				.predicate(exchange -> true);
+	}
+
 	private void doTestWrap(MockServerHttpResponse response) {
 		NettyWriteResponseFilter filter = new NettyWriteResponseFilter(new ArrayList<>());
 
@@ -33,8 +33,13 @@ import org.springframework.web.server.WebFilterChain;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.WEIGHT_ATTR;
 
 public class WeightCalculatorWebFilterTests {
 
@@ -78,14 +83,15 @@ public class WeightCalculatorWebFilterTests {
 					normalized.get(i));
 		}
 
+		assertThat(config.ranges).hasSize(item + 1).startsWith(0.0).endsWith(1.0);
+		assertThat(config.routeIds).hasSize(item);
+
 		for (int i = 0; i < normalized.size(); i++) {
-			assertThat(config.rangeIndexes).containsEntry(i, route(i + 1));
+			assertThat(config.routeIds[i]).isEqualTo(route(i + 1));
 		}
 
-		assertThat(config.ranges).hasSize(item + 1).startsWith(0.0).endsWith(1.0);
-
-		if (middleRanges.length > 0) {
-			assertThat(config.ranges).contains(middleRanges);
+		for (Double middleRange : middleRanges) {
+			assertThat(config.ranges).contains(middleRange);
 		}
 	}
 
@@ -124,6 +130,54 @@ public class WeightCalculatorWebFilterTests {
 		assertThat(weights).containsEntry("groupa", "route3");
 	}
 
+	@Test
+	public void groupsAreResolvedOnFirstAccess() {
+		WeightCalculatorWebFilter filter = new WeightCalculatorWebFilter();
+		filter.addWeightConfig(new WeightConfig("groupa", "route1", 1));
+		filter.addWeightConfig(new WeightConfig("groupa", "route2", 1));
+		filter.addWeightConfig(new WeightConfig("groupb", "route3", 1));
+
+		Random random = mock(Random.class);
+		when(random.nextDouble()).thenReturn(0.7);
+		filter.setRandom(random);
+
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("http://localhost").build());
+		filter.filter(exchange, mock(WebFilterChain.class));
+		Map<String, String> weights = WeightCalculatorWebFilter.getWeights(exchange);
+
+		verifyNoInteractions(random);
+		assertThat(weights.containsKey("groupa")).isTrue();
+		assertThat(weights.containsKey("groupc")).isFalse();
+		assertThat(weights.get("groupa")).isEqualTo("route2");
+		assertThat(weights.get("groupa")).isEqualTo("route2");
+		verify(random, times(1)).nextDouble();
+		assertThat(weights).containsOnly(entry("groupa", "route2"),
+				entry("groupb", "route3"));
+	}
+
+	@Test
+	public void noWeightsWithoutGroups() {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("http://localhost").build());
+		new WeightCalculatorWebFilter().filter(exchange, mock(WebFilterChain.class));
+
+		assertThat(exchange.getAttributes()).doesNotContainKey(WEIGHT_ATTR);
+	}
+
+	@Test
+	public void indexOfRange() {
+		double[] ranges = { 0.0, 0.25, 0.25, 0.999999 };
+
+		assertThat(WeightCalculatorWebFilter.indexOf(ranges, 0.0)).isEqualTo(0);
+		assertThat(WeightCalculatorWebFilter.indexOf(ranges, 0.2)).isEqualTo(0);
+		assertThat(WeightCalculatorWebFilter.indexOf(ranges, 0.25)).isEqualTo(2);
+		assertThat(WeightCalculatorWebFilter.indexOf(ranges, 0.5)).isEqualTo(2);
+		assertThat(WeightCalculatorWebFilter.indexOf(ranges, 0.9999999)).isEqualTo(2);
+		assertThat(WeightCalculatorWebFilter.indexOf(new double[] { 0.0, 1.0 }, 0.5))
+				.isEqualTo(0);
+	}
+
 	@Test
 	public void receivesPredicateArgsEvent() {
 		TestWeightCalculatorWebFilter filter = new TestWeightCalculatorWebFilter();
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import reactor.netty.http.client.HttpClient;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.gateway.filter.factory.rewrite.GzipMessageBodyResolver;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.cloud.gateway.test.BaseWebClientTests;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@DirtiesContext
+public class CompressResponseGatewayFilterFactoryTests extends BaseWebClientTests {
+
+	@Before
+	@Override
+	public void setup() throws Exception {
+		// the default connector decompresses responses and removes Content-Encoding
+		setup(new ReactorClientHttpConnector(HttpClient.create()),
+				"http://localhost:" + port);
+	}
+
+	@Test
+	public void responseIsCompressed() {
+		byte[] body = testClient.get().uri("/headers")
+				.header("Host", "www.compressresponse.org")
+				.header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+				.header("X-Request-Value", "compressed").exchange().expectStatus().isOk()
+				.expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+				.expectHeader().doesNotExist(HttpHeaders.CONTENT_LENGTH)
+				.expectBody(byte[].class).returnResult().getResponseBody();
+
+		assertThat(new String(new GzipMessageBodyResolver().decode(body),
+				StandardCharsets.UTF_8)).contains("compressed");
+	}
+
+	@Test
+	public void responseIsNotCompressedIfNotAccepted() {
+		testClient.get().uri("/headers").header("Host", "www.compressresponse.org")
+				.header(HttpHeaders.ACCEPT_ENCODING, "identity").exchange().expectStatus()
+				.isOk().expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING)
+				.expectBody().jsonPath("$.headers").exists();
+	}
+
+	@EnableAutoConfiguration
+	@SpringBootConfiguration
+	@Import(DefaultTestConfig.class)
+	public static class TestConfig {
+
+		@Value("${test.uri}")
+		String uri;
+
+		@Bean
+		public RouteLocator testRouteLocator(RouteLocatorBuilder builder) {
+			return builder.routes().route("compress_response_java_test",
+					r -> r.path("/headers").and().host("**.compressresponse.org")
+							.filters(f -> f.prefixPath("/httpbin").compressResponse(
+									c -> c.setMinResponseSize(DataSize.ofBytes(0))))
+							.uri(uri))
+					.build();
+		}
+
+	}
+
+}
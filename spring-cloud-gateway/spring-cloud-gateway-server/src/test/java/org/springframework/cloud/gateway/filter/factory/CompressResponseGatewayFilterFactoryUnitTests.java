@@ -0,0 +1,212 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.CompressResponseGatewayFilterFactory.Config;
+import org.springframework.cloud.gateway.filter.factory.rewrite.DeflateMessageBodyResolver;
+import org.springframework.cloud.gateway.filter.factory.rewrite.GzipMessageBodyResolver;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.filter.factory.CompressResponseGatewayFilterFactory.negotiate;
+
+public class CompressResponseGatewayFilterFactoryUnitTests {
+
+	private static final String BODY = body();
+
+	private final CompressResponseGatewayFilterFactory factory = new CompressResponseGatewayFilterFactory(
+			new HashSet<>(Arrays.asList(new GzipMessageBodyResolver(),
+					new DeflateMessageBodyResolver())));
+
+	@Test
+	public void encodingWithHighestQualityIsNegotiated() {
+		List<String> encodings = Arrays.asList("gzip", "deflate");
+
+		assertThat(negotiate(singletonList("gzip, deflate, br"), encodings))
+				.isEqualTo("gzip");
+		assertThat(negotiate(singletonList("gzip;q=0.5, deflate"), encodings))
+				.isEqualTo("deflate");
+		assertThat(negotiate(Arrays.asList("br", "DEFLATE;q=0.1"), encodings))
+				.isEqualTo("deflate");
+		assertThat(negotiate(singletonList("*"), encodings)).isEqualTo("gzip");
+		assertThat(negotiate(singletonList("*;q=0.5, gzip;q=0"), encodings))
+				.isEqualTo("deflate");
+		assertThat(negotiate(singletonList("identity, br"), encodings)).isNull();
+		assertThat(negotiate(Collections.emptyList(), encodings)).isNull();
+	}
+
+	@Test
+	public void responseIsCompressed() {
+		MockServerWebExchange exchange = filter(config -> {
+		}, MockServerHttpRequest.get("/").header(HttpHeaders.ACCEPT_ENCODING, "gzip"),
+				headers -> {
+					headers.setContentType(MediaType.APPLICATION_JSON);
+					headers.setContentLength(BODY.length());
+					headers.setETag("\"1\"");
+				});
+
+		HttpHeaders headers = exchange.getResponse().getHeaders();
+		assertThat(headers.getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+		assertThat(headers.containsKey(HttpHeaders.CONTENT_LENGTH)).isFalse();
+		assertThat(headers.getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+		assertThat(headers.getETag()).isEqualTo("W/\"1\"");
+		byte[] body = body(exchange);
+		assertThat(body.length).isLessThan(BODY.length());
+		assertThat(new String(new GzipMessageBodyResolver().decode(body),
+				StandardCharsets.UTF_8)).isEqualTo(BODY);
+	}
+
+	@Test
+	public void responseIsNotCompressedIfNotAccepted() {
+		MockServerWebExchange exchange = filter(config -> {
+		}, MockServerHttpRequest.get("/").header(HttpHeaders.ACCEPT_ENCODING, "br"),
+				headers -> headers.setContentType(MediaType.APPLICATION_JSON));
+
+		assertUncompressed(exchange);
+		assertThat(exchange.getResponse().getHeaders().getVary())
+				.containsExactly(HttpHeaders.ACCEPT_ENCODING);
+	}
+
+	@Test
+	public void smallResponseIsNotCompressed() {
+		MockServerWebExchange exchange = filter(
+				config -> config.setMinResponseSize(DataSize.ofBytes(BODY.length() + 1)),
+				MockServerHttpRequest.get("/").header(HttpHeaders.ACCEPT_ENCODING,
+						"gzip"),
+				headers -> {
+					headers.setContentType(MediaType.APPLICATION_JSON);
+					headers.setContentLength(BODY.length());
+				});
+
+		assertUncompressed(exchange);
+	}
+
+	@Test
+	public void responseOfOtherMediaTypeIsNotCompressed() {
+		MockServerWebExchange exchange = filter(config -> {
+		}, MockServerHttpRequest.get("/").header(HttpHeaders.ACCEPT_ENCODING, "gzip"),
+				headers -> headers.setContentType(MediaType.IMAGE_PNG));
+
+		assertUncompressed(exchange);
+		assertThat(exchange.getResponse().getHeaders().getVary()).isEmpty();
+	}
+
+	@Test
+	public void encodedResponseIsNotCompressedAgain() {
+		MockServerWebExchange exchange = filter(config -> {
+		}, MockServerHttpRequest.get("/").header(HttpHeaders.ACCEPT_ENCODING, "gzip"),
+				headers -> {
+					headers.setContentType(MediaType.APPLICATION_JSON);
+					headers.set(HttpHeaders.CONTENT_ENCODING, "br");
+				});
+
+		assertThat(new String(body(exchange), StandardCharsets.UTF_8)).isEqualTo(BODY);
+		assertThat(exchange.getResponse().getHeaders()
+				.getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("br");
+	}
+
+	@Test
+	public void responseWithNoTransformIsNotCompressed() {
+		MockServerWebExchange exchange = filter(config -> {
+		}, MockServerHttpRequest.get("/").header(HttpHeaders.ACCEPT_ENCODING, "gzip"),
+				headers -> {
+					headers.setContentType(MediaType.APPLICATION_JSON);
+					headers.setCacheControl("public, no-transform");
+				});
+
+		assertUncompressed(exchange);
+	}
+
+	@Test
+	public void partialResponseIsNotCompressed() {
+		MockServerWebExchange exchange = filter(config -> {
+		}, MockServerHttpRequest.get("/").header(HttpHeaders.ACCEPT_ENCODING, "gzip"),
+				headers -> {
+					headers.setContentType(MediaType.APPLICATION_JSON);
+					headers.set(HttpHeaders.CONTENT_RANGE, "bytes 0-9/100");
+				});
+
+		assertUncompressed(exchange);
+	}
+
+	@Test
+	public void toStringFormat() {
+		GatewayFilter filter = factory
+				.apply(new Config().setMinResponseSize(DataSize.ofBytes(100)));
+
+		assertThat(filter.toString()).contains("minResponseSize").contains("100B")
+				.contains("gzip").contains("deflate");
+	}
+
+	private MockServerWebExchange filter(Consumer<Config> configConsumer,
+			MockServerHttpRequest.BaseBuilder<?> request,
+			Consumer<HttpHeaders> upstreamHeaders) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(request);
+		factory.apply(configConsumer).filter(exchange, upstream -> {
+			upstream.getResponse().setStatusCode(HttpStatus.OK);
+			upstreamHeaders.accept(upstream.getResponse().getHeaders());
+			return upstream.getResponse()
+					.writeWith(Flux.just(new DefaultDataBufferFactory()
+							.wrap(BODY.getBytes(StandardCharsets.UTF_8))));
+		}).block(Duration.ofSeconds(5));
+		return exchange;
+	}
+
+	private void assertUncompressed(MockServerWebExchange exchange) {
+		assertThat(exchange.getResponse().getHeaders()
+				.containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+		assertThat(new String(body(exchange), StandardCharsets.UTF_8)).isEqualTo(BODY);
+	}
+
+	private static byte[] body(MockServerWebExchange exchange) {
+		return DataBufferUtils.join(exchange.getResponse().getBody()).map(buffer -> {
+			byte[] bytes = new byte[buffer.readableByteCount()];
+			buffer.read(bytes);
+			DataBufferUtils.release(buffer);
+			return bytes;
+		}).block();
+	}
+
+	private static String body() {
+		StringBuilder body = new StringBuilder("[");
+		for (int i = 0; i < 200; i++) {
+			body.append((i > 0) ? "," : "").append("{\"id\":").append(i).append('}');
+		}
+		return body.append(']').toString();
+	}
+
+}
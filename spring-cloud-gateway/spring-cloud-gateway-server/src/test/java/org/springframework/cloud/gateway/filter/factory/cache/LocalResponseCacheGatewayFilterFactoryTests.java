@@ -0,0 +1,119 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory.cache;
+
+import java.time.Duration;
+import java.util.Map;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.cloud.gateway.test.BaseWebClientTests;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.cloud.gateway.test.TestUtils.getMap;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@DirtiesContext
+public class LocalResponseCacheGatewayFilterFactoryTests extends BaseWebClientTests {
+
+	private static final String ROUTE_ID = "local_response_cache_java_test";
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	public void cachedResponseIsReturnedWithoutCallingUpstream() {
+		assertThat(getRequestValue("first", null)).isEqualTo("first");
+		assertThat(getRequestValue("second", null)).isEqualTo("first");
+		assertThat(getRequestValue("third", "no-cache")).isEqualTo("third");
+		assertThat(getRequestValue("fourth", null)).isEqualTo("third");
+
+		assertThat(meterRegistry.get("gateway.responsecache.hits")
+				.tag("routeId", ROUTE_ID).functionCounter().count()).isEqualTo(2);
+		assertThat(meterRegistry.get("gateway.responsecache.misses")
+				.tag("routeId", ROUTE_ID).functionCounter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("gateway.responsecache.size")
+				.tag("routeId", ROUTE_ID).gauge().value()).isGreaterThan(0);
+	}
+
+	@Test
+	public void toStringFormat() {
+		LocalResponseCacheGatewayFilterFactory.Config config = new LocalResponseCacheGatewayFilterFactory.Config()
+				.setTimeToLive(Duration.ofSeconds(30)).setSize(DataSize.ofKilobytes(1));
+		GatewayFilter filter = new LocalResponseCacheGatewayFilterFactory().apply(config);
+		assertThat(filter.toString()).contains("timeToLive").contains("PT30S")
+				.contains("1024B");
+	}
+
+	private String getRequestValue(String value, String cacheControl) {
+		Map<String, Object> response = testClient.get().uri("/headers")
+				.header("Host", "www.localresponsecache.org")
+				.header("X-Request-Value", value).headers(headers -> {
+					if (cacheControl != null) {
+						headers.setCacheControl(cacheControl);
+					}
+				}).exchange().expectStatus().isOk().expectHeader()
+				.exists(HttpHeaders.CONTENT_LENGTH).expectBody(Map.class).returnResult()
+				.getResponseBody();
+		return (String) getMap(response, "headers").get("X-Request-Value");
+	}
+
+	@EnableAutoConfiguration
+	@SpringBootConfiguration
+	@Import(DefaultTestConfig.class)
+	public static class TestConfig {
+
+		@Value("${test.uri}")
+		String uri;
+
+		@Bean
+		public RouteLocator testRouteLocator(RouteLocatorBuilder builder) {
+			return builder.routes().route(ROUTE_ID,
+					r -> r.path("/headers").and().host("**.localresponsecache.org")
+							// the filters after the cache change the upstream response,
+							// which Spring Security marks as not cacheable
+							.filters(f -> f.prefixPath("/httpbin")
+									.localResponseCache(Duration.ofMinutes(1),
+											DataSize.ofKilobytes(64))
+									.removeResponseHeader(HttpHeaders.CACHE_CONTROL)
+									.removeResponseHeader(HttpHeaders.PRAGMA)
+									.removeResponseHeader(HttpHeaders.EXPIRES))
+							.uri(uri))
+					.build();
+		}
+
+	}
+
+}
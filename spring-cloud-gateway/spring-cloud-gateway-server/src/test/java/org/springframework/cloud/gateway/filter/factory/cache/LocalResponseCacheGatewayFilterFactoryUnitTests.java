@@ -0,0 +1,197 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LocalResponseCacheGatewayFilterFactoryUnitTests {
+
+	private LocalResponseCacheGatewayFilterFactory factory;
+
+	private GatewayFilter filter;
+
+	private HttpHeaders upstreamHeaders;
+
+	private int upstreamRequests;
+
+	@Before
+	public void setUp() {
+		factory = new LocalResponseCacheGatewayFilterFactory();
+		filter = factory.apply("route", config -> config
+				.setTimeToLive(Duration.ofMinutes(1)).setSize(DataSize.ofKilobytes(1)));
+		upstreamHeaders = new HttpHeaders();
+	}
+
+	@Test
+	public void responseIsCached() {
+		assertThat(get(MockServerHttpRequest.get("/a"))).isEqualTo("response 1");
+		MockServerWebExchange exchange = filter(MockServerHttpRequest.get("/a"));
+
+		assertThat(exchange.getResponse().getBodyAsString().block())
+				.isEqualTo("response 1");
+		assertThat(exchange.getResponse().getHeaders().getContentLength()).isEqualTo(10);
+		assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.AGE))
+				.isEqualTo("0");
+		assertThat(upstreamRequests).isOne();
+		assertThat(factory.getCache("route").getHits()).isOne();
+	}
+
+	@Test
+	public void responsesToOtherRequestsAreNotCached() {
+		assertThat(get(MockServerHttpRequest.post("/a"))).isEqualTo("response 1");
+		assertThat(get(MockServerHttpRequest.post("/a"))).isEqualTo("response 2");
+		assertThat(get(MockServerHttpRequest.get("/a"))).isEqualTo("response 3");
+		assertThat(get(MockServerHttpRequest.get("/b"))).isEqualTo("response 4");
+	}
+
+	@Test
+	public void responseIsNotCachedIfNotAllowed() {
+		upstreamHeaders.setCacheControl("no-store");
+		assertThat(get(MockServerHttpRequest.get("/a"))).isEqualTo("response 1");
+		upstreamHeaders.setCacheControl("private, max-age=60");
+		assertThat(get(MockServerHttpRequest.get("/a"))).isEqualTo("response 2");
+		upstreamHeaders.setCacheControl("max-age=0");
+		assertThat(get(MockServerHttpRequest.get("/a"))).isEqualTo("response 3");
+		upstreamHeaders.setCacheControl((String) null);
+		upstreamHeaders.set(HttpHeaders.EXPIRES, "0");
+		assertThat(get(MockServerHttpRequest.get("/a"))).isEqualTo("response 4");
+		upstreamHeaders.remove(HttpHeaders.EXPIRES);
+		upstreamHeaders.set(HttpHeaders.SET_COOKIE, "session=1");
+		assertThat(get(MockServerHttpRequest.get("/a"))).isEqualTo("response 5");
+		upstreamHeaders.remove(HttpHeaders.SET_COOKIE);
+		upstreamHeaders.setVary(Collections.singletonList("*"));
+		assertThat(get(MockServerHttpRequest.get("/a"))).isEqualTo("response 6");
+	}
+
+	@Test
+	public void clientCanBypassCache() {
+		assertThat(get(MockServerHttpRequest.get("/a"))).isEqualTo("response 1");
+		assertThat(get(MockServerHttpRequest.get("/a").header(HttpHeaders.CACHE_CONTROL,
+				"no-cache"))).isEqualTo("response 2");
+		assertThat(get(MockServerHttpRequest.get("/a"))).isEqualTo("response 2");
+		assertThat(get(MockServerHttpRequest.get("/a").header(HttpHeaders.CACHE_CONTROL,
+				"no-store"))).isEqualTo("response 3");
+		assertThat(get(MockServerHttpRequest.get("/a"))).isEqualTo("response 2");
+	}
+
+	@Test
+	public void responsesToAuthorizedRequestsAreOnlyCachedIfPublic() {
+		assertThat(get(MockServerHttpRequest.get("/a").header(HttpHeaders.AUTHORIZATION,
+				"Bearer a"))).isEqualTo("response 1");
+		assertThat(get(MockServerHttpRequest.get("/a").header(HttpHeaders.AUTHORIZATION,
+				"Bearer a"))).isEqualTo("response 2");
+		upstreamHeaders.setCacheControl("public");
+		assertThat(get(MockServerHttpRequest.get("/a").header(HttpHeaders.AUTHORIZATION,
+				"Bearer a"))).isEqualTo("response 3");
+		assertThat(get(MockServerHttpRequest.get("/a").header(HttpHeaders.AUTHORIZATION,
+				"Bearer a"))).isEqualTo("response 3");
+	}
+
+	@Test
+	public void responseVaryingByRequestHeaderIsCachedForSameHeader() {
+		upstreamHeaders.setVary(Collections.singletonList(HttpHeaders.ACCEPT_LANGUAGE));
+		assertThat(get(MockServerHttpRequest.get("/a").header(HttpHeaders.ACCEPT_LANGUAGE,
+				"en"))).isEqualTo("response 1");
+		assertThat(get(MockServerHttpRequest.get("/a").header(HttpHeaders.ACCEPT_LANGUAGE,
+				"en"))).isEqualTo("response 1");
+		assertThat(get(MockServerHttpRequest.get("/a").header(HttpHeaders.ACCEPT_LANGUAGE,
+				"de"))).isEqualTo("response 2");
+	}
+
+	@Test
+	public void bodyLargerThanCacheIsNotCached() {
+		filter = factory.apply("small", config -> config.setSize(DataSize.ofBytes(5)));
+
+		assertThat(get(MockServerHttpRequest.get("/a"))).isEqualTo("response 1");
+		assertThat(get(MockServerHttpRequest.get("/a"))).isEqualTo("response 2");
+		assertThat(factory.getCache("small").getCount()).isZero();
+	}
+
+	@Test
+	public void cacheIsReplacedWhenRouteIsChanged() {
+		ResponseCache cache = factory.getCache("route");
+		get(MockServerHttpRequest.get("/a"));
+		assertThat(upstreamRequests).isOne();
+
+		filter = factory.apply("route", config -> config
+				.setTimeToLive(Duration.ofMinutes(1)).setSize(DataSize.ofKilobytes(1)));
+
+		assertThat(factory.getCache("route")).isNotSameAs(cache);
+		assertThat(cache.getCount()).isZero();
+		assertThat(get(MockServerHttpRequest.get("/a"))).isEqualTo("response 2");
+		assertThat(factory.getCache("route").getMisses()).isEqualTo(2);
+	}
+
+	@Test
+	public void cacheIsDisposedWhenRouteIsRemoved() {
+		ResponseCache cache = factory.getCache("route");
+		get(MockServerHttpRequest.get("/a"));
+
+		factory.onApplicationEvent(
+				new RefreshRoutesResultEvent(this, Collections.emptySet(),
+						Collections.emptySet(), Collections.singleton("route")));
+		assertThat(factory.getCache("route")).isNull();
+		assertThat(cache.getCount()).isZero();
+	}
+
+	@Test
+	public void listenerIsCalledForRouteCaches() {
+		StringBuilder routeIds = new StringBuilder();
+		Consumer<String> listener = routeIds::append;
+
+		factory.onRouteCache(listener);
+		factory.apply("other", config -> {
+		});
+
+		assertThat(routeIds.toString()).isEqualTo("routeother");
+	}
+
+	private String get(MockServerHttpRequest.BaseBuilder<?> request) {
+		return filter(request).getResponse().getBodyAsString().block();
+	}
+
+	private MockServerWebExchange filter(MockServerHttpRequest.BaseBuilder<?> request) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(request);
+		filter.filter(exchange, upstream -> {
+			upstreamRequests++;
+			upstream.getResponse().getHeaders().putAll(upstreamHeaders);
+			byte[] body = ("response " + upstreamRequests)
+					.getBytes(StandardCharsets.UTF_8);
+			return upstream.getResponse()
+					.writeWith(Flux.just(new DefaultDataBufferFactory().wrap(body)));
+		}).block(Duration.ofSeconds(5));
+		return exchange;
+	}
+
+}
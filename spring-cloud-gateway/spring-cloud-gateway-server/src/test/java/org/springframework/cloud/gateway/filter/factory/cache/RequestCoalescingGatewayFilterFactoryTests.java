@@ -0,0 +1,263 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.cache.RequestCoalescingGatewayFilterFactory.Config;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestCoalescingGatewayFilterFactoryTests {
+
+	private final AtomicInteger upstreamRequests = new AtomicInteger();
+
+	private final List<MockServerWebExchange> exchanges = new ArrayList<>();
+
+	private final List<MonoProcessor<Void>> results = new ArrayList<>();
+
+	private MonoProcessor<Void> upstreamResponse;
+
+	private HttpHeaders upstreamHeaders;
+
+	private String upstreamBody;
+
+	@Before
+	public void setUp() {
+		upstreamResponse = MonoProcessor.create();
+		upstreamHeaders = new HttpHeaders();
+		upstreamBody = "response";
+	}
+
+	@Test
+	public void concurrentRequestsShareOneUpstreamRequest() {
+		GatewayFilter filter = filter(config -> {
+		});
+
+		for (int i = 0; i < 3; i++) {
+			send(filter, MockServerHttpRequest.get("/a"));
+		}
+		upstreamResponse.onComplete();
+
+		assertThat(upstreamRequests).hasValue(1);
+		assertThat(exchanges).allSatisfy(exchange -> {
+			assertThat(exchange.getResponse().getStatusCode())
+					.isEqualTo(HttpStatus.ACCEPTED);
+			assertThat(exchange.getResponse().getHeaders().getFirst("X-Upstream"))
+					.isEqualTo("1");
+			assertThat(exchange.getResponse().getBodyAsString().block())
+					.isEqualTo("response");
+		});
+	}
+
+	@Test
+	public void requestsAfterResponseStartNewUpstreamRequest() {
+		GatewayFilter filter = filter(config -> {
+		});
+		upstreamResponse.onComplete();
+
+		send(filter, MockServerHttpRequest.get("/a"));
+		send(filter, MockServerHttpRequest.get("/a"));
+
+		assertThat(upstreamRequests).hasValue(2);
+	}
+
+	@Test
+	public void differentRequestsAreNotCoalesced() {
+		GatewayFilter filter = filter(config -> {
+		});
+
+		send(filter, MockServerHttpRequest.get("/a"));
+		send(filter, MockServerHttpRequest.get("/b"));
+		send(filter, MockServerHttpRequest.get("/a").header(HttpHeaders.ACCEPT,
+				"application/json"));
+		send(filter, MockServerHttpRequest.post("/a"));
+		send(filter, MockServerHttpRequest.get("/a").header(HttpHeaders.AUTHORIZATION,
+				"Bearer a"));
+		upstreamResponse.onComplete();
+
+		assertThat(upstreamRequests).hasValue(5);
+	}
+
+	@Test
+	public void authorizedRequestsAreCoalescedIfAuthorizationIsPartOfKey() {
+		GatewayFilter filter = filter(config -> config.getHeaders()
+				.add(HttpHeaders.AUTHORIZATION.toLowerCase()));
+
+		send(filter, MockServerHttpRequest.get("/a").header(HttpHeaders.AUTHORIZATION,
+				"Bearer a"));
+		send(filter, MockServerHttpRequest.get("/a").header(HttpHeaders.AUTHORIZATION,
+				"Bearer a"));
+		send(filter, MockServerHttpRequest.get("/a").header(HttpHeaders.AUTHORIZATION,
+				"Bearer b"));
+		upstreamResponse.onComplete();
+
+		assertThat(upstreamRequests).hasValue(2);
+	}
+
+	@Test
+	public void requestsAboveMaxWaitersAreSentIndependently() {
+		GatewayFilter filter = filter(config -> config.setMaxWaiters(1));
+
+		for (int i = 0; i < 3; i++) {
+			send(filter, MockServerHttpRequest.get("/a"));
+		}
+		upstreamResponse.onComplete();
+
+		assertThat(upstreamRequests).hasValue(2);
+		assertThat(exchanges).allSatisfy(
+				exchange -> assertThat(exchange.getResponse().getBodyAsString().block())
+						.isEqualTo("response"));
+	}
+
+	@Test
+	public void waitersSendOwnRequestsIfResponseIsTooLarge() {
+		GatewayFilter filter = filter(config -> config.setMaxSize(DataSize.ofBytes(5)));
+
+		for (int i = 0; i < 3; i++) {
+			send(filter, MockServerHttpRequest.get("/a"));
+		}
+		upstreamResponse.onComplete();
+
+		assertThat(upstreamRequests).hasValue(3);
+		assertThat(exchanges).allSatisfy(
+				exchange -> assertThat(exchange.getResponse().getBodyAsString().block())
+						.isEqualTo("response"));
+	}
+
+	@Test
+	public void waitersSendOwnRequestsIfResponseSetsCookie() {
+		GatewayFilter filter = filter(config -> {
+		});
+		upstreamHeaders.set(HttpHeaders.SET_COOKIE, "session=1");
+
+		send(filter, MockServerHttpRequest.get("/a"));
+		send(filter, MockServerHttpRequest.get("/a"));
+		upstreamResponse.onComplete();
+
+		assertThat(upstreamRequests).hasValue(2);
+	}
+
+	@Test
+	public void waitersCoalesceAgainIfUpstreamRequestFails() {
+		GatewayFilter filter = filter(config -> {
+		});
+
+		for (int i = 0; i < 3; i++) {
+			send(filter, MockServerHttpRequest.get("/a"));
+		}
+		MonoProcessor<Void> failedResponse = upstreamResponse;
+		upstreamResponse = MonoProcessor.create();
+		failedResponse.onError(new IllegalStateException("upstream failed"));
+		upstreamResponse.onComplete();
+
+		assertThat(upstreamRequests).hasValue(2);
+		assertThat(results.get(0).isError()).isTrue();
+		assertThat(exchanges.subList(1, 3)).allSatisfy(
+				exchange -> assertThat(exchange.getResponse().getBodyAsString().block())
+						.isEqualTo("response"));
+	}
+
+	@Test
+	public void waitersCoalesceAgainIfUpstreamRequestIsCancelled() {
+		GatewayFilter filter = filter(config -> {
+		});
+
+		for (int i = 0; i < 3; i++) {
+			send(filter, MockServerHttpRequest.get("/a"));
+		}
+		results.get(0).dispose();
+		upstreamResponse.onComplete();
+
+		assertThat(upstreamRequests).hasValue(2);
+		assertThat(exchanges.subList(1, 3)).allSatisfy(
+				exchange -> assertThat(exchange.getResponse().getBodyAsString().block())
+						.isEqualTo("response"));
+	}
+
+	@Test
+	public void waitersCoalesceAgainOnlyOnceIfUpstreamRequestTimesOut() {
+		GatewayFilter filter = filter(config -> {
+		});
+
+		for (int i = 0; i < 4; i++) {
+			send(filter, MockServerHttpRequest.get("/a"));
+		}
+		timeOutUpstreamResponse();
+		timeOutUpstreamResponse();
+		upstreamResponse.onComplete();
+
+		assertThat(upstreamRequests).hasValue(4);
+		assertThat(results.get(0).isError()).isTrue();
+		assertThat(results.get(1).isError()).isTrue();
+		assertThat(exchanges.subList(2, 4)).allSatisfy(exchange -> {
+			assertThat(exchange.getResponse().getHeaders().getFirst("X-Upstream"))
+					.isIn("3", "4");
+			assertThat(exchange.getResponse().getBodyAsString().block())
+					.isEqualTo("response");
+		});
+	}
+
+	private void timeOutUpstreamResponse() {
+		MonoProcessor<Void> timedOutResponse = upstreamResponse;
+		upstreamResponse = MonoProcessor.create();
+		timedOutResponse.onError(
+				new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "timeout"));
+	}
+
+	private GatewayFilter filter(Consumer<Config> configConsumer) {
+		return new RequestCoalescingGatewayFilterFactory().apply(configConsumer);
+	}
+
+	private void send(GatewayFilter filter,
+			MockServerHttpRequest.BaseBuilder<?> request) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(request);
+		exchanges.add(exchange);
+		MonoProcessor<Void> result = filter.filter(exchange, upstream -> {
+			int count = upstreamRequests.incrementAndGet();
+			return upstreamResponse.then(Mono.defer(() -> {
+				upstream.getResponse().setStatusCode(HttpStatus.ACCEPTED);
+				upstream.getResponse().getHeaders().putAll(upstreamHeaders);
+				upstream.getResponse().getHeaders().set("X-Upstream",
+						String.valueOf(count));
+				byte[] body = upstreamBody.getBytes(StandardCharsets.UTF_8);
+				return upstream.getResponse()
+						.writeWith(Flux.just(new DefaultDataBufferFactory().wrap(body)));
+			}));
+		}).toProcessor();
+		results.add(result);
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory.cache;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import io.netty.buffer.ByteBuf;
+import org.junit.Test;
+
+import org.springframework.http.HttpHeaders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResponseCacheTests {
+
+	private static final long NOW = 1000;
+
+	@Test
+	public void leastRecentlyUsedResponseIsEvicted() {
+		ResponseCache cache = new ResponseCache(30, false);
+		CachedResponse a = put(cache, "a", 10);
+		CachedResponse b = put(cache, "b", 10);
+		put(cache, "c", 10);
+		release(cache.get("a", new HttpHeaders(), NOW));
+
+		put(cache, "d", 10);
+
+		assertThat(b.getBody().refCnt()).isZero();
+		assertThat(a.getBody().refCnt()).isOne();
+		assertThat(cache.get("b", new HttpHeaders(), NOW)).isNull();
+		assertThat(cache.getEvictions()).isOne();
+		assertThat(cache.getCount()).isEqualTo(3);
+		assertThat(cache.getSize()).isEqualTo(30);
+	}
+
+	@Test
+	public void hitRetainsBody() {
+		ResponseCache cache = new ResponseCache(30, false);
+		CachedResponse response = put(cache, "a", 10);
+
+		CachedResponse hit = cache.get("a", new HttpHeaders(), NOW);
+
+		assertThat(hit).isSameAs(response);
+		assertThat(response.getBody().refCnt()).isEqualTo(2);
+		assertThat(cache.getHits()).isOne();
+		assertThat(cache.getMisses()).isZero();
+		release(hit);
+	}
+
+	@Test
+	public void expiredResponseIsRemoved() {
+		ResponseCache cache = new ResponseCache(30, false);
+		CachedResponse response = put(cache, "a", 10);
+
+		assertThat(cache.get("a", new HttpHeaders(), NOW + 1000)).isNull();
+		assertThat(response.getBody().refCnt()).isZero();
+		assertThat(cache.getSize()).isZero();
+		assertThat(cache.getMisses()).isOne();
+	}
+
+	@Test
+	public void responseIsOnlyReturnedForSameVaryingHeaders() {
+		ResponseCache cache = new ResponseCache(30, false);
+		HttpHeaders english = new HttpHeaders();
+		english.set(HttpHeaders.ACCEPT_LANGUAGE, "en");
+		HttpHeaders german = new HttpHeaders();
+		german.set(HttpHeaders.ACCEPT_LANGUAGE, "de");
+		cache.put("a",
+				response(cache, 10, Collections.singletonMap(HttpHeaders.ACCEPT_LANGUAGE,
+						english.get(HttpHeaders.ACCEPT_LANGUAGE))));
+
+		assertThat(cache.get("a", german, NOW)).isNull();
+		assertThat(cache.get("a", new HttpHeaders(), NOW)).isNull();
+		release(cache.get("a", english, NOW));
+		assertThat(cache.getHits()).isOne();
+		assertThat(cache.getMisses()).isEqualTo(2);
+	}
+
+	@Test
+	public void responseLargerThanCacheIsNotCached() {
+		ResponseCache cache = new ResponseCache(30, false);
+		CachedResponse response = put(cache, "a", 40);
+
+		assertThat(response.getBody().refCnt()).isZero();
+		assertThat(cache.getCount()).isZero();
+	}
+
+	@Test
+	public void disposedCacheReleasesResponses() {
+		ResponseCache cache = new ResponseCache(30, true);
+		CachedResponse cached = put(cache, "a", 10);
+
+		cache.dispose();
+		CachedResponse putAfterDispose = put(cache, "b", 10);
+
+		assertThat(cached.getBody().refCnt()).isZero();
+		assertThat(putAfterDispose.getBody().refCnt()).isZero();
+		assertThat(cache.getCount()).isZero();
+	}
+
+	@Test
+	public void offHeapCacheAllocatesDirectBuffers() {
+		ByteBuf offHeap = new ResponseCache(30, true).allocate(10);
+		ByteBuf heap = new ResponseCache(30, false).allocate(10);
+
+		assertThat(offHeap.isDirect()).isTrue();
+		assertThat(heap.isDirect()).isFalse();
+		offHeap.release();
+		heap.release();
+	}
+
+	@Test
+	public void replacingCacheContinuesCounts() {
+		ResponseCache cache = new ResponseCache(30, false);
+		put(cache, "a", 10);
+		release(cache.get("a", new HttpHeaders(), NOW));
+
+		ResponseCache replacement = new ResponseCache(60, false, cache);
+
+		assertThat(replacement.getHits()).isOne();
+		assertThat(replacement.getCount()).isZero();
+	}
+
+	private CachedResponse put(ResponseCache cache, String key, int size) {
+		CachedResponse response = response(cache, size, Collections.emptyMap());
+		cache.put(key, response);
+		return response;
+	}
+
+	private CachedResponse response(ResponseCache cache, int size,
+			Map<String, List<String>> varyValues) {
+		ByteBuf body = cache.allocate(size);
+		body.writeZero(size);
+		return new CachedResponse(200, new HttpHeaders(), body, varyValues, NOW,
+				NOW + 1000);
+	}
+
+	private void release(CachedResponse response) {
+		assertThat(response).isNotNull();
+		response.getBody().release();
+	}
+
+}
@@ -16,12 +16,27 @@
 
 package org.springframework.cloud.gateway.filter.factory.rewrite;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.rewrite.ModifyRequestBodyGatewayFilterFactory.Config;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.codec.HttpMessageReader;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CACHED_REQUEST_BODY_OBJECTS_ATTR;
 
 public class ModifyRequestBodyGatewayFilterFactoryUnitTests {
 
@@ -36,4 +51,35 @@ public class ModifyRequestBodyGatewayFilterFactoryUnitTests {
 				.contains("mycontenttype");
 	}
 
+	@Test
+	public void bodyDecodedByPredicateIsNotDecodedAgain() {
+		AtomicInteger reads = new AtomicInteger();
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.post("/post").body(Flux.defer(() -> {
+					reads.incrementAndGet();
+					return Flux.just(new DefaultDataBufferFactory()
+							.wrap("hello".getBytes(StandardCharsets.UTF_8)));
+				})));
+		List<HttpMessageReader<?>> messageReaders = HandlerStrategies.withDefaults()
+				.messageReaders();
+		ServerWebExchangeUtils.decodeRequestBody(exchange, exchange.getRequest(),
+				String.class, messageReaders).block();
+
+		GatewayFilter filter = new ModifyRequestBodyGatewayFilterFactory(messageReaders)
+				.apply(new Config().setRewriteFunction(String.class, String.class,
+						(serverWebExchange, body) -> Mono.just(body.toUpperCase())));
+		AtomicReference<String> forwarded = new AtomicReference<>();
+		filter.filter(exchange, modified -> {
+			assertThat(modified.getAttributes())
+					.doesNotContainKey(CACHED_REQUEST_BODY_OBJECTS_ATTR);
+			return DataBufferUtils.join(modified.getRequest().getBody())
+					.doOnNext(buffer -> forwarded
+							.set(buffer.toString(StandardCharsets.UTF_8)))
+					.then();
+		}).block();
+
+		assertThat(forwarded).hasValue("HELLO");
+		assertThat(reads).hasValue(1);
+	}
+
 }
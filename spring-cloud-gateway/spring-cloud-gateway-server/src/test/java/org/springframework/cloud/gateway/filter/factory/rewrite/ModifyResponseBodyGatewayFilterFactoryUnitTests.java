@@ -16,17 +16,42 @@
 
 package org.springframework.cloud.gateway.filter.factory.rewrite;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.UnicastProcessor;
 
 import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.rewrite.ModifyResponseBodyGatewayFilterFactory.BodyStreaming;
 import org.springframework.cloud.gateway.filter.factory.rewrite.ModifyResponseBodyGatewayFilterFactory.Config;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
 import org.springframework.http.codec.support.DefaultServerCodecConfigurer;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
 
 import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class ModifyResponseBodyGatewayFilterFactoryUnitTests {
 
+	private static final ServerCodecConfigurer CODEC_CONFIGURER = ServerCodecConfigurer
+			.create();
+
 	@Test
 	public void toStringFormat() {
 		Config config = new Config();
@@ -34,10 +59,161 @@ public class ModifyResponseBodyGatewayFilterFactoryUnitTests {
 		config.setOutClass(Integer.class);
 		config.setNewContentType("mycontenttype");
 		GatewayFilter filter = new ModifyResponseBodyGatewayFilterFactory(
-				new DefaultServerCodecConfigurer().getReaders(), emptySet(), emptySet())
+				CODEC_CONFIGURER.getReaders(), CODEC_CONFIGURER.getWriters(), emptySet(), emptySet())
 						.apply(config);
 		assertThat(filter.toString()).contains("String").contains("Integer")
 				.contains("mycontenttype");
 	}
 
+	@Test
+	public void ndjsonIsRewrittenLineByLine() {
+		GatewayFilter filter = filter(new Config().setStreamingRewriteFunction(
+				BodyStreaming.NDJSON, Map.class, Map.class,
+				(exchange, values) -> values.map(value -> {
+					value.put("seen", true);
+					return value;
+				})));
+
+		MockServerWebExchange exchange = filter(filter,
+				Flux.just("{\"id\":1}\n{\"i", "d\":2}\n"));
+
+		assertThat(exchange.getResponse().getBodyAsString().block())
+				.isEqualTo("{\"id\":1,\"seen\":true}\n{\"id\":2,\"seen\":true}\n");
+	}
+
+	@Test
+	public void ndjsonLinesCanBeRewrittenAsStrings() {
+		GatewayFilter filter = filter(new Config().setStreamingRewriteFunction(
+				BodyStreaming.NDJSON, String.class, String.class,
+				(exchange, lines) -> lines.filter(line -> line.contains("keep"))));
+
+		MockServerWebExchange exchange = filter(filter,
+				Flux.just("{\"keep\":1}\n{\"drop\"", ":2}\n{\"keep\":3}\n"));
+
+		assertThat(exchange.getResponse().getBodyAsString().block())
+				.isEqualTo("{\"keep\":1}\n{\"keep\":3}\n");
+	}
+
+	@Test
+	public void jsonArrayIsRewrittenElementByElement() {
+		GatewayFilter filter = filter(new Config().setStreamingRewriteFunction(
+				BodyStreaming.JSON_ARRAY, Map.class, Object.class,
+				(exchange, values) -> values
+						.filter(value -> ((Integer) value.get("id")) > 1)
+						.map(value -> value.get("id"))));
+
+		MockServerWebExchange exchange = filter(filter,
+				Flux.just("[{\"id\":1},{\"i", "d\":2},", "{\"id\":3}]"));
+
+		assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("[2,3]");
+	}
+
+	@Test
+	public void jsonIsWrittenWithTheConfiguredEncoder() {
+		ServerCodecConfigurer codecConfigurer = new DefaultServerCodecConfigurer();
+		codecConfigurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(
+				new ObjectMapper().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)));
+		GatewayFilter filter = new ModifyResponseBodyGatewayFilterFactory(
+				codecConfigurer.getReaders(), codecConfigurer.getWriters(), emptySet(),
+				emptySet()).apply(new Config().setStreamingRewriteFunction(
+						BodyStreaming.JSON_ARRAY, Map.class, Map.class,
+						(exchange, values) -> values.map(value -> {
+							Map<Object, Object> reversed = new LinkedHashMap<>();
+							reversed.put("b", value.get("b"));
+							reversed.put("a", value.get("a"));
+							return reversed;
+						})));
+
+		MockServerWebExchange exchange = filter(filter,
+				Flux.just("[{\"a\":1,\"b\":2}]"));
+
+		assertThat(exchange.getResponse().getBodyAsString().block())
+				.isEqualTo("[{\"a\":1,\"b\":2}]");
+	}
+
+	@Test
+	public void emptyJsonArrayIsWritten() {
+		GatewayFilter filter = filter(new Config().setStreamingRewriteFunction(
+				BodyStreaming.JSON_ARRAY, Map.class, Map.class,
+				(exchange, values) -> values));
+
+		MockServerWebExchange exchange = filter(filter, Flux.just("[]"));
+
+		assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("[]");
+	}
+
+	@Test
+	public void dataBuffersAreRewrittenAsTheyAreReceived() {
+		List<String> received = new ArrayList<>();
+		GatewayFilter filter = filter(new Config().setStreamingRewriteFunction(
+				BodyStreaming.DATA_BUFFER, DataBuffer.class, String.class,
+				(exchange, buffers) -> buffers.map(buffer -> {
+					String chunk = buffer.toString(StandardCharsets.UTF_8);
+					DataBufferUtils.release(buffer);
+					received.add(chunk);
+					return chunk.toUpperCase();
+				})).setNewContentType(MediaType.TEXT_PLAIN_VALUE));
+		UnicastProcessor<String> upstreamBody = UnicastProcessor.create();
+
+		MockServerWebExchange exchange = filter(filter, upstreamBody);
+		upstreamBody.onNext("first ");
+		assertThat(received).containsExactly("first ");
+		upstreamBody.onNext("second");
+		upstreamBody.onComplete();
+
+		assertThat(exchange.getResponse().getBodyAsString().block())
+				.isEqualTo("FIRST SECOND");
+		assertThat(exchange.getResponse().getHeaders().getContentType())
+				.isEqualTo(MediaType.TEXT_PLAIN);
+		assertThat(exchange.getResponse().getHeaders()
+				.containsKey(HttpHeaders.CONTENT_LENGTH)).isFalse();
+	}
+
+	@Test
+	public void compressedBodyIsDecodedAndEncodedAsItIsStreamed() {
+		GzipMessageBodyResolver gzip = new GzipMessageBodyResolver();
+		GatewayFilter filter = new ModifyResponseBodyGatewayFilterFactory(
+				CODEC_CONFIGURER.getReaders(), CODEC_CONFIGURER.getWriters(), singleton(gzip),
+				singleton(gzip)).apply(new Config().setStreamingRewriteFunction(
+						BodyStreaming.NDJSON, String.class, String.class,
+						(exchange, lines) -> lines.map(String::toUpperCase)));
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/"));
+
+		filter.filter(exchange, upstream -> {
+			upstream.getResponse().getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+			return upstream.getResponse().writeWith(Flux.just(new DefaultDataBufferFactory()
+					.wrap(gzip.encode(new DefaultDataBufferFactory().wrap(
+							"\"a\"\n\"b\"\n".getBytes(StandardCharsets.UTF_8))))));
+		}).block(Duration.ofSeconds(5));
+
+		assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))
+				.isEqualTo("gzip");
+		byte[] body = DataBufferUtils.join(exchange.getResponse().getBody())
+				.map(buffer -> {
+					byte[] bytes = new byte[buffer.readableByteCount()];
+					buffer.read(bytes);
+					return bytes;
+				}).block();
+		assertThat(new String(gzip.decode(body), StandardCharsets.UTF_8))
+				.isEqualTo("\"A\"\n\"B\"\n");
+	}
+
+	private GatewayFilter filter(Config config) {
+		return new ModifyResponseBodyGatewayFilterFactory(
+				CODEC_CONFIGURER.getReaders(), CODEC_CONFIGURER.getWriters(), emptySet(), emptySet())
+						.apply(config);
+	}
+
+	private MockServerWebExchange filter(GatewayFilter filter, Flux<String> body) {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/"));
+		filter.filter(exchange, upstream -> {
+			upstream.getResponse().getHeaders().setContentLength(100);
+			return upstream.getResponse().writeWith(body.map(chunk -> new DefaultDataBufferFactory()
+					.wrap(chunk.getBytes(StandardCharsets.UTF_8))));
+		}).subscribe();
+		return exchange;
+	}
+
 }
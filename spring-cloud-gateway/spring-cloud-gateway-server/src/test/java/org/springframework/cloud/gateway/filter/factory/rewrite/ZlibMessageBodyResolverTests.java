@@ -0,0 +1,207 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory.rewrite;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.util.FileCopyUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ZlibMessageBodyResolverTests {
+
+	private static final byte[] BODY = body();
+
+	private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+	@Test
+	public void gzipBodyIsDecoded() throws IOException {
+		GzipMessageBodyResolver resolver = new GzipMessageBodyResolver();
+
+		assertThat(resolver.decode(gzip(BODY))).isEqualTo(BODY);
+	}
+
+	@Test
+	public void gzipBodyIsEncoded() throws IOException {
+		GzipMessageBodyResolver resolver = new GzipMessageBodyResolver();
+
+		byte[] encoded = resolver.encode(bufferFactory.wrap(BODY));
+
+		assertThat(encoded.length).isLessThan(BODY.length);
+		assertThat(FileCopyUtils
+				.copyToByteArray(new GZIPInputStream(new ByteArrayInputStream(encoded))))
+						.isEqualTo(BODY);
+	}
+
+	@Test
+	public void deflateBodyIsDecoded() throws IOException {
+		DeflateMessageBodyResolver resolver = new DeflateMessageBodyResolver();
+
+		assertThat(resolver.decode(deflate(BODY, false))).isEqualTo(BODY);
+		assertThat(resolver.decode(deflate(BODY, true))).isEqualTo(BODY);
+	}
+
+	@Test
+	public void deflateBodyIsEncoded() throws IOException {
+		DeflateMessageBodyResolver resolver = new DeflateMessageBodyResolver();
+
+		byte[] encoded = resolver.encode(bufferFactory.wrap(BODY));
+
+		assertThat(FileCopyUtils.copyToByteArray(
+				new InflaterInputStream(new ByteArrayInputStream(encoded))))
+						.isEqualTo(BODY);
+	}
+
+	@Test
+	public void invalidBodyIsNotDecoded() {
+		GzipMessageBodyResolver resolver = new GzipMessageBodyResolver();
+		byte[] invalid = "not gzip".getBytes(StandardCharsets.UTF_8);
+
+		assertThatThrownBy(() -> resolver.decode(invalid))
+				.isInstanceOf(IllegalStateException.class).hasMessageContaining("gzip");
+		assertThatThrownBy(() -> join(
+				resolver.decode(Flux.just(bufferFactory.wrap(invalid)), bufferFactory)))
+						.isInstanceOf(IllegalStateException.class)
+						.hasMessageContaining("gzip");
+	}
+
+	@Test
+	public void chunkedBodyIsDecodedAsItIsReceived() throws IOException {
+		GzipMessageBodyResolver resolver = new GzipMessageBodyResolver();
+		NettyDataBufferFactory nettyBufferFactory = new NettyDataBufferFactory(
+				PooledByteBufAllocator.DEFAULT);
+		List<DataBuffer> chunks = chunks(gzip(BODY), nettyBufferFactory);
+
+		List<DataBuffer> decoded = resolver
+				.decode(Flux.fromIterable(chunks), nettyBufferFactory).collectList()
+				.block();
+
+		assertThat(decoded).hasSizeGreaterThan(1).allSatisfy(
+				buffer -> assertThat(buffer).isInstanceOf(NettyDataBuffer.class));
+		assertThat(join(Flux.fromIterable(decoded))).isEqualTo(BODY);
+		assertThat(chunks).allSatisfy(
+				chunk -> assertThat(((NettyDataBuffer) chunk).getNativeBuffer().refCnt())
+						.isZero());
+	}
+
+	@Test
+	public void chunkedBodyIsEncodedAsItIsWritten() throws IOException {
+		DeflateMessageBodyResolver resolver = new DeflateMessageBodyResolver();
+
+		List<DataBuffer> encoded = resolver
+				.encode(Flux.fromIterable(chunks(BODY, bufferFactory)), bufferFactory)
+				.collectList().block();
+
+		assertThat(encoded).hasSizeGreaterThan(1);
+		assertThat(FileCopyUtils.copyToByteArray(new InflaterInputStream(
+				new ByteArrayInputStream(join(Flux.fromIterable(encoded))))))
+						.isEqualTo(BODY);
+	}
+
+	@Test
+	public void defaultStreamingMethodsUseByteArrayMethods() {
+		MessageBodyDecoder decoder = new MessageBodyDecoder() {
+			@Override
+			public byte[] decode(byte[] encoded) {
+				return new String(encoded, StandardCharsets.UTF_8).toUpperCase()
+						.getBytes(StandardCharsets.UTF_8);
+			}
+
+			@Override
+			public String encodingType() {
+				return "upper";
+			}
+		};
+
+		byte[] decoded = join(decoder.decode(
+				Flux.fromIterable(
+						chunks("abcdef".getBytes(StandardCharsets.UTF_8), bufferFactory)),
+				bufferFactory));
+
+		assertThat(new String(decoded, StandardCharsets.UTF_8)).isEqualTo("ABCDEF");
+	}
+
+	private static byte[] body() {
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			body.append("{\"id\":").append(i).append(",\"name\":\"item ").append(i)
+					.append("\"}\n");
+		}
+		return body.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] gzip(byte[] bytes) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(bytes);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] deflate(byte[] bytes, boolean raw) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (DeflaterOutputStream deflate = new DeflaterOutputStream(out,
+				new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+			deflate.write(bytes);
+		}
+		return out.toByteArray();
+	}
+
+	private static List<DataBuffer> chunks(byte[] bytes,
+			DataBufferFactory bufferFactory) {
+		List<DataBuffer> chunks = new ArrayList<>();
+		for (int offset = 0; offset < bytes.length; offset += 4) {
+			byte[] chunk = Arrays.copyOfRange(bytes, offset,
+					Math.min(offset + 4, bytes.length));
+			DataBuffer buffer = bufferFactory.allocateBuffer(chunk.length);
+			buffer.write(chunk);
+			chunks.add(buffer);
+		}
+		return chunks;
+	}
+
+	private static byte[] join(Flux<DataBuffer> buffers) {
+		DataBuffer joined = DataBufferUtils.join(buffers).block();
+		byte[] bytes = new byte[joined.readableByteCount()];
+		joined.read(bytes);
+		DataBufferUtils.release(joined);
+		return bytes;
+	}
+
+}
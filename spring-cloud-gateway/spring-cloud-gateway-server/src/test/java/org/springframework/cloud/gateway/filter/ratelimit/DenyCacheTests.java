@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DenyCacheTests {
+
+	@Test
+	public void keysAreDeniedUntilTheGivenTime() {
+		DenyCache cache = new DenyCache(10);
+		long now = System.nanoTime();
+		cache.deny("route.key", now + 100, now);
+
+		assertThat(cache.isDenied("route.key", now)).isTrue();
+		assertThat(cache.isDenied("route.key", now + 99)).isTrue();
+		assertThat(cache.isDenied("route.other", now)).isFalse();
+		assertThat(cache.getHits()).isEqualTo(2);
+
+		assertThat(cache.isDenied("route.key", now + 100)).isFalse();
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	public void sizeIsBounded() {
+		DenyCache cache = new DenyCache(2);
+		long now = System.nanoTime();
+		cache.deny("a", now + 100, now);
+		cache.deny("b", now + 100, now);
+		cache.deny("c", now + 100, now);
+
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.isDenied("c", now)).isFalse();
+	}
+
+	@Test
+	public void expiredKeysAreSweptWhenFull() {
+		DenyCache cache = new DenyCache(2);
+		long now = System.nanoTime();
+		cache.deny("a", now + 100, now);
+		cache.deny("b", now + 100, now);
+
+		long later = now + TimeUnit.SECONDS.toNanos(1);
+		cache.deny("c", later + 100, later);
+
+		assertThat(cache.size()).isEqualTo(1);
+		assertThat(cache.isDenied("c", later)).isTrue();
+	}
+
+}
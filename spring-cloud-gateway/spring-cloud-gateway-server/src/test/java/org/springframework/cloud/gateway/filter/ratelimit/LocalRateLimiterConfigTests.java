@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@DirtiesContext
+@ActiveProfiles("local-rate-limiter-config")
+public class LocalRateLimiterConfigTests {
+
+	@Autowired
+	private LocalRateLimiter rateLimiter;
+
+	@Autowired
+	private RequestRateLimiterGatewayFilterFactory filterFactory;
+
+	@Autowired
+	private RouteLocator routeLocator;
+
+	@Before
+	public void init() {
+		// prime routes since getRoutes() no longer blocks
+		routeLocator.getRoutes().collectList().block();
+	}
+
+	@Test
+	public void localRateLimiterIsTheDefaultRateLimiter() {
+		assertThat(filterFactory.getDefaultRateLimiter()).isSameAs(rateLimiter);
+		assertThat(rateLimiter.getMaxKeys()).isEqualTo(1000);
+	}
+
+	@Test
+	public void localRateConfiguredFromEnvironment() {
+		assertThat(rateLimiter.getConfig()).containsKey("local_rate_limiter_config_test");
+		LocalRateLimiter.Config config = rateLimiter.getConfig()
+				.get("local_rate_limiter_config_test");
+		assertThat(config.getReplenishRate()).isEqualTo(10);
+		assertThat(config.getBurstCapacity()).isEqualTo(20);
+		assertThat(config.getRequestedTokens()).isEqualTo(2);
+
+		RateLimiter.Response response = rateLimiter
+				.isAllowed("local_rate_limiter_config_test", "id").block();
+		assertThat(response.isAllowed()).isTrue();
+		assertThat(response.getHeaders()).containsEntry(rateLimiter.getRemainingHeader(),
+				"18");
+	}
+
+	@EnableAutoConfiguration
+	@SpringBootConfiguration
+	public static class TestConfig {
+
+	}
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.springframework.cloud.gateway.filter.ratelimit.LocalRateLimiter.Config;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.MapEntry.entry;
+
+public class LocalRateLimiterTests {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	@Test
+	public void tokenBucketIsRefilledAtReplenishRate() {
+		LocalRateLimiter rateLimiter = new LocalRateLimiter(10, 20);
+		Config config = rateLimiter.getDefaultConfig();
+		long now = 42 * SECOND;
+
+		for (int i = 0; i < 20; i++) {
+			Response response = rateLimiter.tryAcquire("route", "id", config, now);
+			assertThat(response.isAllowed()).as("request %s", i).isTrue();
+			assertThat(response.getHeaders()).contains(
+					entry(RedisRateLimiter.REMAINING_HEADER, String.valueOf(19 - i)));
+		}
+		assertThat(rateLimiter.tryAcquire("route", "id", config, now).isAllowed())
+				.isFalse();
+
+		// half a second refills five tokens
+		now += SECOND / 2;
+		for (int i = 0; i < 5; i++) {
+			assertThat(rateLimiter.tryAcquire("route", "id", config, now).isAllowed())
+					.isTrue();
+		}
+		assertThat(rateLimiter.tryAcquire("route", "id", config, now).isAllowed())
+				.isFalse();
+
+		// never more than the burst capacity
+		now += 10 * SECOND;
+		Response response = rateLimiter.tryAcquire("route", "id", config, now);
+		assertThat(response.getHeaders())
+				.contains(entry(RedisRateLimiter.REMAINING_HEADER, "19"));
+	}
+
+	@Test
+	public void bucketsAreKeptPerRouteAndKey() {
+		LocalRateLimiter rateLimiter = new LocalRateLimiter(1, 1);
+		Config config = rateLimiter.getDefaultConfig();
+
+		assertThat(rateLimiter.tryAcquire("route1", "id1", config, 0).isAllowed())
+				.isTrue();
+		assertThat(rateLimiter.tryAcquire("route1", "id1", config, 0).isAllowed())
+				.isFalse();
+		assertThat(rateLimiter.tryAcquire("route1", "id2", config, 0).isAllowed())
+				.isTrue();
+		assertThat(rateLimiter.tryAcquire("route2", "id1", config, 0).isAllowed())
+				.isTrue();
+	}
+
+	@Test
+	public void requestedTokensAndZeroBurstCapacity() {
+		LocalRateLimiter rateLimiter = new LocalRateLimiter(1, 60, 60);
+		Config config = rateLimiter.getDefaultConfig();
+
+		Response response = rateLimiter.tryAcquire("route", "id", config, 0);
+		assertThat(response.isAllowed()).isTrue();
+		assertThat(response.getHeaders()).containsOnly(
+				entry(RedisRateLimiter.REMAINING_HEADER, "0"),
+				entry(RedisRateLimiter.REPLENISH_RATE_HEADER, "1"),
+				entry(RedisRateLimiter.BURST_CAPACITY_HEADER, "60"),
+				entry(RedisRateLimiter.REQUESTED_TOKENS_HEADER, "60"));
+		assertThat(rateLimiter.tryAcquire("route", "id", config, 59 * SECOND).isAllowed())
+				.isFalse();
+		assertThat(rateLimiter.tryAcquire("route", "id", config, 60 * SECOND).isAllowed())
+				.isTrue();
+
+		Config blocking = new Config().setReplenishRate(1).setBurstCapacity(0);
+		assertThat(rateLimiter.tryAcquire("route", "blocked", blocking, 0).isAllowed())
+				.isFalse();
+	}
+
+	@Test
+	public void headersCanBeExcluded() {
+		LocalRateLimiter rateLimiter = new LocalRateLimiter(1, 1);
+		rateLimiter.setIncludeHeaders(false);
+
+		Response response = rateLimiter.isAllowed("route", "id").block();
+		assertThat(response.isAllowed()).isTrue();
+		assertThat(response.getHeaders()).isEmpty();
+	}
+
+	@Test
+	public void numberOfBucketsIsBounded() {
+		LocalRateLimiter rateLimiter = new LocalRateLimiter(1, 10);
+		rateLimiter.setMaxKeys(8);
+		rateLimiter.setStripeCount(2);
+		Config config = rateLimiter.getDefaultConfig();
+
+		for (int i = 0; i < 100; i++) {
+			rateLimiter.tryAcquire("route", "id" + i, config, 0);
+		}
+		assertThat(rateLimiter.size()).isLessThanOrEqualTo(8);
+	}
+
+	@Test
+	public void refilledBucketsAreEvicted() {
+		LocalRateLimiter rateLimiter = new LocalRateLimiter(10, 10);
+		rateLimiter.setStripeCount(1);
+		rateLimiter.setSweepInterval(0);
+		Config config = rateLimiter.getDefaultConfig();
+		long now = System.nanoTime();
+
+		for (int i = 0; i < 10; i++) {
+			rateLimiter.tryAcquire("route", "id" + i, config, now);
+		}
+		assertThat(rateLimiter.size()).isEqualTo(10);
+
+		// refilled after one second, then swept when the next bucket is created
+		rateLimiter.tryAcquire("route", "other", config, now + SECOND);
+		assertThat(rateLimiter.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void concurrentRequestsDoNotExceedTheBurstCapacity() throws Exception {
+		LocalRateLimiter rateLimiter = new LocalRateLimiter(1, 1000);
+		Config config = rateLimiter.getDefaultConfig();
+		AtomicInteger allowed = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				}
+				catch (InterruptedException e) {
+					return;
+				}
+				for (int j = 0; j < 500; j++) {
+					if (rateLimiter.tryAcquire("route", "id", config, 0).isAllowed()) {
+						allowed.incrementAndGet();
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertThat(allowed.get()).isEqualTo(1000);
+	}
+
+}
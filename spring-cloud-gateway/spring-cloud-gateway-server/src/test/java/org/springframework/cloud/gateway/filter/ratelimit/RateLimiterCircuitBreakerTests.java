@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import org.junit.Test;
+
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter.CircuitBreakerState;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimiterCircuitBreakerTests {
+
+	private final RateLimiterCircuitBreaker circuitBreaker = new RateLimiterCircuitBreaker(
+			2, 100);
+
+	@Test
+	public void opensAfterConsecutiveFailures() {
+		circuitBreaker.onError(0);
+		circuitBreaker.onSuccess();
+		circuitBreaker.onError(0);
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreakerState.CLOSED);
+		assertThat(circuitBreaker.tryAcquirePermission(0)).isTrue();
+
+		circuitBreaker.onError(10);
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreakerState.OPEN);
+		assertThat(circuitBreaker.tryAcquirePermission(20)).isFalse();
+		assertThat(circuitBreaker.tryAcquirePermission(109)).isFalse();
+		assertThat(circuitBreaker.getNotPermittedCalls()).isEqualTo(2);
+	}
+
+	@Test
+	public void closesAfterSuccessfulTrialCall() {
+		circuitBreaker.onError(0);
+		circuitBreaker.onError(0);
+
+		assertThat(circuitBreaker.tryAcquirePermission(100)).isTrue();
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreakerState.HALF_OPEN);
+		// only a single trial call
+		assertThat(circuitBreaker.tryAcquirePermission(100)).isFalse();
+
+		circuitBreaker.onSuccess();
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreakerState.CLOSED);
+		assertThat(circuitBreaker.tryAcquirePermission(101)).isTrue();
+	}
+
+	@Test
+	public void staysOpenAfterFailedTrialCall() {
+		circuitBreaker.onError(0);
+		circuitBreaker.onError(0);
+
+		assertThat(circuitBreaker.tryAcquirePermission(100)).isTrue();
+		circuitBreaker.onError(150);
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreakerState.OPEN);
+		assertThat(circuitBreaker.tryAcquirePermission(200)).isFalse();
+		assertThat(circuitBreaker.tryAcquirePermission(250)).isTrue();
+	}
+
+	@Test
+	public void lateCallsDoNotChangeOpenBreaker() {
+		circuitBreaker.onError(0);
+		circuitBreaker.onError(0);
+
+		// calls permitted before the breaker opened complete afterwards
+		circuitBreaker.onError(90);
+		circuitBreaker.onSuccess();
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreakerState.OPEN);
+		assertThat(circuitBreaker.tryAcquirePermission(100)).isTrue();
+	}
+
+}
@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.gateway.filter.ratelimit;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
 
 import org.junit.After;
@@ -23,6 +25,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import reactor.core.publisher.Flux;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringBootConfiguration;
@@ -68,6 +71,7 @@ public class RedisRateLimiterTests extends BaseWebClientTests {
 	@After
 	public void tearDown() throws Exception {
 		rateLimiter.setIncludeHeaders(true);
+		rateLimiter.setBatchSize(0);
 	}
 
 	@Test
@@ -104,6 +108,51 @@ public class RedisRateLimiterTests extends BaseWebClientTests {
 		checkLimitEnforced(id, replenishRate, burstCapacity, requestedTokens, routeId);
 	}
 
+	@Test
+	public void redisRateLimiterWorksWithLeasedTokens() throws Exception {
+		String id = UUID.randomUUID().toString();
+
+		int replenishRate = 1;
+		int burstCapacity = 10;
+
+		String routeId = "lease_route";
+		rateLimiter.getConfig().put(routeId,
+				new RedisRateLimiter.Config().setBurstCapacity(burstCapacity)
+						.setReplenishRate(replenishRate).setLeaseSize(4)
+						// slow first calls must not make the leased tokens stale
+						.setLeaseStaleness(Duration.ofMinutes(1)));
+
+		for (int i = 0; i < burstCapacity; i++) {
+			Response response = rateLimiter.isAllowed(routeId, id).block();
+			assertThat(response.isAllowed()).as("Burst # %s is allowed", i).isTrue();
+		}
+
+		checkLimitReached(id, burstCapacity, routeId);
+	}
+
+	@Test
+	public void redisRateLimiterWorksWithBatches() throws Exception {
+		rateLimiter.setBatchSize(10);
+		rateLimiter.setBatchWindow(Duration.ofMillis(50));
+
+		String routeId = "batch_route";
+		rateLimiter.getConfig().put(routeId, new RedisRateLimiter.Config()
+				.setBurstCapacity(2).setReplenishRate(1).setRequestedTokens(1));
+
+		String id = UUID.randomUUID().toString();
+		String otherId = UUID.randomUUID().toString();
+		// three requests of one key and one of another, evaluated by one script call
+		List<Response> responses = Flux
+				.merge(rateLimiter.isAllowed(routeId, id),
+						rateLimiter.isAllowed(routeId, id),
+						rateLimiter.isAllowed(routeId, id),
+						rateLimiter.isAllowed(routeId, otherId))
+				.collectList().block();
+
+		assertThat(responses).extracting(Response::isAllowed).containsOnly(true, false);
+		assertThat(responses.stream().filter(Response::isAllowed).count()).isEqualTo(3);
+	}
+
 	@Test
 	public void redisRateLimiterWorksForZeroBurstCapacity() throws Exception {
 		String id = UUID.randomUUID().toString();
@@ -122,10 +171,47 @@ public class RedisRateLimiterTests extends BaseWebClientTests {
 		assertThat(response.isAllowed()).isFalse();
 	}
 
+	@Test
+	public void redisRateLimiterWorksWithGcra() {
+		checkLimitedTo(5, RedisRateLimiter.Algorithm.GCRA, "gcra_route");
+	}
+
+	@Test
+	public void redisRateLimiterWorksWithSlidingWindow() {
+		checkLimitedTo(5, RedisRateLimiter.Algorithm.SLIDING_WINDOW,
+				"sliding_window_route");
+	}
+
 	@Test
 	public void keysUseRedisKeyHashTags() {
 		assertThat(RedisRateLimiter.getKeys("1")).containsExactly(
 				"request_rate_limiter.{1}.tokens", "request_rate_limiter.{1}.timestamp");
+		assertThat(RedisRateLimiter.getKeys("1", RedisRateLimiter.Algorithm.GCRA))
+				.containsExactly("request_rate_limiter.{1}.tat");
+		assertThat(RedisRateLimiter.getKeys("1",
+				RedisRateLimiter.Algorithm.SLIDING_WINDOW))
+						.containsExactly("request_rate_limiter.{1}.window");
+	}
+
+	private void checkLimitedTo(int burstCapacity, RedisRateLimiter.Algorithm algorithm,
+			String routeId) {
+		String id = UUID.randomUUID().toString();
+		// one request per second, so no token comes back during the test
+		rateLimiter.getConfig().put(routeId,
+				new RedisRateLimiter.Config().setBurstCapacity(burstCapacity)
+						.setReplenishRate(1).setAlgorithm(algorithm));
+
+		for (int i = 0; i < burstCapacity; i++) {
+			Response response = rateLimiter.isAllowed(routeId, id).block();
+			assertThat(response.isAllowed()).as("Burst # %s is allowed", i).isTrue();
+			assertThat(response.getHeaders()).containsEntry(
+					RedisRateLimiter.REMAINING_HEADER,
+					String.valueOf(burstCapacity - 1 - i));
+		}
+
+		Response response = rateLimiter.isAllowed(routeId, id).block();
+		assertThat(response.isAllowed()).as("Burst # %s is not allowed", burstCapacity)
+				.isFalse();
 	}
 
 	@Test
@@ -16,6 +16,11 @@
 
 package org.springframework.cloud.gateway.filter.ratelimit;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import io.lettuce.core.RedisException;
 import org.junit.After;
 import org.junit.Before;
@@ -24,16 +29,24 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
 
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
 import org.springframework.cloud.gateway.support.ConfigurationService;
 import org.springframework.context.ApplicationContext;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.data.MapEntry.entry;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -61,6 +74,12 @@ public class RedisRateLimiterUnitTests {
 	@Mock
 	private ReactiveStringRedisTemplate redisTemplate;
 
+	@Mock
+	private RedisScript<List<Long>> script;
+
+	@Mock
+	private RedisScript<List<Long>> leaseScript;
+
 	private RedisRateLimiter redisRateLimiter;
 
 	@Before
@@ -110,4 +129,245 @@ public class RedisRateLimiterUnitTests {
 				entry(redisRateLimiter.getRequestedTokensHeader(), "1"));
 	}
 
+	@Test
+	public void leasedTokensAreTakenWithoutCallingRedis() {
+		when(redisTemplate.execute(any(), anyList(), anyList()))
+				.thenReturn(Flux.just(Arrays.asList(100L, 0L)));
+		RedisRateLimiter rateLimiter = leasingRateLimiter(Duration.ofMinutes(1));
+
+		for (int i = 0; i < 20; i++) {
+			Response response = rateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).block();
+			assertThat(response.isAllowed()).isTrue();
+			assertThat(response.getHeaders()).contains(entry(
+					rateLimiter.getRemainingHeader(), String.valueOf(99 - i)));
+		}
+		verify(redisTemplate, times(1)).execute(any(), anyList(), anyList());
+	}
+
+	@Test
+	public void leaseIsRenewedWhenRunningLow() {
+		when(redisTemplate.execute(any(), anyList(), anyList()))
+				.thenReturn(Flux.just(Arrays.asList(10L, 0L)))
+				.thenReturn(Flux.just(Arrays.asList(10L, 0L)))
+				.thenReturn(Flux.just(Arrays.asList(0L, 0L)));
+		RedisRateLimiter rateLimiter = leasingRateLimiter(Duration.ofMinutes(1));
+		rateLimiter.getConfig().get(ROUTE_ID).setLeaseSize(10);
+
+		// the second lease is taken in the background before the first one is used up
+		for (int i = 0; i < 20; i++) {
+			assertThat(rateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).block().isAllowed())
+					.as("request %s", i).isTrue();
+		}
+		// nothing left locally nor in redis
+		assertThat(rateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).block().isAllowed())
+				.isFalse();
+	}
+
+	@Test
+	public void staleLeasedTokensAreNotUsed() {
+		when(redisTemplate.execute(any(), anyList(), anyList()))
+				.thenReturn(Flux.just(Arrays.asList(100L, 0L)));
+		RedisRateLimiter rateLimiter = leasingRateLimiter(Duration.ZERO);
+
+		for (int i = 0; i < 3; i++) {
+			rateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).block();
+		}
+		verify(redisTemplate, times(3)).execute(any(), anyList(), anyList());
+	}
+
+	@Test
+	public void missesWaitForTheLeaseInFlight() {
+		DirectProcessor<List<Long>> lease = DirectProcessor.create();
+		when(redisTemplate.execute(eq(leaseScript), anyList(), anyList()))
+				.thenReturn(lease);
+		RedisRateLimiter rateLimiter = leasingRateLimiter(Duration.ofMinutes(1));
+
+		List<MonoProcessor<Response>> responses = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			responses.add(rateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).toProcessor());
+		}
+		lease.onNext(Arrays.asList(100L, 0L));
+		lease.onComplete();
+
+		for (MonoProcessor<Response> response : responses) {
+			assertThat(response.peek().isAllowed()).isTrue();
+		}
+		assertThat(rateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).block().getHeaders())
+				.contains(entry(rateLimiter.getRemainingHeader(), "94"));
+		verify(redisTemplate, times(1)).execute(any(), anyList(), anyList());
+	}
+
+	@Test
+	public void shouldAllowRequestWhenLeasingFails() {
+		when(redisTemplate.execute(any(), anyList(), anyList()))
+				.thenThrow(REDIS_EXCEPTION);
+		RedisRateLimiter rateLimiter = leasingRateLimiter(Duration.ofMinutes(1));
+
+		Response response = rateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).block();
+		assertThat(response.isAllowed()).isTrue();
+		assertThat(response.getHeaders())
+				.contains(entry(rateLimiter.getRemainingHeader(), "-1"));
+	}
+
+	@Test
+	public void deniedKeysAreDeniedWithoutCallingRedis() {
+		when(redisTemplate.execute(any(), anyList(), anyList()))
+				.thenReturn(Flux.just(Arrays.asList(0L, 0L)));
+		redisRateLimiter.setDenyCacheMaxKeys(10);
+		redisRateLimiter.setApplicationContext(applicationContext);
+
+		for (int i = 0; i < 3; i++) {
+			Response response = redisRateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).block();
+			assertThat(response.isAllowed()).isFalse();
+			assertThat(response.getHeaders())
+					.contains(entry(redisRateLimiter.getRemainingHeader(), "0"));
+		}
+		verify(redisTemplate, times(1)).execute(any(), anyList(), anyList());
+		assertThat(redisRateLimiter.denyCacheHits()).isEqualTo(2);
+		assertThat(redisRateLimiter.denyCacheKeys()).isEqualTo(1);
+
+		// the same key of another route is not denied by the cache
+		redisRateLimiter.isAllowed("otherRoute", REQUEST_ID).block();
+		verify(redisTemplate, times(2)).execute(any(), anyList(), anyList());
+	}
+
+	@Test
+	public void denyCacheIsDisabledByDefault() {
+		when(redisTemplate.execute(any(), anyList(), anyList()))
+				.thenReturn(Flux.just(Arrays.asList(0L, 0L)));
+		redisRateLimiter.setApplicationContext(applicationContext);
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(redisRateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).block()
+					.isAllowed()).isFalse();
+		}
+		verify(redisTemplate, times(3)).execute(any(), anyList(), anyList());
+		assertThat(redisRateLimiter.denyCacheHits()).isZero();
+	}
+
+	@Test
+	public void failedRequestsAreNotDeniedByTheCache() {
+		when(redisTemplate.execute(any(), anyList(), anyList()))
+				.thenThrow(REDIS_EXCEPTION);
+		redisRateLimiter.setDenyCacheMaxKeys(10);
+		redisRateLimiter.setApplicationContext(applicationContext);
+
+		for (int i = 0; i < 2; i++) {
+			assertThat(redisRateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).block()
+					.isAllowed()).isTrue();
+		}
+		assertThat(redisRateLimiter.denyCacheKeys()).isZero();
+	}
+
+	@Test
+	public void keysDeniedByLeasingAreDeniedWithoutCallingRedis() {
+		when(redisTemplate.execute(any(), anyList(), anyList()))
+				.thenReturn(Flux.just(Arrays.asList(0L, 0L)));
+		RedisRateLimiter rateLimiter = leasingRateLimiter(Duration.ofMinutes(1));
+		rateLimiter.setDenyCacheMaxKeys(10);
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(rateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).block().isAllowed())
+					.isFalse();
+		}
+		verify(redisTemplate, times(1)).execute(any(), anyList(), anyList());
+	}
+
+	@Test
+	public void shouldApplyFailurePolicyWhenRedisTimesOut() {
+		when(redisTemplate.execute(any(), anyList(), anyList())).thenReturn(Flux.never());
+		redisRateLimiter.setTimeout(Duration.ofMillis(10));
+		redisRateLimiter.setFailurePolicy(RedisRateLimiter.FailurePolicy.FAIL_CLOSED);
+		redisRateLimiter.setApplicationContext(applicationContext);
+
+		Response response = redisRateLimiter.isAllowed(ROUTE_ID, REQUEST_ID)
+				.block(Duration.ofSeconds(5));
+		assertThat(response.isAllowed()).isFalse();
+		assertThat(response.getHeaders())
+				.contains(entry(redisRateLimiter.getRemainingHeader(), "-1"));
+	}
+
+	@Test
+	public void openCircuitBreakerSkipsRedis() {
+		when(redisTemplate.execute(any(), anyList(), anyList()))
+				.thenReturn(Flux.error(REDIS_EXCEPTION));
+		redisRateLimiter.setCircuitBreakerFailureThreshold(2);
+		redisRateLimiter.setCircuitBreakerOpenDuration(Duration.ofMinutes(1));
+		redisRateLimiter.setApplicationContext(applicationContext);
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(redisRateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).block()
+					.isAllowed()).isTrue();
+		}
+		verify(redisTemplate, times(2)).execute(any(), anyList(), anyList());
+		assertThat(redisRateLimiter.circuitBreakerState())
+				.isEqualTo(RedisRateLimiter.CircuitBreakerState.OPEN);
+		assertThat(redisRateLimiter.circuitBreakerNotPermittedCalls()).isEqualTo(3);
+	}
+
+	@Test
+	public void fullBatchQueueDoesNotOpenCircuitBreaker() {
+		when(redisTemplate.execute(any(), anyList(), anyList())).thenReturn(Flux.never());
+		redisRateLimiter.setBatchScript(script);
+		redisRateLimiter.setBatchSize(2);
+		redisRateLimiter.setCircuitBreakerFailureThreshold(1);
+		redisRateLimiter.setApplicationContext(applicationContext);
+
+		// fills the batches in flight and the queue
+		for (int i = 0; i < 2 * 2 * RedisScriptBatcher.DEFAULT_MAX_IN_FLIGHT; i++) {
+			redisRateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).subscribe();
+		}
+
+		assertThat(redisRateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).block()
+				.isAllowed()).isTrue();
+		assertThat(redisRateLimiter.circuitBreakerState())
+				.isEqualTo(RedisRateLimiter.CircuitBreakerState.CLOSED);
+	}
+
+	@Test
+	public void circuitBreakerClosesWhenRedisRecovers() {
+		when(redisTemplate.execute(any(), anyList(), anyList()))
+				.thenReturn(Flux.error(REDIS_EXCEPTION))
+				.thenReturn(Flux.just(Arrays.asList(1L, 0L)));
+		redisRateLimiter.setCircuitBreakerFailureThreshold(1);
+		redisRateLimiter.setCircuitBreakerOpenDuration(Duration.ZERO);
+		redisRateLimiter.setApplicationContext(applicationContext);
+
+		redisRateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).block();
+		assertThat(redisRateLimiter.circuitBreakerState())
+				.isEqualTo(RedisRateLimiter.CircuitBreakerState.OPEN);
+
+		Response response = redisRateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).block();
+		assertThat(response.getHeaders())
+				.contains(entry(redisRateLimiter.getRemainingHeader(), "0"));
+		assertThat(redisRateLimiter.circuitBreakerState())
+				.isEqualTo(RedisRateLimiter.CircuitBreakerState.CLOSED);
+	}
+
+	@Test
+	public void localFailurePolicyLimitsRequestsInMemory() {
+		when(redisTemplate.execute(any(), anyList(), anyList()))
+				.thenReturn(Flux.error(REDIS_EXCEPTION));
+		redisRateLimiter.setFailurePolicy(RedisRateLimiter.FailurePolicy.LOCAL);
+		redisRateLimiter.setApplicationContext(applicationContext);
+
+		// the default configuration allows a single request per second
+		assertThat(redisRateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).block().isAllowed())
+				.isTrue();
+		Response response = redisRateLimiter.isAllowed(ROUTE_ID, REQUEST_ID).block();
+		assertThat(response.isAllowed()).isFalse();
+		assertThat(response.getHeaders())
+				.contains(entry(redisRateLimiter.getRemainingHeader(), "0"));
+	}
+
+	private RedisRateLimiter leasingRateLimiter(Duration leaseStaleness) {
+		RedisRateLimiter rateLimiter = new RedisRateLimiter(redisTemplate, script,
+				leaseScript, new ConfigurationService());
+		rateLimiter.getConfig().put(ROUTE_ID,
+				new RedisRateLimiter.Config().setReplenishRate(100)
+						.setBurstCapacity(100).setLeaseSize(100)
+						.setLeaseStaleness(leaseStaleness));
+		return rateLimiter;
+	}
+
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.ratelimit;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RedisScriptBatcherTests {
+
+	@Mock
+	private ReactiveStringRedisTemplate redisTemplate;
+
+	@Mock
+	private RedisScript<List<Long>> script;
+
+	private RedisScriptBatcher batcher;
+
+	@After
+	public void tearDown() {
+		if (batcher != null) {
+			batcher.dispose();
+		}
+	}
+
+	@Test
+	public void concurrentCallsAreExecutedTogether() {
+		when(redisTemplate.execute(any(), anyList(), anyList()))
+				.thenReturn(Flux.just(Arrays.asList(1L, 9L, 0L, 0L, 1L, 4L)));
+		batcher = new RedisScriptBatcher(redisTemplate, script, 2, 3,
+				Duration.ofMinutes(1));
+
+		StepVerifier.create(Mono.zip(call("a", "1"), call("b", "2"), call("c", "3")))
+				.assertNext(results -> {
+					assertThat(results.getT1()).containsExactly(1L, 9L);
+					assertThat(results.getT2()).containsExactly(0L, 0L);
+					assertThat(results.getT3()).containsExactly(1L, 4L);
+				}).expectComplete().verify(Duration.ofSeconds(5));
+
+		verify(redisTemplate, times(1)).execute(
+				eq(script), eq(Arrays.asList("a.tokens", "a.timestamp", "b.tokens",
+						"b.timestamp", "c.tokens", "c.timestamp")),
+				eq(Arrays.asList("1", "2", "3")));
+	}
+
+	@Test
+	public void callsAreExecutedAfterTheWindow() {
+		when(redisTemplate.execute(any(), anyList(), anyList()))
+				.thenReturn(Flux.just(Arrays.asList(1L, 9L)));
+		batcher = new RedisScriptBatcher(redisTemplate, script, 2, 100,
+				Duration.ofMillis(10));
+
+		StepVerifier.create(call("a", "1")).expectNext(Arrays.asList(1L, 9L))
+				.expectComplete().verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void errorsArePassedToEveryCall() {
+		when(redisTemplate.execute(any(), anyList(), anyList()))
+				.thenReturn(Flux.error(new IllegalStateException("redis down")));
+		batcher = new RedisScriptBatcher(redisTemplate, script, 2, 2,
+				Duration.ofMinutes(1));
+
+		StepVerifier.create(Mono.zipDelayError(call("a", "1"), call("b", "2")))
+				.expectError().verify(Duration.ofSeconds(5));
+
+		// the batcher keeps working after an error
+		when(redisTemplate.execute(any(), anyList(), anyList()))
+				.thenReturn(Flux.just(Arrays.asList(1L, 9L, 1L, 8L)));
+		StepVerifier.create(Mono.zip(call("a", "1"), call("b", "2"))).expectNextCount(1)
+				.expectComplete().verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void callsBeyondTheQueueFailWhileRedisStalls() {
+		DirectProcessor<List<Long>> stalled = DirectProcessor.create();
+		when(redisTemplate.execute(eq(script), anyList(), anyList())).thenReturn(stalled,
+				Flux.just(Arrays.asList(1L, 7L, 1L, 6L)),
+				Flux.just(Arrays.asList(1L, 5L, 1L, 4L)));
+		batcher = new RedisScriptBatcher(redisTemplate, script, 2, 2,
+				Duration.ofMinutes(1), 1);
+
+		// the first batch is in flight, the second one waits for it
+		MonoProcessor<List<Long>> first = call("a", "1").toProcessor();
+		call("b", "2").subscribe();
+		MonoProcessor<List<Long>> queued = call("c", "3").toProcessor();
+		call("d", "4").subscribe();
+
+		StepVerifier.create(call("e", "5"))
+				.expectError(RedisScriptBatcher.QueueFullException.class)
+				.verify(Duration.ofSeconds(5));
+		assertThat(queued.isTerminated()).isFalse();
+
+		stalled.onNext(Arrays.asList(1L, 9L, 1L, 8L));
+		stalled.onComplete();
+
+		assertThat(first.block(Duration.ofSeconds(5))).containsExactly(1L, 9L);
+		assertThat(queued.block(Duration.ofSeconds(5))).containsExactly(1L, 7L);
+		StepVerifier.create(Mono.zip(call("f", "6"), call("g", "7")))
+				.expectNextCount(1).expectComplete().verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void cancelledCallsAreNotExecuted() {
+		DirectProcessor<List<Long>> stalled = DirectProcessor.create();
+		when(redisTemplate.execute(eq(script), anyList(), anyList())).thenReturn(stalled,
+				Flux.just(Arrays.asList(1L, 7L, 1L, 6L)));
+		batcher = new RedisScriptBatcher(redisTemplate, script, 2, 2,
+				Duration.ofMinutes(1), 1);
+
+		call("a", "1").subscribe();
+		call("b", "2").subscribe();
+		// cancelled while waiting for the first batch, like by a timeout
+		call("c", "3").subscribe().dispose();
+		MonoProcessor<List<Long>> queued = call("d", "4").toProcessor();
+		call("e", "5").subscribe();
+
+		stalled.onNext(Arrays.asList(1L, 9L, 1L, 8L));
+		stalled.onComplete();
+
+		assertThat(queued.block(Duration.ofSeconds(5))).containsExactly(1L, 7L);
+		verify(redisTemplate).execute(eq(script),
+				eq(Arrays.asList("d.tokens", "d.timestamp", "e.tokens", "e.timestamp")),
+				eq(Arrays.asList("4", "5")));
+	}
+
+	@Test
+	public void callsAfterDisposeAreExecutedOnTheirOwn() {
+		when(redisTemplate.execute(any(), anyList(), anyList()))
+				.thenReturn(Flux.just(Arrays.asList(1L, 9L)));
+		batcher = new RedisScriptBatcher(redisTemplate, script, 2, 100,
+				Duration.ofMinutes(1));
+		batcher.dispose();
+
+		StepVerifier.create(call("a", "1")).expectNext(Arrays.asList(1L, 9L))
+				.expectComplete().verify(Duration.ofSeconds(5));
+	}
+
+	private Mono<List<Long>> call(String key, String arg) {
+		return batcher.execute(Arrays.asList(key + ".tokens", key + ".timestamp"),
+				Arrays.asList(arg));
+	}
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+public class FilteringWebHandlerTests {
+
+	@Test
+	public void combinedFiltersAreSortedAndCachedPerRoute() {
+		List<String> invocations = new ArrayList<>();
+		FilteringWebHandler handler = new FilteringWebHandler(
+				Arrays.asList(new OrderedGlobalFilter("global", 1, invocations)));
+		Route route = route("route1", new OrderedGatewayFilter(
+				(exchange, chain) -> record("route", invocations, exchange, chain), 0));
+
+		List<GatewayFilter> combined = handler.getCombinedFilters(route);
+		assertThat(combined).hasSize(2);
+		assertThat(handler.getCombinedFilters(route)).isSameAs(combined);
+
+		ServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/"));
+		exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+		StepVerifier.create(handler.handle(exchange)).verifyComplete();
+		assertThat(invocations).containsExactly("route", "global");
+	}
+
+	@Test
+	public void combinedFiltersAreRecomputedForNewRouteInstancesAndOnRefresh() {
+		FilteringWebHandler handler = new FilteringWebHandler(new ArrayList<>());
+		Route route = route("route1", (exchange, chain) -> chain.filter(exchange));
+		List<GatewayFilter> combined = handler.getCombinedFilters(route);
+
+		Route replaced = route("route1", (exchange, chain) -> chain.filter(exchange));
+		List<GatewayFilter> replacedCombined = handler.getCombinedFilters(replaced);
+		assertThat(replacedCombined).isNotSameAs(combined)
+				.containsExactlyElementsOf(replaced.getFilters());
+
+		handler.onApplicationEvent(new RefreshRoutesResultEvent(this));
+		assertThat(handler.getCombinedFilters(replaced)).isNotSameAs(replacedCombined);
+	}
+
+	@Test
+	public void filtersAreInvokedOnSubscription() {
+		List<String> invocations = new ArrayList<>();
+		FilteringWebHandler handler = new FilteringWebHandler(
+				Arrays.asList(new OrderedGlobalFilter("global", 1, invocations)));
+		Route route = route("route1", (exchange, chain) -> {
+			throw new IllegalStateException("boom");
+		});
+		ServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/"));
+		exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+
+		Mono<Void> result = handler.handle(exchange);
+		assertThat(invocations).isEmpty();
+
+		StepVerifier.create(result).verifyErrorMessage("boom");
+		StepVerifier.create(result).verifyErrorMessage("boom");
+		assertThat(invocations).containsExactly("global", "global");
+	}
+
+	@Test
+	public void filterInvocationsAreSeenByOperatorHooks() {
+		List<Object> assembled = new ArrayList<>();
+		FilteringWebHandler handler = new FilteringWebHandler(Arrays.asList(
+				(exchange, chain) -> chain.filter(exchange)));
+		ServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/"));
+		exchange.getAttributes().put(GATEWAY_ROUTE_ATTR,
+				route("route1", (e, chain) -> chain.filter(e)));
+
+		Hooks.onEachOperator("filterInvocations", publisher -> {
+			assembled.add(publisher);
+			return publisher;
+		});
+		try {
+			StepVerifier.create(handler.handle(exchange)).verifyComplete();
+		}
+		finally {
+			Hooks.resetOnEachOperator("filterInvocations");
+		}
+		assertThat(assembled).hasSize(2);
+	}
+
+	private Route route(String id, GatewayFilter filter) {
+		return Route.async().id(id).uri("http://localhost").predicate(exchange -> true)
+				.filter(filter).build();
+	}
+
+	private static Mono<Void> record(String name, List<String> invocations,
+			ServerWebExchange exchange, GatewayFilterChain chain) {
+		invocations.add(name);
+		return chain.filter(exchange);
+	}
+
+	private static class OrderedGlobalFilter implements GlobalFilter, Ordered {
+
+		private final String name;
+
+		private final int order;
+
+		private final List<String> invocations;
+
+		OrderedGlobalFilter(String name, int order, List<String> invocations) {
+			this.name = name;
+			this.order = order;
+			this.invocations = invocations;
+		}
+
+		@Override
+		public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+			return record(name, invocations, exchange, chain);
+		}
+
+		@Override
+		public int getOrder() {
+			return order;
+		}
+
+	}
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.handler.predicate.HostRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.MethodRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RouteIndexTests {
+
+	private final PathRoutePredicateFactory path = new PathRoutePredicateFactory();
+
+	private final HostRoutePredicateFactory host = new HostRoutePredicateFactory();
+
+	private final MethodRoutePredicateFactory method = new MethodRoutePredicateFactory();
+
+	@Test
+	public void candidatesAreBucketedByPathHostAndMethod() {
+		List<Route> routes = Arrays.asList(
+				route("foo", path.applyAsync(
+						c -> c.setPatterns(Arrays.asList("/foo/**", "/Bar/{id}")))),
+				route("wildcard", path.applyAsync(c -> c.setPattern("/{segment}/**"))),
+				route("host",
+						host.applyAsync(c -> c.setPattern("www.example.org"))
+								.and(path.applyAsync(c -> c.setPattern("/baz")))),
+				route("post", method.applyAsync(c -> c.setMethods(HttpMethod.POST))),
+				route("or",
+						path.applyAsync(c -> c.setPattern("/qux")).or(
+								method.applyAsync(c -> c.setMethods(HttpMethod.PUT)))),
+				Route.async().id("sync").uri("http://localhost")
+						.predicate(path.apply(c -> c.setPattern("/sync"))
+								.and(method.apply(c -> c.setMethods(HttpMethod.GET))))
+						.build());
+		RouteIndex index = new RouteIndex(routes);
+
+		assertThat(candidates(index, MockServerHttpRequest.get("/foo/1")))
+				.containsExactly("foo", "wildcard", "or");
+		assertThat(candidates(index, MockServerHttpRequest.get("/bar/1")))
+				.containsExactly("foo", "wildcard", "or");
+		assertThat(candidates(index,
+				MockServerHttpRequest.get("/baz").header("Host", "www.example.org")))
+						.containsExactly("wildcard", "host", "or");
+		assertThat(candidates(index, MockServerHttpRequest.get("/baz")))
+				.containsExactly("wildcard", "or");
+		assertThat(candidates(index, MockServerHttpRequest.post("/other")))
+				.containsExactly("wildcard", "post", "or");
+		assertThat(candidates(index, MockServerHttpRequest.get("/sync")))
+				.containsExactly("wildcard", "or", "sync");
+		assertThat(candidates(index, MockServerHttpRequest.post("/sync")))
+				.containsExactly("wildcard", "post", "or");
+	}
+
+	@Test
+	public void candidatesFollowTheLiteralPathPrefix() {
+		List<Route> routes = Arrays.asList(
+				route("users", path.applyAsync(c -> c.setPattern("/api/users/**"))),
+				route("orders", path.applyAsync(c -> c.setPattern("/api/orders/{id}"))),
+				route("api", path.applyAsync(c -> c.setPattern("/api/{resource}"))),
+				route("other", path.applyAsync(c -> c.setPattern("/other/**"))));
+		RouteIndex index = new RouteIndex(routes);
+
+		assertThat(candidates(index, MockServerHttpRequest.get("/api/users/1")))
+				.containsExactly("users", "api");
+		assertThat(candidates(index, MockServerHttpRequest.get("/API/Orders/1")))
+				.containsExactly("orders", "api");
+		assertThat(candidates(index, MockServerHttpRequest.get("/api;v=1/users")))
+				.containsExactly("users", "api");
+		assertThat(candidates(index, MockServerHttpRequest.get("/api"))).containsExactly(
+				"api");
+		assertThat(candidates(index, MockServerHttpRequest.get("/"))).isEmpty();
+	}
+
+	@Test
+	public void literalPrefix() {
+		assertThat(RouteIndex.literalPrefix("/foo/**")).containsExactly("foo");
+		assertThat(RouteIndex.literalPrefix("/foo")).containsExactly("foo");
+		assertThat(RouteIndex.literalPrefix("/Foo/Bar/{id}")).containsExactly("foo",
+				"bar");
+		assertThat(RouteIndex.literalPrefix("/foo/bar/")).containsExactly("foo", "bar");
+		assertThat(RouteIndex.literalPrefix("/foo/b*r/baz")).containsExactly("foo");
+		assertThat(RouteIndex.literalPrefix("/**")).isEmpty();
+		assertThat(RouteIndex.literalPrefix("/foo*/bar")).isEmpty();
+		assertThat(RouteIndex.literalPrefix("/{id:[0-9]+}")).isEmpty();
+		assertThat(RouteIndex.literalPrefix("/foo%20bar")).isEmpty();
+		assertThat(RouteIndex.literalPrefix("/")).isEmpty();
+	}
+
+	@Test
+	public void lookupRouteUsesIndexWhenEnabled() {
+		Route wildcard = route("wildcard",
+				path.applyAsync(c -> c.setPattern("/{segment}/bar")));
+		Route foo = route("foo", path.applyAsync(c -> c.setPattern("/foo/**")));
+		RouteLocator routeLocator = () -> Flux.just(wildcard, foo);
+		MockEnvironment environment = new MockEnvironment().withProperty(
+				RoutePredicateHandlerMapping.ROUTE_INDEX_ENABLED_PROPERTY, "true");
+		RoutePredicateHandlerMapping mapping = new RoutePredicateHandlerMapping(null,
+				routeLocator, new GlobalCorsProperties(), environment);
+
+		StepVerifier.create(mapping
+				.lookupRoute(
+						MockServerWebExchange.from(MockServerHttpRequest.get("/foo/bar")))
+				.map(Route::getId)).expectNext("wildcard").verifyComplete();
+		StepVerifier.create(mapping
+				.lookupRoute(
+						MockServerWebExchange.from(MockServerHttpRequest.get("/foo/baz")))
+				.map(Route::getId)).expectNext("foo").verifyComplete();
+		StepVerifier
+				.create(mapping.lookupRoute(
+						MockServerWebExchange.from(MockServerHttpRequest.get("/baz"))))
+				.verifyComplete();
+
+		mapping.onApplicationEvent(new RefreshRoutesResultEvent(this));
+		StepVerifier.create(mapping
+				.lookupRoute(
+						MockServerWebExchange.from(MockServerHttpRequest.get("/foo/baz")))
+				.map(Route::getId)).expectNext("foo").verifyComplete();
+	}
+
+	private Route route(String id, AsyncPredicate<ServerWebExchange> predicate) {
+		return Route.async().id(id).uri("http://localhost").asyncPredicate(predicate)
+				.build();
+	}
+
+	private List<String> candidates(RouteIndex index,
+			MockServerHttpRequest.BaseBuilder<?> request) {
+		return index.getCandidates(MockServerWebExchange.from(request)).stream()
+				.map(Route::getId).collect(Collectors.toList());
+	}
+
+}
@@ -25,12 +25,17 @@ import reactor.test.StepVerifier;
 
 import org.springframework.boot.test.system.OutputCaptureRule;
 import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
 import org.springframework.cloud.gateway.route.Route;
 import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.web.server.ServerWebExchange;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.containsString;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.getUriTemplateVariables;
 
 /**
  * @author Simon Baslé
@@ -99,4 +104,26 @@ public class RoutePredicateHandlerMappingTests {
 		outputCapture.expect(containsString("java.lang.IllegalStateException: boom2"));
 	}
 
+	@Test
+	public void lookupRouteKeepsUriTemplateVariablesOfMatchingRouteOnly() {
+		PathRoutePredicateFactory path = new PathRoutePredicateFactory();
+		Route routeFalse = Route.async().id("routeFalse").uri("http://localhost")
+				.predicate(path.apply(c -> c.setPattern("/foo/{segment}"))
+						.and(swe -> false))
+				.build();
+		Route routeTrue = Route.async().id("routeTrue").uri("http://localhost")
+				.predicate(path.apply(c -> c.setPattern("/{first}/bar"))).build();
+		RouteLocator routeLocator = () -> Flux.just(routeFalse, routeTrue);
+		RoutePredicateHandlerMapping mapping = new RoutePredicateHandlerMapping(null,
+				routeLocator, new GlobalCorsProperties(), new MockEnvironment());
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/foo/bar"));
+
+		StepVerifier.create(mapping.lookupRoute(exchange).map(Route::getId))
+				.expectNext("routeTrue").verifyComplete();
+
+		assertThat(getUriTemplateVariables(exchange)).containsOnlyKeys("first")
+				.containsEntry("first", "foo");
+	}
+
 }
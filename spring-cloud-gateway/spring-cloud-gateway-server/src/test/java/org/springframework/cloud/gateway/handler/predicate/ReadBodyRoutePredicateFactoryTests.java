@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.gateway.handler.predicate;
 
+import java.util.Arrays;
 import java.util.function.Predicate;
 
 import com.netflix.loadbalancer.Server;
@@ -39,6 +40,7 @@ import org.springframework.cloud.netflix.ribbon.StaticServerList;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -56,7 +58,8 @@ import static org.springframework.boot.test.context.SpringBootTest.WebEnvironmen
  * @author Ryan Baxter
  */
 @RunWith(SpringRunner.class)
-@SpringBootTest(webEnvironment = RANDOM_PORT)
+@SpringBootTest(webEnvironment = RANDOM_PORT,
+		properties = "spring.cloud.gateway.request-body-cache.max-size=1KB")
 @DirtiesContext
 public class ReadBodyRoutePredicateFactoryTests {
 
@@ -79,6 +82,16 @@ public class ReadBodyRoutePredicateFactoryTests {
 
 	}
 
+	@Test
+	public void bodyLargerThanMaxSizeIsRejected() {
+		char[] bar = new char[2048];
+		Arrays.fill(bar, 'a');
+		Event largeEvent = new Event("message", new String(bar));
+
+		webClient.post().uri("/events").body(BodyInserters.fromValue(largeEvent))
+				.exchange().expectStatus().isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+	}
+
 	@Test
 	public void toStringFormat() {
 		Config config = new Config();
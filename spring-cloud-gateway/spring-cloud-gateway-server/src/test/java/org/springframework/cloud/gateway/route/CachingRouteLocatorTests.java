@@ -117,10 +117,46 @@ public class CachingRouteLocatorTests {
 		waitUntilRefreshFinished(locator, resultEvents);
 		assertThat(resultEvents).hasSize(3);
 		assertThat(resultEvents.get(2).isSuccess()).isEqualTo(true);
+		assertThat(resultEvents.get(2).getAddedRouteIds()).containsExactly("2");
+		assertThat(resultEvents.get(2).getRemovedRouteIds()).containsExactly("1");
 		assertThat(locator.getRoutes().collectList().block()).containsExactly(route2);
 
 	}
 
+	@Test
+	public void refreshPublishesRouteChanges() throws InterruptedException {
+		Route route1 = route(1);
+		Route route2 = route(2);
+		Route route3 = route(3);
+		Route changedRoute2 = route(2);
+		CachingRouteLocator locator = new CachingRouteLocator(new RouteLocator() {
+			int i = 0;
+
+			@Override
+			public Flux<Route> getRoutes() {
+				if (i++ == 0) {
+					return Flux.just(route1, route2);
+				}
+				return Flux.just(changedRoute2, route3);
+			}
+		});
+
+		assertThat(locator.getRoutes().collectList().block()).containsExactly(route1,
+				route2);
+
+		List<RefreshRoutesResultEvent> resultEvents = new ArrayList<>();
+		waitUntilRefreshFinished(locator, resultEvents);
+
+		RefreshRoutesResultEvent event = resultEvents.get(0);
+		assertThat(event.isSuccess()).isTrue();
+		assertThat(event.hasRouteChanges()).isTrue();
+		assertThat(event.getAddedRouteIds()).containsExactly("3");
+		assertThat(event.getChangedRouteIds()).containsExactly("2");
+		assertThat(event.getRemovedRouteIds()).containsExactly("1");
+		assertThat(locator.getRoutes().collectList().block())
+				.containsExactly(changedRoute2, route3);
+	}
+
 	private void waitUntilRefreshFinished(CachingRouteLocator locator,
 			List<RefreshRoutesResultEvent> resultEvents) throws InterruptedException {
 		CountDownLatch cdl = new CountDownLatch(1);
@@ -118,6 +118,54 @@ public class RouteDefinitionRouteLocatorTests {
 		}).expectComplete().verify();
 	}
 
+	@Test
+	public void unchangedRouteDefinitionsAreNotConvertedAgain() {
+		List<RoutePredicateFactory> predicates = Arrays
+				.asList(new HostRoutePredicateFactory());
+		List<GatewayFilterFactory> gatewayFilterFactories = Arrays
+				.asList(new AddResponseHeaderGatewayFilterFactory());
+		RouteDefinition foo = new RouteDefinition();
+		foo.setId("foo");
+		foo.setUri(URI.create("https://foo.example.com"));
+		foo.setPredicates(Arrays.asList(new PredicateDefinition("Host=*.example.com")));
+		RouteDefinition bar = new RouteDefinition();
+		bar.setId("bar");
+		bar.setUri(URI.create("https://bar.example.com"));
+		bar.setPredicates(Arrays.asList(new PredicateDefinition("Host=*.example.org")));
+		GatewayProperties gatewayProperties = new GatewayProperties();
+		gatewayProperties.setRoutes(Arrays.asList(foo, bar));
+
+		RouteDefinitionRouteLocator routeDefinitionRouteLocator = new RouteDefinitionRouteLocator(
+				new PropertiesRouteDefinitionLocator(gatewayProperties), predicates,
+				gatewayFilterFactories, gatewayProperties, new ConfigurationService());
+
+		List<Route> routes = routeDefinitionRouteLocator.getRoutes().collectList()
+				.block();
+		bar.setFilters(Arrays
+				.asList(new FilterDefinition("AddResponseHeader=X-Response-Foo, Bar")));
+		List<Route> refreshed = routeDefinitionRouteLocator.getRoutes().collectList()
+				.block();
+
+		assertThat(refreshed.get(0)).isSameAs(routes.get(0));
+		assertThat(refreshed.get(1)).isNotSameAs(routes.get(1));
+		assertThat(refreshed.get(1).getFilters()).hasSize(1);
+
+		gatewayProperties.setDefaultFilters(Arrays
+				.asList(new FilterDefinition("AddResponseHeader=X-Response-Baz, Qux")));
+		List<Route> withDefaultFilters = routeDefinitionRouteLocator.getRoutes()
+				.collectList().block();
+
+		assertThat(withDefaultFilters.get(0)).isNotSameAs(refreshed.get(0));
+		assertThat(withDefaultFilters.get(0).getFilters()).hasSize(1);
+
+		bar.getFilters().get(0).getArgs().replaceAll((key, value) -> "X-Response-Baz");
+		List<Route> withChangedArgs = routeDefinitionRouteLocator.getRoutes()
+				.collectList().block();
+
+		assertThat(withChangedArgs.get(0)).isSameAs(withDefaultFilters.get(0));
+		assertThat(withChangedArgs.get(1)).isNotSameAs(withDefaultFilters.get(1));
+	}
+
 	private List<RouteDefinition> containsInvalidRoutes() {
 		RouteDefinition foo = new RouteDefinition();
 		foo.setId("foo");
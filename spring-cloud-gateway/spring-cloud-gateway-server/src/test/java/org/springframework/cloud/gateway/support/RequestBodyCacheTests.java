@@ -0,0 +1,146 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RequestBodyCacheTests {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final NettyDataBufferFactory factory = new NettyDataBufferFactory(
+			PooledByteBufAllocator.DEFAULT);
+
+	private final List<PooledDataBuffer> sent = new ArrayList<>();
+
+	private RequestBodyCache cache;
+
+	private File directory;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = temporaryFolder.newFolder();
+		cache = new RequestBodyCache();
+		cache.setMaxInMemorySize(DataSize.ofBytes(8));
+		cache.setDirectory(directory.getPath());
+	}
+
+	@Test
+	public void smallBodyIsCachedInMemory() {
+		DataBuffer body = cache.cache(request("abc", "def"), factory).block();
+
+		assertThat(body.toString(StandardCharsets.UTF_8)).isEqualTo("abcdef");
+		assertThat(cache.getMemoryBytes()).isEqualTo(6);
+		assertThat(cache.getFileBytes()).isZero();
+		DataBufferUtils.release(body);
+		assertThat(sent).noneMatch(PooledDataBuffer::isAllocated);
+	}
+
+	@Test
+	public void largeBodyIsCachedInMappedFile() {
+		DataBuffer body = cache.cache(request("abcdef", "ghijkl", "mn"), factory).block();
+
+		assertThat(body.toString(StandardCharsets.UTF_8)).isEqualTo("abcdefghijklmn");
+		assertThat(cache.getMemoryBytes()).isZero();
+		assertThat(cache.getFileBytes()).isEqualTo(14);
+		assertThat(cache.getMappedBytes()).isEqualTo(14);
+		assertThat(sent).noneMatch(PooledDataBuffer::isAllocated);
+		assertThat(directory.list()).isEmpty();
+
+		DataBufferUtils.release(body);
+		assertThat(cache.getMappedBytes()).isZero();
+	}
+
+	@Test
+	public void mappedBodyCanBeReadRepeatedly() {
+		DataBuffer body = cache.cache(request("abcdef", "ghijkl"), factory).block();
+		NettyDataBuffer first = (NettyDataBuffer) body;
+
+		for (int i = 0; i < 2; i++) {
+			NettyDataBuffer slice = first.factory()
+					.wrap(first.getNativeBuffer().retainedSlice());
+			assertThat(slice.toString(StandardCharsets.UTF_8)).isEqualTo("abcdefghijkl");
+			DataBufferUtils.release(slice);
+		}
+		DataBufferUtils.release(body);
+	}
+
+	@Test
+	public void emptyBodyIsEmpty() {
+		assertThat(cache.cache(MockServerHttpRequest.post("/").build(), factory).block())
+				.isNull();
+	}
+
+	@Test
+	public void bodyLargerThanMaxSizeIsRejected() {
+		cache.setMaxSize(DataSize.ofBytes(10));
+
+		assertThatThrownBy(
+				() -> cache.cache(request("abcdef", "ghijkl", "mn"), factory).block())
+						.isInstanceOfSatisfying(ResponseStatusException.class,
+								e -> assertThat(e.getStatus())
+										.isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE));
+		assertThat(cache.getRejected()).isEqualTo(1);
+		assertThat(sent).noneMatch(PooledDataBuffer::isAllocated);
+		assertThat(cache.getMappedBytes()).isZero();
+	}
+
+	@Test
+	public void contentLengthLargerThanMaxSizeIsRejectedWithoutReadingBody() {
+		cache.setMaxSize(DataSize.ofBytes(10));
+		MockServerHttpRequest request = MockServerHttpRequest.post("/").contentLength(11)
+				.body(Flux.error(new AssertionError("body was read")));
+
+		assertThatThrownBy(() -> cache.cache(request, factory).block())
+				.isInstanceOf(ResponseStatusException.class);
+		assertThat(cache.getRejected()).isEqualTo(1);
+	}
+
+	private MockServerHttpRequest request(String... chunks) {
+		return MockServerHttpRequest.post("/").body(Flux.fromArray(chunks).map(chunk -> {
+			DataBuffer buffer = factory.allocateBuffer(chunk.length());
+			buffer.write(chunk, StandardCharsets.UTF_8);
+			sent.add((PooledDataBuffer) buffer);
+			return buffer;
+		}));
+	}
+
+}
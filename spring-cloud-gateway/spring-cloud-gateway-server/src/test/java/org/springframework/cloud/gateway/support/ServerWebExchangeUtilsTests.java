@@ -16,18 +16,28 @@
 
 package org.springframework.cloud.gateway.support;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import reactor.core.publisher.Flux;
 
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageReader;
 import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.clearCachedRequestBodyObjects;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.decodeRequestBody;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.expand;
 
 public class ServerWebExchangeUtilsTests {
@@ -35,6 +45,9 @@ public class ServerWebExchangeUtilsTests {
 	@Rule
 	public ExpectedException thrown = ExpectedException.none();
 
+	private final List<HttpMessageReader<?>> messageReaders = HandlerStrategies
+			.withDefaults().messageReaders();
+
 	@Test
 	public void expandWorks() {
 		HashMap<String, String> vars = new HashMap<>();
@@ -57,6 +70,50 @@ public class ServerWebExchangeUtilsTests {
 		expand(exchange, "my-{foo}-{baz}");
 	}
 
+	@Test
+	public void decodeRequestBodyDecodesOnceForEachType() {
+		AtomicInteger reads = new AtomicInteger();
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+				.post("/post").contentType(MediaType.APPLICATION_JSON)
+				.body(Flux.defer(() -> {
+					reads.incrementAndGet();
+					return Flux.just(new DefaultDataBufferFactory()
+							.wrap("{\"foo\":\"bar\"}".getBytes(StandardCharsets.UTF_8)));
+				})));
+
+		String first = decodeRequestBody(exchange, exchange.getRequest(), String.class,
+				messageReaders).block();
+		String second = decodeRequestBody(exchange, exchange.getRequest(), String.class,
+				messageReaders).block();
+		Map map = decodeRequestBody(exchange, exchange.getRequest(), Map.class,
+				messageReaders).block();
+
+		assertThat(first).isEqualTo("{\"foo\":\"bar\"}").isSameAs(second);
+		assertThat(map).containsEntry("foo", "bar");
+		assertThat(reads).hasValue(2);
+
+		clearCachedRequestBodyObjects(exchange);
+		decodeRequestBody(exchange, exchange.getRequest(), String.class, messageReaders)
+				.block();
+		assertThat(reads).hasValue(3);
+	}
+
+	@Test
+	public void decodeRequestBodyCachesEmptyBody() {
+		AtomicInteger reads = new AtomicInteger();
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.post("/post").body(Flux.defer(() -> {
+					reads.incrementAndGet();
+					return Flux.empty();
+				})));
+
+		for (int i = 0; i < 2; i++) {
+			assertThat(decodeRequestBody(exchange, exchange.getRequest(), String.class,
+					messageReaders).block()).isNull();
+		}
+		assertThat(reads).hasValue(1);
+	}
+
 	private MockServerWebExchange mockExchange(Map<String, String> vars) {
 		MockServerHttpRequest request = MockServerHttpRequest.get("/get").build();
 		MockServerWebExchange exchange = MockServerWebExchange.from(request);